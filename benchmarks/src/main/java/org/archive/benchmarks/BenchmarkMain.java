@@ -0,0 +1,63 @@
+/*
+ *  This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ *  Licensed to the Internet Archive (IA) by one or more individual
+ *  contributors.
+ *
+ *  The IA licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.archive.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmarks jar. Accepts all the usual JMH command
+ * line options (benchmark regexp, -f, -wi, -i, -p param=value, -prof ...),
+ * but unless told otherwise writes results as JSON to
+ * <code>jmh-result.json</code>, so that runs can be compared by tooling
+ * across commits.
+ *
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar UriUniqFilter -p filter=bdb
+ * </pre>
+ */
+public class BenchmarkMain {
+    public static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cmdline = new CommandLineOptions(args);
+        if (cmdline.shouldHelp() || cmdline.shouldList()
+                || cmdline.shouldListWithParams()
+                || cmdline.shouldListProfilers()
+                || cmdline.shouldListResultFormats()) {
+            // let the stock runner handle informational invocations
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+        OptionsBuilder builder = new OptionsBuilder();
+        builder.parent(cmdline);
+        if (!cmdline.getResultFormat().hasValue()) {
+            builder.resultFormat(ResultFormatType.JSON);
+        }
+        if (!cmdline.getResult().hasValue()) {
+            builder.result(DEFAULT_RESULT_FILE);
+        }
+        Options opts = builder.build();
+        new Runner(opts).run();
+    }
+}
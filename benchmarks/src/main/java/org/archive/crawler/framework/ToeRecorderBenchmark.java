@@ -0,0 +1,166 @@
+/*
+ *  This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ *  Licensed to the Internet Archive (IA) by one or more individual
+ *  contributors.
+ *
+ *  The IA licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.archive.crawler.framework;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.commons.io.FileUtils;
+import org.archive.util.Recorder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Many ToeThreads, each repeatedly waiting for a URI (a park standing in
+ * for the frontier and politeness delays) and then recording a fetch, with
+ * a Recorder of its own (<code>recorders=perThread</code>) or one borrowed
+ * per fetch from a {@link RecorderPool} (<code>recorders=pooled</code>).
+ * Compare fetches/s, and the most Recorders, hence in/out buffer pairs,
+ * each mode held at once, printed after each iteration. (The count
+ * pooled Recorders created also includes those made in the cold start,
+ * when all toes pile in at once.)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "-Xss256k"})
+public class ToeRecorderBenchmark {
+
+    @Param({"perThread", "pooled"})
+    public String recorders;
+
+    /** mean simulated wait for a URI before each fetch, in microseconds */
+    @Param({"20000"})
+    public int waitMicros;
+
+    /** bytes recorded per fetch */
+    @Param({"65536"})
+    public int fetchBytes;
+
+    protected File scratchDir;
+    protected RecorderPool pool;
+    protected AtomicInteger perThreadCreated = new AtomicInteger();
+    protected AtomicInteger maxHeld = new AtomicInteger();
+    protected byte[] body;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        scratchDir = Files.createTempDirectory("recorder-bench").toFile();
+        pool = new RecorderPool(scratchDir, 16 * 1024, 512 * 1024);
+        body = new byte[fetchBytes];
+        // load and initialize recording classes before the toes pile in
+        Recorder recorder = new Recorder(scratchDir, "warmup", 1024, 1024);
+        recorder.inputWrap(new ByteArrayInputStream(body))
+            .transferTo(OutputStreamSink.INSTANCE);
+        recorder.close();
+        recorder.closeRecorders();
+    }
+
+    @Setup(Level.Iteration)
+    public void resetHeld() {
+        maxHeld.set(0);
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportHeld() {
+        System.out.print("(most recorders held " + maxHeld.get() + ") ");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        pool.close();
+        FileUtils.deleteDirectory(scratchDir);
+    }
+
+    @State(Scope.Thread)
+    public static class Toe {
+        protected Recorder own;
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            if (own != null) {
+                own.closeRecorders();
+            }
+        }
+    }
+
+    @Benchmark
+    @Threads(200)
+    public long fetch(Toe toe) throws Exception {
+        // varied, so that toes do not all fetch at once
+        LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(2 * waitMicros * 1000L));
+        Recorder recorder;
+        boolean pooled = "pooled".equals(recorders);
+        if (pooled) {
+            recorder = pool.acquire();
+            maxHeld.accumulateAndGet(pool.getInUseCount(), Math::max);
+        } else {
+            if (toe.own == null) {
+                toe.own = new Recorder(scratchDir,
+                        "tt" + perThreadCreated.incrementAndGet() + "http",
+                        16 * 1024, 512 * 1024);
+            }
+            recorder = toe.own;
+            maxHeld.accumulateAndGet(perThreadCreated.get(), Math::max);
+        }
+        try {
+            InputStream in = recorder.inputWrap(new ByteArrayInputStream(body));
+            long read = in.transferTo(OutputStreamSink.INSTANCE);
+            recorder.close();
+            return read + recorder.getRecordedInput().getSize();
+        } finally {
+            recorder.endReplays();
+            if (pooled) {
+                pool.release(recorder);
+            }
+        }
+    }
+
+    /** discards everything */
+    static class OutputStreamSink extends java.io.OutputStream {
+        static final OutputStreamSink INSTANCE = new OutputStreamSink();
+        @Override
+        public void write(int b) {
+        }
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+}
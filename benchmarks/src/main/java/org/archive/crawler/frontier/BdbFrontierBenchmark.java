@@ -0,0 +1,115 @@
+/*
+ *  This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ *  Licensed to the Internet Archive (IA) by one or more individual
+ *  contributors.
+ *
+ *  The IA licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.archive.crawler.frontier;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.archive.bdb.BdbModule;
+import org.archive.modules.CrawlURI;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the two calls every ToeThread makes against the frontier:
+ * {@link WorkQueueFrontier#schedule(CrawlURI)} of discovered links and
+ * the {@link WorkQueueFrontier#next()}/{@link WorkQueueFrontier#finished(CrawlURI)}
+ * cycle, on a {@link BdbFrontier} backed by a scratch {@link BdbModule}.
+ *
+ * <p>The frontier is wired by hand rather than through a crawl job, see
+ * {@link FrontierFixture}. Politeness delays are zero, so a finished queue
+ * is immediately ready again and the emit benchmark measures queue
+ * rotation at steady state.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+public class BdbFrontierBenchmark {
+
+    /** number of distinct hosts, hence queues */
+    @Param({"100", "5000"})
+    public int hosts;
+
+    /** URIs enqueued per host before measurement */
+    @Param({"5"})
+    public int urisPerHost;
+
+    /** see {@link BdbFrontier#setQueuePrefetchSize(int)}; 1 disables */
+    @Param({"1", "16"})
+    public int queuePrefetchSize;
+
+    protected File scratchDir;
+    protected BdbModule bdb;
+    protected BdbFrontier frontier;
+    protected AtomicLong uriCounter = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        scratchDir = Files.createTempDirectory("frontier-bench").toFile();
+        bdb = FrontierFixture.createBdbModule(scratchDir);
+        frontier = FrontierFixture.createFrontier(bdb, 0);
+        frontier.setQueuePrefetchSize(queuePrefetchSize);
+        for (int i = 0; i < hosts * urisPerHost; i++) {
+            frontier.schedule(nextUri());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        FrontierFixture.dispose(frontier, bdb, scratchDir);
+    }
+
+    protected CrawlURI nextUri() throws Exception {
+        return FrontierFixture.makeCrawlURI(uriCounter.getAndIncrement(), hosts);
+    }
+
+    /** enqueue a never-before-seen URI */
+    @Benchmark
+    public void schedule() throws Exception {
+        frontier.schedule(nextUri());
+    }
+
+    /**
+     * emit a URI, report it successfully fetched and replace it with a
+     * newly discovered one, keeping the frontier size constant
+     */
+    @Benchmark
+    @Threads(4)
+    public CrawlURI emitFinishSchedule() throws Exception {
+        return FrontierFixture.emitFinishSchedule(frontier, nextUri());
+    }
+}
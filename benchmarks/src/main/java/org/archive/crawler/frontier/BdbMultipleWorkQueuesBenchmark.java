@@ -0,0 +1,153 @@
+/*
+ *  This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ *  Licensed to the Internet Archive (IA) by one or more individual
+ *  contributors.
+ *
+ *  The IA licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.archive.crawler.frontier;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.archive.bdb.BdbModule;
+import org.archive.bdb.StoredQueue;
+import org.archive.modules.CrawlURI;
+import org.archive.net.UURIFactory;
+import org.archive.util.bdbje.EnhancedEnvironment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sleepycat.je.Database;
+import com.sleepycat.je.DatabaseEntry;
+import com.sleepycat.je.EnvironmentConfig;
+
+/**
+ * Measures the pending-URI store underneath {@link BdbFrontier}: raw
+ * {@link BdbMultipleWorkQueues#put(CrawlURI, boolean)} of new URIs, and
+ * the head-of-queue cycle a {@link BdbWorkQueue} performs for every
+ * emitted URI (cursor positioned get, delete, and an insert replacing
+ * the consumed item), spread over a configurable number of queues.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+public class BdbMultipleWorkQueuesBenchmark {
+
+    /** number of distinct queues (classKeys) */
+    @Param({"100", "10000"})
+    public int queues;
+
+    /** items per queue loaded before measurement */
+    @Param({"20"})
+    public int itemsPerQueue;
+
+    protected File scratchDir;
+    protected EnhancedEnvironment env;
+    protected Database db;
+    protected BdbMultipleWorkQueues pendingUris;
+    protected byte[][] origins;
+    protected long ordinal;
+    protected int nextQueue;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        scratchDir = Files.createTempDirectory("bmwq-bench").toFile();
+        EnvironmentConfig envConfig = new EnvironmentConfig();
+        envConfig.setTransactional(false);
+        envConfig.setAllowCreate(true);
+        envConfig.setCachePercent(20);
+        env = new EnhancedEnvironment(scratchDir, envConfig);
+        BdbModule.BdbConfig dbConfig = StoredQueue.databaseConfig();
+        db = env.openDatabase(null, "pending", dbConfig.toDatabaseConfig());
+        pendingUris = new BdbMultipleWorkQueues(db, env.getClassCatalog());
+
+        origins = new byte[queues][];
+        for (int q = 0; q < queues; q++) {
+            origins[q] = BdbMultipleWorkQueues.calculateOriginKey(classKey(q));
+            pendingUris.addCap(origins[q]);
+        }
+        for (int i = 0; i < itemsPerQueue; i++) {
+            for (int q = 0; q < queues; q++) {
+                pendingUris.put(makeCrawlURI(q), false);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        pendingUris.close();
+        db.close();
+        env.close();
+        FileUtils.deleteDirectory(scratchDir);
+    }
+
+    protected static String classKey(int q) {
+        return "com,example,host" + q + ",";
+    }
+
+    protected CrawlURI makeCrawlURI(int q) throws Exception {
+        long n = ++ordinal;
+        CrawlURI curi = new CrawlURI(UURIFactory.getInstance(
+                "http://host" + q + ".example.com/path/" + n + ".html"));
+        curi.setClassKey(classKey(q));
+        curi.setOrdinal(n);
+        return curi;
+    }
+
+    protected int nextQueue() {
+        int q = nextQueue;
+        if (++nextQueue == queues) {
+            nextQueue = 0;
+        }
+        return q;
+    }
+
+    /** insert a new URI at the tail of one queue */
+    @Benchmark
+    public void put() throws Exception {
+        pendingUris.put(makeCrawlURI(nextQueue()), false);
+    }
+
+    /**
+     * read a queue's head item, delete it, and insert a replacement,
+     * as emitting and finishing a URI with one new discovery does
+     */
+    @Benchmark
+    public CrawlURI getDeletePut() throws Exception {
+        int q = nextQueue();
+        // get() repositions the entry it is given, so always a fresh one
+        CrawlURI head = pendingUris.get(new DatabaseEntry(origins[q]));
+        pendingUris.delete(head);
+        pendingUris.put(makeCrawlURI(q), false);
+        return head;
+    }
+}
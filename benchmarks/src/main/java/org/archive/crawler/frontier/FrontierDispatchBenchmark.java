@@ -0,0 +1,130 @@
+/*
+ *  This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ *  Licensed to the Internet Archive (IA) by one or more individual
+ *  contributors.
+ *
+ *  The IA licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.archive.crawler.frontier;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.archive.bdb.BdbModule;
+import org.archive.modules.CrawlURI;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Contention benchmark of frontier dispatch: the same emit/finish/schedule
+ * cycle as {@link BdbFrontierBenchmark}, run at increasing thread counts
+ * (one benchmark method per count) over enough queues that threads never
+ * run out of ready work. Compare the ops/s of the <code>threadsN</code>
+ * results to see how URIs/sec scale with ToeThreads, with
+ * <code>readyQueueStripes=1</code> (a single ready FIFO) against the
+ * default striping.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+public class FrontierDispatchBenchmark {
+
+    /** number of distinct hosts, hence queues; well above thread counts */
+    @Param({"2000"})
+    public int hosts;
+
+    /** URIs enqueued per host before measurement */
+    @Param({"3"})
+    public int urisPerHost;
+
+    /** see {@link WorkQueueFrontier#setReadyQueueStripes(int)} */
+    @Param({"1", "0"})
+    public int readyQueueStripes;
+
+    protected File scratchDir;
+    protected BdbModule bdb;
+    protected BdbFrontier frontier;
+    protected AtomicLong uriCounter = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        scratchDir = Files.createTempDirectory("dispatch-bench").toFile();
+        bdb = FrontierFixture.createBdbModule(scratchDir);
+        frontier = FrontierFixture.createFrontier(bdb, readyQueueStripes);
+        for (int i = 0; i < hosts * urisPerHost; i++) {
+            frontier.schedule(nextUri());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        FrontierFixture.dispose(frontier, bdb, scratchDir);
+    }
+
+    protected CrawlURI nextUri() throws Exception {
+        return FrontierFixture.makeCrawlURI(uriCounter.getAndIncrement(), hosts);
+    }
+
+    protected CrawlURI cycle() throws Exception {
+        return FrontierFixture.emitFinishSchedule(frontier, nextUri());
+    }
+
+    @Benchmark
+    @Threads(1)
+    public CrawlURI threads1() throws Exception {
+        return cycle();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public CrawlURI threads8() throws Exception {
+        return cycle();
+    }
+
+    @Benchmark
+    @Threads(32)
+    public CrawlURI threads32() throws Exception {
+        return cycle();
+    }
+
+    @Benchmark
+    @Threads(128)
+    public CrawlURI threads128() throws Exception {
+        return cycle();
+    }
+
+    @Benchmark
+    @Threads(512)
+    public CrawlURI threads512() throws Exception {
+        return cycle();
+    }
+}
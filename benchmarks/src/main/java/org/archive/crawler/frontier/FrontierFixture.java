@@ -0,0 +1,118 @@
+/*
+ *  This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ *  Licensed to the Internet Archive (IA) by one or more individual
+ *  contributors.
+ *
+ *  The IA licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.archive.crawler.frontier;
+
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.archive.bdb.BdbModule;
+import org.archive.crawler.prefetch.FrontierPreparer;
+import org.archive.crawler.spring.SheetOverlaysManager;
+import org.archive.crawler.util.NoopUriUniqFilter;
+import org.archive.modules.CrawlURI;
+import org.archive.modules.fetcher.DefaultServerCache;
+import org.archive.net.UURIFactory;
+import org.archive.spring.ConfigPath;
+import org.springframework.context.support.StaticApplicationContext;
+
+/**
+ * Hand-wired {@link BdbFrontier} for benchmarks. The uniq filter is a
+ * {@link NoopUriUniqFilter} (uniq filters have their own benchmark),
+ * crawl.log output is discarded and the frontier manager thread is never
+ * started, so only the queueing work itself is timed.
+ */
+public class FrontierFixture {
+
+    /**
+     * BdbFrontier that does not write crawl.log lines, so that no
+     * CrawlerLoggerModule is needed.
+     */
+    protected static class UnloggedBdbFrontier extends BdbFrontier {
+        @Override
+        protected void log(CrawlURI curi) {
+            curi.aboutToLog();
+        }
+    }
+
+    public static BdbModule createBdbModule(File scratchDir) throws Exception {
+        ConfigPath basePath = new ConfigPath("benchBase",
+                scratchDir.getAbsolutePath());
+        ConfigPath bdbDir = new ConfigPath("bdb", "bdb");
+        bdbDir.setBase(basePath);
+        BdbModule bdb = new BdbModule();
+        bdb.setDir(bdbDir);
+        bdb.start();
+        return bdb;
+    }
+
+    /**
+     * @param readyQueueStripes see {@link WorkQueueFrontier#setReadyQueueStripes(int)}
+     */
+    public static BdbFrontier createFrontier(BdbModule bdb,
+            int readyQueueStripes) throws Exception {
+        StaticApplicationContext appCtx = new StaticApplicationContext();
+        appCtx.refresh();
+
+        BdbFrontier frontier = new UnloggedBdbFrontier();
+        frontier.setBeanName("frontier");
+        frontier.setBdbModule(bdb);
+        frontier.setUriUniqFilter(new NoopUriUniqFilter());
+        frontier.setFrontierPreparer(new FrontierPreparer());
+        frontier.setSheetOverlaysManager(new SheetOverlaysManager());
+        frontier.setServerCache(new DefaultServerCache());
+        frontier.setRecoveryLogEnabled(false);
+        frontier.setReadyQueueStripes(readyQueueStripes);
+        frontier.setApplicationContext(appCtx);
+        // minimal subset of start(): queues without the manager thread
+        frontier.uriUniqFilter.setDestination(frontier);
+        frontier.initInternalQueues();
+        return frontier;
+    }
+
+    public static void dispose(BdbFrontier frontier, BdbModule bdb,
+            File scratchDir) throws Exception {
+        frontier.close();
+        bdb.stop();
+        bdb.destroy();
+        FileUtils.deleteDirectory(scratchDir);
+    }
+
+    /** the n'th URI of a crawl spread evenly over the given hosts */
+    public static CrawlURI makeCrawlURI(long n, int hosts) throws Exception {
+        return new CrawlURI(UURIFactory.getInstance("http://host"
+                + (n % hosts) + ".example.com/path/" + n + ".html"));
+    }
+
+    /**
+     * What a ToeThread does with the frontier per URI: take one, report
+     * it fetched, and schedule one newly discovered URI, keeping the
+     * frontier size constant.
+     */
+    public static CrawlURI emitFinishSchedule(BdbFrontier frontier,
+            CrawlURI discovered) throws Exception {
+        CrawlURI curi = frontier.next();
+        curi.setFetchStatus(200);
+        // normally set by DispositionProcessor
+        curi.setPolitenessDelay(0);
+        frontier.finished(curi);
+        frontier.schedule(discovered);
+        return curi;
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ *  This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ *  Licensed to the Internet Archive (IA) by one or more individual
+ *  contributors.
+ *
+ *  The IA licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.archive.crawler.spring;
+
+import java.util.concurrent.TimeUnit;
+
+import org.archive.modules.CrawlURI;
+import org.archive.net.UURIFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of {@link SheetOverlaysManager#applyOverlaysTo(CrawlURI)}, done by
+ * the frontier for every scheduled and emitted URI, with many SURT sheet
+ * associations, with and without the per-authority resolution cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SheetOverlaysBenchmark {
+
+    /** number of SURT prefix associations */
+    @Param({"2000"})
+    public int associations;
+
+    /** see {@link SheetOverlaysManager#setSurtOverlaysCacheSize(int)} */
+    @Param({"0", "100000"})
+    public int cacheSize;
+
+    protected SheetOverlaysManager manager;
+    protected CrawlURI[] uris;
+    protected int next;
+
+    @Setup
+    public void setUp() throws Exception {
+        manager = new SheetOverlaysManager();
+        manager.setSurtOverlaysCacheSize(cacheSize);
+        for (int i = 0; i < associations; i++) {
+            manager.addSurtAssociation("http://(com,site" + i + ",", "sheet" + (i % 10));
+            if (i % 10 == 0) {
+                manager.addSurtAssociation("http://(com,site" + i + ",www,)/private/", "private");
+            }
+        }
+        uris = new CrawlURI[4096];
+        for (int i = 0; i < uris.length; i++) {
+            uris[i] = new CrawlURI(UURIFactory.getInstance("http://www.site"
+                    + (i % (associations * 2)) + ".com/"
+                    + (i % 3 == 0 ? "private/" : "") + i + ".html"));
+        }
+    }
+
+    @Benchmark
+    public CrawlURI applyOverlaysTo() {
+        CrawlURI curi = uris[next++ & (uris.length - 1)];
+        manager.applyOverlaysTo(curi);
+        return curi;
+    }
+}
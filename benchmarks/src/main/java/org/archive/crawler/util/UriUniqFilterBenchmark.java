@@ -0,0 +1,163 @@
+/*
+ *  This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ *  Licensed to the Internet Archive (IA) by one or more individual
+ *  contributors.
+ *
+ *  The IA licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.archive.crawler.util;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.archive.crawler.datamodel.UriUniqFilter;
+import org.archive.modules.CrawlURI;
+import org.archive.net.UURIFactory;
+import org.archive.util.BloomFilter64bit;
+import org.archive.util.fingerprint.MemLongFPSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * JMH successor to {@link BenchmarkUriUniqFilters}: measures
+ * {@link UriUniqFilter#add(String, CrawlURI)} throughput of every shipped
+ * implementation over a pregenerated corpus of URIs in which a
+ * configurable fraction are repeats, as happens when many pages on a
+ * site link to the same navigation targets.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+public class UriUniqFilterBenchmark {
+
+    @Param({"bdb", "bdbBatch", "bloom", "scalableBloom", "fp", "offHeap", "mem", "diskFpMerge", "memFpMerge"})
+    public String filter;
+
+    /** number of distinct URIs generated */
+    @Param({"1000000"})
+    public int corpusSize;
+
+    /** percentage of adds which repeat an earlier URI */
+    @Param({"30"})
+    public int duplicatePercent;
+
+    protected UriUniqFilter uniqFilter;
+    protected File scratchDir;
+    protected String[] corpus;
+    protected CrawlURI dummy;
+    protected int next;
+    protected Blackhole blackhole;
+
+    @Setup(Level.Trial)
+    public void setUpCorpus() throws Exception {
+        Random random = new Random(1);
+        int total = corpusSize + (int) ((long) corpusSize * duplicatePercent
+                / (100 - duplicatePercent));
+        corpus = new String[total];
+        int unique = 0;
+        for (int i = 0; i < total; i++) {
+            if (unique > 0 && random.nextInt(100) < duplicatePercent) {
+                corpus[i] = corpus[random.nextInt(i)];
+            } else {
+                corpus[i] = "http://www" + random.nextInt(5000) + ".example"
+                        + random.nextInt(100) + ".com/dir" + random.nextInt(50)
+                        + "/page" + unique + ".html?q=" + random.nextInt(1000);
+                unique++;
+            }
+        }
+        dummy = new CrawlURI(UURIFactory.getInstance("http://example.com/"));
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpFilter(Blackhole bh) throws Exception {
+        blackhole = bh;
+        scratchDir = Files.createTempDirectory("uuf-bench").toFile();
+        uniqFilter = createFilter(filter, scratchDir);
+        uniqFilter.setDestination(new UriUniqFilter.CrawlUriReceiver() {
+            public void receive(CrawlURI item) {
+                blackhole.consume(item);
+            }
+        });
+        next = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDownFilter() throws Exception {
+        uniqFilter.close();
+        FileUtils.deleteDirectory(scratchDir);
+    }
+
+    /**
+     * Instantiate the named filter roughly as a crawl configuration would,
+     * with sizes scaled down so that a run fits in a small heap.
+     */
+    protected static UriUniqFilter createFilter(String name, File scratchDir)
+            throws Exception {
+        switch (name) {
+        case "bdb":
+            return new BdbUriUniqFilter(scratchDir, 20);
+        case "bdbBatch":
+            return new BatchingBdbUriUniqFilter(scratchDir, 20);
+        case "bloom":
+            BloomUriUniqFilter bloom = new BloomUriUniqFilter();
+            bloom.setBloomFilter(new BloomFilter64bit(10000000, 22));
+            bloom.afterPropertiesSet();
+            return bloom;
+        case "scalableBloom":
+            // first layer undersized, so that the timing includes growth
+            return new ScalableBloomUriUniqFilter(scratchDir, 1000000);
+        case "fp":
+            return new FPUriUniqFilter(new MemLongFPSet(23, 0.75f));
+        case "offHeap":
+            // deliberately undersized, so that the timing includes growth
+            return new OffHeapFPUriUniqFilter(scratchDir, 20);
+        case "mem":
+            return new MemUriUniqFilter();
+        case "diskFpMerge":
+            return new DiskFPMergeUriUniqFilter(scratchDir);
+        case "memFpMerge":
+            return new MemFPMergeUriUniqFilter();
+        default:
+            throw new IllegalArgumentException("unknown filter: " + name);
+        }
+    }
+
+    @Benchmark
+    public void add() {
+        String uri = corpus[next];
+        if (++next == corpus.length) {
+            next = 0;
+        }
+        uniqFilter.add(uri, dummy);
+    }
+}
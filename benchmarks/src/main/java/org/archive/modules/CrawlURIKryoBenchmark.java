@@ -0,0 +1,99 @@
+/*
+ *  This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ *  Licensed to the Internet Archive (IA) by one or more individual
+ *  contributors.
+ *
+ *  The IA licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.archive.modules;
+
+import java.util.concurrent.TimeUnit;
+
+import org.archive.bdb.KryoBinding;
+import org.archive.modules.extractor.Hop;
+import org.archive.modules.extractor.LinkContext;
+import org.archive.net.UURIFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sleepycat.je.DatabaseEntry;
+
+/**
+ * Measures the {@link KryoBinding} used to store every pending
+ * {@link CrawlURI} in the frontier: serializing a URI as enqueued
+ * (classKey, precedence, via and some data-map entries set) and reading
+ * it back. Runs with several threads since the binding pools its Kryo
+ * instances and buffers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@Threads(4)
+public class CrawlURIKryoBenchmark {
+
+    protected KryoBinding<CrawlURI> binding;
+    protected CrawlURI curi;
+    protected DatabaseEntry serialized;
+
+    @Setup
+    public void setUp() throws Exception {
+        binding = new KryoBinding<CrawlURI>(CrawlURI.class);
+        CrawlURI via = new CrawlURI(
+                UURIFactory.getInstance("http://www.example.com/section/index.html"));
+        curi = via.createCrawlURI(
+                UURIFactory.getInstance("http://www.example.com/section/article-1234.html?ref=nav"),
+                LinkContext.NAVLINK_MISC, Hop.NAVLINK);
+        curi.setClassKey("com,example,www,");
+        curi.setSchedulingDirective(SchedulingConstants.NORMAL);
+        curi.setPrecedence(3);
+        curi.setOrdinal(123456789L);
+        curi.setHolderCost(1);
+        curi.getData().put("sourceTag", "http://www.example.com/");
+        curi.getAnnotations().add("seed-redirect");
+        serialized = new DatabaseEntry();
+        binding.objectToEntry(curi, serialized);
+    }
+
+    @Benchmark
+    public DatabaseEntry serialize() {
+        DatabaseEntry entry = new DatabaseEntry();
+        binding.objectToEntry(curi, entry);
+        return entry;
+    }
+
+    @Benchmark
+    public CrawlURI deserialize() {
+        return binding.entryToObject(serialized);
+    }
+
+    @Benchmark
+    public CrawlURI roundTrip() {
+        DatabaseEntry entry = new DatabaseEntry();
+        binding.objectToEntry(curi, entry);
+        return binding.entryToObject(entry);
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ *  This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ *  Licensed to the Internet Archive (IA) by one or more individual
+ *  contributors.
+ *
+ *  The IA licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.archive.modules.extractor;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.archive.modules.CrawlMetadata;
+import org.archive.modules.CrawlURI;
+import org.archive.modules.ProcessResult;
+import org.archive.net.UURI;
+import org.archive.net.UURIFactory;
+import org.archive.url.URIException;
+import org.archive.util.Recorder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures link extraction by {@link ExtractorHTML}, {@link ExtractorJS}
+ * and {@link ExtractorCSS} over the documents of the bundled corpus
+ * (see <code>corpus/</code> next to this class). Each invocation
+ * processes a fresh {@link CrawlURI} against a {@link Recorder} already
+ * holding the document, as a ToeThread would after fetching it. The
+ * recorder keeps its decoded replay sequence between invocations (ending
+ * the replays would discard the recording), so charset decoding is paid
+ * once per trial and the measurement is of link extraction proper.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class ExtractorBenchmark {
+
+    /** corpus document; the extractor is chosen by its extension */
+    @Param({"news-article.html", "forum-listing.html", "webapp-shell.html",
+        "site-bundle.js", "analytics.js", "theme.css", "legacy.css"})
+    public String document;
+
+    protected static final String BASE = "http://www.example.org/corpus/";
+
+    protected File scratchDir;
+    protected ContentExtractor extractor;
+    protected Recorder recorder;
+    protected UURI uuri;
+    protected UURI via;
+    protected String contentType;
+    protected int contentSize;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        byte[] content;
+        try (InputStream in = ExtractorBenchmark.class.getResourceAsStream(
+                "corpus/" + document)) {
+            if (in == null) {
+                throw new IllegalArgumentException("no corpus document " + document);
+            }
+            content = IOUtils.toByteArray(in);
+        }
+        contentSize = content.length;
+        scratchDir = Files.createTempDirectory("extractor-bench").toFile();
+        // buffers large enough to keep the whole document in memory
+        recorder = new Recorder(new File(scratchDir, "recorder"),
+                content.length + 1024, content.length + 1024);
+        try (InputStream is = recorder.inputWrap(new ByteArrayInputStream(content))) {
+            recorder.markContentBegin();
+            IOUtils.copy(is, OutputStream.nullOutputStream());
+        }
+
+        uuri = UURIFactory.getInstance(BASE + document);
+        via = UURIFactory.getInstance(BASE);
+        UriErrorLoggerModule ulm = new UriErrorLoggerModule() {
+            public void logUriError(URIException e, UURI u, CharSequence l) {
+            }
+        };
+        if (document.endsWith(".html")) {
+            ExtractorHTML html = new ExtractorHTML();
+            html.setLoggerModule(ulm);
+            CrawlMetadata metadata = new CrawlMetadata();
+            metadata.afterPropertiesSet();
+            html.setMetadata(metadata);
+            ExtractorJS js = new ExtractorJS();
+            js.setLoggerModule(ulm);
+            html.setExtractorJS(js);
+            html.afterPropertiesSet();
+            extractor = html;
+            contentType = "text/html";
+        } else if (document.endsWith(".js")) {
+            ExtractorJS js = new ExtractorJS();
+            js.setLoggerModule(ulm);
+            extractor = js;
+            contentType = "application/javascript";
+        } else if (document.endsWith(".css")) {
+            ExtractorCSS css = new ExtractorCSS();
+            css.setLoggerModule(ulm);
+            extractor = css;
+            contentType = "text/css";
+        } else {
+            throw new IllegalArgumentException("no extractor for " + document);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        recorder.endReplays();
+        recorder.cleanup();
+        FileUtils.deleteDirectory(scratchDir);
+    }
+
+    @Benchmark
+    public CrawlURI extract() throws Exception {
+        CrawlURI curi = new CrawlURI(uuri, "L", via, LinkContext.NAVLINK_MISC);
+        curi.setFetchStatus(200);
+        curi.setContentType(contentType);
+        curi.setContentSize(contentSize);
+        curi.setRecorder(recorder);
+        if (extractor.process(curi) != ProcessResult.PROCEED) {
+            throw new IllegalStateException("unexpected result for " + curi);
+        }
+        if (curi.getOutLinks().isEmpty()) {
+            throw new IllegalStateException("no links extracted from " + document);
+        }
+        return curi;
+    }
+}
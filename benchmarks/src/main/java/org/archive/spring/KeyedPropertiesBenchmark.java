@@ -0,0 +1,103 @@
+/*
+ *  This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ *  Licensed to the Internet Archive (IA) by one or more individual
+ *  contributors.
+ *
+ *  The IA licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.archive.spring;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of a {@link KeyedProperties#get(String)} property read, as done by
+ * nearly every overridable bean getter, with no overlays active on the
+ * thread and with a URI's sheets loaded. Run with <code>-prof gc</code>
+ * to see allocation per read (gc.alloc.rate.norm), which should be zero.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KeyedPropertiesBenchmark {
+
+    /** number of sheets applied to the (simulated) URI */
+    @Param({"0", "3"})
+    public int overlays;
+
+    protected KeyedProperties kp;
+    protected OverlayContext context;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        kp = new KeyedProperties();
+        kp.put("delayFactor", 5.0f);
+        kp.addExternalPath("disposition");
+        kp.addExternalPath("fetchHttp.disposition");
+
+        final ArrayList<String> names = new ArrayList<String>();
+        final Map<String,Map<String,Object>> maps = new HashMap<String,Map<String,Object>>();
+        for (int i = 0; i < overlays; i++) {
+            Map<String,Object> sheet = new HashMap<String,Object>();
+            sheet.put("unrelated" + i + ".delayFactor", 1.0f);
+            names.add("sheet" + i);
+            maps.put("sheet" + i, sheet);
+        }
+        context = new OverlayContext() {
+            public boolean haveOverlayNamesBeenSet() {
+                return true;
+            }
+            public ArrayList<String> getOverlayNames() {
+                return names;
+            }
+            public Map<String,Object> getOverlayMap(String name) {
+                return maps.get(name);
+            }
+        };
+        if (overlays > 0) {
+            KeyedProperties.loadOverridesFrom(context);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        KeyedProperties.clearAllOverrideContexts();
+    }
+
+    /** read of a property no sheet overrides: the worst case walk */
+    @Benchmark
+    public Object get() {
+        return kp.get("delayFactor");
+    }
+}
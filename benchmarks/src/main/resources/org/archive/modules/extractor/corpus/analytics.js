@@ -0,0 +1 @@
+!function(e,t){var n=[];e.q0=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=heritage-sport&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q1=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=preservation-politics-news&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q2=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=web-weather-science-library-collection&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q3=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=sport-national-heritage-sport&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q4=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=sport-culture-crawl-archive-culture&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q5=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=weather-national-archive-crawl&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q6=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=digital-economy-digital-travel-site&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q7=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=weather-library-politics-science&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q8=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=crawl-national-sport-politics&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q9=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=preservation-web&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q10=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=harvest-collection-sport-digital-news&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q11=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=economy-science-record&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q12=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=weather-digital-culture-digital&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q13=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=travel-record-record&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q14=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=culture-economy-record&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q15=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=collection-weather&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q16=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=economy-history&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q17=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=archive-travel&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q18=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=news-sport-history&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q19=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=sport-web-weather-weather-web&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q20=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=travel-culture&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q21=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=page-site&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q22=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=site-national-archive-harvest&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q23=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=page-library-culture-archive-heritage&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q24=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=digital-travel&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q25=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=library-web-economy-weather&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q26=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=heritage-heritage-history-page&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q27=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=digital-history&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q28=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=archive-library-weather&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q29=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=harvest-digital-politics-science-history&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q30=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=sport-library-travel&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q31=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=web-politics-collection&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q32=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=collection-digital&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q33=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=science-digital-library&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q34=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=travel-sport&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q35=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=travel-sport-culture-archive&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q36=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=weather-travel-weather-crawl-record&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q37=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=news-digital-harvest-travel-science&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q38=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=history-page-science-crawl-heritage&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q39=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=digital-news&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q40=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=record-archive-site-library-record&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q41=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=politics-archive&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q42=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=news-web-heritage&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q43=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=national-record-preservation&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q44=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=weather-weather&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q45=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=archive-history&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q46=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=archive-politics-weather-record-digital&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q47=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=harvest-history-heritage&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q48=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=crawl-record-science-heritage&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q49=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=economy-economy&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q50=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=harvest-weather-culture-politics-harvest&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q51=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=crawl-crawl&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q52=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=record-web-collection-crawl-culture&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q53=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=preservation-economy&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q54=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=web-harvest-travel-crawl-sport&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q55=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=preservation-site&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q56=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=harvest-economy-news-heritage-economy&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q57=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=culture-site&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q58=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=news-economy-economy-harvest-record&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q59=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=culture-science&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q60=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=politics-library-harvest-harvest&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q61=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=economy-web&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q62=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=politics-collection-weather&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q63=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=page-news-history-economy&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q64=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=national-heritage-collection-crawl-crawl&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q65=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=preservation-politics-news&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q66=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=preservation-politics-sport-collection&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q67=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=history-preservation-economy&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q68=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=preservation-page-archive-science&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q69=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=crawl-heritage-science&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q70=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=news-page&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q71=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=library-weather-library&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q72=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=record-library&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q73=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=culture-economy-record-politics-politics&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q74=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=economy-preservation-news-record&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q75=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=harvest-culture-crawl&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q76=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=heritage-archive-weather-heritage-heritage&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q77=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=economy-library-heritage-history-record&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q78=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=library-site-national-archive-page&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q79=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=web-page&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q80=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=sport-harvest&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q81=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=preservation-culture-library&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q82=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=crawl-archive-library-library&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q83=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=national-heritage-digital-national&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q84=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=sport-heritage-national-library&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q85=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=national-digital&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q86=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=archive-travel&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q87=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=site-weather-harvest&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q88=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=library-preservation-culture-heritage&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q89=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=page-travel-national-science&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q90=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=web-harvest-collection-collection-library&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q91=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=sport-site-page&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q92=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=economy-news-weather-heritage&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q93=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=economy-politics&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q94=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=sport-preservation-collection&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q95=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=heritage-crawl-weather-digital&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q96=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=science-politics-history&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q97=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=web-history-travel&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q98=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=national-science&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q99=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=weather-science-page-history-science&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q100=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=national-record-page-science-history&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q101=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=history-digital-politics-site-weather&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q102=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=library-heritage&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q103=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=culture-heritage-site&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q104=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=preservation-news-site&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q105=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=page-digital-sport&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q106=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=collection-web&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q107=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=culture-science-page-heritage&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q108=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=culture-science&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q109=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=news-culture-culture-news&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q110=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=page-history-record-digital-site&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q111=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=national-culture&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q112=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=digital-weather-web&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q113=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=web-preservation-science-science&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q114=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=digital-heritage&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q115=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=harvest-web&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q116=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=crawl-sport-library-record&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q117=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=travel-record-digital&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q118=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=travel-digital-library-economy&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q119=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=sport-digital-archive&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q120=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=preservation-page-site-site&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q121=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=history-weather&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q122=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=site-heritage-heritage&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q123=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=history-heritage-science&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q124=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=culture-record-web-record-library&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q125=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=news-library-culture-culture-sport&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q126=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=page-collection&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q127=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=preservation-archive-history&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q128=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=record-heritage-news-news&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q129=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=sport-preservation-record-politics-archive&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q130=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=collection-collection&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q131=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=politics-weather-economy-economy&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q132=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=site-library-site-web-sport&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q133=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=library-history-harvest-record-politics&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q134=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=weather-preservation-web-national-harvest&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q135=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=crawl-economy-history&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q136=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=national-library&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q137=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=site-preservation&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q138=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=heritage-preservation-travel&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q139=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=culture-crawl&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q140=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=science-archive-national-record&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q141=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=site-national-harvest-collection-sport&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q142=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=history-web-site-library-collection&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q143=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=preservation-news-travel&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q144=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=national-economy-politics-preservation-politics&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q145=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=science-travel-culture&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q146=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=library-archive-collection-culture&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q147=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=site-economy&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q148=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=science-record-politics&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};e.q149=function(a){var i=new Image;i.src="//stats.example.org/p.gif?e=culture-culture-politics-crawl-web&v="+encodeURIComponent(a)+"&r="+Math.random();n.push(i)};t.cookie="_ex=709906175525; path=/; max-age=31536000";e.sendBeacon&&e.sendBeacon("https://stats.example.org/beacon","x");}(window,document);
@@ -0,0 +1,204 @@
+/* site bundle */
+(function(){"use strict";
+var config={apiBase:"https://api.example.org/v2/",assets:"/static/",tracking:"https://stats.example.org/collect"};
+var s0={id:0,label:"national sport preservation",cls:"btn btn-harvest",tpl:'<a href="/site-history">collection culture</a>'};
+document.getElementById("el1").setAttribute("src","/static/img/archive-sport-science.png");
+document.getElementById("el2").setAttribute("src","/static/img/history-preservation-politics-travel.png");
+var u3="/news/record-harvest-history-crawl-collection.html",m3="travel sport harvest preservation archive";
+if(window.location.pathname.indexOf("/culture-page-web/")===0){window.location="https://www.example.org/crawl-economy-weather-library/";}
+var s5={id:5,label:"science heritage digital",cls:"btn btn-library",tpl:'<a href="/web-sport">culture travel</a>'};
+function f6(a,b){return fetch(config.apiBase+"library-history-record-economy-economy/"+a+"?page="+b).then(function(r){return r.json();});}
+var s7={id:7,label:"crawl travel page",cls:"btn btn-site",tpl:'<a href="/news-page-site">page archive</a>'};
+document.getElementById("el8").setAttribute("src","/static/img/page-preservation-culture-sport.png");
+function f9(a,b){return fetch(config.apiBase+"culture-news-culture/"+a+"?page="+b).then(function(r){return r.json();});}
+document.getElementById("el10").setAttribute("src","/static/img/news-news-collection.png");
+var s11={id:11,label:"economy web collection",cls:"btn btn-library",tpl:'<a href="/history-science-record-web">politics site</a>'};
+function f12(a,b){return fetch(config.apiBase+"news-weather/"+a+"?page="+b).then(function(r){return r.json();});}
+document.getElementById("el13").setAttribute("src","/static/img/national-sport-culture-politics-collection.png");
+var u14="/news/site-preservation-sport.html",m14="history crawl preservation politics preservation";
+if(window.location.pathname.indexOf("/heritage-archive-archive-collection-digital/")===0){window.location="https://www.example.org/weather-weather-history-harvest/";}
+document.getElementById("el16").setAttribute("src","/static/img/national-history-weather-heritage-archive.png");
+function f17(a,b){return fetch(config.apiBase+"history-web-economy-page/"+a+"?page="+b).then(function(r){return r.json();});}
+var s18={id:18,label:"history politics news",cls:"btn btn-digital",tpl:'<a href="/harvest-page-science-politics-archive">digital national</a>'};
+var s19={id:19,label:"crawl collection record",cls:"btn btn-culture",tpl:'<a href="/page-national-crawl">digital page</a>'};
+if(window.location.pathname.indexOf("/crawl-preservation-preservation-science/")===0){window.location="https://www.example.org/science-library/";}
+var u21="/news/economy-national.html",m21="sport record record travel preservation";
+document.getElementById("el22").setAttribute("src","/static/img/harvest-sport-politics-page.png");
+var u23="/news/collection-science.html",m23="preservation page history news record";
+var u24="/news/library-collection.html",m24="science heritage library sport economy";
+var s25={id:25,label:"sport sport harvest",cls:"btn btn-news",tpl:'<a href="/web-harvest-collection-archive-history">page preservation</a>'};
+document.getElementById("el26").setAttribute("src","/static/img/culture-economy-science.png");
+document.getElementById("el27").setAttribute("src","/static/img/preservation-archive-harvest.png");
+var u28="/news/collection-heritage-preservation.html",m28="collection library collection web news";
+function f29(a,b){return fetch(config.apiBase+"archive-history/"+a+"?page="+b).then(function(r){return r.json();});}
+if(window.location.pathname.indexOf("/library-harvest/")===0){window.location="https://www.example.org/travel-science/";}
+var s31={id:31,label:"crawl history harvest",cls:"btn btn-digital",tpl:'<a href="/web-preservation">travel archive</a>'};
+function f32(a,b){return fetch(config.apiBase+"economy-library/"+a+"?page="+b).then(function(r){return r.json();});}
+var s33={id:33,label:"library national travel",cls:"btn btn-page",tpl:'<a href="/web-collection">digital politics</a>'};
+document.getElementById("el34").setAttribute("src","/static/img/national-science-economy-heritage.png");
+var s35={id:35,label:"politics web harvest",cls:"btn btn-politics",tpl:'<a href="/science-library">library preservation</a>'};
+var u36="/news/harvest-library.html",m36="science history page politics national";
+if(window.location.pathname.indexOf("/national-page/")===0){window.location="https://www.example.org/news-library-science-heritage-news/";}
+function f38(a,b){return fetch(config.apiBase+"harvest-culture-harvest-science/"+a+"?page="+b).then(function(r){return r.json();});}
+var u39="/news/page-preservation-sport-crawl-web.html",m39="record history harvest site preservation";
+if(window.location.pathname.indexOf("/travel-culture-heritage-sport/")===0){window.location="https://www.example.org/preservation-news-library-web-history/";}
+document.getElementById("el41").setAttribute("src","/static/img/archive-travel-history.png");
+function f42(a,b){return fetch(config.apiBase+"culture-science-travel-travel-web/"+a+"?page="+b).then(function(r){return r.json();});}
+function f43(a,b){return fetch(config.apiBase+"site-site-politics/"+a+"?page="+b).then(function(r){return r.json();});}
+function f44(a,b){return fetch(config.apiBase+"web-page-library/"+a+"?page="+b).then(function(r){return r.json();});}
+document.getElementById("el45").setAttribute("src","/static/img/economy-site-harvest.png");
+var u46="/news/history-digital-politics-politics-digital.html",m46="weather site page history travel";
+var s47={id:47,label:"site history science",cls:"btn btn-digital",tpl:'<a href="/culture-harvest-harvest">digital history</a>'};
+if(window.location.pathname.indexOf("/weather-collection-archive/")===0){window.location="https://www.example.org/crawl-web/";}
+if(window.location.pathname.indexOf("/national-site/")===0){window.location="https://www.example.org/collection-preservation-economy-economy/";}
+function f50(a,b){return fetch(config.apiBase+"travel-science/"+a+"?page="+b).then(function(r){return r.json();});}
+if(window.location.pathname.indexOf("/library-preservation-travel-history-history/")===0){window.location="https://www.example.org/sport-record-sport-sport/";}
+function f52(a,b){return fetch(config.apiBase+"news-harvest/"+a+"?page="+b).then(function(r){return r.json();});}
+if(window.location.pathname.indexOf("/record-site-culture-culture-crawl/")===0){window.location="https://www.example.org/national-sport/";}
+document.getElementById("el54").setAttribute("src","/static/img/history-news-collection.png");
+document.getElementById("el55").setAttribute("src","/static/img/history-harvest-politics-travel-history.png");
+var s56={id:56,label:"travel sport politics",cls:"btn btn-history",tpl:'<a href="/sport-national-science-crawl-site">digital history</a>'};
+var s57={id:57,label:"site economy travel",cls:"btn btn-page",tpl:'<a href="/record-crawl-archive-politics">crawl collection</a>'};
+document.getElementById("el58").setAttribute("src","/static/img/politics-archive-weather-record.png");
+if(window.location.pathname.indexOf("/news-page/")===0){window.location="https://www.example.org/news-page-crawl-travel/";}
+var u60="/news/heritage-weather-preservation.html",m60="politics web web preservation harvest";
+document.getElementById("el61").setAttribute("src","/static/img/archive-sport-record.png");
+function f62(a,b){return fetch(config.apiBase+"travel-news-politics-science-news/"+a+"?page="+b).then(function(r){return r.json();});}
+document.getElementById("el63").setAttribute("src","/static/img/history-politics.png");
+function f64(a,b){return fetch(config.apiBase+"site-politics-site-record/"+a+"?page="+b).then(function(r){return r.json();});}
+var s65={id:65,label:"harvest history harvest",cls:"btn btn-travel",tpl:'<a href="/record-history-science">travel record</a>'};
+var u66="/news/page-news-library-history.html",m66="weather web sport library preservation";
+document.getElementById("el67").setAttribute("src","/static/img/preservation-politics.png");
+if(window.location.pathname.indexOf("/economy-web-politics/")===0){window.location="https://www.example.org/politics-record/";}
+document.getElementById("el69").setAttribute("src","/static/img/politics-science.png");
+if(window.location.pathname.indexOf("/library-page-web-weather-preservation/")===0){window.location="https://www.example.org/news-travel-sport-record/";}
+var u71="/news/site-digital-economy-science-culture.html",m71="travel sport national archive weather";
+var s72={id:72,label:"national politics history",cls:"btn btn-library",tpl:'<a href="/digital-weather-sport-economy-news">politics weather</a>'};
+function f73(a,b){return fetch(config.apiBase+"page-culture-collection/"+a+"?page="+b).then(function(r){return r.json();});}
+var u74="/news/travel-preservation-news.html",m74="news record web weather library";
+if(window.location.pathname.indexOf("/preservation-weather-national-digital/")===0){window.location="https://www.example.org/site-heritage-harvest/";}
+var u76="/news/archive-heritage-preservation.html",m76="culture history sport news news";
+function f77(a,b){return fetch(config.apiBase+"national-digital-collection/"+a+"?page="+b).then(function(r){return r.json();});}
+function f78(a,b){return fetch(config.apiBase+"digital-travel-sport-national/"+a+"?page="+b).then(function(r){return r.json();});}
+function f79(a,b){return fetch(config.apiBase+"archive-crawl-web-record-economy/"+a+"?page="+b).then(function(r){return r.json();});}
+document.getElementById("el80").setAttribute("src","/static/img/news-page.png");
+function f81(a,b){return fetch(config.apiBase+"collection-heritage-harvest-politics-science/"+a+"?page="+b).then(function(r){return r.json();});}
+function f82(a,b){return fetch(config.apiBase+"history-web-heritage-economy/"+a+"?page="+b).then(function(r){return r.json();});}
+function f83(a,b){return fetch(config.apiBase+"record-politics-site-heritage/"+a+"?page="+b).then(function(r){return r.json();});}
+if(window.location.pathname.indexOf("/collection-harvest-national/")===0){window.location="https://www.example.org/digital-culture-news/";}
+document.getElementById("el85").setAttribute("src","/static/img/history-sport.png");
+document.getElementById("el86").setAttribute("src","/static/img/record-sport.png");
+if(window.location.pathname.indexOf("/travel-heritage-digital-collection-page/")===0){window.location="https://www.example.org/page-preservation-archive-weather-economy/";}
+function f88(a,b){return fetch(config.apiBase+"travel-heritage/"+a+"?page="+b).then(function(r){return r.json();});}
+document.getElementById("el89").setAttribute("src","/static/img/preservation-weather-page-travel-harvest.png");
+var s90={id:90,label:"heritage culture site",cls:"btn btn-archive",tpl:'<a href="/digital-preservation-web-heritage-preservation">library national</a>'};
+if(window.location.pathname.indexOf("/weather-news-crawl-digital/")===0){window.location="https://www.example.org/history-history/";}
+if(window.location.pathname.indexOf("/news-harvest-national-digital/")===0){window.location="https://www.example.org/page-news/";}
+var s93={id:93,label:"sport record culture",cls:"btn btn-archive",tpl:'<a href="/weather-weather">national weather</a>'};
+if(window.location.pathname.indexOf("/archive-site-library/")===0){window.location="https://www.example.org/record-politics-web-harvest/";}
+var u95="/news/science-weather-collection.html",m95="economy travel news record culture";
+if(window.location.pathname.indexOf("/digital-national-travel/")===0){window.location="https://www.example.org/preservation-library-web-news/";}
+document.getElementById("el97").setAttribute("src","/static/img/site-site-politics.png");
+var u98="/news/archive-sport.html",m98="weather economy weather heritage web";
+if(window.location.pathname.indexOf("/digital-national-crawl/")===0){window.location="https://www.example.org/economy-news-economy-digital-collection/";}
+function f100(a,b){return fetch(config.apiBase+"national-politics-harvest-archive/"+a+"?page="+b).then(function(r){return r.json();});}
+var s101={id:101,label:"news culture travel",cls:"btn btn-history",tpl:'<a href="/heritage-library">library digital</a>'};
+document.getElementById("el102").setAttribute("src","/static/img/site-collection-news-library-economy.png");
+var u103="/news/travel-library-news-national.html",m103="news collection archive preservation digital";
+var u104="/news/heritage-page-politics-travel-weather.html",m104="culture web archive history collection";
+document.getElementById("el105").setAttribute("src","/static/img/travel-library-site-news-economy.png");
+document.getElementById("el106").setAttribute("src","/static/img/harvest-sport.png");
+function f107(a,b){return fetch(config.apiBase+"record-heritage/"+a+"?page="+b).then(function(r){return r.json();});}
+if(window.location.pathname.indexOf("/economy-travel-economy-crawl/")===0){window.location="https://www.example.org/digital-science/";}
+var s109={id:109,label:"site preservation site",cls:"btn btn-travel",tpl:'<a href="/collection-sport-crawl-politics">national digital</a>'};
+var u110="/news/record-culture-collection-web-record.html",m110="science news collection digital harvest";
+document.getElementById("el111").setAttribute("src","/static/img/collection-history.png");
+document.getElementById("el112").setAttribute("src","/static/img/news-preservation-digital-economy.png");
+document.getElementById("el113").setAttribute("src","/static/img/news-national-record-history.png");
+var u114="/news/crawl-library-collection-crawl-heritage.html",m114="national crawl history digital national";
+if(window.location.pathname.indexOf("/harvest-history-crawl-culture-page/")===0){window.location="https://www.example.org/culture-history-harvest-collection-harvest/";}
+document.getElementById("el116").setAttribute("src","/static/img/library-preservation.png");
+var u117="/news/science-digital-politics.html",m117="travel politics library politics archive";
+var s118={id:118,label:"politics national news",cls:"btn btn-web",tpl:'<a href="/history-travel-harvest">record archive</a>'};
+document.getElementById("el119").setAttribute("src","/static/img/site-page.png");
+var s120={id:120,label:"harvest record collection",cls:"btn btn-archive",tpl:'<a href="/culture-travel">history culture</a>'};
+document.getElementById("el121").setAttribute("src","/static/img/record-crawl.png");
+var s122={id:122,label:"culture record politics",cls:"btn btn-collection",tpl:'<a href="/crawl-weather-preservation">record crawl</a>'};
+function f123(a,b){return fetch(config.apiBase+"web-site-digital-national-heritage/"+a+"?page="+b).then(function(r){return r.json();});}
+if(window.location.pathname.indexOf("/archive-library/")===0){window.location="https://www.example.org/site-site-preservation/";}
+var u125="/news/preservation-history.html",m125="news preservation travel economy collection";
+document.getElementById("el126").setAttribute("src","/static/img/page-science.png");
+var u127="/news/culture-site-history-digital-politics.html",m127="economy news web news page";
+var s128={id:128,label:"national news weather",cls:"btn btn-news",tpl:'<a href="/crawl-science">record culture</a>'};
+var u129="/news/history-science-weather.html",m129="weather science web preservation culture";
+if(window.location.pathname.indexOf("/history-preservation/")===0){window.location="https://www.example.org/collection-travel-preservation/";}
+var u131="/news/preservation-politics-crawl-sport-web.html",m131="crawl science harvest science news";
+if(window.location.pathname.indexOf("/culture-travel/")===0){window.location="https://www.example.org/page-digital-politics-web/";}
+var s133={id:133,label:"archive harvest travel",cls:"btn btn-culture",tpl:'<a href="/national-site-crawl">web news</a>'};
+document.getElementById("el134").setAttribute("src","/static/img/politics-culture-travel-culture.png");
+var s135={id:135,label:"digital record national",cls:"btn btn-library",tpl:'<a href="/web-economy-digital">travel harvest</a>'};
+if(window.location.pathname.indexOf("/archive-site/")===0){window.location="https://www.example.org/archive-national/";}
+if(window.location.pathname.indexOf("/site-travel-economy-history-preservation/")===0){window.location="https://www.example.org/travel-travel-site-preservation/";}
+function f138(a,b){return fetch(config.apiBase+"collection-archive-library/"+a+"?page="+b).then(function(r){return r.json();});}
+function f139(a,b){return fetch(config.apiBase+"library-archive/"+a+"?page="+b).then(function(r){return r.json();});}
+var u140="/news/weather-collection-weather-heritage-news.html",m140="weather sport library web preservation";
+if(window.location.pathname.indexOf("/history-news-archive/")===0){window.location="https://www.example.org/national-collection/";}
+if(window.location.pathname.indexOf("/history-archive-culture-politics-heritage/")===0){window.location="https://www.example.org/preservation-politics-site/";}
+function f143(a,b){return fetch(config.apiBase+"archive-harvest-weather-news/"+a+"?page="+b).then(function(r){return r.json();});}
+if(window.location.pathname.indexOf("/politics-economy-sport-preservation-crawl/")===0){window.location="https://www.example.org/site-history-science-politics-economy/";}
+if(window.location.pathname.indexOf("/crawl-science-archive/")===0){window.location="https://www.example.org/politics-record-sport-web-digital/";}
+if(window.location.pathname.indexOf("/harvest-history-economy-weather-page/")===0){window.location="https://www.example.org/news-archive-national-preservation-library/";}
+if(window.location.pathname.indexOf("/culture-heritage-science-heritage/")===0){window.location="https://www.example.org/economy-travel-culture-collection/";}
+document.getElementById("el148").setAttribute("src","/static/img/news-travel-weather-page-history.png");
+var u149="/news/preservation-web-travel.html",m149="history collection national library national";
+var s150={id:150,label:"history harvest news",cls:"btn btn-history",tpl:'<a href="/heritage-library-sport-crawl">archive page</a>'};
+document.getElementById("el151").setAttribute("src","/static/img/travel-national-national-science.png");
+function f152(a,b){return fetch(config.apiBase+"record-news/"+a+"?page="+b).then(function(r){return r.json();});}
+function f153(a,b){return fetch(config.apiBase+"harvest-sport-heritage/"+a+"?page="+b).then(function(r){return r.json();});}
+if(window.location.pathname.indexOf("/record-page-crawl-sport/")===0){window.location="https://www.example.org/collection-science-economy-travel/";}
+function f155(a,b){return fetch(config.apiBase+"culture-culture/"+a+"?page="+b).then(function(r){return r.json();});}
+function f156(a,b){return fetch(config.apiBase+"economy-economy/"+a+"?page="+b).then(function(r){return r.json();});}
+function f157(a,b){return fetch(config.apiBase+"science-harvest/"+a+"?page="+b).then(function(r){return r.json();});}
+var u158="/news/library-page.html",m158="national preservation culture science history";
+function f159(a,b){return fetch(config.apiBase+"weather-page-record/"+a+"?page="+b).then(function(r){return r.json();});}
+var u160="/news/library-culture.html",m160="news archive heritage history record";
+document.getElementById("el161").setAttribute("src","/static/img/web-digital-page.png");
+if(window.location.pathname.indexOf("/weather-travel-heritage-collection/")===0){window.location="https://www.example.org/heritage-collection-news-news-news/";}
+if(window.location.pathname.indexOf("/archive-culture-collection-archive/")===0){window.location="https://www.example.org/web-record/";}
+document.getElementById("el164").setAttribute("src","/static/img/national-news-crawl-site-crawl.png");
+var u165="/news/weather-travel.html",m165="science preservation news site travel";
+var s166={id:166,label:"preservation record page",cls:"btn btn-archive",tpl:'<a href="/science-economy-collection-site">culture weather</a>'};
+var u167="/news/page-weather-site-library-preservation.html",m167="web crawl sport record site";
+var u168="/news/library-web-science-sport.html",m168="preservation science record weather national";
+function f169(a,b){return fetch(config.apiBase+"sport-politics/"+a+"?page="+b).then(function(r){return r.json();});}
+document.getElementById("el170").setAttribute("src","/static/img/preservation-news-science.png");
+function f171(a,b){return fetch(config.apiBase+"page-digital/"+a+"?page="+b).then(function(r){return r.json();});}
+var s172={id:172,label:"page harvest crawl",cls:"btn btn-weather",tpl:'<a href="/culture-preservation">politics archive</a>'};
+if(window.location.pathname.indexOf("/heritage-politics-politics-weather/")===0){window.location="https://www.example.org/page-preservation-preservation/";}
+var s174={id:174,label:"travel collection site",cls:"btn btn-science",tpl:'<a href="/harvest-record-science">politics library</a>'};
+document.getElementById("el175").setAttribute("src","/static/img/harvest-collection-news-news-web.png");
+function f176(a,b){return fetch(config.apiBase+"news-collection/"+a+"?page="+b).then(function(r){return r.json();});}
+if(window.location.pathname.indexOf("/culture-web-page/")===0){window.location="https://www.example.org/politics-sport-science-site-digital/";}
+var s178={id:178,label:"history weather news",cls:"btn btn-culture",tpl:'<a href="/news-national-collection-science-collection">history culture</a>'};
+var u179="/news/library-culture.html",m179="history crawl national sport page";
+function f180(a,b){return fetch(config.apiBase+"harvest-harvest-page-politics-preservation/"+a+"?page="+b).then(function(r){return r.json();});}
+function f181(a,b){return fetch(config.apiBase+"harvest-page-preservation/"+a+"?page="+b).then(function(r){return r.json();});}
+document.getElementById("el182").setAttribute("src","/static/img/preservation-history-archive-collection.png");
+var u183="/news/crawl-preservation-preservation-library-national.html",m183="history archive harvest sport page";
+function f184(a,b){return fetch(config.apiBase+"news-history/"+a+"?page="+b).then(function(r){return r.json();});}
+var s185={id:185,label:"preservation politics culture",cls:"btn btn-record",tpl:'<a href="/history-economy-collection-collection-science">weather culture</a>'};
+if(window.location.pathname.indexOf("/collection-record-web-economy-travel/")===0){window.location="https://www.example.org/site-heritage-site-record-sport/";}
+function f187(a,b){return fetch(config.apiBase+"digital-weather-web-national-archive/"+a+"?page="+b).then(function(r){return r.json();});}
+var s188={id:188,label:"weather preservation sport",cls:"btn btn-weather",tpl:'<a href="/weather-sport">web library</a>'};
+var s189={id:189,label:"sport politics crawl",cls:"btn btn-politics",tpl:'<a href="/history-science-archive">harvest travel</a>'};
+var s190={id:190,label:"national archive digital",cls:"btn btn-library",tpl:'<a href="/politics-culture-web">sport economy</a>'};
+document.getElementById("el191").setAttribute("src","/static/img/politics-crawl-history-archive-record.png");
+if(window.location.pathname.indexOf("/news-archive-science/")===0){window.location="https://www.example.org/site-digital-web-harvest/";}
+function f193(a,b){return fetch(config.apiBase+"preservation-collection-national/"+a+"?page="+b).then(function(r){return r.json();});}
+document.getElementById("el194").setAttribute("src","/static/img/collection-preservation.png");
+if(window.location.pathname.indexOf("/crawl-economy-record/")===0){window.location="https://www.example.org/archive-crawl-preservation/";}
+if(window.location.pathname.indexOf("/record-collection/")===0){window.location="https://www.example.org/record-digital-site-harvest-crawl/";}
+var u197="/news/economy-politics-heritage.html",m197="history science science site harvest";
+document.getElementById("el198").setAttribute("src","/static/img/record-culture.png");
+var s199={id:199,label:"news web history",cls:"btn btn-archive",tpl:'<a href="/weather-heritage-archive-digital-sport">politics travel</a>'};
+})();
@@ -25,14 +25,17 @@ import java.io.FileFilter;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.ObjectOutputStream;
+import java.io.PrintWriter;
 import java.io.Serializable;
 import java.math.BigInteger;
 import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
@@ -47,6 +50,7 @@ import org.archive.spring.ConfigPath;
 import org.archive.util.IdentityCacheable;
 import org.archive.util.ObjectIdentityBdbManualCache;
 import org.archive.util.ObjectIdentityCache;
+import org.archive.util.Reporter;
 import org.archive.util.TextUtils;
 import org.archive.util.bdbje.EnhancedEnvironment;
 import org.springframework.beans.factory.DisposableBean;
@@ -54,7 +58,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.Lifecycle;
 
 import com.sleepycat.bind.EntryBinding;
-import com.sleepycat.bind.serial.SerialBinding;
 import com.sleepycat.bind.serial.StoredClassCatalog;
 import com.sleepycat.bind.tuple.TupleBinding;
 import com.sleepycat.je.CheckpointConfig;
@@ -71,7 +74,7 @@ import com.sleepycat.je.util.DbBackup;
  * @author pjack
  * @author gojomo
  */
-public class BdbModule implements Lifecycle, Checkpointable, Closeable, DisposableBean {
+public class BdbModule implements Lifecycle, Checkpointable, Closeable, DisposableBean, Reporter {
     final private static Logger LOGGER = 
         Logger.getLogger(BdbModule.class.getName()); 
 
@@ -230,6 +233,58 @@ public class BdbModule implements Lifecycle, Checkpointable, Closeable, Disposab
 		this.evictorMaxThreads = evictorMaxThreads;
 	}
     
+    /**
+     * Most memory, in bytes estimated from their serialized size, taken by
+     * the objects each object cache (such as allqueues, servers or hosts)
+     * holds in memory, apart from those still in use elsewhere or not yet
+     * written to disk. The least recently used beyond that are dropped from
+     * memory, to be read back from disk when next needed. If not positive
+     * (the default), 1/64 of the maximum heap size.
+     */
+    protected long objectCacheMaxWeight = -1;
+    public long getObjectCacheMaxWeight() {
+        return objectCacheMaxWeight;
+    }
+    public void setObjectCacheMaxWeight(long objectCacheMaxWeight) {
+        this.objectCacheMaxWeight = objectCacheMaxWeight;
+    }
+
+    /**
+     * Overrides of objectCacheMaxWeight for particular object caches, by 
+     * cache name (such as allqueues, servers or hosts).
+     */
+    protected Map<String,Long> objectCacheMaxWeights = new HashMap<String,Long>();
+    public Map<String,Long> getObjectCacheMaxWeights() {
+        return objectCacheMaxWeights;
+    }
+    public void setObjectCacheMaxWeights(Map<String,Long> objectCacheMaxWeights) {
+        this.objectCacheMaxWeights = objectCacheMaxWeights;
+    }
+
+    /**
+     * Longest time, in milliseconds, objects changed in an object cache wait
+     * to be written to disk by the cache's write-behind thread. 
+     */
+    protected long objectCacheFlushIntervalMs = 30000;
+    public long getObjectCacheFlushIntervalMs() {
+        return objectCacheFlushIntervalMs;
+    }
+    public void setObjectCacheFlushIntervalMs(long objectCacheFlushIntervalMs) {
+        this.objectCacheFlushIntervalMs = objectCacheFlushIntervalMs;
+    }
+
+    /**
+     * Number of objects changed in an object cache at which they are
+     * written to disk without waiting for objectCacheFlushIntervalMs.
+     */
+    protected int objectCacheMaxDirtyItems = 10000;
+    public int getObjectCacheMaxDirtyItems() {
+        return objectCacheMaxDirtyItems;
+    }
+    public void setObjectCacheMaxDirtyItems(int objectCacheMaxDirtyItems) {
+        this.objectCacheMaxDirtyItems = objectCacheMaxDirtyItems;
+    }
+
     /**
      * Whether to use hard-links to log files to collect/retain
      * the BDB log files needed for a checkpoint. Default is true. 
@@ -386,6 +441,25 @@ public class BdbModule implements Lifecycle, Checkpointable, Closeable, Disposab
         }
     }
     
+    /**
+     * Close the named database, if open, and remove it and its data from
+     * the environment.
+     * 
+     * @param name
+     */
+    public void removeDatabase(String name) {
+        if (databases.containsKey(name)) {
+            closeDatabase(name);
+        }
+        try {
+            bdbEnvironment.removeDatabase(null, name);
+        } catch (DatabaseNotFoundException e) {
+            // ignored
+        } catch (DatabaseException e) {
+            LOGGER.log(Level.WARNING, "Error removing db " + name, e);
+        }
+    }
+
     /**
      * Open a Database inside this BdbModule's environment, and 
      * remember it for automatic close-at-module-stop. 
@@ -465,6 +539,15 @@ public class BdbModule implements Lifecycle, Checkpointable, Closeable, Disposab
             }
         }
         ObjectIdentityBdbManualCache<V> oic = new ObjectIdentityBdbManualCache<V>();
+        Long maxWeight = objectCacheMaxWeights.get(dbName);
+        if (maxWeight == null) {
+            maxWeight = objectCacheMaxWeight;
+        }
+        if (maxWeight > 0) {
+            oic.setMaxWeight(maxWeight);
+        }
+        oic.setFlushIntervalMs(getObjectCacheFlushIntervalMs());
+        oic.setMaxDirtyItems(getObjectCacheMaxDirtyItems());
         oic.initialize(bdbEnvironment, dbName, valueClass, classCatalog);
         oiCaches.put(dbName, oic);
         return oic;
@@ -747,7 +830,7 @@ public class BdbModule implements Lifecycle, Checkpointable, Closeable, Disposab
         } 
         EntryBinding<V> valueBinding = TupleBinding.getPrimitiveBinding(valueClass);
         if(valueBinding == null) {
-            valueBinding = new SerialBinding<V>(classCatalog, valueClass);
+            valueBinding = new VersionedKryoBinding<V>(classCatalog, valueClass);
         }
         DisposableStoredSortedMap<K,V> storedMap = new DisposableStoredSortedMap<K, V>(
                 mapDb,
@@ -771,4 +854,53 @@ public class BdbModule implements Lifecycle, Checkpointable, Closeable, Disposab
         close();
     }
 
+    //
+    // Reporter: usage of the object caches, by name
+    //
+    @Override
+    public void reportTo(PrintWriter writer) throws IOException {
+        for (Map.Entry<String, ObjectIdentityCache> entry : new TreeMap<String, ObjectIdentityCache>(oiCaches).entrySet()) {
+            if (entry.getValue() instanceof Reporter) {
+                writer.print(" ");
+                writer.print(entry.getKey());
+                writer.print(" ");
+                ((Reporter) entry.getValue()).shortReportLineTo(writer);
+                writer.print("\n");
+            }
+        }
+    }
+
+    @Override
+    public void shortReportLineTo(PrintWriter writer) throws IOException {
+        boolean first = true;
+        for (Map.Entry<String, ObjectIdentityCache> entry : new TreeMap<String, ObjectIdentityCache>(oiCaches).entrySet()) {
+            if (entry.getValue() instanceof Reporter) {
+                if (!first) {
+                    writer.print("; ");
+                }
+                writer.print(entry.getKey());
+                writer.print(" ");
+                ((Reporter) entry.getValue()).shortReportLineTo(writer);
+                first = false;
+            }
+        }
+    }
+
+    @Override
+    public Map<String, Object> shortReportMap() {
+        Map<String,Object> map = new LinkedHashMap<String, Object>();
+        for (Map.Entry<String, ObjectIdentityCache> entry : new TreeMap<String, ObjectIdentityCache>(oiCaches).entrySet()) {
+            if (entry.getValue() instanceof Reporter) {
+                map.put(entry.getKey(), ((Reporter) entry.getValue()).shortReportMap());
+            }
+        }
+        return map;
+    }
+
+    @Override
+    public String shortReportLegend() {
+        return "name gets memHits liveHits diskHits supplied inMemItems "
+                + "dirtyItems evictions flushes flushedItems";
+    }
+
 }
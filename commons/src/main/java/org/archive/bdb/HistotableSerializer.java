@@ -0,0 +1,96 @@
+/*
+ *  This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ *  Licensed to the Internet Archive (IA) by one or more individual
+ *  contributors.
+ *
+ *  The IA licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.archive.bdb;
+
+import java.util.Map;
+import java.util.Set;
+
+import org.archive.util.Histotable;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.serializers.JavaSerializer;
+
+/**
+ * Kryo serializer for {@link Histotable}s (and subclasses), writing the
+ * counts field by field: a schema version byte, the number of entries,
+ * then each key and its count. Subclasses with fields of their own
+ * override {@link #writeFields(Kryo, Output, Histotable)} and
+ * {@link #readFields(Kryo, Input, Histotable)}, and are registered for
+ * their class.
+ *
+ * <p>Histotables were formerly written with Kryo's {@link JavaSerializer};
+ * a Java serialization stream never begins with a version byte, so such
+ * records, as found in older checkpoints, are still read.
+ *
+ * @param <H> Histotable type
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class HistotableSerializer<H extends Histotable> extends Serializer<H> {
+    /** current schema version, written first */
+    public static final byte VERSION = 1;
+
+    /** reader of records from before the version byte */
+    protected final JavaSerializer legacy = new JavaSerializer();
+
+    @Override
+    public void write(Kryo kryo, Output output, H histotable) {
+        output.writeByte(VERSION);
+        // Histotable updates hold the lock; entrySet() folds any pending
+        // counts first
+        synchronized (histotable) {
+            Set<Map.Entry> entries = histotable.entrySet();
+            output.writeVarInt(entries.size(), true);
+            for (Map.Entry entry : entries) {
+                kryo.writeClassAndObject(output, entry.getKey());
+                output.writeVarLong((Long) entry.getValue(), true);
+            }
+            writeFields(kryo, output, histotable);
+        }
+    }
+
+    @Override
+    public H read(Kryo kryo, Input input, Class<? extends H> type) {
+        if (input.readByte() != VERSION) {
+            input.setPosition(input.position() - 1);
+            return (H) legacy.read(kryo, input, type);
+        }
+        H histotable = kryo.newInstance(type);
+        int size = input.readVarInt(true);
+        for (int i = 0; i < size; i++) {
+            histotable.put(kryo.readClassAndObject(input), input.readVarLong(true));
+        }
+        readFields(kryo, input, histotable);
+        return histotable;
+    }
+
+    /**
+     * Write any fields beyond the counts; called holding the lock.
+     */
+    protected void writeFields(Kryo kryo, Output output, H histotable) {
+    }
+
+    /**
+     * Read the fields written by {@link #writeFields(Kryo, Output, Histotable)}.
+     */
+    protected void readFields(Kryo kryo, Input input, H histotable) {
+    }
+}
@@ -22,7 +22,6 @@ import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
 import com.esotericsoftware.kryo.serializers.DefaultSerializers;
-import com.esotericsoftware.kryo.serializers.JavaSerializer;
 import com.esotericsoftware.kryo.util.Pool;
 import com.sleepycat.bind.EntryBinding;
 import com.sleepycat.je.DatabaseEntry;
@@ -44,11 +43,7 @@ public class KryoBinding<K> implements EntryBinding<K> {
     Pool<AutoKryo> kryoPool = new Pool<AutoKryo>(true, false, POOL_SIZE) {
         protected AutoKryo create () {
             AutoKryo kryo = new AutoKryo();
-            kryo.addDefaultSerializer(AtomicInteger.class, DefaultSerializers.AtomicIntegerSerializer.class);
-            kryo.addDefaultSerializer(Histotable.class, JavaSerializer.class);
-            kryo.autoregister(baseClass);
-            kryo.setRegistrationRequired(false);
-            kryo.setWarnUnregisteredClasses(true);
+            configure(kryo);
             return kryo;
         }
     };
@@ -63,6 +58,19 @@ public class KryoBinding<K> implements EntryBinding<K> {
         this.baseClass = baseClass;
     }
 
+    /**
+     * Set up a newly created Kryo for this binding's base class.
+     */
+    protected void configure(AutoKryo kryo) {
+        kryo.addDefaultSerializer(AtomicInteger.class, DefaultSerializers.AtomicIntegerSerializer.class);
+        kryo.addDefaultSerializer(Histotable.class, HistotableSerializer.class);
+        if (baseClass != null) {
+            kryo.autoregister(baseClass);
+        }
+        kryo.setRegistrationRequired(false);
+        kryo.setWarnUnregisteredClasses(true);
+    }
+
     /**
      * Copies superclass simply to allow different source for FastOoutputStream.
      *
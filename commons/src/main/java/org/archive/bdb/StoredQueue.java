@@ -27,7 +27,6 @@ import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 
 import com.sleepycat.bind.EntryBinding;
-import com.sleepycat.bind.serial.SerialBinding;
 import com.sleepycat.bind.serial.StoredClassCatalog;
 import com.sleepycat.bind.tuple.TupleBinding;
 import com.sleepycat.collections.StoredSortedMap;
@@ -75,7 +74,7 @@ public class StoredQueue<E extends Serializable> extends AbstractQueue<E>  {
     public void hookupDatabase(Database db, Class<E> clsOrNull, StoredClassCatalog classCatalog) {
         EntryBinding<E> valueBinding = TupleBinding.getPrimitiveBinding(clsOrNull);
         if(valueBinding == null) {
-            valueBinding = new SerialBinding<E>(classCatalog, clsOrNull);
+            valueBinding = new VersionedKryoBinding<E>(classCatalog, clsOrNull);
         }
         queueDb = db;
         queueMap = new StoredSortedMap<Long,E>(
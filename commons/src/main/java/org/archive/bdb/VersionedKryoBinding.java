@@ -0,0 +1,104 @@
+/*
+ *  This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ *  Licensed to the Internet Archive (IA) by one or more individual
+ *  contributors.
+ *
+ *  The IA licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.archive.bdb;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.sleepycat.bind.serial.SerialBinding;
+import com.sleepycat.bind.serial.StoredClassCatalog;
+import com.sleepycat.je.DatabaseEntry;
+
+/**
+ * Binding for values of stored maps and queues, written with Kryo behind
+ * a leading schema version byte. The value's class is written too, so
+ * the base class may be an interface (such as Map).
+ *
+ * <p>Such values were formerly written with a {@link SerialBinding},
+ * whose data always begins with a Java serialization type code
+ * (0x70 and up); entries without the version byte, as found in older
+ * checkpoints and state directories, are read with one.
+ *
+ * @param <K> value type
+ */
+public class VersionedKryoBinding<K> extends KryoBinding<K> {
+    /** current schema version, written first */
+    public static final byte VERSION = 1;
+
+    /** reader of entries from before the version byte */
+    protected final SerialBinding<K> legacyBinding;
+
+    /**
+     * @param classCatalog catalog for reading older entries; may be null
+     * if there can be none
+     * @param baseClass class of values
+     */
+    public VersionedKryoBinding(StoredClassCatalog classCatalog, Class<K> baseClass) {
+        super(baseClass);
+        this.legacyBinding = classCatalog == null
+                ? null : new SerialBinding<K>(classCatalog, baseClass);
+    }
+
+    /**
+     * Values are of many classes, written with their class, so unregistered
+     * ones are expected.
+     */
+    @Override
+    protected void configure(AutoKryo kryo) {
+        super.configure(kryo);
+        kryo.setWarnUnregisteredClasses(false);
+    }
+
+    @Override
+    public void objectToEntry(K object, DatabaseEntry entry) {
+        AutoKryo kryo = kryoPool.obtain();
+        try {
+            Output output = outputPool.obtain();
+            try {
+                output.writeByte(VERSION);
+                kryo.writeClassAndObject(output, object);
+                entry.setData(output.toBytes());
+            } finally {
+                outputPool.free(output);
+            }
+        } finally {
+            kryoPool.free(kryo);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public K entryToObject(DatabaseEntry entry) {
+        byte[] data = entry.getData();
+        int offset = entry.getOffset();
+        if (data[offset] != VERSION) {
+            if (legacyBinding == null) {
+                throw new IllegalArgumentException(
+                        "unknown schema version " + data[offset]);
+            }
+            return legacyBinding.entryToObject(entry);
+        }
+        AutoKryo kryo = kryoPool.obtain();
+        try {
+            return (K) kryo.readClassAndObject(
+                    new Input(data, offset + 1, entry.getSize() - 1));
+        } finally {
+            kryoPool.free(kryo);
+        }
+    }
+}
@@ -20,9 +20,11 @@
  package org.archive.spring;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.logging.Logger;
 
@@ -44,12 +46,21 @@ public class KeyedProperties extends ConcurrentSkipListMap<String,Object> {
      * TODO: consider if deterministic ordered list is important */
     protected TreeSet<String> externalPaths = new TreeSet<String>(); 
     
+    /** 
+     * composed, interned override keys by local key; rebuilt lazily 
+     * whenever an external path is added 
+     */
+    protected transient volatile ConcurrentHashMap<String,String[]> overrideKeysCache;
+    
     /**
      * Add a path by which the outside world can reach this map
      * @param path String path
      */
     public void addExternalPath(String path) {
-        externalPaths.add(path);
+        synchronized (externalPaths) {
+            externalPaths.add(path);
+        }
+        overrideKeysCache = null;
     }
 
     /**
@@ -60,13 +71,21 @@ public class KeyedProperties extends ConcurrentSkipListMap<String,Object> {
      */
     public Object get(String key) {
         ArrayList<OverlayContext> overlays = threadOverrides.get();
+        if (overlays.isEmpty()) {
+            // common case: no overlays in effect on this thread
+            return super.get(key);
+        }
+        String[] overrideKeys = null;
         for(int i = overlays.size()-1; i>=0; i--) {
             OverlayContext ocontext = overlays.get(i); 
             for(int j = ocontext.getOverlayNames().size()-1; j>=0; j--) {
                 String name = ocontext.getOverlayNames().get(j);
                 Map<String,Object> m = ocontext.getOverlayMap(name);
                 if (m != null) { 
-                    for(String ok : getOverrideKeys(key)) {
+                    if (overrideKeys == null) {
+                        overrideKeys = getOverrideKeyArray(key);
+                    }
+                    for(String ok : overrideKeys) {
                         Object val = m.get(ok);
                         if(val!=null) {
                             return val;
@@ -89,9 +108,33 @@ public class KeyedProperties extends ConcurrentSkipListMap<String,Object> {
      * @return List of full keys to check
      */
     protected List<String> getOverrideKeys(String key) {
-        ArrayList<String> keys = new ArrayList<String>(externalPaths.size());
-        for(String path : externalPaths) {
-            keys.add(path+"."+key);
+        return Arrays.asList(getOverrideKeyArray(key));
+    }
+
+    /**
+     * Get the complete override keys for the given local key, composing
+     * and interning them only the first time they are asked for (or 
+     * after the external paths change). 
+     * 
+     * @param key local key to compose
+     * @return shared array of full keys to check; must not be modified
+     */
+    protected String[] getOverrideKeyArray(String key) {
+        ConcurrentHashMap<String,String[]> cache = overrideKeysCache;
+        if (cache == null) {
+            cache = new ConcurrentHashMap<String,String[]>();
+            overrideKeysCache = cache;
+        }
+        String[] keys = cache.get(key);
+        if (keys == null) {
+            synchronized (externalPaths) {
+                keys = new String[externalPaths.size()];
+                int i = 0;
+                for(String path : externalPaths) {
+                    keys[i++] = (path+"."+key).intern();
+                }
+            }
+            cache.put(key, keys);
         }
         return keys;
     }
@@ -21,6 +21,7 @@ package org.archive.util;
 
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -44,4 +45,12 @@ public class JSONUtils {
             targetMap.put(k, new AtomicLong(sourceJson.getLong(k)));
         }
     }
+
+    public static void putAllLongAdders(Map<String,LongAdder> targetMap, JSONObject sourceJson) throws JSONException {
+        for(String k : new Iteratorable<String>(sourceJson.keys())) {
+            LongAdder counter = new LongAdder();
+            counter.add(sourceJson.getLong(k));
+            targetMap.put(k, counter);
+        }
+    }
 }
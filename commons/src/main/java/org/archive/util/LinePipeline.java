@@ -0,0 +1,274 @@
+/*
+ *  This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ *  Licensed to the Internet Archive (IA) by one or more individual
+ *  contributors.
+ *
+ *  The IA licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.archive.util;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Three-stage pipeline for importing large line-oriented files (recovery
+ * logs, seed lists): the calling thread reads (and so decompresses) lines
+ * in batches; a pool of threads turns each line into an item, or null to
+ * skip it; and a single thread hands each batch of items, in file order,
+ * to a sink. So the parse stage, typically the costly one (URI parsing,
+ * canonicalization, scoping), runs in parallel, while the sink sees items
+ * one batch at a time, as if read by a single thread.
+ *
+ * <p>At most a few batches per parse thread are in flight at once, so
+ * memory use is bounded however fast the reader is.
+ *
+ * <p>Progress counters may be read from any thread while the import is
+ * under way, and after; see {@link #shortReportMap()}.
+ *
+ * @param <T> item type
+ */
+public class LinePipeline<T> {
+    private static final Logger logger =
+        Logger.getLogger(LinePipeline.class.getName());
+
+    /** batches in flight per parse thread */
+    protected static final int BATCHES_PER_THREAD = 4;
+
+    protected final String name;
+    protected final int threads;
+    protected final int batchSize;
+
+    protected final AtomicLong linesRead = new AtomicLong();
+    protected final AtomicLong itemsParsed = new AtomicLong();
+    protected final AtomicLong itemsSunk = new AtomicLong();
+    protected final AtomicLong errors = new AtomicLong();
+    protected volatile long startTime;
+    protected volatile long endTime;
+    /** what killed the sink thread, if anything did */
+    protected volatile Throwable sinkFailure;
+
+    /**
+     * @param name name for threads and reports, eg the source file
+     * @param threads number of parse threads
+     * @param batchSize lines per batch
+     */
+    public LinePipeline(String name, int threads, int batchSize) {
+        this.name = name;
+        this.threads = Math.max(1, threads);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Run the whole import, returning once every line has been read and
+     * every resulting item sunk. An untidy end of input (as from an
+     * uncleanly closed gzip file) ends the import normally.
+     *
+     * @param reader source of lines; not closed
+     * @param parse turns a line into an item, or null to skip it; must be
+     *     thread-safe
+     * @param sink receives each batch of items (a modifiable list), in
+     *     file order, always from the same thread
+     * @return number of lines read
+     * @throws IOException if reading fails, or the sink thread dies
+     */
+    public long run(BufferedReader reader, Function<String,T> parse,
+            Consumer<List<T>> sink) throws IOException {
+        startTime = System.currentTimeMillis();
+        int inFlight = threads * BATCHES_PER_THREAD;
+        // batches in file order; capacity bounds the batches in flight
+        BlockingQueue<Future<List<T>>> ordered =
+            new ArrayBlockingQueue<Future<List<T>>>(inFlight);
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService parsers = Executors.newFixedThreadPool(threads,
+                r -> new Thread(r, name + "-parse-" + threadNumber.incrementAndGet()));
+        FutureTask<List<T>> end = new FutureTask<List<T>>(() -> null);
+        Thread sinker = new Thread(() -> sinkLoop(ordered, sink, end),
+                name + "-sink");
+        sinker.start();
+        try {
+            List<String> lines = new ArrayList<String>(batchSize);
+            String line;
+            try {
+                while ((line = reader.readLine()) != null) {
+                    lines.add(line);
+                    linesRead.incrementAndGet();
+                    if (lines.size() >= batchSize) {
+                        enqueue(ordered, parsers.submit(parseTask(lines, parse)), sinker);
+                        lines = new ArrayList<String>(batchSize);
+                    }
+                }
+            } catch (EOFException e) {
+                // expected in some uncleanly-closed files; ignore
+            } finally {
+                if (!lines.isEmpty()) {
+                    enqueue(ordered, parsers.submit(parseTask(lines, parse)), sinker);
+                }
+                enqueue(ordered, end, sinker);
+                sinker.join();
+            }
+            if (sinkFailure != null) {
+                throw new IOException("sink thread of " + name + " died", sinkFailure);
+            }
+        } catch (InterruptedException e) {
+            sinker.interrupt();
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted importing " + name, e);
+        } finally {
+            parsers.shutdownNow();
+            endTime = System.currentTimeMillis();
+        }
+        return linesRead.get();
+    }
+
+    /**
+     * Queue a batch for the sink thread, giving up rather than blocking
+     * forever if that thread has died.
+     */
+    protected void enqueue(BlockingQueue<Future<List<T>>> ordered,
+            Future<List<T>> batch, Thread sinker)
+    throws IOException, InterruptedException {
+        while (!ordered.offer(batch, 1, TimeUnit.SECONDS)) {
+            if (!sinker.isAlive()) {
+                throw new IOException("sink thread of " + name + " died",
+                        sinkFailure);
+            }
+        }
+    }
+
+    protected Callable<List<T>> parseTask(final List<String> lines,
+            final Function<String,T> parse) {
+        return () -> {
+            List<T> items = new ArrayList<T>(lines.size());
+            for (String line : lines) {
+                try {
+                    T item = parse.apply(line);
+                    if (item != null) {
+                        items.add(item);
+                    }
+                } catch (RuntimeException e) {
+                    errors.incrementAndGet();
+                    logger.log(Level.WARNING, "problem line: " + line, e);
+                }
+            }
+            itemsParsed.addAndGet(items.size());
+            return items;
+        };
+    }
+
+    protected void sinkLoop(BlockingQueue<Future<List<T>>> ordered,
+            Consumer<List<T>> sink, Future<List<T>> end) {
+        try {
+            Future<List<T>> next;
+            while ((next = ordered.take()) != end) {
+                List<T> items;
+                try {
+                    items = next.get();
+                } catch (ExecutionException e) {
+                    errors.incrementAndGet();
+                    logger.log(Level.SEVERE, "problem parsing batch", e.getCause());
+                    continue;
+                }
+                try {
+                    sink.accept(items);
+                } catch (RuntimeException e) {
+                    // continue, as the single-threaded imports always have
+                    errors.incrementAndGet();
+                    logger.log(Level.SEVERE, "problem importing batch", e);
+                }
+                itemsSunk.addAndGet(items.size());
+            }
+        } catch (InterruptedException e) {
+            logger.warning("import of " + name + " interrupted");
+        } catch (Throwable t) {
+            // eg an Error from the sink; the reader notices and gives up
+            sinkFailure = t;
+            errors.incrementAndGet();
+            logger.log(Level.SEVERE, "import of " + name + " failed", t);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getLinesRead() {
+        return linesRead.get();
+    }
+
+    public long getItemsParsed() {
+        return itemsParsed.get();
+    }
+
+    public long getItemsSunk() {
+        return itemsSunk.get();
+    }
+
+    public long getErrors() {
+        return errors.get();
+    }
+
+    /**
+     * @return whether the import has finished (or not yet started)
+     */
+    public boolean isFinished() {
+        return startTime == 0 || endTime != 0;
+    }
+
+    /**
+     * @return lines read per second, over the import so far
+     */
+    public double getLinesPerSecond() {
+        if (startTime == 0) {
+            return 0;
+        }
+        long until = (endTime != 0) ? endTime : System.currentTimeMillis();
+        long elapsed = Math.max(1, until - startTime);
+        return linesRead.get() * 1000.0 / elapsed;
+    }
+
+    public Map<String,Object> shortReportMap() {
+        Map<String,Object> map = new LinkedHashMap<String,Object>();
+        map.put("name", name);
+        map.put("finished", isFinished());
+        map.put("linesRead", getLinesRead());
+        map.put("itemsParsed", getItemsParsed());
+        map.put("itemsImported", getItemsSunk());
+        map.put("errors", getErrors());
+        map.put("linesPerSecond", Math.round(getLinesPerSecond()));
+        map.put("elapsedMs", (startTime == 0) ? 0
+                : ((endTime != 0) ? endTime : System.currentTimeMillis()) - startTime);
+        return map;
+    }
+}
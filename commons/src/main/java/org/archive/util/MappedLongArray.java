@@ -0,0 +1,132 @@
+/*
+ *  This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ *  Licensed to the Internet Archive (IA) by one or more individual
+ *  contributors.
+ *
+ *  The IA licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.archive.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.logging.Logger;
+
+/**
+ * Fixed-length array of longs outside the Java heap: memory-mapped from a
+ * (sparse, initially zero) file, or in direct buffers when no file is
+ * given. Addressable by long index, in mapped segments of at most
+ * 2^{@value #SEGMENT_BITS} longs (1GiB), so may exceed 2^31 entries.
+ *
+ * <p>Not synchronized; callers coordinate access.
+ */
+public class MappedLongArray {
+    private static final Logger logger =
+        Logger.getLogger(MappedLongArray.class.getName());
+
+    public static final int SEGMENT_BITS = 27;
+    protected static final int SEGMENT_MASK = (1 << SEGMENT_BITS) - 1;
+
+    protected final long length;
+    protected final File file;
+    protected final RandomAccessFile raf;
+    protected final ByteBuffer[] buffers;
+    protected final LongBuffer[] segments;
+
+    /**
+     * @param file backing file, created or extended as needed and mapped
+     *     read-write; existing content is kept. null for direct memory.
+     * @param length number of longs
+     * @throws IOException
+     */
+    public MappedLongArray(File file, long length) throws IOException {
+        this.length = length;
+        this.file = file;
+        int segmentLongs = (int) Math.min(length, 1L << SEGMENT_BITS);
+        int segmentCount = (int) ((length + segmentLongs - 1) / segmentLongs);
+        buffers = new ByteBuffer[segmentCount];
+        segments = new LongBuffer[segmentCount];
+        if (file != null) {
+            raf = new RandomAccessFile(file, "rw");
+            if (raf.length() < length * 8) {
+                // sparse; unwritten longs read as zero
+                raf.setLength(length * 8);
+            }
+            FileChannel channel = raf.getChannel();
+            for (int s = 0; s < segmentCount; s++) {
+                long offset = (long) s * segmentLongs;
+                buffers[s] = channel.map(FileChannel.MapMode.READ_WRITE,
+                        offset * 8, Math.min(segmentLongs, length - offset) * 8);
+            }
+        } else {
+            raf = null;
+            for (int s = 0; s < segmentCount; s++) {
+                long offset = (long) s * segmentLongs;
+                buffers[s] = ByteBuffer.allocateDirect(
+                        (int) Math.min(segmentLongs, length - offset) * 8);
+            }
+        }
+        for (int s = 0; s < segmentCount; s++) {
+            segments[s] = buffers[s].order(ByteOrder.nativeOrder()).asLongBuffer();
+        }
+    }
+
+    public long length() {
+        return length;
+    }
+
+    public long get(long i) {
+        return segments[(int) (i >>> SEGMENT_BITS)].get((int) (i & SEGMENT_MASK));
+    }
+
+    public void set(long i, long val) {
+        segments[(int) (i >>> SEGMENT_BITS)].put((int) (i & SEGMENT_MASK), val);
+    }
+
+    /**
+     * Write any changes through to the backing file; no-op in direct
+     * memory.
+     */
+    public void force() {
+        for (ByteBuffer b : buffers) {
+            if (b instanceof MappedByteBuffer) {
+                ((MappedByteBuffer) b).force();
+            }
+        }
+    }
+
+    /**
+     * Release the backing file, optionally deleting it. Mappings are only
+     * unmapped once garbage collected, but a deleted file's space is then
+     * reclaimed. The array may not be used afterwards.
+     */
+    public void close(boolean delete) {
+        if (raf != null) {
+            try {
+                raf.close();
+            } catch (IOException e) {
+                logger.warning("closing " + file + ": " + e);
+            }
+            if (delete) {
+                file.delete();
+            }
+        }
+    }
+}
@@ -1,8 +1,8 @@
 /*
  *  This file is part of the Heritrix web crawler (crawler.archive.org).
  *
- *  Licensed to the Internet Archive (IA) by one or more individual 
- *  contributors. 
+ *  Licensed to the Internet Archive (IA) by one or more individual
+ *  contributors.
  *
  *  The IA licenses this file to You under the Apache License, Version 2.0
  *  (the "License"); you may not use this file except in compliance with
@@ -20,13 +20,21 @@
 package org.archive.util;
 
 import java.io.Closeable;
+import java.io.PrintWriter;
 import java.io.Serializable;
-import java.util.Iterator;
-import java.util.Map.Entry;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -35,70 +43,169 @@ import org.archive.bdb.KryoBinding;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.RemovalListener;
 import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
 import com.sleepycat.bind.EntryBinding;
 import com.sleepycat.bind.serial.StoredClassCatalog;
 import com.sleepycat.bind.tuple.TupleBinding;
 import com.sleepycat.collections.StoredSortedMap;
 import com.sleepycat.je.Database;
 import com.sleepycat.je.DatabaseConfig;
+import com.sleepycat.je.DatabaseEntry;
 import com.sleepycat.je.DatabaseException;
 import com.sleepycat.je.Environment;
+import com.sleepycat.je.LockMode;
+import com.sleepycat.je.OperationStatus;
 
 /**
- * A BDB JE backed object cache. 
- * 
- * Soft references to previously-instantiated objects are held so that
- * unless/until an object is garbage collected, subsequent get()s will
- * return the exact same object (avoiding redundant creation or disagreement
- * about canonical object state). 
- * <p>
- * The backing disk is only guaranteed to be up-to-date after a flush 
- * of all dirty values to disk, as can be forced by sync().
- * <p>
- * 
+ * A BDB JE backed object cache.
+ *
+ * The most recently used objects are held in memory, up to a maximum
+ * weight: their estimated size, taken from their serialized size. Beyond
+ * that the least recently used are dropped from memory, whatever the
+ * state of the heap. Weak references to all objects handed out are also
+ * kept, so that while an object is still in use elsewhere, subsequent
+ * get()s will return the exact same object (avoiding redundant creation
+ * or disagreement about canonical object state).
  * <p>
- * 
+ * Objects reported dirty are written to disk by a write-behind thread of
+ * the cache's own, in batches in key order, every flushIntervalMs or
+ * sooner once maxDirtyItems are waiting; they are held in memory until
+ * written. The backing disk is only guaranteed to be up-to-date after a
+ * flush of all dirty values to disk, as can be forced by sync().
+ *
  * @author John Erik Halse
  * @author stack
  * @author gojomo
  * @author paul baclace (conversion to ConcurrentMap)
- *  
+ *
  */
 @SuppressWarnings("ALL")
 public class ObjectIdentityBdbManualCache<V extends IdentityCacheable>
-implements ObjectIdentityCache<V>, Closeable, Serializable {
+implements ObjectIdentityCache<V>, Closeable, Serializable, Reporter {
     private static final long serialVersionUID = 1L;
     private static final Logger logger =
         Logger.getLogger(ObjectIdentityBdbManualCache.class.getName());
 
+    /** estimated bytes of memory taken by an entry beyond its serialized size */
+    protected static final int ENTRY_OVERHEAD = 64;
+
+    /** An object held in memory, with its estimated size. */
+    protected static class Pinned<V> {
+        protected final V value;
+        protected final int weight;
+
+        protected Pinned(V value, int weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    /** A weak reference to an object handed out, by key. */
+    protected static class LiveRef<V> extends WeakReference<V> {
+        protected final String key;
+        protected volatile int weight;
+
+        protected LiveRef(String key, V value, int weight,
+                ReferenceQueue<? super V> queue) {
+            super(value, queue);
+            this.key = key;
+            this.weight = weight;
+        }
+    }
+
     /** The BDB JE database used for this instance. */
     protected transient Database db;
 
-    /** in-memory map of new/recent/still-referenced-elsewhere instances */
-    protected transient ConcurrentMap<String,V> memMap;
+    /** in-memory map of new/recent instances, bounded by maxWeight */
+    protected transient ConcurrentMap<String,Pinned<V>> memMap;
+
+    /** weak references to all instances handed out, perhaps still in use */
+    protected transient ConcurrentMap<String,LiveRef<V>> liveMap;
+    protected transient ReferenceQueue<V> collected;
 
     /** The Collection view of the BDB JE database used for this instance. */
     protected transient StoredSortedMap<String, V> diskMap;
+    protected transient EntryBinding<String> keyBinding;
+    protected transient EntryBinding<V> valueBinding;
 
+    /** instances changed and not yet written to disk */
     protected transient ConcurrentMap<String,V> dirtyItems;
-    
+
+    /** write-behind thread */
+    protected transient Thread writer;
+    protected transient volatile boolean closing;
+    /** held while writing dirty items, so batches don't interleave */
+    protected transient ReentrantLock flushLock;
+
     protected AtomicLong count;
-    
+
+    protected long maxWeight = Runtime.getRuntime().maxMemory() / 64;
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+    /**
+     * Most estimated bytes of objects to hold in memory, apart from those
+     * still in use elsewhere or dirty. Takes effect at initialize().
+     */
+    public void setMaxWeight(long maxWeight) {
+        this.maxWeight = maxWeight;
+    }
+
+    protected long flushIntervalMs = 30000;
+    public long getFlushIntervalMs() {
+        return flushIntervalMs;
+    }
+    /**
+     * Longest time between writes of dirty objects to disk.
+     */
+    public void setFlushIntervalMs(long flushIntervalMs) {
+        this.flushIntervalMs = flushIntervalMs;
+    }
+
+    protected int maxDirtyItems = 10000;
+    public int getMaxDirtyItems() {
+        return maxDirtyItems;
+    }
+    /**
+     * Number of dirty objects at which they are written without waiting
+     * for flushIntervalMs.
+     */
+    public void setMaxDirtyItems(int maxDirtyItems) {
+        this.maxDirtyItems = maxDirtyItems;
+    }
+
+    protected int flushBatchSize = 1000;
+    public int getFlushBatchSize() {
+        return flushBatchSize;
+    }
+    /**
+     * Number of dirty objects written at a time, in key order.
+     */
+    public void setFlushBatchSize(int flushBatchSize) {
+        this.flushBatchSize = flushBatchSize;
+    }
+
     //
     // USAGE STATS
     //
     /** Count of times we got an object from in-memory cache */
     private AtomicLong cacheHit = new AtomicLong(0);
+    /** Count of times we got an object no longer cached, but still in use */
+    private AtomicLong liveHit = new AtomicLong(0);
     /** Count of times the {@link ObjectIdentityBdbManualCache#get} method was called. */
     private AtomicLong countOfGets = new AtomicLong(0);
-    /** Count of every time disk-based map provided non-null object */ 
+    /** Count of every time disk-based map provided non-null object */
     private AtomicLong diskHit = new AtomicLong(0);
     /** Count of times Supplier was used for new object */
     private AtomicLong supplierUsed = new AtomicLong(0);
     /** count of {@link #sync()} use */
     transient private AtomicLong useStatsSyncUsed = new AtomicLong(0);
-    /** Count of times Supplier was used for new object */
+    /** Count of objects dropped from memory to stay within maxWeight */
     private AtomicLong evictions = new AtomicLong(0);
+    /** Count of batches of dirty objects written */
+    private AtomicLong flushes = new AtomicLong(0);
+    /** Count of dirty objects written */
+    private AtomicLong flushedItems = new AtomicLong(0);
 
     /**
      * Constructor. You must call
@@ -109,20 +216,8 @@ implements ObjectIdentityCache<V>, Closeable, Serializable {
      */
     public ObjectIdentityBdbManualCache() {
         super();
-        dirtyItems = CacheBuilder.newBuilder()
-                .maximumSize(10000)
-                .expireAfterWrite(5, TimeUnit.MINUTES)
-                .removalListener(new RemovalListener<String, V>() {
-                    @Override
-                    public void onRemoval(RemovalNotification<String, V> stringVRemovalNotification) {
-                        evictions.incrementAndGet();
-                        diskMap.put(stringVRemovalNotification.getKey(), stringVRemovalNotification.getValue());
-                    }
-                })
-                .<String, V>build()
-                .asMap();
     }
-    
+
     /**
      * Call this method when you have an instance when you used the
      * default constructor or when you have a deserialized instance that you
@@ -140,31 +235,60 @@ implements ObjectIdentityCache<V>, Closeable, Serializable {
         this.memMap = CacheBuilder.newBuilder()
                 .concurrencyLevel(64)
                 .initialCapacity(8192)
-                .softValues()
-                .<String, V>build()
+                .maximumWeight(maxWeight)
+                .weigher(new Weigher<String, Pinned<V>>() {
+                    @Override
+                    public int weigh(String key, Pinned<V> pinned) {
+                        return pinned.weight;
+                    }
+                })
+                .removalListener(new RemovalListener<String, Pinned<V>>() {
+                    @Override
+                    public void onRemoval(RemovalNotification<String, Pinned<V>> notification) {
+                        // no writing here: dirty items are held by dirtyItems
+                        if (notification.wasEvicted()) {
+                            evictions.incrementAndGet();
+                        }
+                    }
+                })
+                .<String, Pinned<V>>build()
                 .asMap();
+        this.liveMap = new ConcurrentHashMap<String,LiveRef<V>>(8192, 0.75f, 64);
+        this.collected = new ReferenceQueue<V>();
+        this.dirtyItems = new ConcurrentHashMap<String,V>(1024, 0.75f, 64);
+        this.flushLock = new ReentrantLock();
         this.db = openDatabase(env, dbName);
+        this.keyBinding = TupleBinding.getPrimitiveBinding(String.class);
+        this.valueBinding = createValueBinding(classCatalog, valueClass);
         this.diskMap = createDiskMap(this.db, classCatalog, valueClass);
-        // keep a record of items that must be persisted; auto-persist if 
-        // unchanged after 5 minutes, or more than 10K would collect
-
         this.count = new AtomicLong(diskMap.size());
+
+        this.closing = false;
+        this.writer = new Thread(this::writeBehind,
+                "ObjectIdentityBdbManualCache-" + dbName);
+        this.writer.setDaemon(true);
+        this.writer.start();
     }
 
     @SuppressWarnings("unchecked")
-    protected StoredSortedMap<String, V> createDiskMap(Database database,
-            StoredClassCatalog classCatalog, Class valueClass) {
-        EntryBinding keyBinding = TupleBinding.getPrimitiveBinding(String.class);
+    protected EntryBinding<V> createValueBinding(StoredClassCatalog classCatalog,
+            Class valueClass) {
         EntryBinding valueBinding = TupleBinding.getPrimitiveBinding(valueClass);
         if(valueBinding == null) {
-            valueBinding = 
+            valueBinding =
                 new KryoBinding<V>(valueClass);
 //                new SerialBinding(classCatalog, valueClass);
 //                new BenchmarkingBinding<V>(new EntryBinding[] {
-//                      new KryoBinding<V>(valueClass),                   
+//                      new KryoBinding<V>(valueClass),
 //                      new RecyclingSerialBinding<V>(classCatalog, valueClass),
 //                  }, valueClass);
         }
+        return valueBinding;
+    }
+
+    @SuppressWarnings("unchecked")
+    protected StoredSortedMap<String, V> createDiskMap(Database database,
+            StoredClassCatalog classCatalog, Class valueClass) {
         return new StoredSortedMap<String,V>(database, keyBinding, valueBinding, true);
     }
 
@@ -183,9 +307,15 @@ implements ObjectIdentityCache<V>, Closeable, Serializable {
     public synchronized void close() {
         // Close out my bdb db.
         if (this.db != null) {
+            closing = true;
+            LockSupport.unpark(writer);
             try {
-                sync(); 
-                this.db.sync();
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            try {
+                sync();
                 this.db.close();
             } catch (DatabaseException e) {
                 logger.log(Level.WARNING,"problem closing ObjectIdentityBdbCache",e);
@@ -204,30 +334,45 @@ implements ObjectIdentityCache<V>, Closeable, Serializable {
      * @see org.archive.util.ObjectIdentityCache#get(java.lang.String)
      */
     public V get(final String key) {
-        return getOrUse(key,null); 
+        return getOrUse(key,null);
     }
-    
+
     /* (non-Javadoc)
      * @see org.archive.util.ObjectIdentityCache#get(java.lang.String, org.archive.util.ObjectIdentityBdbCache)
      */
     public V getOrUse(final String key, Supplier<V> supplierOrNull) {
         countOfGets.incrementAndGet();
-        
+
         if (countOfGets.get() % 10000 == 0) {
             logCacheSummary();
         }
-        
+        expungeCollected();
+
         // check mem cache
-        V val = memMap.get(key);
-        if(val != null) {
+        Pinned<V> pinned = memMap.get(key);
+        if(pinned != null) {
             // the concurrent garden path: in memory and valid
             cacheHit.incrementAndGet();
-            val.setIdentityCache(this); 
+            pinned.value.setIdentityCache(this);
+            return pinned.value;
+        }
+        // check instances dropped from memMap but still in use
+        LiveRef<V> ref = liveMap.get(key);
+        V val = (ref == null) ? null : ref.get();
+        if(val != null) {
+            liveHit.incrementAndGet();
+            memMap.put(key, new Pinned<V>(val, ref.weight));
+            val.setIdentityCache(this);
             return val;
         }
-        val = diskMap.get(key);
-        V prevVal; 
-        if(val == null) {
+
+        DatabaseEntry keyEntry = new DatabaseEntry();
+        keyBinding.objectToEntry(key, keyEntry);
+        DatabaseEntry valueEntry = new DatabaseEntry();
+        if(db.get(null, keyEntry, valueEntry, LockMode.DEFAULT) == OperationStatus.SUCCESS) {
+            diskHit.incrementAndGet();
+            val = valueBinding.entryToObject(valueEntry);
+        } else {
             // never yet created, consider creating
             if(supplierOrNull==null) {
                 return null;
@@ -235,27 +380,60 @@ implements ObjectIdentityCache<V>, Closeable, Serializable {
             val = supplierOrNull.get();
             supplierUsed.incrementAndGet();
             // putting initial value directly into diskMap
-            // (rather than just the memMap until page-out)
+            // (rather than just the memMap until written)
             // ensures diskMap.keySet() provides complete view
-            prevVal = diskMap.putIfAbsent(key, val); 
-            if(prevVal!=null) {
+            valueBinding.objectToEntry(val, valueEntry);
+            if(db.putNoOverwrite(null, keyEntry, valueEntry) == OperationStatus.KEYEXIST) {
                 // we lost a race; discard our local creation in favor of disk version
+                db.get(null, keyEntry, valueEntry, LockMode.DEFAULT);
                 diskHit.incrementAndGet();
-                val = prevVal;
+                val = valueBinding.entryToObject(valueEntry);
             } else {
                 // we uniquely added a new key
                 count.incrementAndGet();
             }
-        } else {
-            diskHit.incrementAndGet();
         }
-        
-        prevVal = memMap.putIfAbsent(key, val); // fill memMap or lose race gracefully
-        if(prevVal != null) {
-            val = prevVal; 
+
+        val = install(key, val, ENTRY_OVERHEAD + valueEntry.getSize());
+        val.setIdentityCache(this);
+        return val;
+    }
+
+    /**
+     * Make the given freshly read or created instance the one for its key,
+     * unless another thread has meanwhile installed one, which is returned
+     * instead.
+     */
+    protected V install(String key, V val, int weight) {
+        while (true) {
+            LiveRef<V> ref = new LiveRef<V>(key, val, weight, collected);
+            LiveRef<V> prevRef = liveMap.putIfAbsent(key, ref);
+            if (prevRef == null) {
+                memMap.put(key, new Pinned<V>(val, weight));
+                return val;
+            }
+            V prevVal = prevRef.get();
+            if (prevVal != null) {
+                // lose race gracefully
+                memMap.putIfAbsent(key, new Pinned<V>(prevVal, prevRef.weight));
+                return prevVal;
+            }
+            // collected since; replace
+            if (liveMap.replace(key, prevRef, ref)) {
+                memMap.put(key, new Pinned<V>(val, weight));
+                return val;
+            }
+        }
+    }
+
+    /**
+     * Forget the weak references to instances since garbage collected.
+     */
+    protected void expungeCollected() {
+        Reference<? extends V> ref;
+        while ((ref = collected.poll()) != null) {
+            liveMap.remove(((LiveRef<V>) ref).key, ref);
         }
-        val.setIdentityCache(this); 
-        return val; 
     }
 
     /* (non-Javadoc)
@@ -264,7 +442,7 @@ implements ObjectIdentityCache<V>, Closeable, Serializable {
     public Set<String> keySet() {
         return diskMap.keySet();
     }
-    
+
     /**
      * Summary to log, if at FINE level
      */
@@ -273,14 +451,14 @@ implements ObjectIdentityCache<V>, Closeable, Serializable {
             logger.fine(composeCacheSummary());
         }
     }
-    
+
     protected String composeCacheSummary() {
-        long totalHits = cacheHit.get() + diskHit.get();
+        long totalHits = cacheHit.get() + liveHit.get() + diskHit.get();
         if (totalHits < 1) {
             return "";
         }
-        long cacheHitPercent 
-                = (cacheHit.get() * 100) / totalHits;
+        long cacheHitPercent
+                = ((cacheHit.get() + liveHit.get()) * 100) / totalHits;
         StringBuilder sb = new StringBuilder(120);
         sb.append("DB name:")
           .append(getDatabaseName())
@@ -291,6 +469,8 @@ implements ObjectIdentityCache<V>, Closeable, Serializable {
           .append(countOfGets.get())
           .append(" memHits=")
           .append(cacheHit.get())
+          .append(" liveHits=")
+          .append(liveHit.get())
           .append(" diskHits=")
           .append(diskHit.get())
           .append(" supplieds=")
@@ -301,6 +481,10 @@ implements ObjectIdentityCache<V>, Closeable, Serializable {
           .append(dirtyItems.size())
           .append(" evictions=")
           .append(evictions.get())
+          .append(" flushes=")
+          .append(flushes.get())
+          .append(" flushedItems=")
+          .append(flushedItems.get())
           .append(" syncs=")
           .append(useStatsSyncUsed.get());
         return sb.toString();
@@ -311,11 +495,11 @@ implements ObjectIdentityCache<V>, Closeable, Serializable {
      */
     public int size() {
         if(db==null) {
-            return 0; 
+            return 0;
         }
         return (int) count.get();
     }
-    
+
     protected String getDatabaseName() {
         String name = "DbName-Lookup-Failed";
         try {
@@ -327,11 +511,11 @@ implements ObjectIdentityCache<V>, Closeable, Serializable {
         }
         return name;
     }
-    
+
     /**
      * Sync all in-memory map entries to backing disk store.
      */
-    public synchronized void sync() {
+    public void sync() {
         String dbName = null;
         // Sync. memory and disk.
         useStatsSyncUsed.incrementAndGet();
@@ -342,21 +526,16 @@ implements ObjectIdentityCache<V>, Closeable, Serializable {
             logger.fine(dbName + " start sizes: disk " + this.diskMap.size() +
                 ", mem " + this.memMap.size());
         }
-        
-        Iterator<Entry<String, V>> iter = dirtyItems.entrySet().iterator();
-        while(iter.hasNext()) {
-            Entry<String, V> entry = iter.next(); 
-            iter.remove();
-            diskMap.put(entry.getKey(), entry.getValue());
-        }
-        
+
+        flushDirty();
+
         try {
             this.db.sync();
         } catch (DatabaseException e) {
             throw new RuntimeException(e);
         }
-        
-        
+
+
         if (logger.isLoggable(Level.FINE)) {
             logger.fine(dbName + " sync took " +
                 (System.currentTimeMillis() - startTime) + "ms. " +
@@ -365,18 +544,133 @@ implements ObjectIdentityCache<V>, Closeable, Serializable {
         }
     }
 
+    /**
+     * Write all items dirty now to disk, in batches in key order.
+     */
+    protected void flushDirty() {
+        String[] keys = dirtyItems.keySet().toArray(new String[0]);
+        Arrays.sort(keys);
+        DatabaseEntry keyEntry = new DatabaseEntry();
+        DatabaseEntry valueEntry = new DatabaseEntry();
+        for (int start = 0; start < keys.length; start += flushBatchSize) {
+            int end = Math.min(keys.length, start + flushBatchSize);
+            flushLock.lock();
+            try {
+                for (int i = start; i < end; i++) {
+                    // remove before writing: changes made meanwhile re-dirty it
+                    V val = dirtyItems.remove(keys[i]);
+                    if (val == null) {
+                        continue;
+                    }
+                    keyBinding.objectToEntry(keys[i], keyEntry);
+                    valueBinding.objectToEntry(val, valueEntry);
+                    db.put(null, keyEntry, valueEntry);
+                    flushedItems.incrementAndGet();
+                    reweigh(keys[i], val, ENTRY_OVERHEAD + valueEntry.getSize());
+                }
+                flushes.incrementAndGet();
+            } finally {
+                flushLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Update the estimated size of an instance, as just serialized.
+     */
+    protected void reweigh(String key, V val, int weight) {
+        LiveRef<V> ref = liveMap.get(key);
+        if (ref != null && ref.get() == val) {
+            ref.weight = weight;
+        }
+        Pinned<V> pinned = memMap.get(key);
+        if (pinned != null && pinned.value == val && pinned.weight != weight) {
+            memMap.replace(key, pinned, new Pinned<V>(val, weight));
+        }
+    }
+
+    /**
+     * Body of the write-behind thread.
+     */
+    protected void writeBehind() {
+        while (!closing) {
+            if (dirtyItems.size() < maxDirtyItems) {
+                LockSupport.parkNanos(this,
+                        TimeUnit.MILLISECONDS.toNanos(flushIntervalMs));
+            }
+            if (closing) {
+                // close() writes out the remainder
+                return;
+            }
+            try {
+                flushDirty();
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "problem writing dirty items of "
+                        + getDatabaseName(), e);
+            }
+        }
+    }
+
     @Override
     public void dirtyKey(String key) {
-       V val = memMap.get(key);
+       V val = null;
+       Pinned<V> pinned = memMap.get(key);
+       if (pinned != null) {
+           val = pinned.value;
+       } else {
+           LiveRef<V> ref = liveMap.get(key);
+           val = (ref == null) ? null : ref.get();
+       }
        if(val==null) {
            logger.severe("dirty key not in memory should be impossible");
+           return;
        }
-       dirtyItems.put(key,val); 
+       dirtyItems.put(key,val);
+       if (dirtyItems.size() >= maxDirtyItems) {
+           LockSupport.unpark(writer);
+       }
+    }
+
+    //
+    // Reporter
+    //
+    @Override
+    public void reportTo(PrintWriter writer) {
+        writer.print(composeCacheSummary());
+        writer.print("\n");
+    }
+
+    @Override
+    public void shortReportLineTo(PrintWriter pw) {
+        boolean first = true;
+        for (Object value : shortReportMap().values()) {
+            if (!first) {
+                pw.print(" ");
+            }
+            pw.print(value);
+            first = false;
+        }
+    }
+
+    @Override
+    public String shortReportLegend() {
+        return "gets memHits liveHits diskHits supplied inMemItems dirtyItems "
+                + "evictions flushes flushedItems";
     }
 
-    /*@Override
-    public void onRemoval(RemovalNotification<String, V> stringVRemovalNotification) {
-        evictions.incrementAndGet();
-        diskMap.put(stringVRemovalNotification.getKey(), stringVRemovalNotification.getValue());
-    }*/
+    @Override
+    public Map<String, Object> shortReportMap() {
+        Map<String,Object> map = new LinkedHashMap<String, Object>();
+        map.put("gets", countOfGets.get());
+        map.put("memHits", cacheHit.get());
+        map.put("liveHits", liveHit.get());
+        map.put("diskHits", diskHit.get());
+        map.put("supplied", supplierUsed.get());
+        map.put("inMemItems", memMap.size());
+        map.put("dirtyItems", dirtyItems.size());
+        map.put("evictions", evictions.get());
+        map.put("flushes", flushes.get());
+        map.put("flushedItems", flushedItems.get());
+        return map;
+    }
 }
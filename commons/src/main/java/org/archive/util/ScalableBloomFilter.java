@@ -0,0 +1,413 @@
+/*
+ *  This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ *  Licensed to the Internet Archive (IA) by one or more individual
+ *  contributors.
+ *
+ *  The IA licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.archive.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import st.ata.util.FPGenerator;
+
+/**
+ * Bloom filter that grows instead of degrading: a series of layers, each
+ * added when the previous one holds its designed number of entries, with
+ * twice its capacity and half its false-positive rate, so that the
+ * combined false-positive rate stays below twice that of the first layer
+ * however many entries are added (Almeida et al., "Scalable Bloom
+ * Filters"). An add checks every layer but sets bits only in the newest.
+ *
+ * <p>Each layer is a blocked Bloom filter: all the bits for one entry
+ * fall within a single 512-bit block, one cache line, so a probe costs
+ * one memory access per layer rather than one per hash function. This
+ * needs slightly more bits than a classic filter for the same error rate,
+ * which the layer sizing allows for.
+ *
+ * <p>Layers are {@link MappedLongArray}s, memory-mapped from files in a
+ * given directory (or in direct memory). {@link #flush()} forces them to
+ * disk and writes a small state file, from which the filter can be
+ * reopened; no serialization of the bits is ever needed.
+ *
+ * <p>add() and contains() are synchronized.
+ */
+public class ScalableBloomFilter implements BloomFilter, Closeable {
+    private static final Logger logger =
+        Logger.getLogger(ScalableBloomFilter.class.getName());
+
+    /** longs per block: 8 longs, 512 bits, one cache line */
+    protected static final int BLOCK_LONGS = 8;
+    protected static final int BLOCK_BITS = BLOCK_LONGS * 64;
+    /** extra bits, over a classic filter's, for the blocked layout */
+    protected static final double BLOCKED_SIZE_FACTOR = 1.15;
+    /** capacity multiplier from one layer to the next */
+    protected static final int GROWTH = 2;
+    /** false-positive rate multiplier from one layer to the next */
+    protected static final double TIGHTENING = 0.5;
+
+    protected static final String STATE_FILENAME = "bloom.state";
+    protected static final String LAYER_PREFIX = "bloom-";
+    protected static final String LAYER_SUFFIX = ".bits";
+
+    protected File dir;
+    protected long initialExpectedInserts;
+    protected double falsePositiveRate;
+    protected List<Layer> layers = new ArrayList<Layer>();
+    protected long count;
+
+    /**
+     * @param dir directory for layer files, or null for direct memory
+     * @param initialExpectedInserts capacity of the first layer
+     * @param falsePositiveRate target overall false-positive rate
+     * @param reopen if true, reopen an existing filter in dir (if any);
+     *     otherwise discard any previous files there
+     * @throws IOException
+     */
+    public ScalableBloomFilter(File dir, long initialExpectedInserts,
+            double falsePositiveRate, boolean reopen) throws IOException {
+        this.dir = dir;
+        this.initialExpectedInserts = initialExpectedInserts;
+        this.falsePositiveRate = falsePositiveRate;
+        if (dir != null) {
+            FileUtils.ensureWriteableDirectory(dir);
+            if (reopen && getStateFile().exists()) {
+                reopen();
+                return;
+            }
+            deleteFiles();
+        }
+        addLayer();
+    }
+
+    protected File getStateFile() {
+        return new File(dir, STATE_FILENAME);
+    }
+
+    protected File layerFile(int i) {
+        return (dir == null) ? null : new File(dir, LAYER_PREFIX + i + LAYER_SUFFIX);
+    }
+
+    protected void deleteFiles() {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File f : files) {
+            String name = f.getName();
+            if (name.equals(STATE_FILENAME)
+                    || (name.startsWith(LAYER_PREFIX) && name.endsWith(LAYER_SUFFIX))) {
+                f.delete();
+            }
+        }
+    }
+
+    protected void addLayer() throws IOException {
+        int i = layers.size();
+        long capacity = initialExpectedInserts;
+        double rate = falsePositiveRate * (1 - TIGHTENING);
+        for (int j = 0; j < i; j++) {
+            capacity *= GROWTH;
+            rate *= TIGHTENING;
+        }
+        // classic optimum: m/n = -ln(p)/ln(2)^2 bits, k = -log2(p) hashes
+        double bitsPerEntry = -Math.log(rate) / (Math.log(2) * Math.log(2));
+        int hashes = Math.max(1, (int) Math.round(-Math.log(rate) / Math.log(2)));
+        long blocks = Math.max(1, (long) Math.ceil(
+                capacity * bitsPerEntry * BLOCKED_SIZE_FACTOR / BLOCK_BITS));
+        layers.add(new Layer(layerFile(i), blocks, hashes, capacity));
+        if (i > 0) {
+            logger.info("bloom filter grew to " + (i + 1) + " layers, "
+                    + getSizeBytes() + " bytes");
+        }
+    }
+
+    protected void reopen() throws IOException {
+        Properties state = new Properties();
+        InputStream in = new FileInputStream(getStateFile());
+        try {
+            state.load(in);
+        } finally {
+            in.close();
+        }
+        count = Long.parseLong(state.getProperty("count"));
+        int layerCount = Integer.parseInt(state.getProperty("layers"));
+        for (int i = 0; i < layerCount; i++) {
+            String p = "layer." + i + ".";
+            Layer layer = new Layer(layerFile(i),
+                    Long.parseLong(state.getProperty(p + "blocks")),
+                    Integer.parseInt(state.getProperty(p + "hashes")),
+                    Long.parseLong(state.getProperty(p + "capacity")));
+            layer.count = Long.parseLong(state.getProperty(p + "count"));
+            layer.bitsSet = Long.parseLong(state.getProperty(p + "bitsSet"));
+            layers.add(layer);
+        }
+        logger.info("reopened bloom filter of " + count + " entries from " + dir);
+    }
+
+    /**
+     * Force the layers to disk and write the state file, so that the
+     * filter can be reopened as it is now. No-op in direct memory.
+     *
+     * @throws IOException
+     */
+    public synchronized void flush() throws IOException {
+        if (dir == null) {
+            return;
+        }
+        Properties state = new Properties();
+        state.setProperty("count", Long.toString(count));
+        state.setProperty("layers", Integer.toString(layers.size()));
+        for (int i = 0; i < layers.size(); i++) {
+            Layer layer = layers.get(i);
+            layer.bits.force();
+            String p = "layer." + i + ".";
+            state.setProperty(p + "blocks", Long.toString(layer.blocks));
+            state.setProperty(p + "hashes", Integer.toString(layer.hashes));
+            state.setProperty(p + "capacity", Long.toString(layer.capacity));
+            state.setProperty(p + "count", Long.toString(layer.count));
+            state.setProperty(p + "bitsSet", Long.toString(layer.bitsSet));
+        }
+        File tmp = new File(dir, STATE_FILENAME + ".tmp");
+        OutputStream out = new FileOutputStream(tmp);
+        try {
+            state.store(out, "ScalableBloomFilter");
+        } finally {
+            out.close();
+        }
+        if (!tmp.renameTo(getStateFile())) {
+            throw new IOException("unable to replace " + getStateFile());
+        }
+    }
+
+    /**
+     * Flush (if file-backed) and release the layers. The filter may not be
+     * used afterwards.
+     */
+    public synchronized void close() throws IOException {
+        if (layers.isEmpty()) {
+            return;
+        }
+        flush();
+        for (Layer layer : layers) {
+            layer.bits.close(false);
+        }
+        layers.clear();
+    }
+
+    /** further hash derived from the given one (murmur3 finalizer) */
+    protected static long mix(long h) {
+        h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+        h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+
+    public synchronized boolean contains(CharSequence s) {
+        long h1 = FPGenerator.std64.fp(s);
+        long h2 = mix(h1);
+        long step = mix(h2) | 1;
+        for (int i = layers.size() - 1; i >= 0; i--) {
+            if (layers.get(i).contains(h1, h2, step)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public synchronized boolean add(CharSequence s) {
+        long h1 = FPGenerator.std64.fp(s);
+        long h2 = mix(h1);
+        long step = mix(h2) | 1;
+        int last = layers.size() - 1;
+        for (int i = last - 1; i >= 0; i--) {
+            if (layers.get(i).contains(h1, h2, step)) {
+                return false;
+            }
+        }
+        Layer newest = layers.get(last);
+        if (newest.count >= newest.capacity) {
+            if (newest.contains(h1, h2, step)) {
+                return false;
+            }
+            try {
+                addLayer();
+            } catch (IOException e) {
+                throw new IllegalStateException("unable to grow bloom filter", e);
+            }
+            newest = layers.get(last + 1);
+        }
+        if (!newest.add(h1, h2, step)) {
+            return false;
+        }
+        count++;
+        return true;
+    }
+
+    /**
+     * Number of entries added, saturated to int; see {@link #count()}.
+     */
+    public synchronized int size() {
+        return (int) Math.min(Integer.MAX_VALUE, count);
+    }
+
+    /** @return number of entries added (adds that returned true) */
+    public synchronized long count() {
+        return count;
+    }
+
+    public synchronized long getSizeBytes() {
+        long bytes = 0;
+        for (Layer layer : layers) {
+            bytes += layer.blocks * BLOCK_LONGS * 8;
+        }
+        return bytes;
+    }
+
+    /**
+     * @return total capacity of the current layers; more will be added as
+     *     needed
+     */
+    public synchronized long getExpectedInserts() {
+        long capacity = 0;
+        for (Layer layer : layers) {
+            capacity += layer.capacity;
+        }
+        return capacity;
+    }
+
+    /** @return hash count of the newest layer */
+    public synchronized long getHashCount() {
+        return layers.get(layers.size() - 1).hashes;
+    }
+
+    /** @return number of layers */
+    public synchronized int getLayerCount() {
+        return layers.size();
+    }
+
+    /**
+     * Bit by index across all layers, in order, for white-box testing.
+     */
+    public synchronized boolean getBit(long bitIndex) {
+        for (Layer layer : layers) {
+            long layerBits = layer.blocks * BLOCK_BITS;
+            if (bitIndex < layerBits) {
+                return (layer.bits.get(bitIndex >>> 6) & (1L << (bitIndex & 63))) != 0;
+            }
+            bitIndex -= layerBits;
+        }
+        throw new IndexOutOfBoundsException();
+    }
+
+    /**
+     * @return fraction of all bits set, over all layers
+     */
+    public synchronized double getFillRatio() {
+        long set = 0;
+        long total = 0;
+        for (Layer layer : layers) {
+            set += layer.bitsSet;
+            total += layer.blocks * BLOCK_BITS;
+        }
+        return (double) set / total;
+    }
+
+    /**
+     * Estimated current probability that contains() wrongly answers true,
+     * from each layer's actual fill: a layer with fill ratio f and k
+     * hashes gives a false positive with probability about f^k, and a
+     * probe passes through all layers. (Blocking makes the true rate
+     * somewhat higher than this estimate for very full layers.)
+     *
+     * @return estimated false-positive rate
+     */
+    public synchronized double getEstimatedFalsePositiveRate() {
+        double allNegative = 1.0;
+        for (Layer layer : layers) {
+            double fill = (double) layer.bitsSet / (layer.blocks * BLOCK_BITS);
+            allNegative *= 1.0 - Math.pow(fill, layer.hashes);
+        }
+        return 1.0 - allNegative;
+    }
+
+    /**
+     * One blocked Bloom filter layer.
+     */
+    protected static class Layer {
+        final MappedLongArray bits;
+        final long blocks;
+        final int hashes;
+        final long capacity;
+        long count;
+        long bitsSet;
+
+        Layer(File file, long blocks, int hashes, long capacity) throws IOException {
+            this.bits = new MappedLongArray(file, blocks * BLOCK_LONGS);
+            this.blocks = blocks;
+            this.hashes = hashes;
+            this.capacity = capacity;
+        }
+
+        long blockBase(long h1) {
+            return Long.remainderUnsigned(h1, blocks) * BLOCK_LONGS;
+        }
+
+        /**
+         * Double hashing within the block: h1 picks the block, then bit i
+         * is given by the top 9 bits of h2 + i * step.
+         */
+        boolean contains(long h1, long h2, long step) {
+            long base = blockBase(h1);
+            for (int i = 0; i < hashes; i++) {
+                int bit = (int) ((h2 + i * step) >>> 55);
+                if ((bits.get(base + (bit >>> 6)) & (1L << (bit & 63))) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /** @return true if any bit was newly set */
+        boolean add(long h1, long h2, long step) {
+            long base = blockBase(h1);
+            boolean changed = false;
+            for (int i = 0; i < hashes; i++) {
+                int bit = (int) ((h2 + i * step) >>> 55);
+                long index = base + (bit >>> 6);
+                long word = bits.get(index);
+                long mask = 1L << (bit & 63);
+                if ((word & mask) == 0) {
+                    bits.set(index, word | mask);
+                    bitsSet++;
+                    changed = true;
+                }
+            }
+            if (changed) {
+                count++;
+            }
+            return changed;
+        }
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ *  This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ *  Licensed to the Internet Archive (IA) by one or more individual
+ *  contributors.
+ *
+ *  The IA licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.archive.util;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An unbounded {@link BlockingQueue} spread over several lock-free
+ * stripes, for hand-off points where many threads offer and poll at once
+ * and strict FIFO order across all elements is not needed.
+ *
+ * <p>Each offer goes to a randomly chosen stripe; each poll scans the
+ * stripes starting from a random one. Ordering is FIFO within a stripe
+ * only. {@link #size()} is maintained in a {@link LongAdder} and, like
+ * iteration, is only weakly consistent while the queue is in use.
+ * Non-blocking operations never take a lock; the blocking ones park on a
+ * condition that offers signal only when some thread is waiting.
+ *
+ * <p>The iterator does not support removal; use {@link #remove(Object)}.
+ *
+ * @param <E> element type
+ */
+public class StripedBlockingQueue<E> extends AbstractQueue<E>
+implements BlockingQueue<E> {
+    protected final ConcurrentLinkedQueue<E>[] stripes;
+    protected final int mask;
+    protected final LongAdder size = new LongAdder();
+
+    protected final ReentrantLock waitLock = new ReentrantLock();
+    protected final Condition notEmpty = waitLock.newCondition();
+    protected final AtomicInteger waiters = new AtomicInteger();
+
+    /**
+     * Create with one stripe per available processor.
+     */
+    public StripedBlockingQueue() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param minStripes minimum number of stripes; rounded up to a power
+     *     of two
+     */
+    @SuppressWarnings("unchecked")
+    public StripedBlockingQueue(int minStripes) {
+        int n = 1;
+        while (n < minStripes) {
+            n <<= 1;
+        }
+        stripes = new ConcurrentLinkedQueue[n];
+        for (int i = 0; i < n; i++) {
+            stripes[i] = new ConcurrentLinkedQueue<E>();
+        }
+        mask = n - 1;
+    }
+
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    protected int randomStripe() {
+        return ThreadLocalRandom.current().nextInt() & mask;
+    }
+
+    @Override
+    public boolean offer(E e) {
+        Objects.requireNonNull(e);
+        // count before insertion so that size never goes negative
+        size.increment();
+        stripes[randomStripe()].offer(e);
+        if (waiters.get() > 0) {
+            waitLock.lock();
+            try {
+                notEmpty.signal();
+            } finally {
+                waitLock.unlock();
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public E poll() {
+        int start = randomStripe();
+        for (int i = 0; i <= mask; i++) {
+            E e = stripes[(start + i) & mask].poll();
+            if (e != null) {
+                size.decrement();
+                return e;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public E peek() {
+        int start = randomStripe();
+        for (int i = 0; i <= mask; i++) {
+            E e = stripes[(start + i) & mask].peek();
+            if (e != null) {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public int size() {
+        long n = size.sum();
+        return n > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) Math.max(0, n);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        for (ConcurrentLinkedQueue<E> stripe : stripes) {
+            if (!stripe.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        for (ConcurrentLinkedQueue<E> stripe : stripes) {
+            if (stripe.remove(o)) {
+                size.decrement();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        for (ConcurrentLinkedQueue<E> stripe : stripes) {
+            if (stripe.contains(o)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<E>() {
+            int stripe = 0;
+            Iterator<E> current = stripes[0].iterator();
+
+            public boolean hasNext() {
+                while (!current.hasNext()) {
+                    if (++stripe >= stripes.length) {
+                        return false;
+                    }
+                    current = stripes[stripe].iterator();
+                }
+                return true;
+            }
+
+            public E next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current.next();
+            }
+        };
+    }
+
+    @Override
+    public void put(E e) {
+        offer(e);
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) {
+        return offer(e);
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        E e = poll();
+        if (e != null) {
+            return e;
+        }
+        waitLock.lockInterruptibly();
+        waiters.incrementAndGet();
+        try {
+            // registered as waiter before re-polling, so any offer from
+            // here on will signal
+            while ((e = poll()) == null) {
+                notEmpty.await();
+            }
+            return e;
+        } finally {
+            waiters.decrementAndGet();
+            waitLock.unlock();
+        }
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        E e = poll();
+        if (e != null) {
+            return e;
+        }
+        long nanos = unit.toNanos(timeout);
+        waitLock.lockInterruptibly();
+        waiters.incrementAndGet();
+        try {
+            while ((e = poll()) == null) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return e;
+        } finally {
+            waiters.decrementAndGet();
+            waitLock.unlock();
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        Objects.requireNonNull(c);
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+        int n = 0;
+        E e;
+        while (n < maxElements && (e = poll()) != null) {
+            c.add(e);
+            n++;
+        }
+        return n;
+    }
+}
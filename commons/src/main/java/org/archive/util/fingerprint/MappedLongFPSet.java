@@ -0,0 +1,415 @@
+/*
+ *  This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ *  Licensed to the Internet Archive (IA) by one or more individual
+ *  contributors.
+ *
+ *  The IA licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.archive.util.fingerprint;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import org.archive.util.FileUtils;
+import org.archive.util.MappedLongArray;
+
+/**
+ * Set of primitive long fingerprints held outside the Java heap, in an
+ * open-addressing (linear probing) table of longs that is either
+ * memory-mapped from a file in a given directory or, with no directory,
+ * in direct buffers (see {@link MappedLongArray}). Its size is therefore
+ * bounded by disk and address space rather than heap, and it puts no load
+ * on the garbage collector.
+ *
+ * <p>As in {@link org.archive.util.AbstractLongFPSet}, fingerprints are
+ * assumed well-distributed and a value's slot is taken from its high-order
+ * bits. A zero slot means empty; the fingerprint 0 itself is tracked by a
+ * flag.
+ *
+ * <p>When the load factor would be exceeded the table doubles without a
+ * stop-the-world rehash: a table of twice the size is created, new
+ * entries go only to it, and each later mutation migrates a small run of
+ * slots from the old table, which keeps answering lookups until it has
+ * been fully copied and is discarded.
+ *
+ * <p>A file-backed set records its sizes and migration progress in a small
+ * state file on {@link #flush()} (which also forces the mapped tables to
+ * disk) and {@link #close()}, and can be reopened from them. The state
+ * file is also rewritten whenever a grow starts or finishes, so that it
+ * never names a table file that has been discarded.
+ *
+ * <p>All operations are synchronized.
+ */
+public class MappedLongFPSet implements LongFPSet, Closeable {
+    private static final Logger logger =
+        Logger.getLogger(MappedLongFPSet.class.getName());
+
+    /** old-table slots migrated per mutating operation while growing */
+    protected static final int MIGRATE_SLOTS_PER_OP = 256;
+    protected static final int MIN_CAPACITY_POWER_OF_TWO = 4;
+
+    protected static final String STATE_FILENAME = "fpset.state";
+    protected static final String TABLE_PREFIX = "fpset-";
+    protected static final String TABLE_SUFFIX = ".tbl";
+
+    /** directory of table and state files, or null for direct memory */
+    protected File dir;
+    protected float loadFactor;
+    protected long count;
+    protected boolean containsZero;
+    /** current table, receiving all insertions */
+    protected Table table;
+    /** previous table being migrated into current, or null */
+    protected Table oldTable;
+    /** next old-table slot to migrate */
+    protected long migrateCursor;
+
+    /**
+     * @param dir directory for the table files, or null to keep the
+     *     table in direct (non-file) memory
+     * @param capacityPowerOfTwo initial capacity, as a power of 2
+     * @param loadFactor fraction of slots that may be filled before the
+     *     table is grown; must be greater than 0 and less than 1
+     * @param reopen if true, reopen an existing set in dir (if any);
+     *     otherwise discard any previous files there
+     * @throws IOException
+     */
+    public MappedLongFPSet(File dir, int capacityPowerOfTwo, float loadFactor,
+            boolean reopen) throws IOException {
+        if (!(loadFactor > 0f && loadFactor < 1f)) {
+            throw new IllegalArgumentException(
+                    "loadFactor must be in (0, 1): " + loadFactor);
+        }
+        this.dir = dir;
+        this.loadFactor = loadFactor;
+        if (dir != null) {
+            FileUtils.ensureWriteableDirectory(dir);
+            if (reopen && getStateFile().exists()) {
+                reopen();
+                return;
+            }
+            deleteFiles();
+        }
+        table = new Table(tableFile(Math.max(capacityPowerOfTwo,
+                MIN_CAPACITY_POWER_OF_TWO)), Math.max(capacityPowerOfTwo,
+                MIN_CAPACITY_POWER_OF_TWO));
+    }
+
+    /**
+     * Create a set in direct memory.
+     */
+    public MappedLongFPSet(int capacityPowerOfTwo, float loadFactor)
+    throws IOException {
+        this(null, capacityPowerOfTwo, loadFactor, false);
+    }
+
+    protected File getStateFile() {
+        return new File(dir, STATE_FILENAME);
+    }
+
+    protected File tableFile(int capacityPowerOfTwo) {
+        return (dir == null) ? null
+                : new File(dir, TABLE_PREFIX + capacityPowerOfTwo + TABLE_SUFFIX);
+    }
+
+    protected void deleteFiles() {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File f : files) {
+            String name = f.getName();
+            if (name.equals(STATE_FILENAME)
+                    || (name.startsWith(TABLE_PREFIX) && name.endsWith(TABLE_SUFFIX))) {
+                f.delete();
+            }
+        }
+    }
+
+    protected void reopen() throws IOException {
+        Properties state = new Properties();
+        InputStream in = new FileInputStream(getStateFile());
+        try {
+            state.load(in);
+        } finally {
+            in.close();
+        }
+        count = Long.parseLong(state.getProperty("count"));
+        containsZero = Boolean.parseBoolean(state.getProperty("containsZero"));
+        int pow = Integer.parseInt(state.getProperty("capacityPowerOfTwo"));
+        table = openExistingTable(pow);
+        int oldPow = Integer.parseInt(state.getProperty("oldCapacityPowerOfTwo", "-1"));
+        if (oldPow > 0) {
+            oldTable = openExistingTable(oldPow);
+            migrateCursor = Long.parseLong(state.getProperty("migrateCursor"));
+        }
+        logger.info("reopened " + count + " fingerprints from " + dir);
+    }
+
+    /**
+     * Open a table file named in the state file, refusing to (silently)
+     * create a missing one or resize one of the wrong length.
+     */
+    protected Table openExistingTable(int capacityPowerOfTwo) throws IOException {
+        File file = tableFile(capacityPowerOfTwo);
+        if (!file.isFile()) {
+            throw new IOException("fingerprint table " + file
+                    + " named in " + getStateFile() + " is missing");
+        }
+        long expected = (1L << capacityPowerOfTwo) * 8;
+        if (file.length() != expected) {
+            throw new IOException("fingerprint table " + file + " is "
+                    + file.length() + " bytes, expected " + expected);
+        }
+        return new Table(file, capacityPowerOfTwo);
+    }
+
+    /**
+     * Force the table(s) to disk and write the state file, so that the
+     * set can be reopened as it is now. No-op for a direct-memory set.
+     *
+     * @throws IOException
+     */
+    public synchronized void flush() throws IOException {
+        if (dir == null) {
+            return;
+        }
+        table.force();
+        if (oldTable != null) {
+            oldTable.force();
+        }
+        Properties state = new Properties();
+        state.setProperty("count", Long.toString(count));
+        state.setProperty("containsZero", Boolean.toString(containsZero));
+        state.setProperty("capacityPowerOfTwo", Integer.toString(table.capacityPowerOfTwo));
+        if (oldTable != null) {
+            state.setProperty("oldCapacityPowerOfTwo", Integer.toString(oldTable.capacityPowerOfTwo));
+            state.setProperty("migrateCursor", Long.toString(migrateCursor));
+        }
+        File tmp = new File(dir, STATE_FILENAME + ".tmp");
+        OutputStream out = new FileOutputStream(tmp);
+        try {
+            state.store(out, "MappedLongFPSet");
+        } finally {
+            out.close();
+        }
+        if (!tmp.renameTo(getStateFile())) {
+            throw new IOException("unable to replace " + getStateFile());
+        }
+    }
+
+    /**
+     * Flush (if file-backed) and release the tables. The set may not be
+     * used afterwards.
+     */
+    public synchronized void close() throws IOException {
+        if (table == null) {
+            return;
+        }
+        flush();
+        table.close(false);
+        if (oldTable != null) {
+            oldTable.close(false);
+        }
+        table = null;
+        oldTable = null;
+    }
+
+    public synchronized boolean add(long fp) {
+        if (fp == 0) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            count++;
+            return true;
+        }
+        migrateSome();
+        long i = table.indexFor(fp);
+        if (table.get(i) == fp) {
+            return false;
+        }
+        if (oldTable != null && oldTable.get(oldTable.indexFor(fp)) == fp) {
+            return false;
+        }
+        if (count + 1 > loadFactor * table.capacity) {
+            grow();
+            i = table.indexFor(fp);
+        }
+        table.set(i, fp);
+        count++;
+        return true;
+    }
+
+    public synchronized boolean contains(long fp) {
+        if (fp == 0) {
+            return containsZero;
+        }
+        if (table.get(table.indexFor(fp)) == fp) {
+            return true;
+        }
+        return oldTable != null && oldTable.get(oldTable.indexFor(fp)) == fp;
+    }
+
+    public boolean quickContains(long fp) {
+        return contains(fp);
+    }
+
+    public synchronized boolean remove(long fp) {
+        if (fp == 0) {
+            if (!containsZero) {
+                return false;
+            }
+            containsZero = false;
+            count--;
+            return true;
+        }
+        // deletion would have to be applied to both tables; finish first
+        finishMigration();
+        long i = table.indexFor(fp);
+        if (table.get(i) != fp) {
+            return false;
+        }
+        table.set(i, 0);
+        count--;
+        // shift down any following entries the gap would make unfindable
+        long probe = i;
+        while (true) {
+            probe = (probe + 1) & table.mask;
+            long val = table.get(probe);
+            if (val == 0) {
+                break;
+            }
+            long target = table.indexFor(val);
+            if (target != probe) {
+                table.set(target, val);
+                table.set(probe, 0);
+            }
+        }
+        return true;
+    }
+
+    public synchronized long count() {
+        return count;
+    }
+
+    /**
+     * @return current number of slots (of the newer table, if growing)
+     */
+    public synchronized long capacity() {
+        return table.capacity;
+    }
+
+    /**
+     * @return true if an incremental grow is in progress
+     */
+    public synchronized boolean isGrowing() {
+        return oldTable != null;
+    }
+
+    protected void grow() {
+        finishMigration();
+        int pow = table.capacityPowerOfTwo + 1;
+        logger.info("growing fingerprint table to 2^" + pow + " slots");
+        try {
+            Table bigger = new Table(tableFile(pow), pow);
+            oldTable = table;
+            table = bigger;
+            migrateCursor = 0;
+            // record both tables before any entry goes only to the new one
+            flush();
+        } catch (IOException e) {
+            throw new IllegalStateException("unable to grow fingerprint table", e);
+        }
+    }
+
+    protected void migrateSome() {
+        if (oldTable != null) {
+            migrate(MIGRATE_SLOTS_PER_OP);
+        }
+    }
+
+    protected void finishMigration() {
+        if (oldTable != null) {
+            migrate(oldTable.capacity - migrateCursor);
+        }
+    }
+
+    protected void migrate(long slots) {
+        long end = Math.min(oldTable.capacity, migrateCursor + slots);
+        for (; migrateCursor < end; migrateCursor++) {
+            long val = oldTable.get(migrateCursor);
+            if (val != 0) {
+                long i = table.indexFor(val);
+                if (table.get(i) == 0) {
+                    table.set(i, val);
+                }
+            }
+        }
+        if (migrateCursor == oldTable.capacity) {
+            Table migrated = oldTable;
+            oldTable = null;
+            migrateCursor = 0;
+            // state must stop naming the old table before it is deleted
+            try {
+                flush();
+            } catch (IOException e) {
+                oldTable = migrated;
+                migrateCursor = migrated.capacity;
+                throw new IllegalStateException(
+                        "unable to record finished fingerprint table migration", e);
+            }
+            migrated.close(true);
+        }
+    }
+
+    /**
+     * One power-of-two table of long slots.
+     */
+    protected static class Table extends MappedLongArray {
+        final int capacityPowerOfTwo;
+        final long capacity;
+        final long mask;
+
+        Table(File file, int capacityPowerOfTwo) throws IOException {
+            super(file, 1L << capacityPowerOfTwo);
+            this.capacityPowerOfTwo = capacityPowerOfTwo;
+            this.capacity = 1L << capacityPowerOfTwo;
+            this.mask = capacity - 1;
+        }
+
+        /**
+         * @return index of the slot holding fp, or else of the empty slot
+         *     ending its probe sequence
+         */
+        long indexFor(long fp) {
+            long i = fp >>> (64 - capacityPowerOfTwo);
+            while (true) {
+                long val = get(i);
+                if (val == 0 || val == fp) {
+                    return i;
+                }
+                i = (i + 1) & mask;
+            }
+        }
+    }
+}
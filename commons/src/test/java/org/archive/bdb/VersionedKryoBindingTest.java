@@ -0,0 +1,118 @@
+/*
+ *  This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ *  Licensed to the Internet Archive (IA) by one or more individual
+ *  contributors.
+ *
+ *  The IA licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.archive.bdb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.archive.util.Histotable;
+import org.archive.util.bdbje.EnhancedEnvironment;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.serializers.JavaSerializer;
+import com.sleepycat.bind.serial.SerialBinding;
+import com.sleepycat.je.DatabaseEntry;
+import com.sleepycat.je.EnvironmentConfig;
+
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class VersionedKryoBindingTest {
+    @TempDir
+    Path tempDir;
+    EnhancedEnvironment env;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        File envDir = new File(tempDir.toFile(), "VersionedKryoBindingTest");
+        org.archive.util.FileUtils.ensureWriteableDirectory(envDir);
+        EnvironmentConfig envConfig = new EnvironmentConfig();
+        envConfig.setTransactional(false);
+        envConfig.setAllowCreate(true);
+        env = new EnhancedEnvironment(envDir, envConfig);
+    }
+
+    @AfterEach
+    protected void tearDown() throws Exception {
+        env.close();
+    }
+
+    protected Map<String,Object> makeHistory() {
+        Histotable<String> counts = new Histotable<String>();
+        counts.tally("a", 3);
+        counts.tally("b", 5);
+        Map<String,Object> fetch = new HashMap<String,Object>();
+        fetch.put("status", 200);
+        fetch.put("digest", "sha1:ABCD");
+        Map<String,Object> history = new HashMap<String,Object>();
+        history.put("fetchHistory", new HashMap[] {(HashMap) fetch, null});
+        history.put("counts", counts);
+        history.put("time", 1234567890123L);
+        return history;
+    }
+
+    protected void assertHistoryEquals(Map<String,Object> expected, Map<String,Object> actual) {
+        assertEquals(expected.get("time"), actual.get("time"));
+        assertEquals(expected.get("counts"), actual.get("counts"));
+        HashMap[] fetches = (HashMap[]) actual.get("fetchHistory");
+        assertEquals(2, fetches.length);
+        assertEquals(((HashMap[]) expected.get("fetchHistory"))[0], fetches[0]);
+    }
+
+    @Test
+    public void testRoundTrip() {
+        VersionedKryoBinding<Map> binding = new VersionedKryoBinding<Map>(
+                env.getClassCatalog(), Map.class);
+        Map<String,Object> history = makeHistory();
+        DatabaseEntry entry = new DatabaseEntry();
+        binding.objectToEntry(history, entry);
+        assertEquals(VersionedKryoBinding.VERSION, entry.getData()[0]);
+        assertHistoryEquals(history, binding.entryToObject(entry));
+    }
+
+    @Test
+    public void testLegacyEntries() {
+        Map<String,Object> history = makeHistory();
+        DatabaseEntry entry = new DatabaseEntry();
+        new SerialBinding<Map>(env.getClassCatalog(), Map.class).objectToEntry(history, entry);
+        VersionedKryoBinding<Map> binding = new VersionedKryoBinding<Map>(
+                env.getClassCatalog(), Map.class);
+        assertHistoryEquals(history, binding.entryToObject(entry));
+
+        // a histotable as KryoBinding formerly wrote it
+        Histotable<String> counts = (Histotable<String>) history.get("counts");
+        AutoKryo kryo = new AutoKryo();
+        kryo.addDefaultSerializer(Histotable.class, JavaSerializer.class);
+        kryo.setRegistrationRequired(false);
+        Output output = new Output(1024, -1);
+        kryo.writeObject(output, counts);
+        KryoBinding<Histotable> kryoBinding = new KryoBinding<Histotable>(Histotable.class);
+        assertEquals(counts, kryoBinding.entryToObject(new DatabaseEntry(output.toBytes())));
+
+        kryoBinding.objectToEntry(counts, entry);
+        assertEquals(HistotableSerializer.VERSION, entry.getData()[0]);
+        assertEquals(counts, kryoBinding.entryToObject(entry));
+    }
+}
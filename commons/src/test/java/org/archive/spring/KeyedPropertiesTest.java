@@ -0,0 +1,155 @@
+/*
+ *  This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ *  Licensed to the Internet Archive (IA) by one or more individual
+ *  contributors.
+ *
+ *  The IA licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.archive.spring;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KeyedPropertiesTest {
+
+    /** overlay context with a fixed set of named maps */
+    public static class TestOverlayContext implements OverlayContext {
+        protected ArrayList<String> names = new ArrayList<String>();
+        protected Map<String,Map<String,Object>> maps = new HashMap<String,Map<String,Object>>();
+
+        public void addOverlay(String name, Map<String,Object> map) {
+            names.add(name);
+            maps.put(name, map);
+        }
+        public boolean haveOverlayNamesBeenSet() {
+            return true;
+        }
+        public ArrayList<String> getOverlayNames() {
+            return names;
+        }
+        public Map<String,Object> getOverlayMap(String name) {
+            return maps.get(name);
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        KeyedProperties.clearAllOverrideContexts();
+    }
+
+    @Test
+    public void testOverridesByExternalPath() {
+        KeyedProperties kp = new KeyedProperties();
+        kp.put("delay", 1);
+        kp.addExternalPath("fetcher");
+
+        Map<String,Object> sheet = new HashMap<String,Object>();
+        sheet.put("fetcher.delay", 2);
+        sheet.put("other.delay", 3);
+        TestOverlayContext context = new TestOverlayContext();
+        context.addOverlay("sheet", sheet);
+
+        assertEquals(1, kp.get("delay"));
+        KeyedProperties.loadOverridesFrom(context);
+        assertEquals(2, kp.get("delay"));
+        // path added later must be seen by already-composed keys
+        sheet.remove("fetcher.delay");
+        assertEquals(1, kp.get("delay"));
+        kp.addExternalPath("other");
+        assertEquals(3, kp.get("delay"));
+        KeyedProperties.clearOverridesFrom(context);
+        assertEquals(1, kp.get("delay"));
+    }
+
+    @Test
+    public void testLaterOverlayWins() {
+        KeyedProperties kp = new KeyedProperties();
+        kp.put("delay", 1);
+        kp.addExternalPath("fetcher");
+        Map<String,Object> first = new HashMap<String,Object>();
+        first.put("fetcher.delay", 2);
+        Map<String,Object> second = new HashMap<String,Object>();
+        second.put("fetcher.delay", 3);
+        TestOverlayContext context = new TestOverlayContext();
+        context.addOverlay("first", first);
+        context.addOverlay("second", second);
+        KeyedProperties.withOverridesDo(context, new Runnable() {
+            public void run() {
+                assertEquals(3, kp.get("delay"));
+            }
+        });
+    }
+
+    @Test
+    public void testOverrideKeysInterned() {
+        KeyedProperties kp = new KeyedProperties();
+        kp.addExternalPath("b");
+        kp.addExternalPath("a");
+        String[] keys = kp.getOverrideKeyArray("delay");
+        assertArrayEquals(new String[] {"a.delay", "b.delay"}, keys);
+        assertSame(keys, kp.getOverrideKeyArray("delay"));
+        assertSame("a.delay", keys[0]);
+    }
+
+    @Test
+    public void testReadsDoNotAllocate() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            return;
+        }
+        final KeyedProperties kp = new KeyedProperties();
+        kp.put("delay", 1);
+        kp.addExternalPath("fetcher");
+        kp.addExternalPath("fetcher2");
+        Map<String,Object> sheet = new HashMap<String,Object>();
+        sheet.put("fetcher2.delay", 2);
+        TestOverlayContext context = new TestOverlayContext();
+        context.addOverlay("sheet", sheet);
+
+        final int reads = 100000;
+        long tid = Thread.currentThread().getId();
+        // warm up, composing the keys
+        readMany(kp, reads);
+        long before = threads.getThreadAllocatedBytes(tid);
+        readMany(kp, reads);
+        long noOverlays = threads.getThreadAllocatedBytes(tid) - before;
+
+        KeyedProperties.loadOverridesFrom(context);
+        readMany(kp, reads);
+        before = threads.getThreadAllocatedBytes(tid);
+        readMany(kp, reads);
+        long withOverlays = threads.getThreadAllocatedBytes(tid) - before;
+
+        // allow for incidental allocation, but not per-read garbage
+        assertTrue(noOverlays < reads, "no-overlay reads allocated " + noOverlays);
+        assertTrue(withOverlays < reads, "overlay reads allocated " + withOverlays);
+    }
+
+    protected int readMany(KeyedProperties kp, int n) {
+        int sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += (Integer) kp.get("delay");
+        }
+        return sum;
+    }
+}
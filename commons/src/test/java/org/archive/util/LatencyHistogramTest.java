@@ -0,0 +1,60 @@
+/*
+ *  This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ *  Licensed to the Internet Archive (IA) by one or more individual
+ *  contributors.
+ *
+ *  The IA licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.archive.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram h = new LatencyHistogram();
+        assertEquals(0, h.getPercentile(0.99));
+        for (int i = 1; i <= 10000; i++) {
+            h.record(i);
+        }
+        assertEquals(10000, h.getCount());
+        assertEquals(10000, h.getMax());
+        assertEquals(5000.5, h.getMean(), 0.001);
+        assertWithin(5000, h.getPercentile(0.5));
+        assertWithin(9000, h.getPercentile(0.9));
+        assertWithin(9900, h.getPercentile(0.99));
+        assertEquals(10000, h.getPercentile(1.0));
+        assertEquals(1, h.getPercentile(0.0));
+    }
+
+    @Test
+    public void testSmallAndHugeValues() {
+        LatencyHistogram h = new LatencyHistogram();
+        h.record(-5);
+        h.record(3);
+        h.record(Long.MAX_VALUE);
+        assertEquals(0, h.getPercentile(0.3));
+        assertEquals(3, h.getPercentile(0.6));
+        assertEquals(Long.MAX_VALUE, h.getPercentile(1.0));
+    }
+
+    protected void assertWithin(long expected, long actual) {
+        assertTrue(actual >= expected && actual <= expected * 1.07,
+                "expected about " + expected + ", got " + actual);
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ *  This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ *  Licensed to the Internet Archive (IA) by one or more individual
+ *  contributors.
+ *
+ *  The IA licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.archive.util;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LinePipelineTest {
+
+    protected String lines(int n) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            sb.append(i).append('\n');
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void testOrderKeptAcrossParseThreads() throws IOException {
+        LinePipeline<Integer> pipeline = new LinePipeline<Integer>("test", 4, 7);
+        Set<Thread> parseThreads = ConcurrentHashMap.newKeySet();
+        List<Integer> sunk = new ArrayList<Integer>();
+        Set<Thread> sinkThreads = ConcurrentHashMap.newKeySet();
+        long read = pipeline.run(new BufferedReader(new StringReader(lines(10000))),
+                line -> {
+                    parseThreads.add(Thread.currentThread());
+                    int i = Integer.parseInt(line);
+                    // skip multiples of 3
+                    return (i % 3 == 0) ? null : i;
+                },
+                batch -> {
+                    sinkThreads.add(Thread.currentThread());
+                    sunk.addAll(batch);
+                });
+        assertEquals(10000, read);
+        assertEquals(1, sinkThreads.size());
+        assertFalse(parseThreads.contains(Thread.currentThread()));
+        List<Integer> expected = new ArrayList<Integer>();
+        for (int i = 0; i < 10000; i++) {
+            if (i % 3 != 0) {
+                expected.add(i);
+            }
+        }
+        assertEquals(expected, sunk);
+        assertEquals(6666, pipeline.getItemsSunk());
+        assertEquals(0, pipeline.getErrors());
+        assertTrue(pipeline.isFinished());
+        assertEquals(10000L, pipeline.shortReportMap().get("linesRead"));
+    }
+
+    @Test
+    public void testBadLinesAndUntidyEnd() throws IOException {
+        Reader truncated = new StringReader("1\n2\nbad\n4\n") {
+            int reads = 0;
+            @Override
+            public int read(char[] cbuf, int off, int len) throws IOException {
+                if (reads++ > 0) {
+                    throw new EOFException();
+                }
+                return super.read(cbuf, off, len);
+            }
+        };
+        LinePipeline<Integer> pipeline = new LinePipeline<Integer>("test", 2, 2);
+        List<Integer> sunk = new ArrayList<Integer>();
+        long read = pipeline.run(new BufferedReader(truncated),
+                Integer::valueOf, sunk::addAll);
+        assertEquals(4, read);
+        assertEquals(List.of(1, 2, 4), sunk);
+        assertEquals(1, pipeline.getErrors());
+    }
+
+    @Test
+    public void testSinkErrorFailsImport() {
+        // far more batches than fit in flight, so the reader must notice
+        LinePipeline<Integer> pipeline = new LinePipeline<Integer>("test", 1, 1);
+        IOException e = assertThrows(IOException.class,
+                () -> pipeline.run(new BufferedReader(new StringReader(lines(1000))),
+                        Integer::valueOf,
+                        batch -> {
+                            throw new StackOverflowError();
+                        }));
+        assertInstanceOf(StackOverflowError.class, e.getCause());
+        assertTrue(pipeline.isFinished());
+    }
+}
@@ -141,6 +141,76 @@ public class ObjectIdentityBdbManualCacheTest {
         }
     }
     
+    @Test
+    public void testEvictionKeepsIdentityAndChanges() throws Exception {
+        ObjectIdentityBdbManualCache<IdentityCacheableWrapper<HashMap<String,String>>> small =
+            new ObjectIdentityBdbManualCache<>();
+        small.setMaxWeight(10000);
+        small.initialize(env, "smallCache", IdentityCacheableWrapper.class,
+                env.getClassCatalog());
+        try {
+            IdentityCacheableWrapper<HashMap<String,String>> held = null;
+            for (int i = 0; i < 1000; i++) {
+                final String key = "" + i;
+                IdentityCacheableWrapper<HashMap<String,String>> wrap = small.getOrUse(
+                        key,
+                        new Supplier<IdentityCacheableWrapper<HashMap<String,String>>>(
+                                new IdentityCacheableWrapper<HashMap<String,String>>(
+                                        key, new HashMap<String,String>())));
+                wrap.get().put("n", key);
+                wrap.makeDirty();
+                if (i == 0) {
+                    held = wrap;
+                }
+            }
+            assertTrue(small.memMap.size() < 1000, "memMap not bounded");
+            assertTrue((Long) small.shortReportMap().get("evictions") > 0);
+            // still in use, so the very same instance
+            assertSame(held, small.get("0"));
+            small.sync();
+            assertEquals(0, small.dirtyItems.size());
+            assertEquals(1000, small.size());
+            for (int i = 0; i < 1000; i++) {
+                assertEquals("" + i, small.get("" + i).get().get("n"));
+            }
+        } finally {
+            small.close();
+        }
+    }
+
+    @Test
+    public void testWriteBehind() throws Exception {
+        ObjectIdentityBdbManualCache<IdentityCacheableWrapper<HashMap<String,String>>> behind =
+            new ObjectIdentityBdbManualCache<>();
+        behind.setFlushIntervalMs(50);
+        behind.initialize(env, "behindCache", IdentityCacheableWrapper.class,
+                env.getClassCatalog());
+        try {
+            for (int i = 0; i < 100; i++) {
+                final String key = "" + i;
+                IdentityCacheableWrapper<HashMap<String,String>> wrap = behind.getOrUse(
+                        key,
+                        new Supplier<IdentityCacheableWrapper<HashMap<String,String>>>(
+                                new IdentityCacheableWrapper<HashMap<String,String>>(
+                                        key, new HashMap<String,String>())));
+                wrap.get().put("n", key);
+                wrap.makeDirty();
+            }
+            long deadline = System.currentTimeMillis() + 10000;
+            while (behind.dirtyItems.size() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            // written by the write-behind thread, without sync()
+            assertEquals(0, behind.dirtyItems.size());
+            assertEquals(100L, behind.shortReportMap().get("flushedItems"));
+            for (int i = 0; i < 100; i++) {
+                assertEquals("" + i, behind.diskMap.get("" + i).get().get("n"));
+            }
+        } finally {
+            behind.close();
+        }
+    }
+
     /**
      * Test that in scarce memory conditions, the memory map is 
      * expunged of otherwise unreferenced entries as expected.
@@ -0,0 +1,97 @@
+/*
+ *  This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ *  Licensed to the Internet Archive (IA) by one or more individual
+ *  contributors.
+ *
+ *  The IA licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.archive.util;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScalableBloomFilterTest {
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    public void testGrowthKeepsFalsePositivesBounded() throws IOException {
+        double target = 0.01;
+        ScalableBloomFilter bloom = new ScalableBloomFilter(null, 5000, target, false);
+        int n = 80000;
+        int added = 0;
+        for (int i = 0; i < n; i++) {
+            // a false positive makes a new entry look already present
+            if (bloom.add("http://example.com/added/" + i)) {
+                added++;
+            }
+        }
+        assertTrue(n - added < n * target, "rejected " + (n - added));
+        assertEquals(added, bloom.count());
+        // 5000 + 10000 + 20000 + 40000 < 80000
+        assertEquals(5, bloom.getLayerCount());
+        for (int i = 0; i < n; i++) {
+            assertTrue(bloom.contains("http://example.com/added/" + i));
+            assertFalse(bloom.add("http://example.com/added/" + i));
+        }
+
+        int probes = 100000;
+        int falsePositives = 0;
+        for (int i = 0; i < probes; i++) {
+            if (bloom.contains("http://example.com/absent/" + i)) {
+                falsePositives++;
+            }
+        }
+        double measured = (double) falsePositives / probes;
+        assertTrue(measured < target, "measured false-positive rate " + measured);
+        double estimated = bloom.getEstimatedFalsePositiveRate();
+        assertTrue(estimated > 0 && estimated < target, "estimated " + estimated);
+        assertTrue(bloom.getFillRatio() > 0.2 && bloom.getFillRatio() < 0.6,
+                "fill " + bloom.getFillRatio());
+        bloom.close();
+    }
+
+    @Test
+    public void testReopen() throws IOException {
+        ScalableBloomFilter bloom = new ScalableBloomFilter(tempDir, 1000, 0.001, true);
+        for (int i = 0; i < 3000; i++) {
+            bloom.add("u" + i);
+        }
+        long count = bloom.count();
+        double fill = bloom.getFillRatio();
+        int layers = bloom.getLayerCount();
+        bloom.close();
+
+        ScalableBloomFilter reopened = new ScalableBloomFilter(tempDir, 1000, 0.001, true);
+        assertEquals(count, reopened.count());
+        assertEquals(layers, reopened.getLayerCount());
+        assertEquals(fill, reopened.getFillRatio(), 0.0);
+        for (int i = 0; i < 3000; i++) {
+            assertTrue(reopened.contains("u" + i));
+        }
+        reopened.close();
+
+        ScalableBloomFilter fresh = new ScalableBloomFilter(tempDir, 1000, 0.001, false);
+        assertEquals(0, fresh.count());
+        assertEquals(1, fresh.getLayerCount());
+        fresh.close();
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ *  This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ *  Licensed to the Internet Archive (IA) by one or more individual
+ *  contributors.
+ *
+ *  The IA licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.archive.util;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StripedBlockingQueueTest {
+
+    @Test
+    public void testStripeCountRoundedToPowerOfTwo() {
+        assertEquals(1, new StripedBlockingQueue<String>(1).getStripeCount());
+        assertEquals(8, new StripedBlockingQueue<String>(5).getStripeCount());
+        assertEquals(16, new StripedBlockingQueue<String>(16).getStripeCount());
+    }
+
+    @Test
+    public void testOfferPollSizeIterate() {
+        StripedBlockingQueue<String> q = new StripedBlockingQueue<String>(4);
+        assertTrue(q.isEmpty());
+        assertNull(q.poll());
+        Set<String> expected = new HashSet<String>();
+        for (int i = 0; i < 100; i++) {
+            q.add("k" + i);
+            expected.add("k" + i);
+        }
+        assertEquals(100, q.size());
+        assertFalse(q.isEmpty());
+        Set<String> iterated = new HashSet<String>();
+        for (String s : q) {
+            iterated.add(s);
+        }
+        assertEquals(expected, iterated);
+        assertTrue(q.contains("k42"));
+        assertTrue(q.remove("k42"));
+        assertFalse(q.remove("k42"));
+        assertEquals(99, q.size());
+
+        Set<String> polled = new HashSet<String>();
+        String s;
+        while ((s = q.poll()) != null) {
+            polled.add(s);
+        }
+        expected.remove("k42");
+        assertEquals(expected, polled);
+        assertEquals(0, q.size());
+        assertTrue(q.isEmpty());
+    }
+
+    @Test
+    public void testSingleStripeIsFifo() {
+        StripedBlockingQueue<Integer> q = new StripedBlockingQueue<Integer>(1);
+        for (int i = 0; i < 10; i++) {
+            q.offer(i);
+        }
+        List<Integer> drained = new ArrayList<Integer>();
+        assertEquals(10, q.drainTo(drained));
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, drained.get(i).intValue());
+        }
+    }
+
+    @Test
+    public void testBlockingTakeAndTimedPoll() throws InterruptedException {
+        final StripedBlockingQueue<String> q = new StripedBlockingQueue<String>(4);
+        assertNull(q.poll(10, TimeUnit.MILLISECONDS));
+        final String[] taken = new String[1];
+        Thread taker = new Thread() {
+            public void run() {
+                try {
+                    taken[0] = q.take();
+                } catch (InterruptedException e) {
+                    // fall through with null
+                }
+            }
+        };
+        taker.start();
+        Thread.sleep(50);
+        q.put("x");
+        taker.join(5000);
+        assertFalse(taker.isAlive());
+        assertEquals("x", taken[0]);
+    }
+
+    @Test
+    public void testConcurrentHandoffLosesNothing() throws InterruptedException {
+        final StripedBlockingQueue<Integer> q = new StripedBlockingQueue<Integer>(8);
+        final int threads = 8;
+        final int perThread = 20000;
+        final Set<Integer> seen = ConcurrentHashMap.newKeySet();
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            final int base = t * perThread;
+            new Thread() {
+                public void run() {
+                    for (int i = 0; i < perThread; i++) {
+                        q.offer(base + i);
+                        Integer got = q.poll();
+                        if (got != null) {
+                            assertTrue(seen.add(got));
+                        }
+                    }
+                    done.countDown();
+                }
+            }.start();
+        }
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+        Integer rest;
+        while ((rest = q.poll()) != null) {
+            assertTrue(seen.add(rest));
+        }
+        assertEquals(threads * perThread, seen.size());
+        assertEquals(0, q.size());
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ *  This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ *  Licensed to the Internet Archive (IA) by one or more individual
+ *  contributors.
+ *
+ *  The IA licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.archive.util.fingerprint;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test suite for MappedLongFPSet
+ */
+public class MappedLongFPSetTest extends LongFPSetTestCase {
+
+    @TempDir
+    File tempDir;
+
+    protected LongFPSet makeLongFPSet() {
+        try {
+            return new MappedLongFPSet(4, 0.75f);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    public void testIncrementalGrowth() throws IOException {
+        MappedLongFPSet set = new MappedLongFPSet(4, 0.75f);
+        Random random = new Random(1);
+        long[] fps = new long[20000];
+        boolean sawGrowing = false;
+        for (int i = 0; i < fps.length; i++) {
+            fps[i] = random.nextLong();
+            assertTrue(set.add(fps[i]));
+            sawGrowing |= set.isGrowing();
+            // everything added so far still found, mid-growth or not
+            if (i % 997 == 0) {
+                for (int j = 0; j <= i; j++) {
+                    assertTrue(set.contains(fps[j]));
+                }
+            }
+        }
+        assertTrue(sawGrowing);
+        assertEquals(fps.length, set.count());
+        assertTrue(set.capacity() * 0.75f >= fps.length);
+        for (long fp : fps) {
+            assertFalse(set.add(fp));
+        }
+        // removal during growth
+        for (int i = 0; i < fps.length; i += 2) {
+            assertTrue(set.remove(fps[i]));
+        }
+        for (int i = 0; i < fps.length; i++) {
+            assertEquals(i % 2 == 1, set.contains(fps[i]));
+        }
+        assertEquals(fps.length / 2, set.count());
+        set.close();
+    }
+
+    @Test
+    public void testReopen() throws IOException {
+        MappedLongFPSet set = new MappedLongFPSet(tempDir, 8, 0.75f, true);
+        Random random = new Random(2);
+        long[] fps = new long[5000];
+        for (int i = 0; i < fps.length; i++) {
+            fps[i] = random.nextLong();
+            set.add(fps[i]);
+        }
+        set.add(0);
+        boolean growing = set.isGrowing();
+        set.flush();
+
+        MappedLongFPSet reopened = new MappedLongFPSet(tempDir, 8, 0.75f, true);
+        assertEquals(fps.length + 1, reopened.count());
+        assertEquals(growing, reopened.isGrowing());
+        assertTrue(reopened.contains(0));
+        for (long fp : fps) {
+            assertTrue(reopened.contains(fp));
+        }
+        reopened.close();
+        set.close();
+
+        // fresh set discards previous files
+        MappedLongFPSet fresh = new MappedLongFPSet(tempDir, 8, 0.75f, false);
+        assertEquals(0, fresh.count());
+        assertFalse(fresh.contains(fps[0]));
+        fresh.close();
+    }
+
+    @Test
+    public void testStateTracksGrowthWithoutFlush() throws IOException {
+        MappedLongFPSet set = new MappedLongFPSet(tempDir, 4, 0.75f, true);
+        Random random = new Random(3);
+        long[] fps = new long[5000];
+        for (int i = 0; i < fps.length; i++) {
+            fps[i] = random.nextLong();
+            set.add(fps[i]);
+        }
+        // no flush or close, as if the process had died: the state file
+        // written on grow must still name only existing tables
+        MappedLongFPSet reopened = new MappedLongFPSet(tempDir, 4, 0.75f, true);
+        assertTrue(reopened.capacity() > 16);
+        for (long fp : fps) {
+            assertTrue(reopened.contains(fp));
+        }
+        reopened.close();
+        set.close();
+    }
+
+    @Test
+    public void testReopenMissingTableFails() throws IOException {
+        MappedLongFPSet set = new MappedLongFPSet(tempDir, 8, 0.75f, true);
+        set.add(1234567L);
+        set.close();
+        assertTrue(new File(tempDir, "fpset-8.tbl").delete());
+        assertThrows(IOException.class,
+                () -> new MappedLongFPSet(tempDir, 8, 0.75f, true));
+    }
+
+    @Test
+    public void testLoadFactorOutOfRange() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new MappedLongFPSet(4, 1.0f));
+        assertThrows(IllegalArgumentException.class,
+                () -> new MappedLongFPSet(4, 0f));
+    }
+}
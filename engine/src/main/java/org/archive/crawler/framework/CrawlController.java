@@ -211,7 +211,8 @@ implements Serializable,
     
     /**
      * Size in bytes of in-memory buffer to record outbound traffic. One such 
-     * buffer is reserved for every ToeThread. 
+     * buffer is reserved for every ToeThread (or, with pooledRecorders,
+     * for every URI being processed). 
      */
     protected int recorderOutBufferBytes = 16 * 1024; // 16KiB
     public int getRecorderOutBufferBytes() {
@@ -223,7 +224,8 @@ implements Serializable,
     
     /**
      * Size in bytes of in-memory buffer to record inbound traffic. One such 
-     * buffer is reserved for every ToeThread.
+     * buffer is reserved for every ToeThread (or, with pooledRecorders,
+     * for every URI being processed).
      */
     protected int recorderInBufferBytes = 512 * 1024; // 512KiB
     public int getRecorderInBufferBytes() {
@@ -233,6 +235,90 @@ implements Serializable,
         this.recorderInBufferBytes = recorderInBufferBytes;
     }
 
+    /**
+     * Whether ToeThreads borrow a recorder (with its in and out buffers)
+     * for each URI from a shared pool, rather than each holding its own
+     * for its whole life. With many ToeThreads, most are typically
+     * waiting for a URI at any moment; pooled, they hold no buffers while
+     * they wait, so many more ToeThreads fit in the same heap.
+     */
+    protected boolean pooledRecorders = false;
+    public boolean getPooledRecorders() {
+        return pooledRecorders;
+    }
+    public void setPooledRecorders(boolean pooledRecorders) {
+        this.pooledRecorders = pooledRecorders;
+    }
+
+    /**
+     * Stack size in bytes requested for each ToeThread, or 0 for the JVM
+     * default (-Xss). ToeThreads are mostly waiting on the network, and a
+     * smaller stack lets many more run per JVM; too small risks
+     * StackOverflowErrors in deeply recursive processing.
+     */
+    protected long toeThreadStackBytes = 0;
+    public long getToeThreadStackBytes() {
+        return toeThreadStackBytes;
+    }
+    public void setToeThreadStackBytes(long toeThreadStackBytes) {
+        this.toeThreadStackBytes = toeThreadStackBytes;
+    }
+
+    /**
+     * Whether to process each URI in stages on separate threads, rather
+     * than wholly on one ToeThread: ToeThreads run the fetch chain up to
+     * its first content extractor, then hand the URI (with its recorder)
+     * to a pool of extractorThreads, which run the rest of the fetch
+     * chain, then to a pool of writerThreads, which run the disposition
+     * chain. Each handoff is through a queue of at most stageQueueSize
+     * URIs; a ToeThread finding the queue full waits before asking the
+     * frontier for more. So maxToeThreads can be sized for network
+     * concurrency and extractorThreads for CPUs. Implies pooledRecorders.
+     */
+    protected boolean stagedProcessing = false;
+    public boolean getStagedProcessing() {
+        return stagedProcessing;
+    }
+    public void setStagedProcessing(boolean stagedProcessing) {
+        this.stagedProcessing = stagedProcessing;
+    }
+
+    /**
+     * With stagedProcessing, number of threads running extractors, or 0
+     * for one per available processor.
+     */
+    protected int extractorThreads = 0;
+    public int getExtractorThreads() {
+        return extractorThreads;
+    }
+    public void setExtractorThreads(int extractorThreads) {
+        this.extractorThreads = extractorThreads;
+    }
+
+    /**
+     * With stagedProcessing, number of threads running the disposition
+     * chain (writers, candidates and disposition).
+     */
+    protected int writerThreads = 4;
+    public int getWriterThreads() {
+        return writerThreads;
+    }
+    public void setWriterThreads(int writerThreads) {
+        this.writerThreads = writerThreads;
+    }
+
+    /**
+     * With stagedProcessing, most URIs waiting before each of the
+     * extractor and writer stages.
+     */
+    protected int stageQueueSize = 100;
+    public int getStageQueueSize() {
+        return stageQueueSize;
+    }
+    public void setStageQueueSize(int stageQueueSize) {
+        this.stageQueueSize = stageQueueSize;
+    }
+
     protected CrawlerLoggerModule loggerModule;
     public CrawlerLoggerModule getLoggerModule() {
         return this.loggerModule;
@@ -371,8 +457,6 @@ implements Serializable,
         
         LOGGER.fine("Entered complete stop.");
 
-        statisticsTracker.getSnapshot(); // ???
-        
         this.reserveMemory = null;
         if (this.toePool != null) {
             this.toePool.cleanup();
@@ -59,14 +59,17 @@ import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.archive.crawler.event.CrawlStateEvent;
 import org.archive.crawler.framework.CrawlController.StopCompleteEvent;
+import org.archive.crawler.frontier.AbstractFrontier;
 import org.archive.crawler.frontier.WorkQueue;
 import org.archive.crawler.reporting.AlertThreadGroup;
 import org.archive.crawler.reporting.CrawlStatSnapshot;
 import org.archive.crawler.reporting.StatisticsTracker;
+import org.archive.modules.seeds.TextSeedModule;
 import org.archive.spring.ConfigPath;
 import org.archive.spring.ConfigPathConfigurer;
 import org.archive.spring.PathSharingContext;
 import org.archive.util.ArchiveUtils;
+import org.archive.util.LinePipeline;
 import org.archive.util.ObjectIdentityCache;
 import org.archive.util.TextUtils;
 import org.springframework.beans.BeanWrapperImpl;
@@ -932,6 +935,48 @@ public class CrawlJob implements Comparable<CrawlJob>, ApplicationListener<Appli
         return cc.getFrontier().shortReportMap();
     }
 
+    /**
+     * @return progress of the current or most recent frontier import
+     * (as of a recovery log) and seeds import, or null if none
+     */
+    public Map<String,Object> importReportData() {
+        CrawlController cc = getCrawlController();
+        if (cc == null) {
+            return null;
+        }
+        Map<String,Object> imports = new LinkedHashMap<String,Object>();
+        if (cc.getFrontier() instanceof AbstractFrontier) {
+            LinePipeline<?> frontierImport =
+                ((AbstractFrontier) cc.getFrontier()).getLastImport();
+            if (frontierImport != null) {
+                imports.put("frontier", frontierImport.shortReportMap());
+            }
+        }
+        if (cc.getSeeds() instanceof TextSeedModule) {
+            LinePipeline<?> seedsImport = ((TextSeedModule) cc.getSeeds()).getLastImport();
+            if (seedsImport != null) {
+                imports.put("seeds", seedsImport.shortReportMap());
+            }
+        }
+        return imports.isEmpty() ? null : imports;
+    }
+
+    /**
+     * @return per-processor invocation times, allocation and errors, by
+     * chain then processor name, or null if no crawl is set up
+     */
+    public Map<String,Object> processorsReportData() {
+        CrawlController cc = getCrawlController();
+        if (cc == null || cc.getFetchChain() == null) {
+            return null;
+        }
+        Map<String,Object> chains = new LinkedHashMap<String,Object>();
+        chains.put("candidateChain", cc.getCandidateChain().processorStatsMap());
+        chains.put("fetchChain", cc.getFetchChain().processorStatsMap());
+        chains.put("dispositionChain", cc.getDispositionChain().processorStatsMap());
+        return chains;
+    }
+
     public String frontierReport() {
         CrawlController cc = getCrawlController();
         if(cc==null) {
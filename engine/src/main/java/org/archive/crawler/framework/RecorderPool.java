@@ -0,0 +1,123 @@
+/*
+ *  This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ *  Licensed to the Internet Archive (IA) by one or more individual
+ *  contributors.
+ *
+ *  The IA licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.archive.crawler.framework;
+
+import java.io.File;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.archive.util.Recorder;
+
+/**
+ * Recorders (each with its in/out buffers and backing files) lent to
+ * ToeThreads one URI at a time, rather than held by each ToeThread for
+ * its whole life. Only as many Recorders are ever created as URIs are
+ * processed at once, so ToeThreads waiting on the frontier, often most
+ * of them in a polite crawl, hold no buffers.
+ *
+ * <p>The most recently returned Recorder is lent first, so that the
+ * buffers in use stay few and warm.
+ */
+public class RecorderPool {
+    protected final File scratchDir;
+    protected final int outBufferSize;
+    protected final int inBufferSize;
+
+    protected final ConcurrentLinkedDeque<Recorder> idle =
+        new ConcurrentLinkedDeque<Recorder>();
+    protected final AtomicInteger created = new AtomicInteger();
+    protected final AtomicInteger inUse = new AtomicInteger();
+    protected volatile boolean closed = false;
+
+    /**
+     * @param scratchDir directory for Recorder backing files
+     * @param outBufferSize size in bytes of each outbound buffer
+     * @param inBufferSize size in bytes of each inbound buffer
+     */
+    public RecorderPool(File scratchDir, int outBufferSize, int inBufferSize) {
+        this.scratchDir = scratchDir;
+        this.outBufferSize = outBufferSize;
+        this.inBufferSize = inBufferSize;
+    }
+
+    /**
+     * @return an idle Recorder, or a new one if none is idle
+     */
+    public Recorder acquire() {
+        Recorder recorder = idle.pollFirst();
+        if (recorder == null) {
+            recorder = new Recorder(scratchDir,
+                    "rp" + created.incrementAndGet() + "http",
+                    outBufferSize, inBufferSize);
+        }
+        inUse.incrementAndGet();
+        return recorder;
+    }
+
+    /**
+     * Return a Recorder from {@link #acquire()}, once its replays have
+     * ended and nothing refers to it. Once the pool is closed, returned
+     * Recorders are closed rather than kept.
+     */
+    public void release(Recorder recorder) {
+        inUse.decrementAndGet();
+        if (closed) {
+            recorder.closeRecorders();
+            return;
+        }
+        idle.offerFirst(recorder);
+        if (closed && idle.remove(recorder)) {
+            // raced with close()
+            recorder.closeRecorders();
+        }
+    }
+
+    /**
+     * Close all idle Recorders, and any returned from now on.
+     */
+    public void close() {
+        closed = true;
+        Recorder recorder;
+        while ((recorder = idle.pollFirst()) != null) {
+            recorder.closeRecorders();
+        }
+    }
+
+    /**
+     * @return count of Recorders created, the most ever in use at once
+     */
+    public int getCreatedCount() {
+        return created.get();
+    }
+
+    /**
+     * @return count of Recorders lent out
+     */
+    public int getInUseCount() {
+        return inUse.get();
+    }
+
+    /**
+     * @return count of Recorders waiting to be lent
+     */
+    public int getIdleCount() {
+        return idle.size();
+    }
+}
@@ -0,0 +1,396 @@
+/*
+ *  This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ *  Licensed to the Internet Archive (IA) by one or more individual
+ *  contributors.
+ *
+ *  The IA licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.archive.crawler.framework;
+
+import static org.archive.modules.CoreAttributeConstants.A_RUNTIME_EXCEPTION;
+import static org.archive.modules.fetcher.FetchStatusCodes.S_PROCESSING_THREAD_KILLED;
+import static org.archive.modules.fetcher.FetchStatusCodes.S_RUNTIME_EXCEPTION;
+import static org.archive.modules.fetcher.FetchStatusCodes.S_SERIOUS_ERROR;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.archive.io.SinkHandlerLogThread;
+import org.archive.modules.CrawlURI;
+import org.archive.modules.Processor;
+import org.archive.modules.ProcessorChain;
+import org.archive.modules.ProcessorChain.ChainStatusReceiver;
+import org.archive.modules.extractor.ContentExtractor;
+import org.archive.spring.KeyedProperties;
+import org.archive.util.Recorder;
+
+/**
+ * The extraction and writing stages of staged processing (see
+ * {@link CrawlController#setStagedProcessing(boolean)}). ToeThreads
+ * fetch a URI, running the fetch chain up to its first content
+ * extractor, then {@link #handOff(CrawlURI, int)} the URI, and the
+ * Recorder holding its content, to this. Extractor threads run the rest
+ * of the fetch chain; writer threads then run the disposition chain,
+ * report the URI finished to the frontier and return its Recorder to
+ * the pool.
+ *
+ * <p>Each stage takes URIs from a bounded queue. A ToeThread (or
+ * extractor thread) finding the next queue full waits, so never asks
+ * the frontier for more than the later stages can keep up with.
+ *
+ * <p>Stage threads belong to the ToePool's thread group, so their log
+ * messages raise alerts like ToeThreads'.
+ */
+public class StagedProcessing {
+    private static final Logger logger =
+        Logger.getLogger(StagedProcessing.class.getName());
+
+    /**
+     * A URI in flight between stages, and where in the fetch chain it
+     * is to resume.
+     */
+    protected static class Handoff {
+        final CrawlURI curi;
+        final int resumeAt;
+        Handoff(CrawlURI curi, int resumeAt) {
+            this.curi = curi;
+            this.resumeAt = resumeAt;
+        }
+    }
+
+    protected final CrawlController controller;
+    protected final RecorderPool recorderPool;
+    protected final Stage extraction;
+    protected final Stage writing;
+
+    /**
+     * Create and start the stage threads, in the given ToePool.
+     */
+    public StagedProcessing(ToePool pool, CrawlController c,
+            RecorderPool recorderPool) {
+        this.controller = c;
+        this.recorderPool = recorderPool;
+        int extractors = c.getExtractorThreads() > 0 ? c.getExtractorThreads()
+                : Runtime.getRuntime().availableProcessors();
+        extraction = new Stage("Extractor", extractors, c.getStageQueueSize()) {
+            @Override
+            protected void process(Handoff handoff, StageThread thread)
+                    throws InterruptedException {
+                extract(handoff, thread);
+            }
+        };
+        writing = new Stage("Writer", c.getWriterThreads(), c.getStageQueueSize()) {
+            @Override
+            protected void process(Handoff handoff, StageThread thread) {
+                write(handoff, thread);
+            }
+        };
+        extraction.start(pool);
+        writing.start(pool);
+    }
+
+    /**
+     * @return index of the first content extractor in the chain, where
+     * the extraction stage takes over; or the chain size if none
+     */
+    public static int extractionStart(ProcessorChain chain) {
+        List<Processor> processors = chain.getProcessors();
+        for (int i = 0; i < processors.size(); i++) {
+            if (processors.get(i) instanceof ContentExtractor) {
+                return i;
+            }
+        }
+        return processors.size();
+    }
+
+    /**
+     * Pass a fetched URI, and its Recorder, on to the next stage,
+     * waiting while that stage's queue is full. After this returns the
+     * caller must not touch the URI or its Recorder.
+     *
+     * @param curi URI run through the fetch chain up to resumeAt,
+     * with its overrides cleared from the calling thread
+     * @param resumeAt fetch chain index to carry on from
+     * @throws InterruptedException if interrupted while waiting, in
+     * which case the URI remains the caller's
+     */
+    public void handOff(CrawlURI curi, int resumeAt)
+            throws InterruptedException {
+        Handoff handoff = new Handoff(curi, resumeAt);
+        if (resumeAt < controller.getFetchChain().size()) {
+            extraction.queue.put(handoff);
+        } else {
+            writing.queue.put(handoff);
+        }
+    }
+
+    /**
+     * Run the rest of the fetch chain, then pass the URI on to writing.
+     */
+    protected void extract(Handoff handoff, StageThread thread)
+            throws InterruptedException {
+        CrawlURI curi = handoff.curi;
+        Recorder.setHttpRecorder(curi.getRecorder());
+        boolean proceed = false;
+        try {
+            KeyedProperties.loadOverridesFrom(curi);
+            controller.getFetchChain().process(curi, thread,
+                    handoff.resumeAt, Integer.MAX_VALUE);
+            proceed = true;
+        } catch (InterruptedException e) {
+            recoverableProblem(curi, e, thread);
+            Thread.currentThread().interrupt(); // stop after this URI
+        } catch (RuntimeException | AssertionError | StackOverflowError e) {
+            recoverableProblem(curi, e, thread);
+        } catch (Error err) {
+            seriousError(curi, err, thread);
+        } finally {
+            curi.getRecorder().endReplays();
+            KeyedProperties.clearOverridesFrom(curi);
+            Recorder.setHttpRecorder(null);
+        }
+        if (!proceed) {
+            // as on a ToeThread, a URI failing in the fetch chain skips
+            // the disposition chain
+            finish(curi);
+            return;
+        }
+        thread.setCurrentProcessorName("");
+        try {
+            writing.queue.put(new Handoff(curi, controller.getFetchChain().size()));
+        } catch (InterruptedException e) {
+            curi.setFetchStatus(S_PROCESSING_THREAD_KILLED);
+            finish(curi);
+            throw e;
+        }
+    }
+
+    /**
+     * Run the disposition chain, then report the URI finished.
+     */
+    protected void write(Handoff handoff, StageThread thread) {
+        CrawlURI curi = handoff.curi;
+        Recorder.setHttpRecorder(curi.getRecorder());
+        try {
+            KeyedProperties.loadOverridesFrom(curi);
+            controller.getFrontier().beginDisposition(curi);
+            controller.getDispositionChain().process(curi, thread);
+        } catch (InterruptedException e) {
+            recoverableProblem(curi, e, thread);
+            Thread.currentThread().interrupt(); // stop after this URI
+        } catch (RuntimeException | AssertionError | StackOverflowError e) {
+            recoverableProblem(curi, e, thread);
+        } catch (Error err) {
+            seriousError(curi, err, thread);
+        } finally {
+            curi.getRecorder().endReplays();
+            KeyedProperties.clearOverridesFrom(curi);
+        }
+        finish(curi);
+    }
+
+    /**
+     * Report the URI finished to the frontier, and return its Recorder
+     * to the pool.
+     */
+    protected void finish(CrawlURI curi) {
+        Recorder recorder = curi.getRecorder();
+        try {
+            controller.getFrontier().finished(curi);
+        } finally {
+            controller.getFrontier().endDisposition();
+            Recorder.setHttpRecorder(null);
+            if (recorder != null) {
+                recorderPool.release(recorder);
+            }
+        }
+    }
+
+    protected void recoverableProblem(CrawlURI curi, Throwable e,
+            StageThread thread) {
+        curi.setFetchStatus(S_RUNTIME_EXCEPTION);
+        // store exception temporarily for logging
+        curi.getAnnotations().add("err=" + e.getClass().getName());
+        curi.getData().put(A_RUNTIME_EXCEPTION, e);
+        logger.log(Level.SEVERE, "Problem " + e
+                + " occurred when trying to process '" + curi
+                + "' in " + thread.getCurrentProcessorName() + "\n", e);
+    }
+
+    protected void seriousError(CrawlURI curi, Error err, StageThread thread) {
+        // hold all ToeThreads from proceeding to next processor
+        controller.freeReserveMemory();
+        controller.requestCrawlPause();
+        curi.getAnnotations().add("err=" + err.getClass().getName());
+        curi.getAnnotations().add("os" + curi.getFetchStatus());
+        curi.setFetchStatus(S_SERIOUS_ERROR);
+        logger.log(Level.SEVERE, "Serious error occurred trying to process '"
+                + curi.shortReportLine() + " in "
+                + thread.getCurrentProcessorName() + "'", err);
+    }
+
+    /**
+     * Stop the stage threads, and finish any URIs still waiting in the
+     * stage queues as killed.
+     */
+    public void close() {
+        extraction.close();
+        writing.close();
+    }
+
+    public void reportTo(PrintWriter writer) {
+        extraction.reportTo(writer);
+        writing.reportTo(writer);
+    }
+
+    public Map<String, Object> shortReportMap() {
+        Map<String, Object> data = new LinkedHashMap<String, Object>();
+        data.put("extraction", extraction.shortReportMap());
+        data.put("writing", writing.shortReportMap());
+        return data;
+    }
+
+    /**
+     * A bounded queue of URIs, and the threads taking from it.
+     */
+    protected abstract class Stage {
+        final String name;
+        final int threadCount;
+        final BlockingQueue<Handoff> queue;
+        final List<StageThread> threads = new ArrayList<StageThread>();
+        final AtomicInteger busy = new AtomicInteger();
+        final AtomicLong processed = new AtomicLong();
+
+        Stage(String name, int threadCount, int queueSize) {
+            this.name = name;
+            this.threadCount = Math.max(1, threadCount);
+            this.queue = new ArrayBlockingQueue<Handoff>(Math.max(1, queueSize));
+        }
+
+        protected abstract void process(Handoff handoff, StageThread thread)
+                throws InterruptedException;
+
+        void start(ThreadGroup group) {
+            for (int i = 1; i <= threadCount; i++) {
+                StageThread thread = new StageThread(group, this, i);
+                thread.setDaemon(true);
+                thread.setPriority(ToePool.DEFAULT_TOE_PRIORITY);
+                threads.add(thread);
+                thread.start();
+            }
+        }
+
+        void close() {
+            for (StageThread thread : threads) {
+                thread.interrupt();
+            }
+            Handoff handoff;
+            while ((handoff = queue.poll()) != null) {
+                try {
+                    handoff.curi.setFetchStatus(S_PROCESSING_THREAD_KILLED);
+                    finish(handoff.curi);
+                } catch (RuntimeException e) {
+                    logger.log(Level.WARNING, "unable to finish "
+                            + handoff.curi + " left in " + name + " stage", e);
+                }
+            }
+        }
+
+        void reportTo(PrintWriter writer) {
+            writer.print(" " + name + " stage: " + threads.size()
+                    + " threads (" + busy.get() + " busy), " + queue.size()
+                    + " URIs queued, " + processed.get() + " processed\n");
+        }
+
+        Map<String, Object> shortReportMap() {
+            Map<String, Object> data = new LinkedHashMap<String, Object>();
+            data.put("threads", threads.size());
+            data.put("busy", busy.get());
+            data.put("queued", queue.size());
+            data.put("processed", processed.get());
+            return data;
+        }
+    }
+
+    /**
+     * One thread of a stage.
+     */
+    protected static class StageThread extends Thread
+    implements SinkHandlerLogThread, ChainStatusReceiver {
+        protected final Stage stage;
+        protected final int serialNumber;
+        protected final String coreName;
+        protected volatile String currentProcessorName = "";
+
+        StageThread(ThreadGroup group, Stage stage, int serialNumber) {
+            super(group, stage.name + "Thread #" + serialNumber);
+            this.stage = stage;
+            this.serialNumber = serialNumber;
+            this.coreName = stage.name + "Thread #" + serialNumber + ": ";
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!isInterrupted()) {
+                    Handoff handoff = stage.queue.take();
+                    stage.busy.incrementAndGet();
+                    setName(coreName + handoff.curi);
+                    try {
+                        stage.process(handoff, this);
+                        stage.processed.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        // from the frontier, on finishing; carry on
+                        logger.log(Level.SEVERE, "Exception in " + getName(), e);
+                    } finally {
+                        stage.busy.decrementAndGet();
+                        setCurrentProcessorName("");
+                        setName(coreName);
+                    }
+                }
+            } catch (InterruptedException e) {
+                // stopping
+            }
+        }
+
+        @Override
+        public void atProcessor(Processor proc) {
+            setCurrentProcessorName(proc.getBeanName());
+        }
+
+        protected void setCurrentProcessorName(String name) {
+            currentProcessorName = name;
+        }
+
+        @Override
+        public String getCurrentProcessorName() {
+            return currentProcessorName;
+        }
+
+        @Override
+        public int getSerialNumber() {
+            return serialNumber;
+        }
+    }
+}
@@ -50,6 +50,10 @@ public class ToePool extends ThreadGroup implements Reporter {
     protected CrawlController controller;
     protected int nextSerialNumber = 1;
     protected int targetSize = 0; 
+    /** recorders lent to ToeThreads per URI, or null if each has its own */
+    protected RecorderPool recorderPool;
+    /** extraction and writing stages, or null if not staged */
+    protected StagedProcessing stagedProcessing;
 
     /**
      * Constructor. Creates a pool of ToeThreads. 
@@ -60,6 +64,13 @@ public class ToePool extends ThreadGroup implements Reporter {
         super(atg, "ToeThreads");        
         this.controller = c;
         setDaemon(true);
+        if (c.getPooledRecorders() || c.getStagedProcessing()) {
+            recorderPool = new RecorderPool(c.getScratchDir().getFile(),
+                    c.getRecorderOutBufferBytes(), c.getRecorderInBufferBytes());
+        }
+        if (c.getStagedProcessing()) {
+            stagedProcessing = new StagedProcessing(this, c, recorderPool);
+        }
     }
     
     public void cleanup() {
@@ -71,6 +82,13 @@ public class ToePool extends ThreadGroup implements Reporter {
             }
         }
         
+        if (stagedProcessing != null) {
+            stagedProcessing.close();
+        }
+        if (recorderPool != null) {
+            recorderPool.close();
+        }
+        
         // see HER-2036
         this.controller = null;
     }
@@ -181,6 +199,22 @@ public class ToePool extends ThreadGroup implements Reporter {
         newThread.start();
     }
 
+    /**
+     * @return pool of recorders to borrow per URI, or null if each
+     * ToeThread is to have its own
+     */
+    public RecorderPool getRecorderPool() {
+        return recorderPool;
+    }
+
+    /**
+     * @return stages to hand fetched URIs on to, or null if ToeThreads
+     * process each URI wholly
+     */
+    public StagedProcessing getStagedProcessing() {
+        return stagedProcessing;
+    }
+
     /**
      * @return Instance of CrawlController.
      */
@@ -199,7 +233,15 @@ public class ToePool extends ThreadGroup implements Reporter {
         writer.print(" Job being crawled: "
                 + this.controller.getMetadata().getJobName() + "\n");
         writer.print(" Number of toe threads in pool: " + getToeCount() + " ("
-                + getActiveToeCount() + " active)\n\n");
+                + getActiveToeCount() + " active)\n");
+        if (recorderPool != null) {
+            writer.print(" Pooled recorders: " + recorderPool.getCreatedCount()
+                    + " (" + recorderPool.getInUseCount() + " in use)\n");
+        }
+        if (stagedProcessing != null) {
+            stagedProcessing.reportTo(writer);
+        }
+        writer.print("\n");
         
         Thread[] toes = this.getToes();
         synchronized (toes) {
@@ -262,6 +304,13 @@ public class ToePool extends ThreadGroup implements Reporter {
         Map<String,Object> data = new LinkedHashMap<String, Object>();
 
         data.put("toeCount", getToeCount());
+        if (recorderPool != null) {
+            data.put("pooledRecorders", recorderPool.getCreatedCount());
+            data.put("pooledRecordersInUse", recorderPool.getInUseCount());
+        }
+        if (stagedProcessing != null) {
+            data.put("stages", stagedProcessing.shortReportMap());
+        }
         
         LinkedList<String> unwound = new LinkedList<String>(); 
         for (Entry<?, Long> step: steps.getSortedByCounts()) {
@@ -36,6 +36,7 @@ import java.util.logging.Logger;
 
 import org.archive.io.SinkHandlerLogThread;
 import org.archive.modules.CrawlURI;
+import org.archive.modules.FetchChain;
 import org.archive.modules.Processor;
 import org.archive.modules.ProcessorChain.ChainStatusReceiver;
 import org.archive.modules.fetcher.HostResolver;
@@ -62,7 +63,7 @@ implements Reporter, ProgressStatisticsReporter,
     public enum Step {
         NASCENT, ABOUT_TO_GET_URI, FINISHED, 
         ABOUT_TO_BEGIN_PROCESSOR, HANDLING_RUNTIME_EXCEPTION, 
-        ABOUT_TO_RETURN_URI, FINISHING_PROCESS
+        ABOUT_TO_RETURN_URI, FINISHING_PROCESS, HANDING_OFF
     }
 
     private static Logger logger =
@@ -73,9 +74,16 @@ implements Reporter, ProgressStatisticsReporter,
     
     /**
      * Each ToeThead has an instance of Recorder that gets used
-     * over and over by each request.
+     * over and over by each request; or, if recorders are pooled, 
+     * borrows one for each request.
      */
     private Recorder httpRecorder = null;
+    
+    /** pool to borrow Recorders from, or null if this thread has its own */
+    private RecorderPool recorderPool;
+
+    /** later stages to hand fetched URIs to, or null if not staged */
+    private StagedProcessing stages;
 
     // activity monitoring, debugging, and problem detection
     private Step step = Step.NASCENT;
@@ -103,15 +111,20 @@ implements Reporter, ProgressStatisticsReporter,
      */
     public ToeThread(ToePool g, int sn) {
         // TODO: add crawl name?
-        super(g,"ToeThread #" + sn);
+        super(g, null, "ToeThread #" + sn,
+                g.getController().getToeThreadStackBytes());
         coreName="ToeThread #" + sn + ": ";
         controller = g.getController();
         serialNumber = sn;
         setPriority(DEFAULT_PRIORITY);
-        int outBufferSize = controller.getRecorderOutBufferBytes();
-        int inBufferSize = controller.getRecorderInBufferBytes();
-        httpRecorder = new Recorder(controller.getScratchDir().getFile(),
-            "tt" + sn + "http", outBufferSize, inBufferSize);
+        recorderPool = g.getRecorderPool();
+        stages = g.getStagedProcessing();
+        if (recorderPool == null) {
+            int outBufferSize = controller.getRecorderOutBufferBytes();
+            int inBufferSize = controller.getRecorderInBufferBytes();
+            httpRecorder = new Recorder(controller.getScratchDir().getFile(),
+                "tt" + sn + "http", outBufferSize, inBufferSize);
+        }
         lastFinishTime = System.currentTimeMillis();
     }
 
@@ -136,17 +149,29 @@ implements Reporter, ProgressStatisticsReporter,
                     ArchiveUtils.continueCheck();
                     currentCuri.setThreadNumber(this.serialNumber);
                     lastStartTime = System.currentTimeMillis();
+                    if (recorderPool != null) {
+                        httpRecorder = recorderPool.acquire();
+                        Recorder.setHttpRecorder(httpRecorder);
+                    }
                     currentCuri.setRecorder(httpRecorder);
                 }
                 
+                // if staged, where the next stage is to carry on from
+                int resumeAt = -1;
                 try {
                     KeyedProperties.loadOverridesFrom(curi);
                     
-                    controller.getFetchChain().process(curi,this);
-                    
-                    controller.getFrontier().beginDisposition(curi);
-                    
-                    controller.getDispositionChain().process(curi,this);
+                    if (stages != null) {
+                        FetchChain fetchChain = controller.getFetchChain();
+                        resumeAt = fetchChain.process(curi, this, 0,
+                                StagedProcessing.extractionStart(fetchChain));
+                    } else {
+                        controller.getFetchChain().process(curi,this);
+
+                        controller.getFrontier().beginDisposition(curi);
+
+                        controller.getDispositionChain().process(curi,this);
+                    }
   
                 } catch (RuntimeExceptionWrapper e) {
                     // Workaround to get cause from BDB
@@ -177,6 +202,25 @@ implements Reporter, ProgressStatisticsReporter,
                     KeyedProperties.clearOverridesFrom(curi); 
                 }
                 
+                if (resumeAt >= 0) {
+                    setStep(Step.HANDING_OFF, null);
+                    synchronized(this) {
+                        // waits while the next stage is full
+                        stages.handOff(curi, resumeAt);
+                        // the URI and its recorder are the stages' now
+                        setCurrentCuri(null);
+                        Recorder.setHttpRecorder(null);
+                        httpRecorder = null;
+                    }
+                    curi = null;
+                    setStep(Step.FINISHING_PROCESS, null);
+                    lastFinishTime = System.currentTimeMillis();
+                    if(shouldRetire) {
+                        break; // from while(true)
+                    }
+                    continue;
+                }
+
                 setStep(Step.ABOUT_TO_RETURN_URI, null);
                 ArchiveUtils.continueCheck();
 
@@ -186,6 +230,7 @@ implements Reporter, ProgressStatisticsReporter,
                     setCurrentCuri(null);
                 }
                 curi = null;
+                releaseRecorder();
                 
                 setStep(Step.FINISHING_PROCESS, null);
                 lastFinishTime = System.currentTimeMillis();
@@ -216,14 +261,29 @@ implements Reporter, ProgressStatisticsReporter,
 
         setCurrentCuri(null);
         // Do cleanup so that objects can be GC.
-        this.httpRecorder.closeRecorders();
-        this.httpRecorder = null;
+        if (recorderPool != null) {
+            releaseRecorder();
+        } else {
+            this.httpRecorder.closeRecorders();
+            this.httpRecorder = null;
+        }
 
         logger.fine(getName()+" finished for order '"+name+"'");
         setStep(Step.FINISHED, null);
         controller = null;
     }
 
+    /**
+     * Return a borrowed Recorder to the pool, if any is held.
+     */
+    private synchronized void releaseRecorder() {
+        if (recorderPool != null && httpRecorder != null) {
+            Recorder.setHttpRecorder(null);
+            recorderPool.release(httpRecorder);
+            httpRecorder = null;
+        }
+    }
+
     /**
      * Set currentCuri, updating thread name as appropriate
      * @param curi
@@ -580,8 +640,9 @@ implements Reporter, ProgressStatisticsReporter,
     }
 
     public void progressStatisticsLine(PrintWriter writer) {
+        // latest snapshot taken by the tracker, rather than one built here
         writer.print(getController().getStatisticsTracker()
-            .getSnapshot().getProgressStatisticsLine());
+            .getLastSnapshot().getProgressStatisticsLine());
         writer.print("\n");
     }
 
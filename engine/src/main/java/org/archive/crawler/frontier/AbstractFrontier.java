@@ -34,18 +34,17 @@ import static org.archive.modules.fetcher.FetchStatusCodes.S_TOO_MANY_LINK_HOPS;
 import static org.archive.modules.fetcher.FetchStatusCodes.S_UNATTEMPTED;
 
 import java.io.BufferedReader;
-import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.http.HttpStatus;
@@ -69,6 +68,7 @@ import org.archive.spring.HasKeyedProperties;
 import org.archive.spring.KeyedProperties;
 import org.archive.url.URIException;
 import org.archive.util.ArchiveUtils;
+import org.archive.util.LinePipeline;
 import org.archive.util.ReportUtils;
 import org.archive.util.iterator.LineReadingIterator;
 import org.archive.util.iterator.RegexLineIterator;
@@ -164,6 +164,68 @@ public abstract class AbstractFrontier
     public void setExtract404s(boolean extract404s) {
         kp.put("extract404s", extract404s);
     }
+
+    /**
+     * Number of threads parsing, scoping and preparing URIs when
+     * importing a recovery log or other URI file. Reading the file, and
+     * scheduling the URIs in file order, each take one more thread.
+     */
+    protected int importThreads = 4;
+    public int getImportThreads() {
+        return importThreads;
+    }
+    public void setImportThreads(int importThreads) {
+        this.importThreads = importThreads;
+    }
+
+    protected static final int IMPORT_BATCH_SIZE = 1000;
+
+    /** the current or most recent import, for progress reporting */
+    protected transient volatile LinePipeline<?> lastImport;
+    public LinePipeline<?> getLastImport() {
+        return lastImport;
+    }
+
+    /**
+     * Create an import pipeline, noting it for progress reporting.
+     */
+    protected <T> LinePipeline<T> startImport(String name) {
+        LinePipeline<T> pipeline = new LinePipeline<T>(
+                name, getImportThreads(), IMPORT_BATCH_SIZE);
+        lastImport = pipeline;
+        return pipeline;
+    }
+
+    /**
+     * Parse, scope and prepare (canonicalize, assign a queue) a URI
+     * being imported. Safe to call from several threads at once.
+     * 
+     * @param uriHopsViaString URI with optional hops and via
+     * @param scope scope to apply, or null
+     * @return the prepared CrawlURI, or null if out of scope or
+     * unparseable
+     */
+    protected CrawlURI prepareImported(String uriHopsViaString, DecideRule scope) {
+        CrawlURI curi;
+        try {
+            curi = CrawlURI.fromHopsViaString(uriHopsViaString.trim());
+        } catch (URIException e) {
+            logger.log(Level.WARNING,"Problem line: "+uriHopsViaString, e);
+            return null;
+        }
+        sheetOverlaysManager.applyOverlaysTo(curi);
+        try {
+            KeyedProperties.loadOverridesFrom(curi);
+            if(scope!=null && !scope.accepts(curi)) {
+                // skip out-of-scope URIs if so configured
+                return null;
+            }
+            preparer.prepare(curi);
+        } finally {
+            KeyedProperties.clearOverridesFrom(curi); 
+        }
+        return curi;
+    }
     
     public boolean isRunning() {
         return managerThread!=null && managerThread.isAlive();
@@ -907,63 +969,49 @@ public abstract class AbstractFrontier
      * @throws IOException
      */
     public long importRecoverFormat(File source, boolean applyScope, 
-            boolean includeOnly, boolean forceFetch, String acceptTags) 
+            final boolean includeOnly, final boolean forceFetch, String acceptTags) 
     throws IOException {
-        DecideRule scope = (applyScope) ? getScope() : null;
-        FrontierJournal newJournal = getFrontierJournal();
-        Matcher m = Pattern.compile(acceptTags).matcher(""); 
+        final DecideRule scope = (applyScope) ? getScope() : null;
+        final FrontierJournal newJournal = getFrontierJournal();
+        final Pattern tags = Pattern.compile(acceptTags); 
+        final LinePipeline<CrawlURI> pipeline = startImport(source.getName());
+        final long[] nextProgress = {PROGRESS_INTERVAL};
         BufferedReader br = ArchiveUtils.getBufferedReader(source);
-        String read;
-        int lineCount = 0; 
         try {
-            while ((read = br.readLine())!=null) {
-                lineCount++;
-                if(read.length()<4) {
-                    continue;
-                }
-                String lineType = read.substring(0, 3);
-                m.reset(lineType);
-                if(m.matches()) {
-                    try {
-                        String uriHopsViaString = read.substring(3).trim();
-                        CrawlURI curi = CrawlURI.fromHopsViaString(uriHopsViaString);
-                        if(scope!=null) {
-                            sheetOverlaysManager.applyOverlaysTo(curi);
-                            try {
-                                KeyedProperties.loadOverridesFrom(curi);
-                                if(!scope.accepts(curi)) {
-                                    // skip out-of-scope URIs if so configured
-                                    continue;
-                                }
-                            } finally {
-                                KeyedProperties.clearOverridesFrom(curi); 
-                            }
-                        }
+            return pipeline.run(br, 
+                read -> {
+                    if(read.length()<4 || !tags.matcher(read.substring(0, 3)).matches()) {
+                        return null;
+                    }
+                    return prepareImported(read.substring(3), scope);
+                },
+                batch -> {
+                    // same-queue URIs together, otherwise in file order
+                    batch.sort(Comparator.comparing(CrawlURI::getClassKey));
+                    for (CrawlURI curi : batch) {
                         if(includeOnly) {
                             considerIncluded(curi);
-                            newJournal.included(curi);
+                            if (newJournal != null) {
+                                newJournal.included(curi);
+                            }
                         } else {
                             curi.setForceFetch(forceFetch);
                             schedule(curi);
                         }
-                    } catch (URIException e) {
-                        logger.log(Level.WARNING,"Problem line: "+read, e);
                     }
-                }
-                if((lineCount%PROGRESS_INTERVAL)==0) {
-                    // every 1 million lines, print progress
-                    logger.info(
-                            "at line " + lineCount + (includeOnly?" (include-only)":"")
-                            + " alreadyIncluded count = " +
-                            discoveredUriCount());
-                }
-            }
-        } catch (EOFException e) {
-            // expected in some uncleanly-closed recovery logs; ignore
+                    if(pipeline.getLinesRead() >= nextProgress[0]) {
+                        // every 1 million lines, print progress
+                        nextProgress[0] += PROGRESS_INTERVAL;
+                        logger.info(
+                                "at line " + pipeline.getLinesRead() 
+                                + (includeOnly?" (include-only)":"")
+                                + " alreadyIncluded count = " +
+                                discoveredUriCount());
+                    }
+                });
         } finally {
             br.close();
         }
-        return lineCount;
     }
     
     /* (non-Javadoc)
@@ -27,8 +27,8 @@ import java.util.Set;
 import java.util.SortedMap;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentSkipListMap;
-import java.util.concurrent.DelayQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
@@ -45,6 +45,7 @@ import org.archive.checkpointing.Checkpointable;
 import org.archive.modules.CrawlURI;
 import org.archive.util.ArchiveUtils;
 import org.archive.util.ObjectIdentityCache;
+import org.archive.util.StripedBlockingQueue;
 import org.archive.util.Supplier;
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -103,6 +104,55 @@ implements Checkpointable, BeanNameAware {
         this.dumpPendingAtClose = dumpPendingAtClose;
     }
 
+    /**
+     * Whether to hold pending URIs in the compact format (see
+     * {@link BdbMultipleWorkQueues}): queue keys prefixed by small interned
+     * ids rather than full classKeys, and slim URI records. Off by default.
+     * Resuming from a checkpoint in the original format with this enabled
+     * migrates it, irreversibly: a checkpoint in the compact format can
+     * only be resumed with this enabled, and not by earlier releases.
+     */
+    protected boolean compactPendingUris = false;
+    public boolean getCompactPendingUris() {
+        return compactPendingUris;
+    }
+    public void setCompactPendingUris(boolean compactPendingUris) {
+        this.compactPendingUris = compactPendingUris;
+    }
+
+    /**
+     * Number of URIs to read ahead from the head of each active queue,
+     * with a single cursor scan, and hold in memory until emitted. Saves
+     * a bdb seek and read per URI on busy queues, at the cost of memory
+     * for up to this many URIs per ready or in-process queue; read-ahead
+     * URIs are dropped when a queue is deactivated, retired or snoozed
+     * for at least snoozeLongMs. 1 or less reads each URI when needed.
+     */
+    protected int queuePrefetchSize = 16;
+    public int getQueuePrefetchSize() {
+        return queuePrefetchSize;
+    }
+    public void setQueuePrefetchSize(int queuePrefetchSize) {
+        this.queuePrefetchSize = queuePrefetchSize;
+    }
+
+    /**
+     * Most URIs looked at per queue, under the queue's lock, in each batch
+     * of a {@link #deleteURIs(String, String)}. Between batches the lock
+     * is released, so that ToeThreads working the queue are not held up
+     * for the whole deletion.
+     */
+    protected int deleteBatchSize = 1000;
+    public int getDeleteBatchSize() {
+        return deleteBatchSize;
+    }
+    public void setDeleteBatchSize(int deleteBatchSize) {
+        this.deleteBatchSize = deleteBatchSize;
+    }
+
+    /** original-format pending URIs to migrate, on resuming */
+    protected transient BdbMultipleWorkQueues legacyPendingUris;
+
     /* (non-Javadoc)
      * @see org.archive.crawler.frontier.WorkQueueFrontier#getInactiveQueuesByPrecedence()
      */
@@ -130,14 +180,91 @@ implements Checkpointable, BeanNameAware {
     throws DatabaseException {
         Database db;
         boolean recycle = (recoveryCheckpoint != null);
+        boolean recycleCompact = recycle && isCompactCheckpoint(recoveryCheckpoint);
 
+        if (!getCompactPendingUris()) {
+            if (recycleCompact) {
+                throw new IllegalStateException("checkpoint "
+                        + recoveryCheckpoint.getName() + " holds compact-format "
+                        + "pending URIs; compactPendingUris must be enabled");
+            }
+            BdbModule.BdbConfig dbConfig = new BdbModule.BdbConfig();
+            dbConfig.setAllowCreate(!recycle);
+            // Make database deferred write: URLs that are added then removed 
+            // before a page-out is required need never cause disk IO.
+            db = bdb.openDatabase(LEGACY_PENDING_DB, dbConfig, recycle);
+            return new BdbMultipleWorkQueues(db, bdb.getClassCatalog());
+        }
+
+        if (recycle && !recycleCompact) {
+            // original-format checkpoint: migrate once queues are restored
+            BdbModule.BdbConfig legacyConfig = new BdbModule.BdbConfig();
+            legacyConfig.setAllowCreate(false);
+            legacyPendingUris = new BdbMultipleWorkQueues(
+                    bdb.openDatabase(LEGACY_PENDING_DB, legacyConfig, true),
+                    bdb.getClassCatalog());
+        }
         BdbModule.BdbConfig dbConfig = new BdbModule.BdbConfig();
-        dbConfig.setAllowCreate(!recycle);
-        // Make database deferred write: URLs that are added then removed 
-        // before a page-out is required need never cause disk IO.
-        db = bdb.openDatabase("pending", dbConfig, recycle);
-        
-        return new BdbMultipleWorkQueues(db, bdb.getClassCatalog());
+        dbConfig.setAllowCreate(!recycleCompact);
+        db = bdb.openDatabase(COMPACT_PENDING_DB, dbConfig, recycleCompact);
+        SortedMap<Long,String> queueNames = bdb.getStoredMap(
+                "pendingQueueNames", Long.class, String.class, false, recycleCompact);
+        return new BdbMultipleWorkQueues(db, queueNames);
+    }
+
+    /**
+     * Create the store of future-scheduled URIs. On resuming from a
+     * checkpoint which kept them in the original stored map, that map is
+     * opened too, for migration once queues are restored.
+     */
+    protected FutureUriStore createFutureUriStore() throws DatabaseException {
+        boolean recycle = (recoveryCheckpoint != null);
+        boolean recycleStore = recycle && FUTURE_FORMAT_STORE.equals(
+                recoveryCheckpoint.loadJson(beanName).optString("futureUriFormat"));
+        if (recycle && !recycleStore) {
+            legacyFutureUris = bdb.getStoredMap(LEGACY_FUTURE_DB, Long.class,
+                    CrawlURI.class, true, true);
+        }
+        BdbModule.BdbConfig dbConfig = new BdbModule.BdbConfig();
+        dbConfig.setAllowCreate(!recycleStore);
+        return new FutureUriStore(
+                bdb.openDatabase(FUTURE_DB, dbConfig, recycleStore),
+                FUTURE_BUCKET_MS);
+    }
+
+    /** original-format future URIs to migrate, on resuming */
+    protected transient SortedMap<Long,CrawlURI> legacyFutureUris;
+
+    protected static final String LEGACY_FUTURE_DB = "futureUris";
+    protected static final String FUTURE_DB = "futureUriStore";
+    protected static final String FUTURE_FORMAT_STORE = "store";
+    protected static final long FUTURE_BUCKET_MS = 60 * 1000;
+
+    protected static final String LEGACY_PENDING_DB = "pending";
+    protected static final String COMPACT_PENDING_DB = "pendingCompact";
+    protected static final String PENDING_FORMAT_COMPACT = "compact";
+
+    protected boolean isCompactCheckpoint(Checkpoint checkpoint) {
+        JSONObject json = checkpoint.loadJson(beanName);
+        return PENDING_FORMAT_COMPACT.equals(json.optString("pendingUriFormat"));
+    }
+
+    @Override
+    protected void initInternalQueues() throws IOException, DatabaseException {
+        super.initInternalQueues();
+        if (legacyPendingUris != null) {
+            pendingUris.migrateFrom(legacyPendingUris, allQueues);
+            legacyPendingUris = null;
+            bdb.removeDatabase(LEGACY_PENDING_DB);
+        }
+        if (legacyFutureUris != null) {
+            for (CrawlURI curi : legacyFutureUris.values()) {
+                futureUris.add(curi);
+            }
+            logger.info("migrated " + futureUris.size() + " future URIs");
+            legacyFutureUris = null;
+            bdb.removeDatabase(LEGACY_FUTURE_DB);
+        }
     }
 
 
@@ -243,6 +370,10 @@ implements Checkpointable, BeanNameAware {
             json.put("disregardedUriCount", disregardedUriCount.get());
             json.put("totalProcessedBytes", totalProcessedBytes.get());
             json.put("inactivePrecedences", inactiveQueuesByPrecedence.keySet());
+            json.put("futureUriFormat", FUTURE_FORMAT_STORE);
+            if (pendingUris.isCompact()) {
+                json.put("pendingUriFormat", PENDING_FORMAT_COMPACT);
+            }
             checkpointInProgress.saveJson(beanName, json);
         } catch (JSONException e) {
             // impossible
@@ -258,10 +389,7 @@ implements Checkpointable, BeanNameAware {
             for(String qk : readyClassQueues) {
                 activeQueuesWriter.println(qk);
             }
-            for(DelayedWorkQueue q : snoozedClassQueues) {
-                activeQueuesWriter.println(q.getClassKey());
-            }
-            for(DelayedWorkQueue q : snoozedOverflow.values()) {
+            for(DelayedWorkQueue q : snoozedClassQueues.snapshot()) {
                 activeQueuesWriter.println(q.getClassKey());
             }
         } catch (IOException ioe) {
@@ -337,20 +465,22 @@ implements Checkpointable, BeanNameAware {
         
         // tiny risk of OutOfMemoryError: if giant number of snoozed
         // queues all wake-to-ready at once
-        readyClassQueues = new LinkedBlockingQueue<String>();
+        readyClassQueues = (getReadyQueueStripes() > 0)
+            ? new StripedBlockingQueue<String>(getReadyQueueStripes())
+            : new StripedBlockingQueue<String>();
 
         inactiveQueuesByPrecedence = new ConcurrentSkipListMap<Integer,Queue<String>>();
         
         retiredQueues = bdb.getStoredQueue("retiredQueues", String.class, recycle);
 
-        // primary snoozed queues
-        snoozedClassQueues = new DelayQueue<DelayedWorkQueue>();
-        // just in case: overflow for extreme situations
-        snoozedOverflow = bdb.getStoredMap(
-                "snoozedOverflow", Long.class, DelayedWorkQueue.class, true, false);
+        // snoozed queues, in memory unless not needed soon
+        snoozedClassQueues = new SnoozeTimingWheel(getSnoozeTickMs(),
+                getMaxSnoozedInMemory(),
+                bdb.getStoredMap("snoozedQueues", String.class,
+                        DelayedWorkQueue.class, true, false),
+                System.currentTimeMillis());
             
-        this.futureUris = bdb.getStoredMap(
-                "futureUris", Long.class, CrawlURI.class, true, recoveryCheckpoint!=null);
+        this.futureUris = createFutureUriStore();
         
         // initialize master map in which other queues live
         this.pendingUris = createMultipleWorkQueues();
@@ -411,8 +541,7 @@ implements Checkpointable, BeanNameAware {
         // mark every queue with the 'managed' collections it's in
         consistencyMarkup(queueSummaries, inProcessQueues, "i");
         consistencyMarkup(queueSummaries,readyClassQueues, "r");
-        consistencyMarkup(queueSummaries,snoozedClassQueues, "s");
-        consistencyMarkup(queueSummaries,snoozedOverflow.values(), "S");
+        consistencyMarkup(queueSummaries,snoozedClassQueues.snapshot(), "s");
         for( Entry<Integer, Queue<String>> entry : getInactiveQueuesByPrecedence().entrySet()) {
             consistencyMarkup(queueSummaries,entry.getValue(),Integer.toString(entry.getKey()));
         }
@@ -480,6 +609,101 @@ implements Checkpointable, BeanNameAware {
         return pendingUris.exportPendingUris(writer);
     }
 
+    /**
+     * Write pending URIs, one per line, in frontier order, reading them a
+     * page at a time so that the crawl need not be paused.
+     * 
+     * @param writer destination
+     * @param classKey queue to export, or null for all queues
+     * @param token continuation token from a previous export, or null to
+     * start at the beginning
+     * @param limit most URIs to write, or -1 for no limit
+     * @param match pattern URIs must match to be written, or null
+     * @return continuation token to resume after the last URI written, or
+     * null if there are no more
+     * @throws IllegalArgumentException if the queue does not exist or the
+     * token is invalid
+     */
+    public String exportPendingUris(final PrintWriter writer, String classKey,
+            String token, long limit, Pattern match) {
+        byte[] prefix = null;
+        if (classKey != null) {
+            WorkQueue wq = allQueues.get(classKey);
+            if (wq == null) {
+                throw new IllegalArgumentException("no such queue: " + classKey);
+            }
+            prefix = ((BdbWorkQueue) wq).getOrigin();
+        }
+        try {
+            byte[] next = pendingUris.scanMatching(prefix,
+                    BdbMultipleWorkQueues.fromToken(token), limit, match,
+                    curi -> writer.println(curi.toString()));
+            return BdbMultipleWorkQueues.toToken(next);
+        } catch (DatabaseException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Delete pending URIs matching uriRegex from queues matching
+     * queueRegex, a batch of at most {@link #getDeleteBatchSize()} URIs
+     * per queue at a time, yielding between batches.
+     */
+    @Override
+    public long deleteURIs(String queueRegex, String uriRegex) {
+        Pattern queuePat = Pattern.compile(queueRegex);
+        Pattern uriPat = Pattern.compile(uriRegex);
+        long count = 0;
+        for (String qname : allQueues.keySet()) {
+            if (!queuePat.matcher(qname).matches()) {
+                continue;
+            }
+            BdbWorkQueue wq = (BdbWorkQueue) getQueueFor(qname);
+            byte[] from = null;
+            boolean first = true;
+            do {
+                long[] deleted = {0};
+                synchronized (wq) {
+                    if (first) {
+                        wq.unpeek(null);
+                        first = false;
+                    }
+                    try {
+                        from = wq.deleteMatching(this, uriPat, from,
+                                getDeleteBatchSize(), deleted);
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                    if (!wq.isRetired()) {
+                        decrementQueuedCount(deleted[0]);
+                        count += deleted[0];
+                    }
+                    wq.makeDirty();
+                }
+                Thread.yield();
+            } while (from != null);
+        }
+        return count;
+    }
+
+    /**
+     * Run {@link #deleteURIs(String, String)} in a background thread.
+     * 
+     * @return the count of URIs deleted, once done
+     */
+    public Future<Long> deleteURIsInBackground(final String queueRegex,
+            final String uriRegex) {
+        // compile now, so that bad patterns fail the caller
+        Pattern.compile(queueRegex);
+        Pattern.compile(uriRegex);
+        FutureTask<Long> task = new FutureTask<Long>(
+                () -> deleteURIs(queueRegex, uriRegex));
+        Thread thread = new Thread(task, beanName + "-deleteURIs");
+        thread.setDaemon(true);
+        thread.start();
+        return task;
+    }
+
     @Override
     public ObjectIdentityCache<WorkQueue> getAllQueues() {
         return allQueues;
@@ -495,4 +719,17 @@ implements Checkpointable, BeanNameAware {
         return inProcessQueues;
     } 
 
+    @Override
+    public synchronized void reportTo(PrintWriter writer) {
+        super.reportTo(writer);
+        writer.print("\n -----===== OBJECT CACHES =====-----\n");
+        writer.print(" ");
+        writer.print(bdb.shortReportLegend());
+        writer.print("\n");
+        try {
+            bdb.reportTo(writer);
+        } catch (IOException e) {
+            // not thrown by PrintWriter
+        }
+    }
 }
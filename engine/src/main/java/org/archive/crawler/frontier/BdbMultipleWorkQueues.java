@@ -23,6 +23,15 @@ import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
@@ -35,8 +44,8 @@ import org.apache.commons.collections.Closure;
 import org.archive.bdb.KryoBinding;
 import org.archive.modules.CrawlURI;
 import org.archive.util.ArchiveUtils;
+import org.archive.util.ObjectIdentityCache;
 
-import com.google.common.base.Charsets;
 import com.sleepycat.bind.EntryBinding;
 import com.sleepycat.bind.serial.StoredClassCatalog;
 import com.sleepycat.je.Cursor;
@@ -55,6 +64,12 @@ import com.sleepycat.util.RuntimeExceptionWrapper;
  * 
  * <p>For how the bdb keys are made, see {@link #calculateInsertKey(CrawlURI)}.
  * 
+ * <p>In the compact format (see
+ * {@link #BdbMultipleWorkQueues(Database, SortedMap)}), each queue's keys
+ * are instead prefixed by a varint queue id, interned in a separate map,
+ * and values are written by {@link PendingCrawlURIBinding}, which leaves
+ * out the classKey and most never-yet-set fields.
+ * 
  * <p>TODO: refactor, improve naming.
  * 
  * @author gojomo
@@ -72,6 +87,20 @@ public class BdbMultipleWorkQueues {
     /**  Supporting bdb serialization of CrawlURIs */
     private EntryBinding<CrawlURI> crawlUriBinding;
 
+    /**
+     * In the compact format, queue classKeys by the ids prefixing their
+     * keys; null in the original format
+     */
+    private SortedMap<Long,String> queueNames = null;
+    /** next queue id to assign, in the compact format */
+    private AtomicLong nextQueueId;
+    /**
+     * In the compact format, ids by classKey, so that a queue created
+     * again for the same classKey (as by a losing racer in
+     * ObjectIdentityCache.getOrUse()) gets the same id
+     */
+    private ConcurrentHashMap<String,Long> queueIds;
+
     /**
      * Create the multi queue in the given environment. 
      * 
@@ -92,6 +121,32 @@ public class BdbMultipleWorkQueues {
             
     }
 
+    /**
+     * Create the multi queue in the given database, in the compact format. 
+     * 
+     * @param db database of queue entries
+     * @param queueNames persistent map of queue ids to classKeys, holding
+     * any previously-assigned ids
+     */
+    public BdbMultipleWorkQueues(Database db, SortedMap<Long,String> queueNames) {
+        this.pendingUrisDB = db;
+        this.queueNames = queueNames;
+        this.nextQueueId = new AtomicLong(
+                queueNames.isEmpty() ? 0 : queueNames.lastKey() + 1);
+        this.queueIds = new ConcurrentHashMap<String,Long>();
+        for (Map.Entry<Long,String> entry : queueNames.entrySet()) {
+            queueIds.put(entry.getValue(), entry.getKey());
+        }
+        crawlUriBinding = new PendingCrawlURIBinding();
+    }
+
+    /**
+     * @return true if in the compact format
+     */
+    public boolean isCompact() {
+        return queueNames != null;
+    }
+
     /**
      * Delete all CrawlURIs matching the given expression.
      * 
@@ -106,6 +161,7 @@ public class BdbMultipleWorkQueues {
             DatabaseEntry headKey) throws DatabaseException {
         long deletedCount = 0;
         Pattern pattern = Pattern.compile(match);
+        byte[] origin = headKey.getData().clone();
         DatabaseEntry key = headKey;
         DatabaseEntry value = new DatabaseEntry();
         Cursor cursor = null;
@@ -116,13 +172,13 @@ public class BdbMultipleWorkQueues {
                     value, null);
 
             while (result == OperationStatus.SUCCESS) {
+                if (!ArchiveUtils.startsWith(key.getData(), origin)) {
+                    // rolled into next queue; finished with this queue
+                    break;
+                }
                 if(value.getData().length>0) {
                     CrawlURI curi = (CrawlURI) crawlUriBinding
                             .entryToObject(value);
-                    if (!curi.getClassKey().equals(queue)) {
-                        // rolled into next queue; finished with this queue
-                        break;
-                    }
                     if (pattern.matcher(curi.toString()).matches()) {
                         cursor.delete();
                         deletedCount++;
@@ -140,7 +196,8 @@ public class BdbMultipleWorkQueues {
     }
     
     /**
-     * @param m marker or null to start with first entry
+     * @param m marker (continuation token, as from {@link #toToken(byte[])})
+     * or null to start with first entry
      * @param maxMatches
      * @return list of matches starting from marker position
      * @throws DatabaseException
@@ -149,67 +206,150 @@ public class BdbMultipleWorkQueues {
             String m, 
             int maxMatches, 
             Pattern pattern, 
-            boolean verbose) 
+            final boolean verbose) 
     throws DatabaseException {
-        int matches = 0;
-        ArrayList<String> results = new ArrayList<String>(maxMatches);
+        final ArrayList<String> results = new ArrayList<String>(maxMatches);
+        byte[] next = scanMatching(null, fromToken(m), maxMatches, pattern,
+                curi -> {
+                    if (verbose) {
+                        results.add("[" + curi.getClassKey() + "] " 
+                                + curi.shortReportLine());
+                    } else {
+                        results.add(curi.toString());
+                    }
+                });
+        m = toToken(next);
         
-        DatabaseEntry key;
-        if (m == null) {
-            key = getFirstKey();
-        } else {
-            byte[] marker = m.getBytes(); // = FrontierJMXTypes.fromString(m);
-            key = new DatabaseEntry(marker);
+        String[] arr = results.toArray(new String[results.size()]);
+        CompositeData cd;
+        try {
+            cd = new CompositeDataSupport(
+                    /*FrontierJMXTypes.URI_LIST_DATA*/ null,
+                    new String[] { "list", "marker" },
+                    new Object[] { arr, m });
+        } catch (OpenDataException e) {
+            throw new IllegalStateException(e);
         }
+        return cd;
+    }
+
+    /** most URIs visited per cursor, by {@link #scanMatching} */
+    protected static final int SCAN_PAGE = 1000;
 
+    /**
+     * Visit, in key order, up to max URIs from the given key onward, with
+     * a cursor held only for this call. Repeated calls, each from the key
+     * the last returned, cover a range of the database however it changes
+     * in between, without holding any lock for longer than one call.
+     * 
+     * @param prefix if non-null, visit only keys starting with this: the
+     * origin key of one queue
+     * @param from key to start at (or after, if no longer present), or
+     * null to start at the beginning of the range
+     * @param max most URIs to visit
+     * @param visitor given each URI, with its classKey and holderKey set;
+     * returns true to delete it
+     * @return key to resume from, or null if the end of the range was
+     * reached
+     * @throws DatabaseException
+     */
+    public byte[] scan(byte[] prefix, byte[] from, int max,
+            Predicate<CrawlURI> visitor) throws DatabaseException {
+        byte[] start = (from != null) ? from : prefix;
+        DatabaseEntry key = new DatabaseEntry();
         DatabaseEntry value = new DatabaseEntry();
-        
         Cursor cursor = null;
-        OperationStatus result = null;
+        int visited = 0;
         Thread.interrupted();
         try {
-            cursor = pendingUrisDB.openCursor(null,null);
-            result = cursor.getSearchKey(key, value, null);
-            
-            while(matches < maxMatches && result == OperationStatus.SUCCESS) {
-                if(value.getData().length>0) {
+            cursor = pendingUrisDB.openCursor(null, null);
+            OperationStatus status;
+            if (start == null) {
+                status = cursor.getFirst(key, value, null);
+            } else {
+                key.setData(start);
+                status = cursor.getSearchKeyRange(key, value, null);
+            }
+            while (status == OperationStatus.SUCCESS) {
+                if (prefix != null && !ArchiveUtils.startsWith(key.getData(), prefix)) {
+                    // rolled into next queue
+                    return null;
+                }
+                if (value.getData().length > 0) {
+                    if (visited >= max) {
+                        return key.getData();
+                    }
                     CrawlURI curi = (CrawlURI) crawlUriBinding.entryToObject(value);
-                    if(pattern.matcher(curi.toString()).matches()) {
-                        if (verbose) {
-                            results.add("[" + curi.getClassKey() + "] " 
-                                    + curi.shortReportLine());
-                        } else {
-                            results.add(curi.toString());
-                        }
-                        matches++;
+                    restoreClassKey(curi, key);
+                    curi.setHolderKey(new DatabaseEntry(key.getData()));
+                    visited++;
+                    if (visitor.test(curi)) {
+                        cursor.delete();
                     }
                 }
-                result = cursor.getNext(key,value,null);
+                status = cursor.getNext(key, value, null);
             }
+            return null;
         } finally {
-            if (cursor !=null) {
+            if (cursor != null) {
                 cursor.close();
             }
         }
-        
-        if(result != OperationStatus.SUCCESS) {
-            // end of scan
-            m = null;
-        } else {
-            m = new String(key.getData()); // = FrontierJMXTypes.toString(key.getData());
-        }
-        
-        String[] arr = results.toArray(new String[results.size()]);
-        CompositeData cd;
-        try {
-            cd = new CompositeDataSupport(
-                    /*FrontierJMXTypes.URI_LIST_DATA*/ null,
-                    new String[] { "list", "marker" },
-                    new Object[] { arr, m });
-        } catch (OpenDataException e) {
-            throw new IllegalStateException(e);
-        }
-        return cd;
+    }
+
+    /**
+     * Visit URIs matching the given pattern, in key order, until max have
+     * matched or the range is exhausted. The range is read in pages of
+     * {@value #SCAN_PAGE} URIs, each with its own cursor (see
+     * {@link #scan(byte[], byte[], int, Predicate)}).
+     * 
+     * @param prefix if non-null, visit only keys starting with this
+     * @param from key to start at, or null
+     * @param maxMatches most URIs to visit, or -1 for no limit
+     * @param pattern pattern the URI must match to be visited, or null
+     * @param visitor given each matching URI
+     * @return key to resume from, or null if the end of the range was
+     * reached
+     * @throws DatabaseException
+     */
+    public byte[] scanMatching(byte[] prefix, byte[] from, long maxMatches,
+            final Pattern pattern, final Consumer<CrawlURI> visitor) 
+    throws DatabaseException {
+        final long[] matched = {0};
+        do {
+            long wanted = (maxMatches < 0) ? SCAN_PAGE : maxMatches - matched[0];
+            if (wanted <= 0) {
+                return from;
+            }
+            from = scan(prefix, from, (int) Math.min(SCAN_PAGE, wanted), curi -> {
+                if (pattern == null || pattern.matcher(curi.toString()).matches()) {
+                    visitor.accept(curi);
+                    matched[0]++;
+                }
+                return false;
+            });
+        } while (from != null);
+        return null;
+    }
+
+    /**
+     * @param key key to resume a scan from, or null
+     * @return continuation token for the given key: an opaque string
+     * safe in URLs; or null for a null key
+     */
+    public static String toToken(byte[] key) {
+        return (key == null) ? null
+                : Base64.getUrlEncoder().withoutPadding().encodeToString(key);
+    }
+
+    /**
+     * @param token continuation token, or null or empty
+     * @return the key it stands for, or null
+     * @throws IllegalArgumentException if not a valid token
+     */
+    public static byte[] fromToken(String token) {
+        return (token == null || token.isEmpty()) ? null
+                : Base64.getUrlDecoder().decode(token);
     }
     
     /**
@@ -322,16 +462,89 @@ public class BdbMultipleWorkQueues {
 
 
     /**
-     * Put the given CrawlURI in at the appropriate place. 
+     * Read, with a single cursor, up to max of the first items of the
+     * queue with the given origin: the items repeated calls to
+     * {@link #get(DatabaseEntry)} would give if each were deleted in turn.
+     * 
+     * @param origin origin key of the queue
+     * @param max most items to read
+     * @param into collection to add the items to, in queue order
+     * @return number of items read
+     * @throws DatabaseException
+     */
+    public int getRange(byte[] origin, int max, Collection<CrawlURI> into)
+    throws DatabaseException {
+        DatabaseEntry key = new DatabaseEntry(origin);
+        DatabaseEntry result = new DatabaseEntry();
+        Cursor cursor = null;
+        int count = 0;
+        Thread.interrupted();
+        try {
+            cursor = this.pendingUrisDB.openCursor(null, null);
+            // position on the queue's cap, as in getNextNearestItem()
+            OperationStatus status = cursor.getSearchKey(key, result, null);
+            if (status != OperationStatus.SUCCESS) {
+                LOGGER.severe("bdb queue cap missing: " + status + " "
+                        + BdbWorkQueue.getPrefixClassKey(origin));
+                return 0;
+            }
+            while (count < max
+                    && cursor.getNext(key, result, null) == OperationStatus.SUCCESS
+                    && ArchiveUtils.startsWith(key.getData(), origin)) {
+                CrawlURI curi;
+                try {
+                    curi = (CrawlURI) crawlUriBinding.entryToObject(result);
+                } catch (RuntimeExceptionWrapper rw) {
+                    LOGGER.log(Level.SEVERE, "unreadable item in queue "
+                            + BdbWorkQueue.getPrefixClassKey(origin), rw);
+                    break;
+                }
+                curi.setHolderKey(new DatabaseEntry(key.getData()));
+                into.add(curi);
+                count++;
+            }
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Put the given CrawlURI in at the appropriate place, in the queue 
+     * named by its classKey. Only for the original format; see
+     * {@link #put(CrawlURI, byte[], boolean)}.
      * 
      * @param curi
      * @throws DatabaseException
      */
     public void put(CrawlURI curi, boolean overwriteIfPresent) 
+    throws DatabaseException {
+        byte[] origin = null;
+        if (curi.getHolderKey() == null) {
+            if (isCompact()) {
+                throw new IllegalStateException(
+                        "queue origin needed to place " + curi);
+            }
+            origin = calculateOriginKey(curi.getClassKey());
+        }
+        put(curi, origin, overwriteIfPresent);
+    }
+
+    /**
+     * Put the given CrawlURI in at the appropriate place. 
+     * 
+     * @param curi
+     * @param origin origin key of the CrawlURI's queue; only used if the
+     * CrawlURI doesn't already have a holder key
+     * @throws DatabaseException
+     */
+    public void put(CrawlURI curi, byte[] origin, boolean overwriteIfPresent) 
     throws DatabaseException {
         DatabaseEntry insertKey = (DatabaseEntry)curi.getHolderKey();
         if (insertKey == null) {
-            insertKey = calculateInsertKey(curi);
+            insertKey = calculateInsertKey(origin, curi);
             curi.setHolderKey(insertKey);
         }
         DatabaseEntry value = new DatabaseEntry();
@@ -380,6 +593,75 @@ public class BdbMultipleWorkQueues {
         }
     }
 
+    /**
+     * Assign the 'origin' key for a new virtual queue of items with the
+     * given classKey: in the compact format, the varint encoding of the
+     * queue id for the classKey, allocated on first use; otherwise as by
+     * {@link #calculateOriginKey(String)}. Repeated calls for the same
+     * classKey return the same key.
+     * 
+     * @param classKey String key of new queue
+     * @return a byte array key
+     */
+    public byte[] createOriginKey(String classKey) {
+        if (!isCompact()) {
+            return calculateOriginKey(classKey);
+        }
+        long id = queueIds.computeIfAbsent(classKey, k -> {
+            long assigned = nextQueueId.getAndIncrement();
+            queueNames.put(assigned, k);
+            return assigned;
+        });
+        return encodeQueueId(id);
+    }
+
+    /**
+     * Encode a queue id as a varint: 7 bits per byte, least significant
+     * first, high bit set on all but the last byte. No encoding is a
+     * prefix of another, so each queue's keys remain contiguous.
+     */
+    protected static byte[] encodeQueueId(long id) {
+        byte[] buf = new byte[10];
+        int len = 0;
+        while ((id & ~0x7FL) != 0) {
+            buf[len++] = (byte) ((id & 0x7F) | 0x80);
+            id >>>= 7;
+        }
+        buf[len++] = (byte) id;
+        return Arrays.copyOf(buf, len);
+    }
+
+    protected static long decodeQueueId(byte[] key) {
+        long id = 0;
+        for (int i = 0, shift = 0; ; i++, shift += 7) {
+            id |= (long) (key[i] & 0x7F) << shift;
+            if ((key[i] & 0x80) == 0) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * @param key key of an entry
+     * @return classKey of the queue holding the entry
+     */
+    protected String classKeyOf(byte[] key) {
+        if (isCompact()) {
+            return queueNames.get(decodeQueueId(key));
+        }
+        return BdbWorkQueue.getPrefixClassKey(key);
+    }
+
+    /**
+     * Compact-format entries don't hold the classKey; set it from the key
+     * if missing.
+     */
+    protected void restoreClassKey(CrawlURI curi, DatabaseEntry key) {
+        if (curi.getClassKey() == null) {
+            curi.setClassKey(classKeyOf(key.getData()));
+        }
+    }
+
     /**
      * Calculate the 'origin' key for a virtual queue of items
      * with the given classKey. This origin key will be a 
@@ -425,20 +707,29 @@ public class BdbMultipleWorkQueues {
      * @return a DatabaseEntry key for the CrawlURI
      */
     protected static DatabaseEntry calculateInsertKey(CrawlURI curi) {
-        byte[] classKeyBytes = null;
-        int len = 0;
-        classKeyBytes = curi.getClassKey().getBytes(Charsets.UTF_8);
-        len = classKeyBytes.length;
-        byte[] keyData = new byte[len+9];
-        System.arraycopy(classKeyBytes,0,keyData,0,len);
-        keyData[len]=0;
+        return calculateInsertKey(calculateOriginKey(curi.getClassKey()), curi);
+    }
+
+    /**
+     * Calculate the insertKey that places a CrawlURI in the desired spot
+     * of the queue with the given origin: the origin followed by the 8
+     * ordering bytes described in {@link #calculateInsertKey(CrawlURI)}.
+     * 
+     * @param origin queue origin key
+     * @param curi
+     * @return a DatabaseEntry key for the CrawlURI
+     */
+    protected static DatabaseEntry calculateInsertKey(byte[] origin, CrawlURI curi) {
+        int len = origin.length;
+        byte[] keyData = new byte[len+8];
+        System.arraycopy(origin,0,keyData,0,len);
         long ordinalPlus = curi.getOrdinal() & 0x0000FFFFFFFFFFFFL;
         ordinalPlus = 
         	((long)curi.getSchedulingDirective() << 56) | ordinalPlus;
         long precedence = Math.min(curi.getPrecedence(), 127);
         ordinalPlus = 
         	(((precedence) & 0xFFL) << 48) | ordinalPlus;
-        ArchiveUtils.longIntoByteArray(ordinalPlus, keyData, len+1);
+        ArchiveUtils.longIntoByteArray(ordinalPlus, keyData, len);
         return new DatabaseEntry(keyData);
     }
     
@@ -564,6 +855,7 @@ public class BdbMultipleWorkQueues {
                 continue;
             }
             CrawlURI item = (CrawlURI) crawlUriBinding.entryToObject(value);
+            restoreClassKey(item, key);
             c.execute(item);
         }
         cursor.close(); 
@@ -574,25 +866,80 @@ public class BdbMultipleWorkQueues {
      * @param writer destination writer for writting all the uris
      * @return number of uris written to the writer
      */
-    public long exportPendingUris(PrintWriter writer) {
+    public long exportPendingUris(final PrintWriter writer) {
         if (this.pendingUrisDB == null) {
             return -6L;
         }
         sync();
+        final long[] uris = {0L};
+        scanMatching(null, null, -1, null, item -> {
+            writer.println(item.toString());
+            ++uris[0];
+        });
+        return uris[0];
+    }
+
+    /**
+     * Copy all queues and their URIs from a database in the original
+     * format into this (empty) compact one, giving each queue found in
+     * allQueues a new origin key. URIs keep their order within queues.
+     * Entries of queues not in allQueues are dropped.
+     * 
+     * @param legacy multi queue in the original format
+     * @param allQueues all queues, by classKey
+     * @return number of URIs copied
+     * @throws DatabaseException
+     */
+    protected long migrateFrom(BdbMultipleWorkQueues legacy,
+            ObjectIdentityCache<WorkQueue> allQueues) throws DatabaseException {
+        if (!isCompact() || legacy.isCompact()) {
+            throw new IllegalStateException("can only migrate original format to compact");
+        }
         DatabaseEntry key = new DatabaseEntry();
         DatabaseEntry value = new DatabaseEntry();
-        long uris = 0L;
+        long queues = 0;
+        long uris = 0;
+        long dropped = 0;
+        byte[] origin = null;
         Thread.interrupted();
-        Cursor cursor = pendingUrisDB.openCursor(null, null);
-        while (cursor.getNext(key, value, null) == OperationStatus.SUCCESS) {
-            if (value.getData().length == 0) {
-                continue;
+        Cursor cursor = legacy.pendingUrisDB.openCursor(null, null);
+        try {
+            while (cursor.getNext(key, value, null) == OperationStatus.SUCCESS) {
+                byte[] legacyKey = key.getData();
+                if (value.getData().length == 0) {
+                    // cap: start of next queue
+                    String classKey = BdbWorkQueue.getPrefixClassKey(legacyKey);
+                    WorkQueue wq = allQueues.get(classKey);
+                    if (wq instanceof BdbWorkQueue) {
+                        origin = createOriginKey(classKey);
+                        ((BdbWorkQueue) wq).setOrigin(origin);
+                        wq.makeDirty();
+                        addCap(origin);
+                        queues++;
+                    } else {
+                        LOGGER.warning("no queue for pending entries of " + classKey);
+                        origin = null;
+                    }
+                    continue;
+                }
+                if (origin == null) {
+                    dropped++;
+                    continue;
+                }
+                CrawlURI curi = legacy.crawlUriBinding.entryToObject(value);
+                // keep the original 8 ordering bytes
+                byte[] newKey = Arrays.copyOf(origin, origin.length + 8);
+                System.arraycopy(legacyKey, legacyKey.length - 8, newKey, origin.length, 8);
+                curi.setHolderKey(new DatabaseEntry(newKey));
+                put(curi, origin, true);
+                uris++;
             }
-            CrawlURI item = (CrawlURI) crawlUriBinding.entryToObject(value);
-            writer.println(item.toString());
-            ++uris;
+        } finally {
+            cursor.close();
         }
-        cursor.close(); 
+        LOGGER.info("migrated " + uris + " pending URIs in " + queues
+                + " queues to compact format" 
+                + (dropped > 0 ? "; dropped " + dropped + " without queue" : ""));
         return uris;
     }
 }
@@ -21,9 +21,15 @@ package org.archive.crawler.frontier;
 import java.io.IOException;
 import java.io.Serializable;
 import java.io.UnsupportedEncodingException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.regex.Pattern;
 
 import org.archive.bdb.AutoKryo;
 import org.archive.crawler.frontier.precedence.HighestUriQueuePrecedencePolicy;
@@ -53,6 +59,14 @@ implements Serializable {
      */
     private byte[] origin;
 
+    /**
+     * Items read ahead from the head of the queue, in queue order; always
+     * the queue's first stored items, the first of them next to peek.
+     * Null or empty when nothing is prefetched. See
+     * {@link BdbFrontier#getQueuePrefetchSize()}.
+     */
+    transient private ArrayDeque<CrawlURI> prefetched;
+
     /**
      * Create a virtual queue inside the given BdbMultipleWorkQueues 
      * 
@@ -60,7 +74,7 @@ implements Serializable {
      */
     public BdbWorkQueue(String classKey, BdbFrontier frontier) {
         super(classKey);
-        this.origin = BdbMultipleWorkQueues.calculateOriginKey(classKey);
+        this.origin = frontier.getWorkQueues().createOriginKey(classKey);
         if (LOGGER.isLoggable(Level.FINE)) {
             LOGGER.fine(getPrefixClassKey(this.origin) + " " + classKey);
         }
@@ -69,11 +83,19 @@ implements Serializable {
         frontier.getWorkQueues().addCap(origin);
     }
 
+    /**
+     * Only for moving the queue's entries to a new key range.
+     */
+    protected void setOrigin(byte[] origin) {
+        this.origin = origin;
+    }
+
     protected long deleteMatchingFromQueue(final WorkQueueFrontier frontier,
             final String match) throws IOException {
         try {
             final BdbMultipleWorkQueues queues = ((BdbFrontier) frontier)
                 .getWorkQueues();
+            discardPrefetched();
             return queues.deleteMatchingFromQueue(match, classKey,
                 new DatabaseEntry(origin));
         } catch (DatabaseException e) {
@@ -81,12 +103,71 @@ implements Serializable {
         }
     }
 
+    /**
+     * Delete up to max of this queue's URIs matching the given pattern,
+     * in one pass of a short-lived cursor, adjusting the count to match.
+     * The URI currently peeked, if any, is left alone, as a ToeThread may
+     * be about to take it. The caller should hold this queue's lock.
+     * 
+     * @param frontier
+     * @param pattern pattern of URIs to delete
+     * @param from key to resume from, as returned by a previous call, or
+     * null to start at the head of the queue
+     * @param max most URIs to look at
+     * @param deleted incremented by the count of URIs deleted
+     * @return key to resume from, or null if the end of the queue was
+     * reached
+     * @throws IOException
+     */
+    protected byte[] deleteMatching(final BdbFrontier frontier,
+            final Pattern pattern, byte[] from, int max, long[] deleted)
+    throws IOException {
+        final byte[] peeked = (peekItem != null && peekItem.getHolderKey() != null)
+            ? ((DatabaseEntry) peekItem.getHolderKey()).getData()
+            : null;
+        // companions leased with the head are likewise out with ToeThreads
+        final List<byte[]> leased = new ArrayList<byte[]>();
+        if (leasedBatch != null) {
+            for (CrawlURI companion : leasedBatch.getCompanions()) {
+                leased.add(((DatabaseEntry) companion.getHolderKey()).getData());
+            }
+        }
+        discardPrefetched();
+        final long[] batchDeleted = {0};
+        try {
+            byte[] next = frontier.getWorkQueues().scan(origin, from, max,
+                    curi -> {
+                        byte[] key = ((DatabaseEntry) curi.getHolderKey()).getData();
+                        if (pattern.matcher(curi.toString()).matches()
+                                && !Arrays.equals(peeked, key)
+                                && leased.stream().noneMatch(k -> Arrays.equals(k, key))) {
+                            batchDeleted[0]++;
+                            return true;
+                        }
+                        return false;
+                    });
+            this.count -= batchDeleted[0];
+            deleted[0] += batchDeleted[0];
+            return next;
+        } catch (DatabaseException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * @return the key at which this queue's entries start
+     */
+    protected byte[] getOrigin() {
+        return origin;
+    }
+
     protected void deleteItem(final WorkQueueFrontier frontier,
             final CrawlURI peekItem) throws IOException {
         try {
             final BdbMultipleWorkQueues queues = ((BdbFrontier) frontier)
                 .getWorkQueues();
-             queues.delete(peekItem);
+            removePrefetched(peekItem);
+            queues.delete(peekItem);
         } catch (DatabaseException e) {
             throw new IOException(e);
         }
@@ -96,6 +177,14 @@ implements Serializable {
     throws IOException {
         final BdbMultipleWorkQueues queues = ((BdbFrontier) frontier)
             .getWorkQueues();
+        int prefetchSize = ((BdbFrontier) frontier).getQueuePrefetchSize();
+        if (prefetchSize > 1) {
+            CrawlURI curi = peekPrefetched(queues, prefetchSize);
+            if (curi != null) {
+                return curi;
+            }
+            // fall back to the single-item read, with its retries
+        }
         DatabaseEntry key = new DatabaseEntry(origin);
         CrawlURI curi = null;
         int tries = 1;
@@ -119,7 +208,10 @@ implements Serializable {
             }
             
             if (curi!=null) {
-                // success
+                // success; compact-format entries leave classKey implied
+                if (curi.getClassKey() == null) {
+                    curi.setClassKey(classKey);
+                }
                 break;
             }
             
@@ -142,7 +234,8 @@ implements Serializable {
         try {
             final BdbMultipleWorkQueues queues = ((BdbFrontier) frontier)
                 .getWorkQueues();
-            queues.put(curi, overwriteIfPresent);
+            queues.put(curi, origin, overwriteIfPresent);
+            notePrefetchedInsert(curi);
             if (LOGGER.isLoggable(Level.FINE)) {
                 LOGGER.fine("Inserted into " + getPrefixClassKey(this.origin) +
                     " (count " + Long.toString(getCount())+ "): " +
@@ -153,14 +246,111 @@ implements Serializable {
         }
     }
     
+    @Override
+    protected List<CrawlURI> peekFollowing(final WorkQueueFrontier frontier,
+            int max) throws IOException {
+        discardPrefetched();
+        List<CrawlURI> items = new ArrayList<CrawlURI>(max + 1);
+        try {
+            ((BdbFrontier) frontier).getWorkQueues().getRange(origin, max + 1, items);
+        } catch (DatabaseException e) {
+            throw new IOException(e);
+        }
+        if (items.isEmpty() || peekItem == null
+                || !Arrays.equals(((DatabaseEntry) items.get(0).getHolderKey()).getData(),
+                        ((DatabaseEntry) peekItem.getHolderKey()).getData())) {
+            // the head isn't where expected; lease nothing more
+            return Collections.emptyList();
+        }
+        items.remove(0);
+        for (CrawlURI curi : items) {
+            // compact-format entries leave classKey implied
+            if (curi.getClassKey() == null) {
+                curi.setClassKey(classKey);
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Return the first prefetched item, first reading up to prefetchSize
+     * items with one cursor scan if none are held.
+     * 
+     * @return first item of the queue, or null if none could be read
+     */
+    protected synchronized CrawlURI peekPrefetched(
+            BdbMultipleWorkQueues queues, int prefetchSize) {
+        if (prefetched == null || prefetched.isEmpty()) {
+            ArrayDeque<CrawlURI> fetched = new ArrayDeque<CrawlURI>(prefetchSize);
+            try {
+                queues.getRange(origin, prefetchSize, fetched);
+            } catch (DatabaseException e) {
+                LOGGER.log(Level.SEVERE, "prefetch failure in " + classKey, e);
+                return null;
+            }
+            for (CrawlURI curi : fetched) {
+                // compact-format entries leave classKey implied
+                if (curi.getClassKey() == null) {
+                    curi.setClassKey(classKey);
+                }
+            }
+            prefetched = fetched;
+        }
+        return prefetched.peekFirst();
+    }
+
+    /**
+     * Drop the given item, about to be deleted from the queue, from the
+     * prefetched items.
+     */
+    protected synchronized void removePrefetched(CrawlURI item) {
+        if (prefetched == null || prefetched.isEmpty()) {
+            return;
+        }
+        if (prefetched.peekFirst() == item) {
+            prefetched.removeFirst();
+        } else {
+            // not read from this buffer; it no longer reliably heads the queue
+            prefetched.clear();
+        }
+    }
+
+    /**
+     * An item inserted (or rewritten) at or before the last prefetched
+     * item's position would be missed or left stale by the prefetched
+     * items, so drop them; later items are simply read in a later scan.
+     */
+    protected synchronized void notePrefetchedInsert(CrawlURI curi) {
+        if (prefetched == null || prefetched.isEmpty()) {
+            return;
+        }
+        DatabaseEntry key = (DatabaseEntry) curi.getHolderKey();
+        DatabaseEntry lastKey = (DatabaseEntry) prefetched.peekLast().getHolderKey();
+        if (Arrays.compareUnsigned(key.getData(), lastKey.getData()) <= 0) {
+            prefetched.clear();
+        }
+    }
+
+    @Override
+    protected synchronized void discardPrefetched() {
+        prefetched = null;
+    }
+
+    /**
+     * @return number of items currently prefetched
+     */
+    protected synchronized int getPrefetchedCount() {
+        return (prefetched == null) ? 0 : prefetched.size();
+    }
+
     /**
      * @param byteArray Byte array to get hex string of.
      * @return Hex string of passed in byte array (Used logging
-     * key-prefixes).
+     * key-prefixes). Only meaningful for original-format keys.
      */
     protected static String getPrefixClassKey(final byte [] byteArray) {
         int zeroIndex = 0;
-        while(byteArray[zeroIndex]!=0) {
+        while(zeroIndex<byteArray.length && byteArray[zeroIndex]!=0) {
             zeroIndex++;
         }
         try {
@@ -19,19 +19,17 @@
 package org.archive.crawler.frontier;
 
 import java.io.BufferedReader;
-import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 import java.util.concurrent.CountDownLatch;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import org.archive.url.URIException;
-import org.archive.crawler.framework.Frontier;
 import org.archive.io.CrawlerJournal;
 import org.archive.modules.CrawlURI;
 import org.archive.modules.deciderules.DecideRule;
 import org.archive.util.ArchiveUtils;
+import org.archive.util.LinePipeline;
 import org.json.JSONObject;
 
 /**
@@ -117,7 +115,9 @@ public class FrontierJournal extends CrawlerJournal {
     
     /**
      * Utility method for scanning a recovery journal and applying it to
-     * a Frontier.
+     * a Frontier. Each pass over the journal parses and scopes lines in
+     * parallel (see {@link AbstractFrontier#getImportThreads()}); progress
+     * is visible via {@link AbstractFrontier#getLastImport()}.
      * 
      * @param params JSONObject of import parameters; see Frontier.importURIS()
      * @param frontier
@@ -125,7 +125,7 @@ public class FrontierJournal extends CrawlerJournal {
      * 
      * @see org.archive.crawler.framework.Frontier#importURIs(String)
      */
-    public static void importRecoverLog(final JSONObject params, final Frontier frontier)
+    public static void importRecoverLog(final JSONObject params, final AbstractFrontier frontier)
     throws IOException {
         String path = params.optString("path");
         if (path == null) {
@@ -136,7 +136,7 @@ public class FrontierJournal extends CrawlerJournal {
         
         // first, fill alreadyIncluded with successes (and possibly failures),
         // and count the total lines
-        final int lines =
+        final long lines =
             importCompletionInfoFromLog(source, frontier, params);
         
         LOGGER.info("finished completion state; recovering queues from " +
@@ -160,6 +160,39 @@ public class FrontierJournal extends CrawlerJournal {
             LOGGER.log(Level.WARNING,"interrupted",e);
         }
     }
+
+    /**
+     * A journal line accepted for import, with its parsed and prepared URI.
+     */
+    protected static class ImportedLine {
+        final String line;
+        final CrawlURI curi;
+        ImportedLine(String line, CrawlURI curi) {
+            this.line = line;
+            this.curi = curi;
+        }
+    }
+
+    /**
+     * Parse, scope and prepare the given journal line, if its type is one
+     * of those given. Called from several threads at once.
+     * 
+     * @return the line and its URI, or null if not to be imported
+     */
+    protected static ImportedLine importLine(String read, AbstractFrontier frontier,
+            DecideRule scope, boolean successes, boolean failures, boolean scheduleds) {
+        if(read.length()<4) {
+            return null;
+        }
+        String lineType = read.substring(0, 3);
+        if(successes && F_SUCCESS.equals(lineType) 
+                || failures && F_FAILURE.equals(lineType) 
+                || scheduleds && F_ADD.equals(lineType)) {
+            CrawlURI curi = frontier.prepareImported(read.substring(3), scope);
+            return (curi == null) ? null : new ImportedLine(read, curi);
+        }
+        return null;
+    }
     
     /**
      * Import just the SUCCESS (and possibly FAILURE) URIs from the given
@@ -169,63 +202,45 @@ public class FrontierJournal extends CrawlerJournal {
      * @return number of lines in recovery log (for reference)
      * @throws IOException
      */
-    private static int importCompletionInfoFromLog(File source, 
-            Frontier frontier, JSONObject params) throws IOException {
+    private static long importCompletionInfoFromLog(File source, 
+            final AbstractFrontier frontier, JSONObject params) throws IOException {
         // Scan log for 'Fs' (+maybe 'Ff') lines: add as 'alreadyIncluded'
-        boolean includeSuccesses = !params.isNull("includeSuccesses");
-        boolean includeFailures = !params.isNull("includeFailures");
-        boolean includeScheduleds = !params.isNull("includeScheduleds");
+        final boolean includeSuccesses = !params.isNull("includeSuccesses");
+        final boolean includeFailures = !params.isNull("includeFailures");
+        final boolean includeScheduleds = !params.isNull("includeScheduleds");
         boolean scopeIncludes = !params.isNull("scopeIncludes");
         
-        DecideRule scope = (scopeIncludes) ? frontier.getScope() : null;
-        FrontierJournal newJournal = frontier.getFrontierJournal();
+        final DecideRule scope = (scopeIncludes) ? frontier.getScope() : null;
+        final FrontierJournal newJournal = frontier.getFrontierJournal();
         
+        final LinePipeline<ImportedLine> pipeline =
+            frontier.startImport(source.getName() + " (completion state)");
+        final long[] nextProgress = {PROGRESS_INTERVAL};
         BufferedReader br = ArchiveUtils.getBufferedReader(source);
-        String read;
-        int lines = 0; 
         try {
-            while ((read = br.readLine())!=null) {
-                lines++;
-                if(read.length()<4) {
-                    continue;
-                }
-                String lineType = read.substring(0, 3);
-                if(includeSuccesses && F_SUCCESS.equals(lineType) 
-                        || includeFailures && F_FAILURE.equals(lineType) 
-                        || includeScheduleds && F_ADD.equals(lineType)) {
-                    try {
-                        CrawlURI caUri = CrawlURI.fromHopsViaString(read.substring(3));
-                        if(scope!=null) {
-                            //TODO:SPRINGY
-///                            caUri.setStateProvider(controller.getSheetManager());
-                            // skip out-of-scope URIs if so configured
-                            if(!scope.accepts(caUri)) {
-                                continue;
-                            }
-                        }
-                        frontier.considerIncluded(caUri);
+            return pipeline.run(br, 
+                read -> importLine(read, frontier, scope,
+                        includeSuccesses, includeFailures, includeScheduleds),
+                batch -> {
+                    for (ImportedLine imported : batch) {
+                        frontier.considerIncluded(imported.curi);
                         if (newJournal != null) {
                             // write same line as read
-                            newJournal.writeLine(read);
+                            newJournal.writeLine(imported.line);
                         }
-                    } catch (URIException e) {
-                        LOGGER.log(Level.WARNING,"bad hopsViaString: "+read.substring(3),e);
                     }
-                }
-                if((lines%PROGRESS_INTERVAL)==0) {
-                    // every 1 million lines, print progress
-                    LOGGER.info(
-                            "at line " + lines 
-                            + " alreadyIncluded count = " +
-                            frontier.discoveredUriCount());
-                }
-            }
-        } catch (EOFException e) {
-            // expected in some uncleanly-closed recovery logs; ignore
+                    if (pipeline.getLinesRead() >= nextProgress[0]) {
+                        // every 1 million lines, print progress
+                        nextProgress[0] += PROGRESS_INTERVAL;
+                        LOGGER.info(
+                                "at line " + pipeline.getLinesRead() 
+                                + " alreadyIncluded count = " +
+                                frontier.discoveredUriCount());
+                    }
+                });
         } finally {
             br.close();
         }
-        return lines;
     }
 
     /**
@@ -236,85 +251,59 @@ public class FrontierJournal extends CrawlerJournal {
      * @param params Map of options to apply
      * @param enough latch signalling 'enough' URIs queued to begin crawling
      */
-    private static void importQueuesFromLog(File source, Frontier frontier,
-            JSONObject params, int lines, CountDownLatch enough) {
-        BufferedReader br;
-        String read;
+    private static void importQueuesFromLog(File source, final AbstractFrontier frontier,
+            JSONObject params, final long lines, final CountDownLatch enough) {
+        final long queuedAtStart = frontier.queuedUriCount();
         
-        long queuedAtStart = frontier.queuedUriCount();
-        long queuedDuringRecovery = 0;
-        int qLines = 0;
-        
-        boolean scheduleSuccesses = !params.isNull("scheduleSuccesses");
-        boolean scheduleFailures = !params.isNull("scheduleFailures");
-        boolean scheduleScheduleds = !params.isNull("scheduleScheduleds");
+        final boolean scheduleSuccesses = !params.isNull("scheduleSuccesses");
+        final boolean scheduleFailures = !params.isNull("scheduleFailures");
+        final boolean scheduleScheduleds = !params.isNull("scheduleScheduleds");
         boolean scopeScheduleds = !params.isNull("scopeScheduleds");
-        boolean forceRevisit = !params.isNull("forceRevisit");
+        final boolean forceRevisit = !params.isNull("forceRevisit");
         
-        DecideRule scope = (scopeScheduleds) ? frontier.getScope() : null;
+        final DecideRule scope = (scopeScheduleds) ? frontier.getScope() : null;
         
+        final LinePipeline<ImportedLine> pipeline =
+            frontier.startImport(source.getName() + " (queues)");
+        final long[] nextProgress = {PROGRESS_INTERVAL};
+        long qLines = 0;
         try {
             // Scan log for all 'F+' lines: if not alreadyIncluded, schedule for
             // visitation
-            br = ArchiveUtils.getBufferedReader(source);
+            BufferedReader br = ArchiveUtils.getBufferedReader(source);
             try {
-                while ((read = br.readLine())!=null) {
-                    qLines++;
-                    if(read.length()<4) {
-                        continue;
-                    }
-                    String lineType = read.substring(0, 3);
-                    if(scheduleSuccesses && F_SUCCESS.equals(lineType) 
-                            || scheduleFailures && F_FAILURE.equals(lineType) 
-                            || scheduleScheduleds && F_ADD.equals(lineType)) {
-                        
-                        try {
-                            CrawlURI caUri = CrawlURI.fromHopsViaString(read.substring(3));
-                            
-                            //TODO:SPRINGY
-//                            caUri.setStateProvider(controller.getSheetManager());
-                            if(scope!=null) {
-                                // skip out-of-scope URIs if so configured
-                                if(!scope.accepts(caUri)) {
-                                    continue;
-                                }
-                            }
-                            
-                            caUri.setForceFetch(forceRevisit);
-                            
-                            frontier.schedule(caUri);
-                            
-                            queuedDuringRecovery =
-                                frontier.queuedUriCount() - queuedAtStart;
-                            if(((queuedDuringRecovery + 1) %
-                                    ENOUGH_TO_START_CRAWLING) == 0) {
-                                enough.countDown();
+                qLines = pipeline.run(br, 
+                    read -> importLine(read, frontier, scope,
+                            scheduleSuccesses, scheduleFailures, scheduleScheduleds),
+                    batch -> {
+                        for (ImportedLine imported : batch) {
+                            try {
+                                imported.curi.setForceFetch(forceRevisit);
+                                frontier.schedule(imported.curi);
+                            } catch (RuntimeException e) {
+                                LOGGER.log(Level.SEVERE, "exception during " +
+                                        "log-recovery of queue contents ",e);
+                                // and continue, though this may be risky
+                                // if the exception wasn't a trivial NPE 
+                                // or wrapped interrupted-exception...
                             }
-                        } catch (URIException e) {
-                            LOGGER.log(Level.WARNING, "bad URI during " +
-                                "log-recovery of queue contents ",e);
-                            // and continue...
-                        } catch (RuntimeException e) {
-                            LOGGER.log(Level.SEVERE, "exception during " +
-                                    "log-recovery of queue contents ",e);
-                            // and continue, though this may be risky
-                            // if the exception wasn't a trivial NPE 
-                            // or wrapped interrupted-exception...
                         }
-                    }
-                    if((qLines%PROGRESS_INTERVAL)==0) {
-                        // every 1 million lines, print progress
-                        LOGGER.info(
-                                "through line " 
-                                + qLines + "/" + lines 
-                                + " queued count = " +
-                                frontier.queuedUriCount());
-                    }
-                }
-            } catch (EOFException e) {
-                // no problem: untidy end of recovery journal
+                        if (frontier.queuedUriCount() - queuedAtStart 
+                                >= ENOUGH_TO_START_CRAWLING) {
+                            enough.countDown();
+                        }
+                        if (pipeline.getLinesRead() >= nextProgress[0]) {
+                            // every 1 million lines, print progress
+                            nextProgress[0] += PROGRESS_INTERVAL;
+                            LOGGER.info(
+                                    "through line " 
+                                    + pipeline.getLinesRead() + "/" + lines 
+                                    + " queued count = " +
+                                    frontier.queuedUriCount());
+                        }
+                    });
             } finally {
-        	    br.close(); 
+                br.close(); 
             }
         } catch (IOException e) {
             LOGGER.log(Level.WARNING,"problem importQueuesFromLog",e);
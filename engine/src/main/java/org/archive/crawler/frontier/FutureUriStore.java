@@ -0,0 +1,260 @@
+/*
+ *  This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ *  Licensed to the Internet Archive (IA) by one or more individual
+ *  contributors.
+ *
+ *  The IA licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.archive.crawler.frontier;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+
+import org.archive.modules.CrawlURI;
+import org.archive.util.LatencyHistogram;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.sleepycat.je.Cursor;
+import com.sleepycat.je.Database;
+import com.sleepycat.je.DatabaseEntry;
+import com.sleepycat.je.DatabaseException;
+import com.sleepycat.je.OperationStatus;
+
+/**
+ * CrawlURIs rescheduled for a future time (see
+ * {@link CrawlURI#getRescheduleTime()}), held in a bdb database until due.
+ *
+ * <p>Keys are the 8-byte due time then an 8-byte sequence number, so the
+ * database is ordered by due time. Values are the classKey followed by
+ * the URI as written by {@link PendingCrawlURIBinding}: compact where
+ * possible, otherwise Kryo.
+ *
+ * <p>An in-memory index counts the URIs due in each time bucket, for
+ * reporting the backlog without touching bdb, and the earliest time
+ * anything could be due is tracked, so that checking when nothing is due
+ * is free. Due URIs are released in batches, each by a single cursor
+ * walk from the start of the database. One thread releases at a time
+ * (others find nothing to do rather than wait), and adding never waits
+ * on a release.
+ */
+public class FutureUriStore {
+    private static final Logger logger =
+        Logger.getLogger(FutureUriStore.class.getName());
+
+    protected final Database db;
+    protected final long bucketMs;
+
+    /** count of URIs by bucket (due time / bucketMs) */
+    protected final ConcurrentSkipListMap<Long,Long> bucketCounts =
+        new ConcurrentSkipListMap<Long,Long>();
+    protected final AtomicLong size = new AtomicLong();
+    protected final AtomicLong sequence = new AtomicLong();
+    /** no URI is due before this time */
+    protected final AtomicLong earliestDue = new AtomicLong(Long.MAX_VALUE);
+    protected final ReentrantLock releaseLock = new ReentrantLock();
+
+    protected final PendingCrawlURIBinding uriBinding = new PendingCrawlURIBinding();
+    /** ms from due time to release, of released URIs */
+    protected final LatencyHistogram lateness = new LatencyHistogram();
+
+    /**
+     * @param db database to use, which may already hold URIs from a
+     *     previous run
+     * @param bucketMs width of the time buckets counted in memory
+     */
+    public FutureUriStore(Database db, long bucketMs) throws DatabaseException {
+        this.db = db;
+        this.bucketMs = bucketMs;
+        indexExisting();
+    }
+
+    /**
+     * Rebuild the in-memory index from the keys of any URIs already in
+     * the database.
+     */
+    protected void indexExisting() throws DatabaseException {
+        DatabaseEntry key = new DatabaseEntry();
+        DatabaseEntry value = new DatabaseEntry();
+        // keys only
+        value.setPartial(0, 0, true);
+        long maxSequence = -1;
+        Cursor cursor = db.openCursor(null, null);
+        try {
+            while (cursor.getNext(key, value, null) == OperationStatus.SUCCESS) {
+                long time = keyLong(key, 0);
+                maxSequence = Math.max(maxSequence,
+                        keyLong(key, 8));
+                bucketCounts.merge(bucketOf(time), 1L, Long::sum);
+                size.incrementAndGet();
+                earliestDue.accumulateAndGet(time, Math::min);
+            }
+        } finally {
+            cursor.close();
+        }
+        sequence.set(maxSequence + 1);
+        if (size.get() > 0) {
+            logger.info("found " + size.get() + " future URIs");
+        }
+    }
+
+    /**
+     * @return the big-endian long at the given offset of the key
+     */
+    protected static long keyLong(DatabaseEntry key, int offset) {
+        return ByteBuffer.wrap(key.getData()).getLong(key.getOffset() + offset);
+    }
+
+    protected long bucketOf(long time) {
+        return time / bucketMs;
+    }
+
+    /**
+     * Hold the given URI until its reschedule time.
+     */
+    public void add(CrawlURI curi) throws DatabaseException {
+        long time = curi.getRescheduleTime();
+        byte[] key = ByteBuffer.allocate(16)
+            .putLong(time).putLong(sequence.getAndIncrement()).array();
+        DatabaseEntry value = toEntry(curi);
+        // counted first, so that a release never finds an uncounted URI
+        bucketCounts.merge(bucketOf(time), 1L, Long::sum);
+        size.incrementAndGet();
+        try {
+            db.put(null, new DatabaseEntry(key), value);
+        } catch (DatabaseException e) {
+            uncount(time);
+            throw e;
+        }
+        // lowered only once present, so that a release underway keeps it
+        earliestDue.accumulateAndGet(time, Math::min);
+    }
+
+    protected void uncount(long time) {
+        bucketCounts.computeIfPresent(bucketOf(time),
+                (bucket, count) -> (count > 1) ? count - 1 : null);
+        size.decrementAndGet();
+    }
+
+    /**
+     * Remove and return up to max of the URIs due by the given time,
+     * earliest first. Returns nothing, without waiting, if another thread
+     * is releasing.
+     *
+     * @param now current time in ms
+     * @param max most URIs to release
+     * @return released URIs
+     */
+    public List<CrawlURI> releaseDue(long now, int max) throws DatabaseException {
+        List<CrawlURI> released = new ArrayList<CrawlURI>();
+        if (now < earliestDue.get() || !releaseLock.tryLock()) {
+            return released;
+        }
+        try {
+            // URIs added during the walk lower this as needed
+            earliestDue.set(Long.MAX_VALUE);
+            long nextDue = Long.MAX_VALUE;
+            DatabaseEntry key = new DatabaseEntry();
+            DatabaseEntry value = new DatabaseEntry();
+            Cursor cursor = db.openCursor(null, null);
+            try {
+                while (cursor.getNext(key, value, null) == OperationStatus.SUCCESS) {
+                    long time = keyLong(key, 0);
+                    if (time > now) {
+                        nextDue = time;
+                        break;
+                    }
+                    if (released.size() >= max) {
+                        // more due; check again next time
+                        nextDue = now;
+                        break;
+                    }
+                    released.add(fromEntry(value));
+                    cursor.delete();
+                    uncount(time);
+                    lateness.record(now - time);
+                }
+            } finally {
+                cursor.close();
+            }
+            earliestDue.accumulateAndGet(nextDue, Math::min);
+        } finally {
+            releaseLock.unlock();
+        }
+        return released;
+    }
+
+    protected DatabaseEntry toEntry(CrawlURI curi) {
+        DatabaseEntry uriEntry = new DatabaseEntry();
+        uriBinding.objectToEntry(curi, uriEntry);
+        Output output = new Output(uriEntry.getSize() + 64, -1);
+        output.writeString(curi.getClassKey());
+        output.writeBytes(uriEntry.getData(), uriEntry.getOffset(), uriEntry.getSize());
+        return new DatabaseEntry(output.toBytes());
+    }
+
+    protected CrawlURI fromEntry(DatabaseEntry value) {
+        Input input = new Input(value.getData(), value.getOffset(), value.getSize());
+        String classKey = input.readString();
+        int start = input.position();
+        CrawlURI curi = uriBinding.entryToObject(new DatabaseEntry(value.getData(),
+                start, value.getOffset() + value.getSize() - start));
+        if (curi.getClassKey() == null) {
+            curi.setClassKey(classKey);
+        }
+        return curi;
+    }
+
+    /**
+     * @return count of URIs held
+     */
+    public long size() {
+        return size.get();
+    }
+
+    /**
+     * @param now current time in ms
+     * @return count of URIs in buckets starting by the given time: those
+     *     due, plus perhaps some due within a bucket width
+     */
+    public long getDueCount(long now) {
+        long due = 0;
+        for (long count : bucketCounts.headMap(bucketOf(now), true).values()) {
+            due += count;
+        }
+        return due;
+    }
+
+    /**
+     * @return start of the earliest bucket holding any URIs, or -1
+     */
+    public long getEarliestBucketTime() {
+        Map.Entry<Long,Long> first = bucketCounts.firstEntry();
+        return (first == null) ? -1 : first.getKey() * bucketMs;
+    }
+
+    /**
+     * @return ms from due time to release, of all URIs released
+     */
+    public LatencyHistogram getLateness() {
+        return lateness;
+    }
+}
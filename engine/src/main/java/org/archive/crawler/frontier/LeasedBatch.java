@@ -0,0 +1,102 @@
+/*
+ *  This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ *  Licensed to the Internet Archive (IA) by one or more individual
+ *  contributors.
+ *
+ *  The IA licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.archive.crawler.frontier;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import org.archive.modules.CrawlURI;
+
+/**
+ * URIs of one queue out for processing together, so that a fetcher able
+ * to multiplex requests on one connection (as FetchHTTP2 does over
+ * HTTP/2) can fetch them concurrently. The first is the queue's usual
+ * peeked head; the others, its companions, are the items following it,
+ * left stored in the queue until each is finished.
+ *
+ * <p>The queue stays in-process until every URI of the batch is finished.
+ * Its politeness is then a bandwidth budget rather than a per-request
+ * delay: it is snoozed until the bytes fetched by the whole batch, over
+ * the time since the batch was leased, come within bytesPerSec.
+ */
+class LeasedBatch {
+    protected final long leasedTime;
+    protected final long bytesPerSec;
+    protected final Set<CrawlURI> companions =
+        Collections.newSetFromMap(new IdentityHashMap<CrawlURI,Boolean>());
+    protected int outstanding;
+    protected long bytes;
+    protected long delayMs;
+    protected boolean retire;
+
+    public LeasedBatch(Collection<CrawlURI> companions, long bytesPerSec,
+            long now) {
+        this.companions.addAll(companions);
+        this.outstanding = 1 + companions.size();
+        this.bytesPerSec = bytesPerSec;
+        this.leasedTime = now;
+    }
+
+    /**
+     * @return whether the given URI is one of those leased after the head
+     */
+    public boolean isCompanion(CrawlURI curi) {
+        return companions.contains(curi);
+    }
+
+    public Collection<CrawlURI> getCompanions() {
+        return companions;
+    }
+
+    /**
+     * Note one URI of the batch is finished (for now).
+     *
+     * @param curi URI finished
+     * @param forceRetire whether it asked for the queue to be retired
+     * @param delayMs least time it asked the queue to wait before
+     * supplying another URI, as for a retry
+     * @return whether it was the last of the batch to finish
+     */
+    public boolean finished(CrawlURI curi, boolean forceRetire, long delayMs) {
+        bytes += curi.getRecordedSize();
+        this.delayMs = Math.max(this.delayMs, delayMs);
+        retire |= forceRetire;
+        return --outstanding == 0;
+    }
+
+    /**
+     * @return whether any URI of the batch asked for the queue to be
+     * retired
+     */
+    public boolean isRetire() {
+        return retire;
+    }
+
+    /**
+     * @param now time now in ms
+     * @return how long the queue should snooze, with the batch finished
+     */
+    public long getSnoozeMs(long now) {
+        long budgetMs = (bytesPerSec <= 0) ? 0
+                : leasedTime + (bytes * 1000L / bytesPerSec) - now;
+        return Math.max(delayMs, budgetMs);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ *  This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ *  Licensed to the Internet Archive (IA) by one or more individual 
+ *  contributors. 
+ *
+ *  The IA licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.archive.crawler.frontier;
+
+import java.util.Arrays;
+
+import org.archive.bdb.KryoBinding;
+import org.archive.modules.CrawlURI;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.util.Pool;
+import com.sleepycat.bind.EntryBinding;
+import com.sleepycat.je.DatabaseEntry;
+
+/**
+ * Binding for CrawlURIs waiting in a {@link BdbMultipleWorkQueues}
+ * compact-format database. URIs which are
+ * {@link CrawlURI#isCompactable()} (almost all of those not yet tried)
+ * are written in {@link CrawlURI#writeCompactTo(Output)} form, others as
+ * with {@link KryoBinding}; a leading tag byte tells which.
+ *
+ * <p>The classKey is never stored; it is implied by the queue holding the
+ * entry, and must be restored by the reader.
+ */
+public class PendingCrawlURIBinding implements EntryBinding<CrawlURI> {
+    private static final int POOL_SIZE = 8;
+
+    protected static final byte TAG_COMPACT = 1;
+    protected static final byte TAG_KRYO = 2;
+
+    protected final KryoBinding<CrawlURI> kryoBinding =
+        new KryoBinding<CrawlURI>(CrawlURI.class);
+
+    protected final Pool<Output> outputPool = new Pool<Output>(true, false, POOL_SIZE) {
+        protected Output create() {
+            return new Output(1024, -1);
+        }
+    };
+
+    public void objectToEntry(CrawlURI curi, DatabaseEntry entry) {
+        if (!curi.isCompactable()) {
+            kryoBinding.objectToEntry(curi, entry);
+            byte[] kryo = entry.getData();
+            byte[] tagged = new byte[kryo.length + 1];
+            tagged[0] = TAG_KRYO;
+            System.arraycopy(kryo, 0, tagged, 1, kryo.length);
+            entry.setData(tagged);
+            return;
+        }
+        Output output = outputPool.obtain();
+        try {
+            output.reset();
+            output.writeByte(TAG_COMPACT);
+            curi.writeCompactTo(output);
+            entry.setData(output.toBytes());
+        } finally {
+            outputPool.free(output);
+        }
+    }
+
+    public CrawlURI entryToObject(DatabaseEntry entry) {
+        byte[] data = entry.getData();
+        int offset = entry.getOffset();
+        int size = entry.getSize();
+        switch (data[offset]) {
+        case TAG_COMPACT:
+            return CrawlURI.readCompactFrom(new Input(data, offset + 1, size - 1));
+        case TAG_KRYO:
+            // KryoBinding reads the whole array
+            return kryoBinding.entryToObject(new DatabaseEntry(
+                    Arrays.copyOfRange(data, offset + 1, offset + size)));
+        default:
+            throw new IllegalArgumentException("unknown pending URI tag " + data[offset]);
+        }
+    }
+}
@@ -0,0 +1,354 @@
+/*
+ *  This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ *  Licensed to the Internet Archive (IA) by one or more individual
+ *  contributors.
+ *
+ *  The IA licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.archive.crawler.frontier;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.archive.util.LatencyHistogram;
+
+/**
+ * Snoozed queues by wake time, in a hierarchical timing wheel: adding a
+ * queue and waking a due one are O(1), however many are snoozed.
+ *
+ * <p>The wheel has {@value #LEVELS} levels of {@value #SLOTS} slots. A
+ * level-0 slot holds the queues due in one tick (of {@link #getTickMs()});
+ * each slot of a higher level spans a whole turn of the level below, and
+ * its queues are cascaded down into that level as the turn begins.
+ * Queues are never woken early; they may be woken up to a tick late.
+ *
+ * <p>Queues due further out than the wheel spans, added as not needed
+ * soon, or due beyond the first level once {@link #getMaxInMemory()}
+ * queues are held, go instead to a sorted map (normally bdb-backed) in
+ * buckets of one level-0 turn. Each
+ * bucket is read back into the wheel, with a single range walk, once its
+ * time has come.
+ *
+ * <p>The lag between each queue's wake time and its actual waking is
+ * recorded in {@link #getWakeLag()}.
+ *
+ * <p>All methods are synchronized.
+ */
+class SnoozeTimingWheel {
+    protected static final int SLOT_BITS = 8;
+    protected static final int SLOTS = 1 << SLOT_BITS;
+    protected static final int SLOT_MASK = SLOTS - 1;
+    protected static final int LEVELS = 3;
+
+    protected final long tickMs;
+    protected final int maxInMemory;
+
+    @SuppressWarnings("unchecked")
+    protected final List<DelayedWorkQueue>[][] wheel = new List[LEVELS][SLOTS];
+    protected final int[] levelCounts = new int[LEVELS];
+    protected int memoryCount = 0;
+    /** next tick to be processed */
+    protected long currentTick;
+
+    /**
+     * Far-future queues, keyed by {@link #diskKey(DelayedWorkQueue)}; may
+     * be null, in which case all queues are held in memory
+     */
+    protected final SortedMap<String,DelayedWorkQueue> disk;
+    /** count of queues in disk, by bucket (level-0 turn) number */
+    protected final TreeMap<Long,Integer> diskBuckets = new TreeMap<Long,Integer>();
+    protected int diskCount = 0;
+
+    protected final LatencyHistogram wakeLag = new LatencyHistogram();
+
+    /**
+     * @param tickMs level-0 slot width in ms, the wake-time resolution
+     * @param maxInMemory queues to hold in memory before sending those
+     *     not due within a level-0 turn to disk
+     * @param disk map to hold far-future queues, or null to hold all in
+     *     memory; should start empty
+     * @param now current time in ms
+     */
+    public SnoozeTimingWheel(long tickMs, int maxInMemory,
+            SortedMap<String,DelayedWorkQueue> disk, long now) {
+        this.tickMs = tickMs;
+        this.maxInMemory = maxInMemory;
+        this.disk = disk;
+        this.currentTick = now / tickMs;
+    }
+
+    public long getTickMs() {
+        return tickMs;
+    }
+
+    public int getMaxInMemory() {
+        return maxInMemory;
+    }
+
+    /**
+     * @return lag in ms, from wake time to waking, of all queues woken
+     */
+    public LatencyHistogram getWakeLag() {
+        return wakeLag;
+    }
+
+    /**
+     * Snooze the given queue until its wake time.
+     * 
+     * @param dq queue and wake time
+     * @param far whether the queue is not needed soon, and so may as well
+     *     wait on disk
+     */
+    public synchronized void add(DelayedWorkQueue dq, boolean far) {
+        // round up: never wake early
+        long tick = Math.max((dq.getWakeTime() + tickMs - 1) / tickMs, currentTick);
+        long ticksAway = tick - currentTick;
+        if (disk != null && ticksAway >= SLOTS
+                && (far || memoryCount >= maxInMemory
+                    || ticksAway >= 1L << (SLOT_BITS * LEVELS))) {
+            addToDisk(dq);
+            return;
+        }
+        addToWheel(dq, tick);
+    }
+
+    protected void addToWheel(DelayedWorkQueue dq, long tick) {
+        long ticksAway = tick - currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && ticksAway >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        // a queue further out than the wheel spans (only possible with no
+        // disk) waits in the last slot reached, and is re-placed from there
+        int slot = (int) (Math.min(tick, currentTick
+                + (1L << (SLOT_BITS * LEVELS)) - 1) >>> (SLOT_BITS * level)) & SLOT_MASK;
+        List<DelayedWorkQueue> list = wheel[level][slot];
+        if (list == null) {
+            list = new ArrayList<DelayedWorkQueue>();
+            wheel[level][slot] = list;
+        }
+        list.add(dq);
+        levelCounts[level]++;
+        memoryCount++;
+    }
+
+    protected long bucketOf(long wakeTime) {
+        return wakeTime / (tickMs * SLOTS);
+    }
+
+    /**
+     * Key sorting by wake time, then classKey (unique, as a queue is only
+     * snoozed once at a time).
+     */
+    protected static String diskKey(DelayedWorkQueue dq) {
+        return diskKeyPrefix(dq.getWakeTime()) + " " + dq.getClassKey();
+    }
+
+    /**
+     * @return a string sorting after the keys of all queues waking before
+     *     the given time, and before the rest
+     */
+    protected static String diskKeyPrefix(long time) {
+        return String.format("%016x", time);
+    }
+
+    protected void addToDisk(DelayedWorkQueue dq) {
+        disk.put(diskKey(dq), dq);
+        diskBuckets.merge(bucketOf(dq.getWakeTime()), 1, Integer::sum);
+        diskCount++;
+    }
+
+    /**
+     * Read back into the wheel every disk bucket whose time has come.
+     */
+    protected void loadDueBuckets(long now) {
+        long nowBucket = bucketOf(now);
+        while (!diskBuckets.isEmpty() && diskBuckets.firstKey() <= nowBucket) {
+            long bucket = diskBuckets.pollFirstEntry().getKey();
+            long end = (bucket + 1) * tickMs * SLOTS;
+            Iterator<DelayedWorkQueue> iter =
+                disk.headMap(diskKeyPrefix(end)).values().iterator();
+            while (iter.hasNext()) {
+                DelayedWorkQueue dq = iter.next();
+                iter.remove();
+                diskCount--;
+                addToWheel(dq, Math.max((dq.getWakeTime() + tickMs - 1) / tickMs,
+                        currentTick));
+            }
+        }
+    }
+
+    /**
+     * Remove and return all queues due by the given time.
+     *
+     * @param now current time in ms
+     * @return due queues, in no particular order
+     */
+    public synchronized List<DelayedWorkQueue> pollDue(long now) {
+        List<DelayedWorkQueue> due = new ArrayList<DelayedWorkQueue>();
+        if (diskCount > 0) {
+            loadDueBuckets(now);
+        }
+        long targetTick = now / tickMs;
+        while (currentTick <= targetTick) {
+            if (memoryCount == 0) {
+                currentTick = targetTick + 1;
+                break;
+            }
+            int slot = (int) currentTick & SLOT_MASK;
+            if (slot == 0) {
+                cascade(1);
+            }
+            if (levelCounts[0] == 0) {
+                // nothing until the next cascade; skip to it
+                currentTick = Math.min(targetTick + 1, (currentTick | SLOT_MASK) + 1);
+                continue;
+            }
+            List<DelayedWorkQueue> list = wheel[0][slot];
+            if (list != null && !list.isEmpty()) {
+                for (DelayedWorkQueue dq : list) {
+                    due.add(dq);
+                    wakeLag.record(now - dq.getWakeTime());
+                }
+                levelCounts[0] -= list.size();
+                memoryCount -= list.size();
+                wheel[0][slot] = null;
+            }
+            currentTick++;
+        }
+        return due;
+    }
+
+    /**
+     * Move the current slot of the given level down into the levels
+     * below, first cascading the next level up if it too is starting a
+     * new turn.
+     */
+    protected void cascade(int level) {
+        if (level >= LEVELS) {
+            return;
+        }
+        int slot = (int) (currentTick >>> (SLOT_BITS * level)) & SLOT_MASK;
+        if (slot == 0) {
+            cascade(level + 1);
+        }
+        List<DelayedWorkQueue> list = wheel[level][slot];
+        if (list == null || list.isEmpty()) {
+            return;
+        }
+        wheel[level][slot] = null;
+        levelCounts[level] -= list.size();
+        memoryCount -= list.size();
+        for (DelayedWorkQueue dq : list) {
+            addToWheel(dq, Math.max((dq.getWakeTime() + tickMs - 1) / tickMs,
+                    currentTick));
+        }
+    }
+
+    /**
+     * @param now current time in ms
+     * @return ms until the wheel may next have a queue to wake: exact if
+     *     one is due within a level-0 turn, otherwise a lower bound; or
+     *     -1 if no queues are snoozed
+     */
+    public synchronized long getDelayToNext(long now) {
+        if (memoryCount == 0 && diskCount == 0) {
+            return -1;
+        }
+        long nextTick = -1;
+        if (levelCounts[0] > 0) {
+            for (long t = currentTick; t < currentTick + SLOTS; t++) {
+                List<DelayedWorkQueue> list = wheel[0][(int) t & SLOT_MASK];
+                if (list != null && !list.isEmpty()) {
+                    nextTick = t;
+                    break;
+                }
+            }
+        }
+        if (nextTick < 0 && memoryCount > 0) {
+            // next cascade
+            nextTick = (currentTick | SLOT_MASK) + 1;
+        }
+        long next = (nextTick < 0) ? Long.MAX_VALUE : nextTick * tickMs;
+        if (!diskBuckets.isEmpty()) {
+            next = Math.min(next, diskBuckets.firstKey() * tickMs * SLOTS);
+        }
+        return Math.max(0, next - now);
+    }
+
+    /**
+     * @return count of all snoozed queues
+     */
+    public synchronized int size() {
+        return memoryCount + diskCount;
+    }
+
+    /**
+     * @return count of snoozed queues held in memory
+     */
+    public synchronized int getMemoryCount() {
+        return memoryCount;
+    }
+
+    /**
+     * @return a copy of the snoozed queues held in memory, in no
+     *     particular order
+     */
+    public synchronized List<DelayedWorkQueue> memorySnapshot() {
+        List<DelayedWorkQueue> copy = new ArrayList<DelayedWorkQueue>(memoryCount);
+        for (List<DelayedWorkQueue>[] level : wheel) {
+            for (List<DelayedWorkQueue> list : level) {
+                if (list != null) {
+                    copy.addAll(list);
+                }
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * @return a copy of all snoozed queues, those held in memory first
+     */
+    public synchronized List<DelayedWorkQueue> snapshot() {
+        List<DelayedWorkQueue> copy = memorySnapshot();
+        if (diskCount > 0) {
+            copy.addAll(disk.values());
+        }
+        return copy;
+    }
+
+    /**
+     * Remove and return all snoozed queues, due or not.
+     */
+    public synchronized List<DelayedWorkQueue> drainAll() {
+        List<DelayedWorkQueue> all = snapshot();
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                wheel[level][slot] = null;
+            }
+            levelCounts[level] = 0;
+        }
+        memoryCount = 0;
+        if (diskCount > 0) {
+            disk.clear();
+            diskBuckets.clear();
+            diskCount = 0;
+        }
+        return all;
+    }
+}
@@ -22,11 +22,14 @@ package org.archive.crawler.frontier;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.Serializable;
+import java.util.Collections;
 import java.util.Date;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Delayed;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -98,6 +101,22 @@ public abstract class WorkQueue implements Frontier.FrontierGroup,
     /** The next item to be returned */
     transient protected CrawlURI peekItem = null;
 
+    /**
+     * Nonzero while a URI from this queue is out with a ToeThread. Claimed
+     * by compare-and-set, so that of several threads finding this queue's
+     * key on the ready queues only one goes on to lock and use it. Not
+     * persisted: checkpoints record in-process queues separately.
+     */
+    transient private volatile int inProcess = 0;
+    private static final AtomicIntegerFieldUpdater<WorkQueue> IN_PROCESS =
+        AtomicIntegerFieldUpdater.newUpdater(WorkQueue.class, "inProcess");
+
+    /**
+     * URIs out for processing along with the peeked head, if leased as a
+     * batch; null otherwise. While set, the queue stays in-process.
+     */
+    transient protected LeasedBatch leasedBatch = null;
+
     /** Last URI enqueued */
     protected String lastQueued;
 
@@ -203,6 +222,60 @@ public abstract class WorkQueue implements Frontier.FrontierGroup,
         lastDequeueTime = System.currentTimeMillis();
     }
 
+    /**
+     * Remove a companion of the peeked head, leased with it as a batch,
+     * from the queue and adjust the count.
+     * 
+     * @param frontier Work queues manager.
+     * @param companion URI to remove
+     */
+    protected synchronized void dequeueCompanion(final WorkQueueFrontier frontier,
+            CrawlURI companion) {
+        try {
+            deleteItem(frontier, companion);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        count--;
+        lastDequeueTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Read up to max items following the peeked head, without removing
+     * them, to lease along with it. Hook for subclasses; by default none.
+     * 
+     * @param frontier Work queues manager.
+     * @param max most items to return
+     * @return items after the head, in queue order
+     * @throws IOException
+     */
+    protected List<CrawlURI> peekFollowing(final WorkQueueFrontier frontier,
+            int max) throws IOException {
+        return Collections.emptyList();
+    }
+
+    /**
+     * @return the batch of URIs out for processing, if the head was leased
+     * with companions, or null
+     */
+    public synchronized LeasedBatch getLeasedBatch() {
+        return leasedBatch;
+    }
+
+    protected synchronized void setLeasedBatch(LeasedBatch batch) {
+        this.leasedBatch = batch;
+    }
+
+    /**
+     * Note every URI of the leased batch is finished. Any peek made
+     * meanwhile may have read a companion since removed, so is forgotten.
+     */
+    protected synchronized void endLeasedBatch() {
+        leasedBatch = null;
+        peekItem = null;
+        discardPrefetched();
+    }
+
     /**
      * Set the session 'activity budget' to the given value. Automatically
      * reset continually as new CrawlURIs are enqueued; a direct change
@@ -600,6 +673,9 @@ public abstract class WorkQueue implements Frontier.FrontierGroup,
      */
     protected void setRetired(boolean b) {
         this.retired = b;
+        if (b) {
+            discardPrefetched();
+        }
     }
     
     public boolean isRetired() {
@@ -642,6 +718,7 @@ public abstract class WorkQueue implements Frontier.FrontierGroup,
     public synchronized void noteDeactivated() {
         active = false;
         isManaged = true; 
+        discardPrefetched();
         makeDirty();
     }
     
@@ -652,9 +729,18 @@ public abstract class WorkQueue implements Frontier.FrontierGroup,
     public synchronized void noteExhausted() {
         active = false;
         isManaged = false; 
+        discardPrefetched();
         makeDirty();
     }
 
+    /**
+     * Drop any items read ahead of need, to bound memory while the queue
+     * waits for a turn; they remain queued. Hook for subclasses that
+     * prefetch.
+     */
+    protected void discardPrefetched() {
+    }
+
     /**
      * Whether the queue is already in a lifecycle stage --
      * such as ready, in-progress, snoozed -- and thus should
@@ -665,6 +751,29 @@ public abstract class WorkQueue implements Frontier.FrontierGroup,
     public boolean isManaged() {
         return isManaged;
     }
+
+    /**
+     * Atomically mark this queue as in-process, unless it already is.
+     * 
+     * @return true if the caller now holds the queue in-process
+     */
+    public boolean tryClaimInProcess() {
+        return IN_PROCESS.compareAndSet(this, 0, 1);
+    }
+
+    /**
+     * Clear the in-process mark, allowing the queue to be claimed again.
+     */
+    public void releaseInProcess() {
+        inProcess = 0;
+    }
+
+    /**
+     * @return whether a URI of this queue is currently out for processing
+     */
+    public boolean isInProcess() {
+        return inProcess != 0;
+    }
     
     /* (non-Javadoc)
      * @see java.lang.Object#toString()
@@ -35,6 +35,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Queue;
@@ -42,10 +43,7 @@ import java.util.Set;
 import java.util.SortedMap;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.DelayQueue;
-import java.util.concurrent.Delayed;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
@@ -58,17 +56,24 @@ import org.archive.crawler.frontier.precedence.BaseQueuePrecedencePolicy;
 import org.archive.crawler.frontier.precedence.QueuePrecedencePolicy;
 import org.archive.crawler.util.TopNSet;
 import org.archive.modules.CrawlURI;
+import org.archive.modules.fetcher.AsyncDnsResolver;
+import org.archive.modules.net.CrawlHost;
+import org.archive.modules.net.CrawlServer;
 import org.archive.spring.KeyedProperties;
+import org.archive.url.URIException;
 import org.archive.util.ArchiveUtils;
+import org.archive.util.InetAddressUtil;
+import org.archive.util.LatencyHistogram;
 import org.archive.util.ObjectIdentityCache;
 import org.archive.util.ObjectIdentityMemCache;
+import org.archive.util.Reporter;
+import org.archive.util.StripedBlockingQueue;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 import org.springframework.context.support.AbstractApplicationContext;
 
-import com.sleepycat.collections.StoredSortedMap;
 import com.sleepycat.je.DatabaseException;
 
 /**
@@ -150,6 +155,41 @@ implements Closeable,
         kp.put("queueTotalBudget",budget);
     }
     
+    {
+        setHttp2BatchSize(1);
+    }
+    public int getHttp2BatchSize() {
+        return (Integer) kp.get("http2BatchSize");
+    }
+    /**
+     * Most URIs to hand out at once from a queue whose server was last
+     * heard over HTTP/2 (or later), for a multiplexing fetcher such as
+     * FetchHTTP2 to fetch concurrently on one connection. The queue's
+     * politeness is then http2BatchBytesPerSec rather than the usual
+     * per-URI delay. The default of 1 hands out one URI at a time, as
+     * for other queues. Best raised only, by sheet overlay, for sites
+     * that have agreed to be crawled faster.
+     */
+    public void setHttp2BatchSize(int size) {
+        kp.put("http2BatchSize",size);
+    }
+
+    {
+        setHttp2BatchBytesPerSec(100000L);
+    }
+    public long getHttp2BatchBytesPerSec() {
+        return (Long) kp.get("http2BatchBytesPerSec");
+    }
+    /**
+     * Bandwidth allowed a queue handing out batches of URIs (see
+     * http2BatchSize): after each batch, the queue waits until the bytes
+     * fetched since the batch was handed out fall within this rate. 0
+     * means no wait.
+     */
+    public void setHttp2BatchBytesPerSec(long bytesPerSec) {
+        kp.put("http2BatchBytesPerSec",bytesPerSec);
+    }
+
     {
         setQueuePrecedencePolicy(new BaseQueuePrecedencePolicy());
     }
@@ -179,6 +219,21 @@ implements Closeable,
         this.maxQueuesPerReportCategory = max;
     }
 
+    /**
+     * Number of independent stripes over which ready queues are spread, so
+     * that many ToeThreads asking for work at once do not all contend on
+     * one queue-of-queues, at the cost of the strict FIFO order of ready
+     * queues. 1 (the default) keeps that order; 0 means one stripe per
+     * available processor. Only consulted when the frontier starts.
+     */
+    protected int readyQueueStripes = 1; 
+    public int getReadyQueueStripes() {
+        return this.readyQueueStripes;
+    }
+    public void setReadyQueueStripes(int stripes) {
+        this.readyQueueStripes = stripes;
+    }
+
     /** All known queues.
      */
     protected ObjectIdentityCache<WorkQueue> allQueues = null; 
@@ -186,24 +241,68 @@ implements Closeable,
 
     /**
      * All per-class queues whose first item may be handed out.
-     * Linked-list of keys for the queues.
+     * Keys of the queues, usually a {@link StripedBlockingQueue}.
      */
     protected BlockingQueue<String> readyClassQueues;
     
-    /** all per-class queues from whom a URI is outstanding */
+    /** all per-class queues from whom a URI is outstanding; membership
+     * follows {@link WorkQueue#isInProcess()}, see 
+     * {@link #claimInProcess(WorkQueue)} */
     protected Set<WorkQueue> inProcessQueues = 
         Collections.newSetFromMap(new ConcurrentHashMap<WorkQueue, Boolean>()); // of ClassKeyQueue
     
     /**
-     * All per-class queues held in snoozed state, sorted by wake time.
+     * URIs leased along with their queues' heads, as batches (see 
+     * {@link #setHttp2BatchSize(int)}), and not yet handed out. Handed 
+     * out ahead of any other URIs.
+     */
+    transient protected Queue<CrawlURI> leasedCompanions = 
+        new ConcurrentLinkedQueue<CrawlURI>();
+
+    /**
+     * All per-class queues held in snoozed state, by wake time.
+     */
+    transient protected SnoozeTimingWheel snoozedClassQueues;
+
+    /**
+     * Snoozed queues to hold in memory before sending any not due within
+     * a few seconds to disk. (Queues snoozed for at least snoozeLongMs
+     * go to disk regardless.)
+     */
+    protected int maxSnoozedInMemory = 10000;
+    public int getMaxSnoozedInMemory() {
+        return maxSnoozedInMemory;
+    }
+    public void setMaxSnoozedInMemory(int maxSnoozedInMemory) {
+        this.maxSnoozedInMemory = maxSnoozedInMemory;
+    }
+
+    /**
+     * Resolution, in ms, of snoozed queues' wake times; a queue may be
+     * woken up to this much late.
      */
-    transient protected DelayQueue<DelayedWorkQueue> snoozedClassQueues;
-    protected StoredSortedMap<Long,DelayedWorkQueue> snoozedOverflow; 
-    protected AtomicInteger snoozedOverflowCount = new AtomicInteger(0); 
-    protected static int MAX_SNOOZED_IN_MEMORY = 10000; 
+    protected long snoozeTickMs = 10;
+    public long getSnoozeTickMs() {
+        return snoozeTickMs;
+    }
+    public void setSnoozeTickMs(long snoozeTickMs) {
+        this.snoozeTickMs = snoozeTickMs;
+    }
     
     /** URIs scheduled to be re-enqueued at future date */
-    protected StoredSortedMap<Long, CrawlURI> futureUris; 
+    protected FutureUriStore futureUris; 
+
+    /**
+     * Most future-scheduled URIs to release to their queues, once due, in
+     * one batch (that is, per attempt to find a URI to crawl).
+     */
+    protected int futureUriReleaseBatch = 1000;
+    public int getFutureUriReleaseBatch() {
+        return futureUriReleaseBatch;
+    }
+    public void setFutureUriReleaseBatch(int futureUriReleaseBatch) {
+        this.futureUriReleaseBatch = futureUriReleaseBatch;
+    }
     
     /** remember keys of small number of largest queues for reporting */
     transient protected TopNSet largestQueues = new TopNSet(20);
@@ -232,6 +331,17 @@ implements Closeable,
         this.uriUniqFilter = uriUniqFilter;
     }
 
+    /** Resolver asked to look up the host of each newly-filled queue
+     * ahead of its 'dns:' URI, if one is configured. */
+    protected AsyncDnsResolver asyncDnsResolver;
+    public AsyncDnsResolver getAsyncDnsResolver() {
+        return this.asyncDnsResolver;
+    }
+    @Autowired(required=false)
+    public void setAsyncDnsResolver(AsyncDnsResolver asyncDnsResolver) {
+        this.asyncDnsResolver = asyncDnsResolver;
+    }
+
     /**
      * Constructor.
      */
@@ -387,7 +497,9 @@ implements Closeable,
 //        assert Thread.currentThread() == managerThread;
         
         WorkQueue wq = getQueueFor(curi.getClassKey());
+        boolean newlyFilled;
         synchronized(wq) {
+            newlyFilled = wq.getCount() == 0;
             int originalPrecedence = wq.getPrecedence();
             wq.enqueue(this, curi);
             // always take budgeting values from current curi
@@ -409,6 +521,35 @@ implements Closeable,
             wq.makeDirty();
         }
         largestQueues.update(wq.getClassKey(), wq.getCount());
+        if (newlyFilled) {
+            prefetchDns(curi);
+        }
+    }
+
+    /**
+     * Have the asyncDnsResolver, if any, look up the host of the given URI
+     * if it has not been looked up yet.
+     * 
+     * @param curi
+     */
+    protected void prefetchDns(CrawlURI curi) {
+        AsyncDnsResolver resolver = getAsyncDnsResolver();
+        if (resolver == null) {
+            return;
+        }
+        try {
+            String host = curi.getUURI().getReferencedHost();
+            if (host == null
+                    || InetAddressUtil.IPV4_QUADS.matcher(host).matches()) {
+                return;
+            }
+            CrawlHost crawlHost = getServerCache().getHostFor(host);
+            if (crawlHost != null && !crawlHost.hasBeenLookedUp()) {
+                resolver.prefetch(host);
+            }
+        } catch (URIException e) {
+            logger.log(Level.FINE, "no host to prefetch for " + curi, e);
+        }
     }
 
     /**
@@ -441,7 +582,7 @@ implements Closeable,
 
         synchronized(wq) {
             wq.noteDeactivated();
-            inProcessQueues.remove(wq);
+            releaseInProcess(wq);
             if (wq.getCount() == 0) {
                 logger.info("deactivate empty queue? " + wq.getClassKey());
             }
@@ -498,7 +639,7 @@ implements Closeable,
     protected void retireQueue(WorkQueue wq) {
 //        assert Thread.currentThread() == managerThread;
 
-        inProcessQueues.remove(wq);
+        releaseInProcess(wq);
         getRetiredQueues().add(wq.getClassKey());
         decrementQueuedCount(wq.getCount());
         wq.setRetired(true);
@@ -557,6 +698,33 @@ implements Closeable,
         incrementQueuedUriCount(q.getCount());
     }
 
+    /**
+     * Mark the given queue in-process, unless another thread already has
+     * it so. The claim is a compare-and-set on the queue itself, so threads
+     * racing on duplicate ready entries for one queue never block on it.
+     * 
+     * @param wq queue to claim
+     * @return true if the calling thread now holds the queue in-process
+     */
+    protected boolean claimInProcess(WorkQueue wq) {
+        if (!wq.tryClaimInProcess()) {
+            return false;
+        }
+        inProcessQueues.add(wq);
+        return true;
+    }
+
+    /**
+     * Note the given queue is no longer in-process, allowing it to be
+     * claimed again once readied.
+     * 
+     * @param wq queue to release
+     */
+    protected void releaseInProcess(WorkQueue wq) {
+        inProcessQueues.remove(wq);
+        wq.releaseInProcess();
+    }
+
     /**
      * Return the work queue for the given classKey, or null
      * if no such queue exists.
@@ -579,6 +747,11 @@ implements Closeable,
      * @see org.archive.crawler.framework.Frontier#next()
      */
     protected CrawlURI findEligibleURI() {
+            // first, any URI leased with an earlier one
+            CrawlURI companion = leasedCompanions.poll();
+            if (companion != null) {
+                return companion;
+            }
             // wake any snoozed queues
             wakeQueues();
             // consider rescheduled URIS
@@ -587,6 +760,8 @@ implements Closeable,
             // find a non-empty ready queue, if any 
             // TODO: refactor to untangle these loops, early-exits, etc!
             WorkQueue readyQ = null;
+            // last URI given overlays during this call, to avoid redoing it
+            CrawlURI overlaidUri = null;
             findauri: while(true) {
                 findaqueue: do {
                     String key = readyClassQueues.poll();
@@ -608,22 +783,24 @@ implements Closeable,
                                 + " in readyClassQueues but not allQueues");
                         break findaqueue;
                     }
+                    if (!claimInProcess(readyQ)) {
+                        // double activation; discard this and move on
+                        // (this guard allows other enqueuings to ready or
+                        // the various inactive-by-precedence queues to
+                        // sometimes redundantly enqueue a queue key)
+                        // without ever waiting on the queue's lock
+                        readyQ = null;
+                        continue;
+                    }
                 synchronized (readyQ) {
                     if (readyQ.getCount() == 0) {
                         // readyQ is empty and ready: it's exhausted
+                        releaseInProcess(readyQ);
                         readyQ.noteExhausted();
                         readyQ.makeDirty();
                         readyQ = null;
                         continue;
                     }
-                    if (!inProcessQueues.add(readyQ)) {
-                        // double activation; discard this and move on
-                        // (this guard allows other enqueuings to ready or
-                        // the various inactive-by-precedence queues to
-                        // sometimes redundantly enqueue a queue key)
-                        readyQ = null;
-                        continue;
-                    }
                     // queue has gone 'in process'
                     readyQ.considerActive();
                     readyQ.setWakeTime(0); // clear obsolete wake time, if any
@@ -633,6 +810,7 @@ implements Closeable,
                     CrawlURI readyQUri = readyQ.peek(this);
                     // see HER-1973 and HER-1946
                     sheetOverlaysManager.applyOverlaysTo(readyQUri);
+                    overlaidUri = readyQUri;
                     try {
                         KeyedProperties.loadOverridesFrom(readyQUri);
                         readyQ.setSessionBudget(getBalanceReplenishAmount());
@@ -675,9 +853,12 @@ implements Closeable,
                     
                     // from queues, override names persist but not map source
                     curi.setOverlayMapsSource(sheetOverlaysManager);
-                    // TODO: consider optimizations avoiding this recalc of
-                    // overrides when not necessary
-                    sheetOverlaysManager.applyOverlaysTo(curi);
+                    // the peeked URI usually just had its overlays applied
+                    // above; only recalc for a different one
+                    if (curi != overlaidUri) {
+                        sheetOverlaysManager.applyOverlaysTo(curi);
+                        overlaidUri = curi;
+                    }
                     // check if curi belongs in different queue
                     String currentQueueKey;
                     try {
@@ -689,6 +870,7 @@ implements Closeable,
                     if (currentQueueKey.equals(curi.getClassKey())) {
                         // curi was in right queue, emit
                         noteAboutToEmit(curi, readyQ);
+                        leaseBatch(readyQ, curi);
                         return curi;
                     }
                     // URI's assigned queue has changed since it
@@ -707,7 +889,7 @@ implements Closeable,
                         // enqueues to again put queue in ready
                         // FIXME: tiny window here where queue could 
                         // receive new URI, be readied, fail not-in-process?
-                        inProcessQueues.remove(readyQ);
+                        releaseInProcess(readyQ);
                         readyQ.noteExhausted();
                         readyQ.makeDirty();
                         readyQ = null;
@@ -737,24 +919,75 @@ implements Closeable,
             return null; 
     }
 
+    /**
+     * If the given queue, about to hand out its head URI, is for a server
+     * able to multiplex requests, lease some following URIs along with
+     * it, to be handed out to other threads straight away. 
+     * 
+     * @param wq queue in-process
+     * @param head URI being emitted from it
+     */
+    protected void leaseBatch(WorkQueue wq, CrawlURI head) {
+        int batchSize;
+        long bytesPerSec;
+        try {
+            KeyedProperties.loadOverridesFrom(head);
+            batchSize = getHttp2BatchSize();
+            bytesPerSec = getHttp2BatchBytesPerSec();
+        } finally {
+            KeyedProperties.clearOverridesFrom(head);
+        }
+        if (batchSize <= 1) {
+            return;
+        }
+        CrawlServer server = getServerCache().getServerFor(head.getUURI());
+        if (server == null || !server.isHttp2Capable()) {
+            return;
+        }
+        synchronized (wq) {
+            if (wq.getCount() < 2 || wq.getLeasedBatch() != null) {
+                return;
+            }
+            List<CrawlURI> companions;
+            try {
+                companions = wq.peekFollowing(this, batchSize - 1);
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "peek failure in " + wq, e);
+                return;
+            }
+            if (companions.isEmpty()) {
+                return;
+            }
+            wq.setLeasedBatch(new LeasedBatch(companions, bytesPerSec,
+                    System.currentTimeMillis()));
+            for (CrawlURI companion : companions) {
+                companion.setOverlayMapsSource(sheetOverlaysManager);
+                sheetOverlaysManager.applyOverlaysTo(companion);
+                noteAboutToEmit(companion, wq);
+                leasedCompanions.add(companion);
+            }
+        }
+    }
+
     /**
      * Check for any future-scheduled URIs now eligible for reenqueuing
      */
     protected void checkFutures() {
-//        assert Thread.currentThread() == managerThread;
-        // TODO: consider only checking this every set interval
-        if(!futureUris.isEmpty()) {
-            synchronized(futureUris) {
-                Iterator<CrawlURI> iter = 
-                    futureUris.headMap(System.currentTimeMillis())
-                        .values().iterator();
-                while(iter.hasNext()) {
-                    CrawlURI curi = iter.next();
-                    curi.setRescheduleTime(-1); // unless again set elsewhere
-                    iter.remove();
-                    futureUriCount.decrementAndGet();
-                    receive(curi);
-                }
+        // (count rather than isEmpty(), which is a BDB cursor operation)
+        if(futureUriCount.get() > 0) {
+            List<CrawlURI> due;
+            try {
+                due = futureUris.releaseDue(System.currentTimeMillis(),
+                        getFutureUriReleaseBatch());
+            } catch (DatabaseException e) {
+                logger.log(Level.SEVERE, "unable to release future URIs", e);
+                return;
+            }
+            // queued outside of any futureUris lock
+            for (CrawlURI curi : due) {
+                curi.setRescheduleTime(-1); // unless again set elsewhere
+                futureUriCount.decrementAndGet();
+                receive(curi);
             }
         }
     }
@@ -843,8 +1076,8 @@ implements Closeable,
      */
     @Override
     protected long getMaxInWait() {
-        Delayed next = snoozedClassQueues.peek();
-        return next == null ? 60000 : next.getDelay(TimeUnit.MILLISECONDS);
+        long delay = snoozedClassQueues.getDelayToNext(System.currentTimeMillis());
+        return delay < 0 ? 60000 : delay;
     }
 
     /**
@@ -853,26 +1086,13 @@ implements Closeable,
      * put all queues in slow-retry-snoozes back to busy-ness. 
      */
     public void forceWakeQueues() {
-        Iterator<DelayedWorkQueue> iterSnoozed = snoozedClassQueues.iterator();
-        while(iterSnoozed.hasNext()) {
-            WorkQueue queue = iterSnoozed.next().getWorkQueue(WorkQueueFrontier.this);
+        for (DelayedWorkQueue dq : snoozedClassQueues.drainAll()) {
+            WorkQueue queue = dq.getWorkQueue(WorkQueueFrontier.this);
             synchronized(queue) {
                 queue.setWakeTime(0);
                 reenqueueQueue(queue);
                 queue.makeDirty();
             }
-            iterSnoozed.remove(); 
-        }
-        Iterator<DelayedWorkQueue> iterOverflow = snoozedOverflow.values().iterator();
-        while(iterOverflow.hasNext()) {
-            WorkQueue queue = iterOverflow.next().getWorkQueue(WorkQueueFrontier.this);
-            synchronized(queue) {
-                queue.setWakeTime(0);
-                reenqueueQueue(queue);
-                queue.makeDirty();
-            }
-            iterOverflow.remove(); 
-            snoozedOverflowCount.decrementAndGet();
         }
     }
     
@@ -880,8 +1100,8 @@ implements Closeable,
      * Wake any queues sitting in the snoozed queue whose time has come.
      */
     protected void wakeQueues() {
-        DelayedWorkQueue waked; 
-        while((waked = snoozedClassQueues.poll())!=null) {
+        for (DelayedWorkQueue waked
+                : snoozedClassQueues.pollDue(System.currentTimeMillis())) {
             WorkQueue queue = waked.getWorkQueue(this);
             synchronized(queue) {
                 queue.setWakeTime(0);
@@ -889,24 +1109,6 @@ implements Closeable,
             }
             reenqueueQueue(queue);
         }
-        // also consider overflow (usually empty)
-        if(!snoozedOverflow.isEmpty()) {
-            synchronized(snoozedOverflow) {
-                Iterator<DelayedWorkQueue> iter = 
-                    snoozedOverflow.headMap(System.currentTimeMillis()).values().iterator();
-                while(iter.hasNext()) {
-                    DelayedWorkQueue dq = iter.next();
-                    iter.remove();
-                    snoozedOverflowCount.decrementAndGet();
-                    WorkQueue queue = dq.getWorkQueue(this);
-                    synchronized(queue) {
-                        queue.setWakeTime(0);
-                        queue.makeDirty();
-                    }
-                    reenqueueQueue(queue);
-                }
-            }
-        }
     }
     
     /**
@@ -940,7 +1142,9 @@ implements Closeable,
             wq.setSessionBudget(getBalanceReplenishAmount());
             wq.setTotalBudget(getQueueTotalBudget());
 
-            if ((wq.peek(this) != curi)) throw new AssertionError("unexpected peek " + wq);
+            LeasedBatch batch = wq.getLeasedBatch();
+            boolean companion = batch != null && batch.isCompanion(curi);
+            if (!companion && wq.peek(this) != curi) throw new AssertionError("unexpected peek " + wq);
 
             int holderCost = curi.getHolderCost();
 
@@ -953,9 +1157,11 @@ implements Closeable,
                 long delay_ms = retryDelayFor(curi) * 1000;
                 curi.processingCleanup(); // lose state that shouldn't burden
                                           // retry
-                wq.unpeek(curi);
+                if (!companion) {
+                    wq.unpeek(curi);
+                }
                 wq.update(this, curi); // rewrite any changes
-                handleQueue(wq, curi.includesRetireDirective(), now, delay_ms);
+                handleQueue(wq, curi, curi.includesRetireDirective(), now, delay_ms);
                 appCtx.publishEvent(new CrawlURIDispositionEvent(this, curi,
                         DEFERRED_FOR_RETRY));
                 doJournalReenqueued(curi);
@@ -965,7 +1171,11 @@ implements Closeable,
 
             // Curi will definitely be disposed of without retry, so remove from
             // queue
-            wq.dequeue(this, curi);
+            if (companion) {
+                wq.dequeueCompanion(this, curi);
+            } else {
+                wq.dequeue(this, curi);
+            }
             decrementQueuedCount(1);
             largestQueues.update(wq.getClassKey(), wq.getCount());
             log(curi);
@@ -1011,8 +1221,9 @@ implements Closeable,
 
             wq.expend(holderCost); // successes & failures charge cost to queue
 
-            long delay_ms = curi.getPolitenessDelay();
-            handleQueue(wq,curi.includesRetireDirective(),now,delay_ms);
+            // a batch's politeness is by bandwidth, once all are finished
+            long delay_ms = (batch == null) ? curi.getPolitenessDelay() : 0;
+            handleQueue(wq,curi,curi.includesRetireDirective(),now,delay_ms);
             wq.makeDirty();
         }
         
@@ -1020,14 +1231,45 @@ implements Closeable,
             // marked up for forced-revisit at a set time
             curi.processingCleanup();
             curi.resetForRescheduling(); 
-            futureUris.put(curi.getRescheduleTime(),curi);
-            futureUriCount.incrementAndGet(); 
+            try {
+                futureUris.add(curi);
+                futureUriCount.incrementAndGet(); 
+            } catch (DatabaseException e) {
+                throw new RuntimeException(e);
+            }
         } else {
             curi.stripToMinimal();
             curi.processingCleanup();
         }
     }
     
+    /**
+     * Send an active queue to its next state, as for
+     * {@link #handleQueue(WorkQueue, boolean, long, long)}, once the given
+     * URI from it is finished; but if the URI was one of a leased batch, 
+     * only once the last of the batch is finished.
+     * 
+     * @param wq
+     * @param curi URI finished
+     * @param forceRetire
+     * @param now
+     * @param delay_ms
+     */
+    protected void handleQueue(WorkQueue wq, CrawlURI curi, boolean forceRetire,
+            long now, long delay_ms) {
+        LeasedBatch batch = wq.getLeasedBatch();
+        if (batch != null) {
+            if (!batch.finished(curi, forceRetire, delay_ms)) {
+                // others of the batch still out; queue stays in-process
+                return;
+            }
+            forceRetire = batch.isRetire();
+            delay_ms = batch.getSnoozeMs(now);
+            wq.endLeasedBatch();
+        }
+        handleQueue(wq, forceRetire, now, delay_ms);
+    }
+
     /**
      * Send an active queue to its next state, based on the supplied 
      * parameters.
@@ -1038,7 +1280,7 @@ implements Closeable,
      * @param delay_ms
      */
     protected void handleQueue(WorkQueue wq, boolean forceRetire, long now, long delay_ms) {
-        inProcessQueues.remove(wq);
+        releaseInProcess(wq);
         if(forceRetire) {
             retireQueue(wq);
         } else if (delay_ms > 0) {
@@ -1060,15 +1302,12 @@ implements Closeable,
     protected void snoozeQueue(WorkQueue wq, long now, long delay_ms) {
         long nextTime = now + delay_ms;
         wq.setWakeTime(nextTime);
-        DelayedWorkQueue dq = new DelayedWorkQueue(wq);
-        if(snoozedClassQueues.size()<MAX_SNOOZED_IN_MEMORY) {
-            snoozedClassQueues.add(dq);
-        } else {
-            synchronized(snoozedOverflow) {
-                snoozedOverflow.put(nextTime, dq);
-                snoozedOverflowCount.incrementAndGet();
-            }
+        if (delay_ms >= getSnoozeLongMs()) {
+            // not worth holding read-ahead URIs for
+            wq.discardPrefetched();
         }
+        snoozedClassQueues.add(new DelayedWorkQueue(wq),
+                delay_ms >= getSnoozeLongMs());
     }
 
     /**
@@ -1282,6 +1521,20 @@ implements Closeable,
         writer.print("  Disregarded:  ");
         writer.print(Long.toString(disregardedUriCount()));
         writer.print("\n");
+        if (futureUris != null) {
+            LatencyHistogram lateness = futureUris.getLateness();
+            writer.print(" Future:        ");
+            writer.print(Long.toString(futureUris.size()));
+            writer.print(" (");
+            writer.print(futureUris.getDueCount(System.currentTimeMillis()));
+            writer.print(" due; release lateness ms p50 ");
+            writer.print(lateness.getPercentile(0.5));
+            writer.print(", p99 ");
+            writer.print(lateness.getPercentile(0.99));
+            writer.print(", max ");
+            writer.print(lateness.getMax());
+            writer.print(")\n");
+        }
         writer.print("\n -----===== QUEUES =====-----\n");
         writer.print(" Already included size:     ");
         writer.print(Long.toString(uriUniqFilter.count()));
@@ -1289,6 +1542,17 @@ implements Closeable,
         writer.print("               pending:     ");
         writer.print(Long.toString(uriUniqFilter.pending()));
         writer.print("\n");
+        if (uriUniqFilter instanceof Reporter) {
+            writer.print("        uniq filter stats: ");
+            writer.print(((Reporter) uriUniqFilter).shortReportLegend());
+            writer.print("\n                           ");
+            try {
+                ((Reporter) uriUniqFilter).shortReportLineTo(writer);
+            } catch (IOException e) {
+                // not thrown by PrintWriter
+            }
+            writer.print("\n");
+        }
         writer.print("\n All class queues map size: ");
         writer.print(Long.toString(allCount));
         writer.print("\n");
@@ -1304,6 +1568,18 @@ implements Closeable,
         writer.print("                       Snoozed: ");
         writer.print(snoozedCount);
         writer.print("\n");
+        LatencyHistogram wakeLag = snoozedClassQueues.getWakeLag();
+        writer.print("          Snooze wake lag (ms): p50 ");
+        writer.print(wakeLag.getPercentile(0.5));
+        writer.print(", p90 ");
+        writer.print(wakeLag.getPercentile(0.9));
+        writer.print(", p99 ");
+        writer.print(wakeLag.getPercentile(0.99));
+        writer.print(", max ");
+        writer.print(wakeLag.getMax());
+        writer.print(" (");
+        writer.print(wakeLag.getCount());
+        writer.print(" wakes)\n");
         writer.print("           Inactive queues: ");
         writer.print(inactiveCount);
         writer.print(" (");
@@ -1346,8 +1622,8 @@ implements Closeable,
             this.readyClassQueues.size(), maxQueuesPerReportCategory);
         
         writer.print("\n -----===== SNOOZED QUEUES =====-----\n");
-        Object[] objs = snoozedClassQueues.toArray();
-        DelayedWorkQueue[] qs = Arrays.copyOf(objs,objs.length,DelayedWorkQueue[].class);
+        DelayedWorkQueue[] qs = snoozedClassQueues.memorySnapshot()
+            .toArray(new DelayedWorkQueue[0]);
         Arrays.sort(qs);
         appendQueueReports(writer, "SNOOZED", new ObjectArrayIterator(qs), getSnoozedCount(), maxQueuesPerReportCategory);
         
@@ -1384,8 +1660,7 @@ implements Closeable,
         queueSingleLinesTo(writer, this.readyClassQueues.iterator());
 
         writer.print("\n -----===== SNOOZED QUEUES =====-----\n");
-        queueSingleLinesTo(writer, this.snoozedClassQueues.iterator());
-        queueSingleLinesTo(writer, this.snoozedOverflow.values().iterator());
+        queueSingleLinesTo(writer, this.snoozedClassQueues.snapshot().iterator());
         
         writer.print("\n -----===== INACTIVE QUEUES =====-----\n");
         for(Queue<String> inactiveQueues : getInactiveQueuesByPrecedence().values()) {
@@ -1573,7 +1848,7 @@ implements Closeable,
     }
     
     protected int getSnoozedCount() {
-        return snoozedClassQueues.size() + snoozedOverflowCount.get();
+        return snoozedClassQueues.size();
     }
     
     public float congestionRatio() {
@@ -29,13 +29,13 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 
+import org.archive.bdb.VersionedKryoBinding;
 import org.archive.modules.recrawl.PersistProcessor;
 import org.archive.util.ArchiveUtils;
 import org.archive.util.FileUtils;
 import org.archive.util.bdbje.EnhancedEnvironment;
 import org.archive.util.iterator.LineReadingIterator;
 
-import com.sleepycat.bind.serial.SerialBinding;
 import com.sleepycat.bind.serial.StoredClassCatalog;
 import com.sleepycat.bind.tuple.StringBinding;
 import com.sleepycat.collections.StoredSortedMap;
@@ -111,7 +111,7 @@ public class PrecedenceLoader {
                 PersistProcessor.HISTORY_DB_CONFIG.toDatabaseConfig());
         @SuppressWarnings({ "rawtypes", "unchecked" })
         StoredSortedMap<String, Object> historyMap = new StoredSortedMap<String, Object>(historyDB,
-                new StringBinding(), new SerialBinding(classCatalog, Map.class), true);
+                new StringBinding(), new VersionedKryoBinding(classCatalog, Map.class), true);
         
         int count = 0;
         
@@ -23,12 +23,12 @@ import static org.archive.modules.CoreAttributeConstants.A_PRECALC_PRECEDENCE;
 import java.util.Map;
 
 import org.archive.bdb.BdbModule;
+import org.archive.bdb.VersionedKryoBinding;
 import org.archive.modules.CrawlURI;
 import org.archive.modules.recrawl.PersistProcessor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.Lifecycle;
 
-import com.sleepycat.bind.serial.SerialBinding;
 import com.sleepycat.bind.serial.StoredClassCatalog;
 import com.sleepycat.bind.tuple.StringBinding;
 import com.sleepycat.collections.StoredSortedMap;
@@ -81,7 +81,7 @@ implements Lifecycle {
             BdbModule.BdbConfig dbConfig = PersistProcessor.HISTORY_DB_CONFIG;
 
             historyDb = bdb.openDatabase(dbName, dbConfig, true);
-            SerialBinding sb = new SerialBinding(classCatalog, Map.class);
+            VersionedKryoBinding<Map> sb = new VersionedKryoBinding<Map>(classCatalog, Map.class);
             StoredSortedMap historyMap = new StoredSortedMap(historyDb, new StringBinding(), sb, true);
             store = historyMap;
         } catch (DatabaseException e) {
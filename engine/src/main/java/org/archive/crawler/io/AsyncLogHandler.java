@@ -0,0 +1,313 @@
+/*
+ *  This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ *  Licensed to the Internet Archive (IA) by one or more individual
+ *  contributors.
+ *
+ *  The IA licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.archive.crawler.io;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.ErrorManager;
+import java.util.logging.Formatter;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.zip.GZIPOutputStream;
+
+import org.archive.io.GenerationFileHandler;
+import org.archive.io.Preformatter;
+
+/**
+ * Log handler which leaves the writing of log lines to a thread of its
+ * own, so that threads logging, such as the ToeThreads writing crawl.log,
+ * neither contend on a lock nor wait on a write.
+ *
+ * <p>Lines are formatted by the logging thread and handed over through a
+ * bounded lock-free ring buffer. The writer thread writes them in batches
+ * through a buffered, optionally gzip-compressed stream, flushing when it
+ * runs out of lines and at least every flushIntervalMs; if sync is set,
+ * each such flush is followed by an fsync of the file. When the buffer is
+ * full, logging threads either wait for room or drop their line,
+ * according to the OverflowPolicy.
+ *
+ * <p>The file itself, its naming and its rotation into generations are
+ * those of a GenerationFileHandler, which is kept open on the file but
+ * never written to, so rotation at checkpoint works as for the
+ * synchronous handlers.
+ */
+public class AsyncLogHandler extends Handler {
+    /**
+     * What a logging thread does when the buffer is full.
+     */
+    public enum OverflowPolicy {
+        /** wait for the writer thread to make room */
+        BLOCK,
+        /** drop the line, counting it */
+        DROP
+    }
+
+    protected static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    protected GenerationFileHandler generations;
+    protected final boolean compress;
+    protected final boolean sync;
+    protected final long flushIntervalMs;
+    protected final OverflowPolicy overflowPolicy;
+
+    protected final AtomicReferenceArray<String> ring;
+    protected final int mask;
+    /** sequence of the next line to be claimed by a logging thread */
+    protected final AtomicLong tail = new AtomicLong();
+    /** sequence of the next line for the writer thread; written only by it */
+    protected volatile long head = 0;
+    /** sequence up to which lines are written and flushed */
+    protected volatile long flushed = 0;
+    protected final AtomicLong dropped = new AtomicLong();
+
+    protected FileOutputStream fileOut;
+    protected Writer writer;
+    protected final Thread writerThread;
+    protected volatile boolean closed = false;
+    protected volatile boolean flushRequested = false;
+
+    /**
+     * @param generations handler for the file to write, whose formatter
+     * is used
+     * @param capacity most lines held waiting to be written; rounded up to
+     * a power of two
+     * @param overflowPolicy what to do when that many are waiting
+     * @param flushIntervalMs longest time written lines may wait in the
+     * stream's buffer
+     * @param sync whether to fsync the file after each flush
+     * @param compress whether to gzip the output
+     */
+    public AsyncLogHandler(GenerationFileHandler generations, int capacity,
+            OverflowPolicy overflowPolicy, long flushIntervalMs, boolean sync,
+            boolean compress) throws IOException {
+        this.generations = generations;
+        this.overflowPolicy = overflowPolicy;
+        this.flushIntervalMs = flushIntervalMs;
+        this.sync = sync;
+        this.compress = compress;
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.ring = new AtomicReferenceArray<String>(size);
+        this.mask = size - 1;
+        setFormatter(generations.getFormatter());
+        setEncoding(generations.getEncoding());
+        openFile();
+        writerThread = new Thread(this::writeLoop,
+                "AsyncLogHandler-" + getCurrentFilename());
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    public GenerationFileHandler getGenerations() {
+        return generations;
+    }
+
+    public String getCurrentFilename() {
+        return generations.getFilenameSeries().get(0);
+    }
+
+    /**
+     * @return number of lines dropped because the buffer was full
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    @Override
+    public void publish(LogRecord record) {
+        if (closed || !isLoggable(record)) {
+            return;
+        }
+        String line;
+        try {
+            Formatter f = getFormatter();
+            if (f instanceof Preformatter) {
+                ((Preformatter) f).preformat(record);
+                try {
+                    line = f.format(record);
+                } finally {
+                    ((Preformatter) f).clear();
+                }
+            } else {
+                line = f.format(record);
+            }
+        } catch (RuntimeException e) {
+            reportError(null, e, ErrorManager.FORMAT_FAILURE);
+            return;
+        }
+        offer(line);
+    }
+
+    /**
+     * Put a line in the ring buffer for the writer thread.
+     */
+    protected void offer(String line) {
+        long seq;
+        while (true) {
+            seq = tail.get();
+            if (seq - head > mask) {
+                // full
+                if (overflowPolicy == OverflowPolicy.DROP || closed) {
+                    dropped.incrementAndGet();
+                    return;
+                }
+                LockSupport.unpark(writerThread);
+                Thread.onSpinWait();
+                LockSupport.parkNanos(10000);
+                continue;
+            }
+            if (tail.compareAndSet(seq, seq + 1)) {
+                break;
+            }
+        }
+        ring.lazySet((int) seq & mask, line);
+    }
+
+    protected void writeLoop() {
+        long lastFlush = System.currentTimeMillis();
+        boolean unflushed = false;
+        while (true) {
+            boolean exit = closed;
+            long end = tail.get();
+            int written = 0;
+            synchronized (this) {
+                try {
+                    while (head < end) {
+                        int i = (int) head & mask;
+                        String line = ring.get(i);
+                        if (line == null) {
+                            // claimed but not yet stored; get it next time
+                            break;
+                        }
+                        ring.lazySet(i, null);
+                        head = head + 1;
+                        writer.write(line);
+                        written++;
+                    }
+                    unflushed |= written > 0;
+                    long now = System.currentTimeMillis();
+                    boolean caughtUp = head == tail.get();
+                    if (unflushed && (caughtUp || now - lastFlush >= flushIntervalMs
+                            || flushRequested)) {
+                        writer.flush();
+                        if (sync) {
+                            fileOut.getChannel().force(false);
+                        }
+                        lastFlush = now;
+                        unflushed = false;
+                    }
+                    if (!unflushed) {
+                        flushed = head;
+                        flushRequested = false;
+                    }
+                } catch (IOException e) {
+                    reportError(null, e, ErrorManager.WRITE_FAILURE);
+                }
+            }
+            if (exit && head == tail.get()) {
+                return;
+            }
+            if (written == 0) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Wait until all lines published so far are written and flushed.
+     */
+    @Override
+    public void flush() {
+        long target = tail.get();
+        while (flushed < target && writerThread.isAlive()) {
+            flushRequested = true;
+            LockSupport.unpark(writerThread);
+            LockSupport.parkNanos(100000);
+        }
+    }
+
+    protected void openFile() throws IOException {
+        fileOut = new FileOutputStream(getCurrentFilename(), true);
+        OutputStream out = new BufferedOutputStream(fileOut, 64 * 1024);
+        if (compress) {
+            out = new GZIPOutputStream(out, 8 * 1024, true);
+        }
+        Charset charset = getEncoding() == null ? Charset.defaultCharset()
+                : Charset.forName(getEncoding());
+        writer = new OutputStreamWriter(out, charset);
+    }
+
+    protected void closeFile() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            reportError(null, e, ErrorManager.CLOSE_FAILURE);
+        }
+    }
+
+    /**
+     * Rotate the file, as GenerationFileHandler does, after writing out
+     * all lines published so far. Lines published meanwhile go to the new
+     * file.
+     *
+     * @return this handler, now writing to the new file
+     * @see GenerationFileHandler#rotate(String, String, boolean)
+     */
+    public AsyncLogHandler rotate(String storeSuffix, String activeSuffix,
+            boolean mergeOld) throws IOException {
+        flush();
+        synchronized (this) {
+            closeFile();
+            generations = generations.rotate(storeSuffix, activeSuffix, mergeOld);
+            openFile();
+        }
+        return this;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            closeFile();
+            generations.close();
+        }
+        if (dropped.get() > 0) {
+            reportError(dropped.get() + " lines dropped from "
+                    + getCurrentFilename() + " with buffer full", null,
+                    ErrorManager.GENERIC_FAILURE);
+        }
+    }
+}
@@ -24,8 +24,8 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.logging.FileHandler;
 import java.util.logging.Formatter;
+import java.util.logging.Handler;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.logging.SimpleFormatter;
@@ -34,6 +34,8 @@ import org.archive.url.URIException;
 import org.archive.checkpointing.Checkpoint;
 import org.archive.checkpointing.Checkpointable;
 import org.archive.crawler.framework.Engine;
+import org.archive.crawler.io.AsyncLogHandler;
+import org.archive.crawler.io.AsyncLogHandler.OverflowPolicy;
 import org.archive.crawler.io.NonFatalErrorFormatter;
 import org.archive.crawler.io.RuntimeErrorFormatter;
 import org.archive.crawler.io.StatisticsLogFormatter;
@@ -85,6 +87,79 @@ public class CrawlerLoggerModule
         this.logExtraInfo = logExtraInfo;
     }
     
+    /**
+     * Whether crawl.log and the other crawl-wide logs, except alerts, are
+     * written by a thread of their own, so that the threads logging need
+     * not wait on writes or each other. See the asyncLog* settings.
+     */
+    protected boolean asyncLogging = false;
+    public boolean getAsyncLogging() {
+        return asyncLogging;
+    }
+    public void setAsyncLogging(boolean asyncLogging) {
+        this.asyncLogging = asyncLogging;
+    }
+
+    /**
+     * With asyncLogging, most lines of each log held waiting to be written.
+     */
+    protected int asyncLogBufferSize = 16384;
+    public int getAsyncLogBufferSize() {
+        return asyncLogBufferSize;
+    }
+    public void setAsyncLogBufferSize(int asyncLogBufferSize) {
+        this.asyncLogBufferSize = asyncLogBufferSize;
+    }
+
+    /**
+     * With asyncLogging, whether a thread logging to a full buffer waits
+     * for room (BLOCK) or drops its line (DROP).
+     */
+    protected OverflowPolicy asyncLogOverflowPolicy = OverflowPolicy.BLOCK;
+    public OverflowPolicy getAsyncLogOverflowPolicy() {
+        return asyncLogOverflowPolicy;
+    }
+    public void setAsyncLogOverflowPolicy(OverflowPolicy asyncLogOverflowPolicy) {
+        this.asyncLogOverflowPolicy = asyncLogOverflowPolicy;
+    }
+
+    /**
+     * With asyncLogging, longest time written lines may wait in the
+     * output buffer before being flushed to the file.
+     */
+    protected long asyncLogFlushIntervalMs = 1000;
+    public long getAsyncLogFlushIntervalMs() {
+        return asyncLogFlushIntervalMs;
+    }
+    public void setAsyncLogFlushIntervalMs(long asyncLogFlushIntervalMs) {
+        this.asyncLogFlushIntervalMs = asyncLogFlushIntervalMs;
+    }
+
+    /**
+     * With asyncLogging, whether each flush of a log is followed by an
+     * fsync, so that logs survive a crash of the machine up to the last
+     * flush.
+     */
+    protected boolean asyncLogSync = false;
+    public boolean getAsyncLogSync() {
+        return asyncLogSync;
+    }
+    public void setAsyncLogSync(boolean asyncLogSync) {
+        this.asyncLogSync = asyncLogSync;
+    }
+
+    /**
+     * With asyncLogging, whether to gzip the logs, whose names then end
+     * in ".gz". Compressed logs cannot be viewed in the web UI.
+     */
+    protected boolean compressLogs = false;
+    public boolean getCompressLogs() {
+        return compressLogs;
+    }
+    public void setCompressLogs(boolean compressLogs) {
+        this.compressLogs = compressLogs;
+    }
+    
     // manifest support
     /** abbreviation label for config files in manifest */
     public static final char MANIFEST_CONFIG_FILE = 'C';
@@ -198,7 +273,7 @@ public class CrawlerLoggerModule
      * Record of fileHandlers established for loggers,
      * assisting file rotation.
      */
-    transient private Map<Logger,FileHandler> fileHandlers;
+    transient private Map<Logger,Handler> fileHandlers;
 
     private StringBuffer manifest = new StringBuffer();
     
@@ -245,7 +320,7 @@ public class CrawlerLoggerModule
         progressStats = Logger.getLogger(LOGNAME_PROGRESS_STATISTICS + "." +
             logsPath);
 
-        this.fileHandlers = new HashMap<Logger,FileHandler>();
+        this.fileHandlers = new HashMap<Logger,Handler>();
         setupLogFile(uriProcessing,
             getCrawlLogPath().getFile().getAbsolutePath(),
             new UriProcessingFormatter(getLogExtraInfo()), true);
@@ -272,9 +347,18 @@ public class CrawlerLoggerModule
     private void setupLogFile(Logger logger, String filename, Formatter f,
             boolean shouldManifest) throws IOException, SecurityException {
         logger.setLevel(Level.INFO); // set all standard loggers to INFO
-        GenerationFileHandler fh = GenerationFileHandler.makeNew(filename, false,
+        if (getAsyncLogging() && getCompressLogs()) {
+            filename = filename + ".gz";
+        }
+        GenerationFileHandler gfh = GenerationFileHandler.makeNew(filename, false,
             shouldManifest);
-        fh.setFormatter(f);
+        gfh.setFormatter(f);
+        Handler fh = gfh;
+        if (getAsyncLogging()) {
+            fh = new AsyncLogHandler(gfh, getAsyncLogBufferSize(),
+                    getAsyncLogOverflowPolicy(), getAsyncLogFlushIntervalMs(),
+                    getAsyncLogSync(), getCompressLogs());
+        }
         logger.addHandler(fh);
         addToManifest(filename, MANIFEST_LOG_FILE, shouldManifest);
         logger.setUseParentHandlers(false);
@@ -327,7 +411,18 @@ public class CrawlerLoggerModule
     protected void rotateLogFiles(String generationSuffix, boolean mergeOld)
             throws IOException {
         for (Logger l : fileHandlers.keySet()) {
-            GenerationFileHandler gfh = (GenerationFileHandler) fileHandlers.get(l);
+            Handler h = fileHandlers.get(l);
+            if (h instanceof AsyncLogHandler) {
+                // rotates in place
+                GenerationFileHandler newGfh = ((AsyncLogHandler) h).rotate(
+                        generationSuffix, "", mergeOld).getGenerations();
+                if (newGfh.shouldManifest()) {
+                    addToManifest((String) newGfh.getFilenameSeries().get(1),
+                            MANIFEST_LOG_FILE, newGfh.shouldManifest());
+                }
+                continue;
+            }
+            GenerationFileHandler gfh = (GenerationFileHandler) h;
             GenerationFileHandler newGfh = gfh.rotate(generationSuffix, "", mergeOld);
             
             if (gfh.shouldManifest()) {
@@ -347,10 +442,9 @@ public class CrawlerLoggerModule
     public void closeLogFiles() {
         if (fileHandlers != null) {
             for (Logger l: fileHandlers.keySet()) {
-                GenerationFileHandler gfh =
-                        (GenerationFileHandler)fileHandlers.get(l);
-                gfh.close();
-                l.removeHandler(gfh);
+                Handler h = fileHandlers.get(l);
+                h.close();
+                l.removeHandler(h);
             }
         }
     }
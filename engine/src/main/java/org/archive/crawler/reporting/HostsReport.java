@@ -20,7 +20,9 @@
 package org.archive.crawler.reporting;
 
 import java.io.PrintWriter;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -74,11 +76,33 @@ public class HostsReport extends Report {
 		this.suppressEmptyHosts = suppressEmptyHosts;
 	}
 	
+    int maxHosts = -1;
+    public int getMaxHosts() {
+        return maxHosts;
+    }
+    /**
+     * The maximum number of hosts listed, those with the most URLs. If positive, they are found 
+     * in one pass over all hosts holding only that many, and listed sorted whatever maxSortSize. 
+     * Default -1, all hosts.
+     * 
+     * This value can not be overridden by a sheet. It may be safely edited at runtime.
+     * 
+     * @param maxHosts
+     */
+    public void setMaxHosts(int maxHosts) {
+        this.maxHosts = maxHosts;
+    }
+	
 	@Override
     public void write(final PrintWriter writer, StatisticsTracker stats) {
     	Collection<String> keys = null;
     	DisposableStoredSortedMap<Long, String> hd = null;
-    	if (maxSortSize<0 || maxSortSize>stats.serverCache.hostKeys().size()) {
+    	if (maxHosts > 0) {
+    		keys = new ArrayList<String>(maxHosts);
+    		for (Map.Entry<?, Long> entry : stats.calcTopHostsDistribution(maxHosts).getEntriesDescending()) {
+    			keys.add((String) entry.getKey());
+    		}
+    	} else if (maxSortSize<0 || maxSortSize>stats.serverCache.hostKeys().size()) {
     		hd = stats.calcReverseSortedHostsDistribution();
         	keys = hd.values();
         } else {
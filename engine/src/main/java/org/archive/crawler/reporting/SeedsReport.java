@@ -23,6 +23,7 @@ import java.util.Iterator;
 import java.util.Map;
 
 import org.archive.bdb.DisposableStoredSortedMap;
+import org.archive.crawler.util.TopNSet;
 
 import com.sleepycat.collections.StoredIterator;
 
@@ -34,11 +35,35 @@ import com.sleepycat.collections.StoredIterator;
  */
 public class SeedsReport extends Report {
 
+    int maxSeeds = -1;
+    public int getMaxSeeds() {
+        return maxSeeds;
+    }
+    /**
+     * The maximum number of seeds listed, in the usual order (highest 
+     * status code first). If positive, they are found in one pass over the
+     * seeds holding only that many; otherwise all seed records are copied
+     * to a temporary on-disk map for sorting. The totals are of all seeds
+     * either way. Default -1, all seeds.
+     * 
+     * This value can not be overridden by a sheet. It may be safely edited at runtime.
+     * 
+     * @param maxSeeds
+     */
+    public void setMaxSeeds(int maxSeeds) {
+        this.maxSeeds = maxSeeds;
+    }
+
     @Override
     public void write(PrintWriter writer, StatisticsTracker stats) {
         // Build header.
         writer.print("[code] [status] [seed] [redirect]\n");
 
+        if (maxSeeds > 0) {
+            writeTopSeeds(writer, stats);
+            return;
+        }
+
         long seedsCrawled = 0;
         long seedsTotal = 0;
         DisposableStoredSortedMap<Integer, SeedRecord> seedsByCode = stats.calcSeedRecordsSortedByStatusCode();
@@ -47,22 +72,11 @@ public class SeedsReport extends Report {
         while(iter.hasNext()) {
             Map.Entry<Integer,SeedRecord> entry = iter.next();
             SeedRecord sr = entry.getValue();
-            writer.print(sr.getStatusCode());
-            writer.print(" ");
             seedsTotal++;
             if((sr.getStatusCode() > 0)) {
                 seedsCrawled++;
-                writer.print("CRAWLED");
-            } else {
-                writer.print("NOTCRAWLED");
             }
-            writer.print(" ");
-            writer.print(sr.getUri());
-            if(sr.getRedirectUri()!=null) {
-                writer.print(" ");
-                writer.print(sr.getRedirectUri());
-            }
-            writer.print("\n");
+            writeSeedLine(writer, sr);
         }
         StoredIterator.close(iter);
         seedsByCode.dispose();
@@ -70,6 +84,43 @@ public class SeedsReport extends Report {
         stats.seedsCrawled = seedsCrawled; 
     }
 
+    protected void writeTopSeeds(PrintWriter writer, StatisticsTracker stats) {
+        long seedsCrawled = 0;
+        long seedsTotal = 0;
+        TopNSet topSeeds = new TopNSet(maxSeeds);
+        Iterator<String> iter = stats.getSeedsIterator();
+        while (iter.hasNext()) {
+            SeedRecord sr = stats.getSeedRecord(iter.next());
+            seedsTotal++;
+            if((sr.getStatusCode() > 0)) {
+                seedsCrawled++;
+            }
+            topSeeds.update(sr.getUri(), sr.getStatusCode());
+        }
+        for (Map.Entry<?, Long> entry : topSeeds.getEntriesDescending()) {
+            writeSeedLine(writer, stats.getSeedRecord((String) entry.getKey()));
+        }
+        stats.seedsTotal = seedsTotal;
+        stats.seedsCrawled = seedsCrawled; 
+    }
+
+    protected void writeSeedLine(PrintWriter writer, SeedRecord sr) {
+        writer.print(sr.getStatusCode());
+        writer.print(" ");
+        if((sr.getStatusCode() > 0)) {
+            writer.print("CRAWLED");
+        } else {
+            writer.print("NOTCRAWLED");
+        }
+        writer.print(" ");
+        writer.print(sr.getUri());
+        if(sr.getRedirectUri()!=null) {
+            writer.print(" ");
+            writer.print(sr.getRedirectUri());
+        }
+        writer.print("\n");
+    }
+
     @Override
     public String getFilename() {
         return "seeds-report.txt";
@@ -0,0 +1,156 @@
+/*
+ *  This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ *  Licensed to the Internet Archive (IA) by one or more individual
+ *  contributors.
+ *
+ *  The IA licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.archive.crawler.reporting;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.Set;
+
+import org.archive.bdb.AutoKryo;
+import org.archive.crawler.util.CrawledBytesHistotable;
+import org.archive.modules.CrawlURI;
+import org.archive.util.Histotable;
+import org.archive.util.IdentityCacheable;
+import org.archive.util.ObjectIdentityCache;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+/**
+ * Tallies of the URIs crawled from one source tag (usually a seed): bytes
+ * and URIs by kind, and URIs by host.
+ *
+ * <p>Kept in an ObjectIdentityCache, so that with a BDB-backed cache only
+ * recently used sources are held in memory, and tallies changed since
+ * they were last written are written back to disk.
+ */
+public class SourceStats implements Serializable, IdentityCacheable {
+    private static final long serialVersionUID = 1L;
+
+    private final String source;
+    protected final CrawledBytesHistotable stats;
+    protected final Histotable<String> hostCounts;
+
+    public SourceStats(String source) {
+        this.source = source;
+        this.stats = new CrawledBytesHistotable();
+        this.hostCounts = new Histotable<String>();
+    }
+
+    /**
+     * Tally a URI crawled from this source.
+     *
+     * @param curi URI finished
+     * @param hostname name of its host
+     */
+    public void tally(CrawlURI curi, String hostname) {
+        stats.accumulate(curi);
+        hostCounts.tally(hostname);
+        makeDirty();
+    }
+
+    /**
+     * @return Returns the source tag.
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * @return Returns the tallies of bytes and URIs by kind.
+     */
+    public CrawledBytesHistotable getStats() {
+        return stats;
+    }
+
+    /**
+     * @return Returns the tallies of URIs by host; synchronize on it to
+     * iterate.
+     */
+    public Histotable<String> getHostCounts() {
+        return hostCounts;
+    }
+
+    /**
+     * Write as the source tag then counted key/value pairs, holding the
+     * tallies' locks so that no concurrent tally is half-written.
+     */
+    public static void autoregisterTo(AutoKryo kryo) {
+        kryo.register(SourceStats.class, new Serializer<SourceStats>() {
+            @Override
+            public void write(Kryo kryo, Output output, SourceStats ss) {
+                output.writeString(ss.source);
+                synchronized (ss.stats) {
+                    writeCounts(output, ss.stats);
+                }
+                synchronized (ss.hostCounts) {
+                    writeCounts(output, ss.hostCounts);
+                }
+            }
+
+            @Override
+            public SourceStats read(Kryo kryo, Input input,
+                    Class<? extends SourceStats> type) {
+                SourceStats ss = new SourceStats(input.readString());
+                readCounts(input, ss.stats);
+                readCounts(input, ss.hostCounts);
+                return ss;
+            }
+        });
+    }
+
+    protected static void writeCounts(Output output, Map<String,Long> counts) {
+        // size() and entrySet() each fold in lock-free adds; fold once, so
+        // the count written matches the entries that follow
+        Set<Map.Entry<String,Long>> entries = counts.entrySet();
+        output.writeVarInt(entries.size(), true);
+        for (Map.Entry<String,Long> entry : entries) {
+            output.writeString(entry.getKey());
+            output.writeVarLong(entry.getValue(), true);
+        }
+    }
+
+    protected static void readCounts(Input input, Map<String,Long> counts) {
+        int size = input.readVarInt(true);
+        for (int i = 0; i < size; i++) {
+            counts.put(input.readString(), input.readVarLong(true));
+        }
+    }
+
+    //
+    // IdentityCacheable support
+    //
+    transient private ObjectIdentityCache<?> cache;
+    @Override
+    public String getKey() {
+        return source;
+    }
+
+    @Override
+    public void makeDirty() {
+        cache.dirtyKey(getKey());
+    }
+
+    @Override
+    public void setIdentityCache(ObjectIdentityCache<?> cache) {
+        this.cache = cache;
+    }
+}
@@ -20,10 +20,10 @@ package org.archive.crawler.reporting;
 
 import java.io.PrintWriter;
 import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.atomic.AtomicLong;
 
 import org.archive.bdb.DisposableStoredSortedMap;
+import org.archive.crawler.util.TopNSet;
+import org.archive.util.Histotable;
 
 /**
  * The "Source Report", tallies of source tags (usually seeds) by host.
@@ -32,37 +32,74 @@ import org.archive.bdb.DisposableStoredSortedMap;
  */
 public class SourceTagsReport extends Report {
 
+    int maxHostsPerSource = -1;
+    public int getMaxHostsPerSource() {
+        return maxHostsPerSource;
+    }
+    /**
+     * The maximum number of hosts listed for each source, those with the
+     * most URLs. If positive, they are found in one pass over the source's
+     * hosts holding only that many; otherwise all hosts are listed, sorted
+     * through a temporary on-disk map. Default -1, all hosts.
+     * 
+     * This value can not be overridden by a sheet. It may be safely edited at runtime.
+     * 
+     * @param maxHostsPerSource
+     */
+    public void setMaxHostsPerSource(int maxHostsPerSource) {
+        this.maxHostsPerSource = maxHostsPerSource;
+    }
+
     @Override
     public void write(PrintWriter writer, StatisticsTracker stats) {
 
-        Set<String> sourceTags = stats.sourceHostDistribution.keySet();
-        
-        if(sourceTags.isEmpty()) {
+        if(stats.sourceStats.size() == 0) {
             writer.println("No source tag information. (Is 'sourceTagSeeds' enabled?)");
             return; 
         }
         
         writer.print("[source] [host] [#urls]\n");
-        // for each source
-        for (String sourceKey : sourceTags) {
-            Map<String,AtomicLong> hostCounts = 
-                (Map<String,AtomicLong>)stats.sourceHostDistribution.get(sourceKey);
+        // for each source, read back from disk as needed
+        for (String sourceKey : stats.sourceStats.keySet()) {
+            SourceStats sourceStats = stats.sourceStats.get(sourceKey);
+            if (sourceStats == null) {
+                continue;
+            }
+            Histotable<String> hostCounts = sourceStats.getHostCounts();
+            if (maxHostsPerSource > 0) {
+                TopNSet topHosts = new TopNSet(maxHostsPerSource);
+                synchronized (hostCounts) {
+                    for (Map.Entry<String, Long> entry : hostCounts.entrySet()) {
+                        topHosts.update(entry.getKey(), entry.getValue());
+                    }
+                }
+                for (Map.Entry<?, Long> entry : topHosts.getEntriesDescending()) {
+                    writeReportLine(writer, sourceKey, entry.getKey(), entry.getValue());
+                }
+                continue;
+            }
             // sort hosts by #urls
             DisposableStoredSortedMap<Long,String> sortedHostCounts = 
                 stats.getReverseSortedHostCounts(hostCounts);
             // for each host
             for (Map.Entry<Long, String> entry : sortedHostCounts.entrySet()) {
-                writer.print(sourceKey.toString());
-                writer.print(" ");
-                writer.print(entry.getValue());
-                writer.print(" ");
-                writer.print(Math.abs(entry.getKey()));
-                writer.print("\n");
+                writeReportLine(writer, sourceKey, entry.getValue(),
+                        Math.abs(entry.getKey()));
             }
             sortedHostCounts.dispose();
         }
     }
 
+    protected void writeReportLine(PrintWriter writer, Object source,
+            Object host, long count) {
+        writer.print(source);
+        writer.print(" ");
+        writer.print(host);
+        writer.print(" ");
+        writer.print(count);
+        writer.print("\n");
+    }
+
     @Override
     public String getFilename() {
         return "source-report.txt";
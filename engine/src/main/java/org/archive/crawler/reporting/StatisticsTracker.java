@@ -35,7 +35,7 @@ import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -50,6 +50,7 @@ import org.archive.crawler.event.StatSnapshotEvent;
 import org.archive.crawler.framework.CrawlController;
 import org.archive.crawler.framework.Engine;
 import org.archive.crawler.util.CrawledBytesHistotable;
+import org.archive.crawler.util.TopNSet;
 import org.archive.modules.CrawlURI;
 import org.archive.modules.net.CrawlHost;
 import org.archive.modules.net.ServerCache;
@@ -273,26 +274,24 @@ public class StatisticsTracker
     }
 
     // TODO: fortify these against key explosion with bigmaps like other tallies
+    // (counters are LongAdders, so that the ToeThreads finishing URIs
+    // do not contend on them)
     /** Keep track of the file types we see (mime type -&gt; count) */
-    protected ConcurrentMap<String,AtomicLong> mimeTypeDistribution
-     = new ConcurrentHashMap<String, AtomicLong>();
-    protected ConcurrentMap<String,AtomicLong> mimeTypeBytes
-    = new ConcurrentHashMap<String, AtomicLong>();
+    protected ConcurrentMap<String,LongAdder> mimeTypeDistribution
+     = new ConcurrentHashMap<String, LongAdder>();
+    protected ConcurrentMap<String,LongAdder> mimeTypeBytes
+    = new ConcurrentHashMap<String, LongAdder>();
     
     /** Keep track of fetch status codes */
-    protected ConcurrentMap<String,AtomicLong> statusCodeDistribution
-    = new ConcurrentHashMap<String, AtomicLong>();
+    protected ConcurrentMap<String,LongAdder> statusCodeDistribution
+    = new ConcurrentHashMap<String, LongAdder>();
     
-    /** Keep track of URL counts per host per seed */
-    // TODO: restore spill-to-disk, like with processedSeedsRecords
-    protected ConcurrentHashMap<String, ConcurrentMap<String, AtomicLong>> sourceHostDistribution = 
-        new ConcurrentHashMap<String, ConcurrentMap<String,AtomicLong>>(); 
-    
-    /** Keep track of crawled bytes stats per seed */
-    // TODO: spill-to-disk (requires bdb replacement for Histotable, or some
-    // other refactoring)
-    protected ConcurrentHashMap<String, CrawledBytesHistotable> statsBySource =
-            new ConcurrentHashMap<String, CrawledBytesHistotable>();
+    /**
+     * Crawled bytes stats and URL counts per host, per source tag (usually
+     * seed); like processedSeedsRecords, spilled to disk once started
+     */
+    protected ObjectIdentityCache<SourceStats> sourceStats =
+        new ObjectIdentityMemCache<SourceStats>();
 
     /**
      * Record of seeds and latest results
@@ -349,6 +348,8 @@ public class StatisticsTracker
         try {
             this.processedSeedsRecords = bdb.getObjectCache("processedSeedsRecords",
                     isRecover, SeedRecord.class);
+            this.sourceStats = bdb.getObjectCache("sourceStats",
+                    isRecover, SourceStats.class);
             
             if(isRecover) {
                 JSONObject json = recoveryCheckpoint.loadJson(beanName);
@@ -359,35 +360,39 @@ public class StatisticsTracker
                 crawlPauseStarted = json.getLong("crawlPauseStarted");
                 tallyCurrentPause();
                 
-                JSONUtils.putAllAtomicLongs(
+                JSONUtils.putAllLongAdders(
                     mimeTypeDistribution,
                     json.getJSONObject("mimeTypeDistribution"));
-                JSONUtils.putAllAtomicLongs(
+                JSONUtils.putAllLongAdders(
                     mimeTypeBytes,
                     json.getJSONObject("mimeTypeBytes"));
-                JSONUtils.putAllAtomicLongs(
+                JSONUtils.putAllLongAdders(
                     statusCodeDistribution,
                     json.getJSONObject("statusCodeDistribution"));
           
 
-                JSONObject shd = json.getJSONObject("sourceHostDistribution");
-                Iterator<String> keyIter = shd.keys();
-                for(; keyIter.hasNext();) {
-                    String source = keyIter.next();
-                    ConcurrentHashMap<String, AtomicLong> hostUriCount = new ConcurrentHashMap<String, AtomicLong>();
-                    JSONUtils.putAllAtomicLongs(hostUriCount,shd.getJSONObject(source));
-                    sourceHostDistribution.put(source, hostUriCount);
+                // source stats are recovered with the bdb environment; these
+                // are only found in checkpoints from earlier versions of heritrix
+                JSONObject shd = json.optJSONObject("sourceHostDistribution");
+                if (shd != null) {
+                    Iterator<String> keyIter = shd.keys();
+                    for(; keyIter.hasNext();) {
+                        String source = keyIter.next();
+                        SourceStats restored = getOrCreateSourceStats(source);
+                        JSONUtils.putAllLongs(restored.getHostCounts(),
+                                shd.getJSONObject(source));
+                        restored.makeDirty();
+                    }
                 }
-                
-                // optional so we can still recover checkpoints from earlier versions of heritrix
                 JSONObject ss = json.optJSONObject("statsBySource");
                 if (ss != null) {
-                    keyIter = ss.keys();
+                    Iterator<String> keyIter = ss.keys();
                     for(; keyIter.hasNext();) {
                         String source = keyIter.next();
-                        CrawledBytesHistotable cb = new CrawledBytesHistotable();
-                        JSONUtils.putAllLongs(cb, ss.getJSONObject(source));
-                        statsBySource.put(source, cb);
+                        SourceStats restored = getOrCreateSourceStats(source);
+                        JSONUtils.putAllLongs(restored.getStats(),
+                                ss.getJSONObject(source));
+                        restored.makeDirty();
                     }
                 }
                 
@@ -579,10 +584,10 @@ public class StatisticsTracker
      *  encountered mime types.  Key/value pairs represent
      *  mime type -&lt; count.
      * <p>
-     * <b>Note:</b> All the values are wrapped with a {@link AtomicLong AtomicLong}
+     * <b>Note:</b> All the values are wrapped with a {@link LongAdder LongAdder}
      * @return mimeTypeDistribution
      */
-    public Map<String, AtomicLong> getFileDistribution() {
+    public Map<String, LongAdder> getFileDistribution() {
         return mimeTypeDistribution;
     }
 
@@ -596,7 +601,7 @@ public class StatisticsTracker
      *               exist it will be added (set to 1).  If null it will
      *            increment the counter "unknown".
      */
-    protected static void incrementMapCount(ConcurrentMap<String,AtomicLong> map, 
+    protected static void incrementMapCount(ConcurrentMap<String,LongAdder> map, 
             String key) {
     	incrementMapCount(map,key,1);
     }
@@ -612,28 +617,26 @@ public class StatisticsTracker
      *            The key for the counter to be incremented, if it does not exist
      *            it will be added (set to equal to <code>increment</code>).
      *            If null it will increment the counter "unknown".
+     *            Interned when first added, so the map holds one
+     *            instance of each.
      * @param increment
      *            The amount to increment counter related to the <code>key</code>.
      */
-    protected static void incrementMapCount(ConcurrentMap<String,AtomicLong> map, 
+    protected static void incrementMapCount(ConcurrentMap<String,LongAdder> map, 
             String key, long increment) {
         if (key == null) {
             key = "unknown";
         }
-        AtomicLong lw = (AtomicLong)map.get(key);
-        if(lw == null) {
-            lw = new AtomicLong(0);
-            AtomicLong prevVal = map.putIfAbsent(key, lw);
-            if(prevVal != null) {
-                lw = prevVal;
-            }
+        LongAdder counter = map.get(key);
+        if(counter == null) {
+            counter = map.computeIfAbsent(key.intern(), k -> new LongAdder());
         } 
-        lw.addAndGet(increment);
+        counter.add(increment);
     }
 
     /**
      * Sort the entries of the given Map in descending order by their
-     * values, which must be longs wrapped with <code>AtomicLong</code>.
+     * values, which must be Numbers such as <code>LongAdder</code>.
      * <p>
      * Elements are sorted by value from largest to smallest. Equal values are
      * sorted by their keys. The returned map is a StoredSortedMap, and
@@ -642,12 +645,12 @@ public class StatisticsTracker
      * If the passed-in map requires access to be synchronized, the caller
      * should ensure this synchronization. 
      * 
-     * @param mapOfAtomicLongValues
-     *            Assumes values are wrapped with AtomicLong.
+     * @param mapOfCounts
+     *            Assumes values are Numbers, such as LongAdder.
      * @return a sorted set containing the same elements as the map.
      */
     public DisposableStoredSortedMap<Long,String> getReverseSortedCopy(
-            final Map<String,AtomicLong> mapOfAtomicLongValues) {
+            final Map<String,? extends Number> mapOfCounts) {
         DisposableStoredSortedMap<Long,String> sortedMap = 
             bdb.getStoredMap(
                     null,
@@ -655,8 +658,8 @@ public class StatisticsTracker
                     String.class,
                     true,
                     false);
-        for(String k : mapOfAtomicLongValues.keySet()) {
-            sortedMap.put(-mapOfAtomicLongValues.get(k).longValue(), k);
+        for(String k : mapOfCounts.keySet()) {
+            sortedMap.put(-mapOfCounts.get(k).longValue(), k);
         }
         return sortedMap;
     }
@@ -669,11 +672,11 @@ public class StatisticsTracker
      * val represents (string)code -&gt; (integer)count.
      * 
      * <b>Note: </b> All the values are wrapped with a
-     * {@link AtomicLong AtomicLong}
+     * {@link LongAdder LongAdder}
      * 
      * @return statusCodeDistribution
      */
-    public Map<String, AtomicLong> getStatusCodeDistribution() {
+    public Map<String, LongAdder> getStatusCodeDistribution() {
         return statusCodeDistribution;
     }
     
@@ -757,32 +760,18 @@ public class StatisticsTracker
 
         ServerCache sc = serverCache;
         if (getTrackSources() && curi.getData().containsKey(A_SOURCE_TAG)) {
-        	saveSourceStats(curi.getSourceTag(), 
-        	        sc.getHostFor(curi.getUURI()).getHostName());
-        	tallySourceStats(curi);
+            getOrCreateSourceStats(curi.getSourceTag()).tally(curi,
+                    sc.getHostFor(curi.getUURI()).getHostName());
         }
     }
-         
-    protected void saveSourceStats(String source, String hostname) {
-        ConcurrentMap<String,AtomicLong> hostUriCount = sourceHostDistribution.get(source); 
-        if(hostUriCount == null) {
-            hostUriCount = new ConcurrentHashMap<String,AtomicLong>();
-            ConcurrentMap<String,AtomicLong> prevVal = sourceHostDistribution.putIfAbsent(source, hostUriCount);
-            if (prevVal!=null) {
-                hostUriCount = prevVal; 
-            }
-        }
-        incrementMapCount(hostUriCount, hostname);
-    }
 
-    protected void tallySourceStats(CrawlURI curi) {
-        String source = curi.getSourceTag();
-        CrawledBytesHistotable sourceStats = statsBySource.get(source);
-        if (sourceStats == null) {
-            sourceStats = new CrawledBytesHistotable();
-            statsBySource.put(source, sourceStats);
-        }
-        sourceStats.accumulate(curi);
+    protected SourceStats getOrCreateSourceStats(final String source) {
+        return sourceStats.getOrUse(source, new Supplier<SourceStats>() {
+            @Override
+            public SourceStats get() {
+                return new SourceStats(source);
+            }
+        });
     }
     
     public void crawledURINeedRetry(CrawlURI curi) {
@@ -822,16 +811,25 @@ public class StatisticsTracker
                     false);
         
         while (i.hasNext()) {
-            String seed = i.next();
-            SeedRecord sr = (SeedRecord) processedSeedsRecords.get(seed);
-            if(sr==null) {
-                sr = new SeedRecord(seed,"Seed has not been processed");
-                // no need to retain synthesized record
-            }
+            SeedRecord sr = getSeedRecord(i.next());
             sortedMap.put(sr.sortShiftStatusCode(), sr); 
         }
         return sortedMap;
     }
+
+    /**
+     * @param seed seed URI
+     * @return the record of the seed's processing, or if it has not been
+     * processed a synthesized record saying so
+     */
+    public SeedRecord getSeedRecord(String seed) {
+        SeedRecord sr = (SeedRecord) processedSeedsRecords.get(seed);
+        if(sr==null) {
+            sr = new SeedRecord(seed,"Seed has not been processed");
+            // no need to retain synthesized record
+        }
+        return sr;
+    }
     
     /**
      * Return a copy of the hosts distribution in reverse-sorted (largest first)
@@ -840,7 +838,7 @@ public class StatisticsTracker
      * @return SortedMap of hosts distribution
      */
     public DisposableStoredSortedMap<Long,String> getReverseSortedHostCounts(
-            Map<String,AtomicLong> hostCounts) {
+            Map<String,? extends Number> hostCounts) {
         synchronized(hostCounts){
             return getReverseSortedCopy(hostCounts);
         }
@@ -869,6 +867,25 @@ public class StatisticsTracker
         return sortedMap;
     }
 
+    /**
+     * Return the hosts with the most URLs fetched, found in one pass over
+     * all hosts holding only that many.
+     * 
+     * @param n number of hosts wanted
+     * @return TopNSet of hostname -&gt; count of URLs fetched
+     */
+    public TopNSet calcTopHostsDistribution(int n) {
+        final TopNSet top = new TopNSet(n);
+        serverCache.forAllHostsDo(new Closure() {
+            @Override
+            public void execute(Object hostObj) {
+                CrawlHost host = (CrawlHost) hostObj; 
+                top.update(host.getHostName(), host.getSubstats().getFetchSuccesses());
+            }
+        });
+        return top;
+    }
+
     public File writeReportFile(String reportName) {
         for(Report report: getReports()) {
             if (report.getClass().getSimpleName().equals(reportName)) {
@@ -936,19 +953,15 @@ public class StatisticsTracker
         logNote("CRAWL CHECKPOINTING TO " + cpDir.toString());
     }
   
-    private long getReportValue(Map<String,AtomicLong> map, String key) {
+    private long getReportValue(Map<String,LongAdder> map, String key) {
         if (key == null) {
             return -1;
         }
-        Object o = map.get(key);
-        if (o == null) {
+        LongAdder counter = map.get(key);
+        if (counter == null) {
             return -2;
         }
-        if (!(o instanceof AtomicLong)) {
-            throw new IllegalStateException("Expected AtomicLong but got " 
-                    + o.getClass() + " for " + key);
-        }
-        return ((AtomicLong)o).get();
+        return counter.sum();
     }
     
     public void onApplicationEvent(ApplicationEvent event) {
@@ -1066,9 +1079,6 @@ public class StatisticsTracker
             json.put("mimeTypeBytes", mimeTypeBytes);
             json.put("statusCodeDistribution", statusCodeDistribution);
 
-            json.put("sourceHostDistribution", sourceHostDistribution);
-            json.put("statsBySource", statsBySource);
-            
             json.put("crawledBytes", crawledBytes);
 
             // TODO: save crawledBytesHistotable
@@ -1085,7 +1095,8 @@ public class StatisticsTracker
     }
     
     public CrawledBytesHistotable getSourceStats(String source) {
-        return statsBySource.get(source);
+        SourceStats ss = sourceStats.get(source);
+        return ss == null ? null : ss.getStats();
     }
     
     
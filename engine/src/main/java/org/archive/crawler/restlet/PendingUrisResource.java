@@ -0,0 +1,129 @@
+/*
+ *  This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ *  Licensed to the Internet Archive (IA) by one or more individual
+ *  contributors.
+ *
+ *  The IA licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.archive.crawler.restlet;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import java.util.zip.GZIPOutputStream;
+
+import org.archive.crawler.frontier.BdbFrontier;
+import org.archive.crawler.frontier.BdbMultipleWorkQueues;
+import org.restlet.Context;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.data.CharacterSet;
+import org.restlet.data.Encoding;
+import org.restlet.data.Form;
+import org.restlet.data.MediaType;
+import org.restlet.data.Preference;
+import org.restlet.data.Status;
+import org.restlet.representation.OutputRepresentation;
+import org.restlet.representation.Representation;
+import org.restlet.representation.Variant;
+import org.restlet.resource.ResourceException;
+
+/**
+ * Restlet Resource streaming a job's pending URIs, one per line, read
+ * from the frontier a page at a time while the crawl runs. Gzipped if
+ * the client accepts it.
+ *
+ * <p>Query parameters, all optional: <code>queue</code>, a queue to
+ * export alone; <code>match</code>, a regex URIs must match;
+ * <code>limit</code>, the most URIs to return; and <code>from</code>, a
+ * continuation token. If a limit cut the export short, the last line is
+ * <code># next <i>token</i></code>, the token to pass as
+ * <code>from</code> to continue.
+ */
+public class PendingUrisResource extends JobRelatedResource {
+    protected String queue;
+    protected Pattern match;
+    protected long limit;
+    protected String from;
+
+    @Override
+    public void init(Context ctx, Request req, Response res) throws ResourceException {
+        super.init(ctx, req, res);
+        getVariants().add(new Variant(MediaType.TEXT_PLAIN));
+        Form query = req.getResourceRef().getQueryAsForm();
+        queue = query.getFirstValue("queue");
+        from = query.getFirstValue("from");
+        try {
+            String m = query.getFirstValue("match");
+            match = (m == null || m.isEmpty()) ? null : Pattern.compile(m);
+            String l = query.getFirstValue("limit");
+            limit = (l == null || l.isEmpty()) ? -1 : Long.parseLong(l);
+            BdbMultipleWorkQueues.fromToken(from);
+        } catch (PatternSyntaxException e) {
+            throw new ResourceException(Status.CLIENT_ERROR_BAD_REQUEST, e);
+        } catch (IllegalArgumentException e) {
+            throw new ResourceException(Status.CLIENT_ERROR_BAD_REQUEST, e);
+        }
+    }
+
+    @Override
+    protected Representation get(Variant variant) throws ResourceException {
+        if (cj == null || cj.getCrawlController() == null
+                || !(cj.getCrawlController().getFrontier() instanceof BdbFrontier)) {
+            throw new ResourceException(Status.CLIENT_ERROR_NOT_FOUND,
+                    "no running job with a BdbFrontier");
+        }
+        final BdbFrontier frontier = (BdbFrontier) cj.getCrawlController().getFrontier();
+        if (queue != null && frontier.getAllQueues().get(queue) == null) {
+            throw new ResourceException(Status.CLIENT_ERROR_NOT_FOUND,
+                    "no such queue: " + queue);
+        }
+        final boolean gzip = acceptsGzip();
+        Representation representation = new OutputRepresentation(MediaType.TEXT_PLAIN) {
+            @Override
+            public void write(OutputStream outputStream) throws IOException {
+                OutputStream out = gzip ? new GZIPOutputStream(outputStream) : outputStream;
+                PrintWriter writer = new PrintWriter(
+                        new OutputStreamWriter(out, StandardCharsets.UTF_8));
+                String next = frontier.exportPendingUris(writer, queue, from, limit, match);
+                if (next != null) {
+                    writer.println("# next " + next);
+                }
+                writer.flush();
+                if (gzip) {
+                    ((GZIPOutputStream) out).finish();
+                }
+            }
+        };
+        representation.setCharacterSet(CharacterSet.UTF_8);
+        if (gzip) {
+            representation.getEncodings().add(Encoding.GZIP);
+        }
+        return representation;
+    }
+
+    protected boolean acceptsGzip() {
+        for (Preference<Encoding> pref : getRequest().getClientInfo().getAcceptedEncodings()) {
+            if (Encoding.GZIP.equals(pref.getMetadata()) && pref.getQuality() > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
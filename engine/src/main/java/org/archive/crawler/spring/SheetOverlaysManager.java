@@ -19,6 +19,7 @@
  
 package org.archive.crawler.spring;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -30,6 +31,7 @@ import java.util.SortedSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -47,6 +49,9 @@ import org.springframework.context.ApplicationEvent;
 import org.springframework.context.ApplicationListener;
 import org.springframework.context.event.ContextRefreshedEvent;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 /**
  * Manager which marks-up CrawlURIs with the names of all applicable 
  * Sheets, and returns overlay maps by name. 
@@ -66,6 +71,28 @@ BeanFactoryAware, OverlayMapsSource, ApplicationListener<ApplicationEvent> {
     
     /** all sheets by (bean)name*/
     protected Map<String,Sheet> sheetsByName = new ConcurrentHashMap<String, Sheet>();
+
+    /**
+     * Bumped on every change to the SURT associations; cached resolutions
+     * from an older version are ignored.
+     */
+    protected AtomicLong surtAssociationsVersion = new AtomicLong();
+
+    /**
+     * Maximum number of SURT authorities (roughly, hosts) whose resolved
+     * SURT-based sheet names are cached. 0 disables the cache.
+     */
+    protected int surtOverlaysCacheSize = 100000;
+    public int getSurtOverlaysCacheSize() {
+        return surtOverlaysCacheSize;
+    }
+    public void setSurtOverlaysCacheSize(int surtOverlaysCacheSize) {
+        this.surtOverlaysCacheSize = surtOverlaysCacheSize;
+        this.surtOverlaysCache = null;
+    }
+
+    /** resolved SURT-based sheet names, by SURT authority */
+    protected volatile Cache<String,SurtOverlays> surtOverlaysCache;
     
     public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
         this.beanFactory = beanFactory;
@@ -99,6 +126,8 @@ BeanFactoryAware, OverlayMapsSource, ApplicationListener<ApplicationEvent> {
     
     /**
      * Sheet names, by the SURT prefix to which they should be applied.
+     * Callers that change the map directly must then call
+     * {@link #noteSurtAssociationsChanged()}.
      * 
      * @return map of Sheet names by their configured SURT
      */
@@ -139,6 +168,7 @@ BeanFactoryAware, OverlayMapsSource, ApplicationListener<ApplicationEvent> {
         }
         sheetNames.add(sheetName); 
         sheetNamesBySurt.put(prefix, sheetNames); 
+        noteSurtAssociationsChanged();
     }
     
     public boolean removeSurtAssociation(String prefix, String sheetName) {
@@ -147,7 +177,23 @@ BeanFactoryAware, OverlayMapsSource, ApplicationListener<ApplicationEvent> {
             // no such association
             return false; 
         }
-        return sheetNames.remove(sheetName); 
+        boolean removed = sheetNames.remove(sheetName);
+        noteSurtAssociationsChanged();
+        return removed;
+    }
+
+    /**
+     * Invalidate all cached SURT-based overlay resolutions. Called by
+     * the association-changing methods here; must also be called by
+     * anything that alters the map returned by
+     * {@link #getSheetsNamesBySurt()} directly.
+     */
+    public void noteSurtAssociationsChanged() {
+        surtAssociationsVersion.incrementAndGet();
+        Cache<String,SurtOverlays> cache = surtOverlaysCache;
+        if (cache != null) {
+            cache.invalidateAll();
+        }
     }
 
     /** 
@@ -270,6 +316,7 @@ BeanFactoryAware, OverlayMapsSource, ApplicationListener<ApplicationEvent> {
         for(List<String> sheetNames : sheetNamesBySurt.values()) {
             anyDeleted |= sheetNames.remove(sheetName);            
         }
+        noteSurtAssociationsChanged();
         anyDeleted |= (null != sheetsByName.remove(sheetName)); 
         return anyDeleted;
     }
@@ -309,19 +356,15 @@ BeanFactoryAware, OverlayMapsSource, ApplicationListener<ApplicationEvent> {
      * according to configured associations.  
      * 
      * TODO: add guard against redundant application more than once? 
-     * TODO: add mechanism for reapplying overlays after settings change? 
      * @param curi
      */
     public void applyOverlaysTo(CrawlURI curi) {
         curi.setOverlayMapsSource(this); 
         // apply SURT-based overlays
         curi.getOverlayNames().clear(); // clear previous info
-        String effectiveSurt = SurtPrefixSet.getCandidateSurt(curi.getPolicyBasisUURI());
-        List<String> foundPrefixes = PrefixFinder.findKeys(sheetNamesBySurt, effectiveSurt);       
-        for(String prefix : foundPrefixes) {
-            for(String name : sheetNamesBySurt.get(prefix)) {
-                curi.getOverlayNames().add(name);
-            }
+        if (!sheetNamesBySurt.isEmpty()) {
+            String effectiveSurt = SurtPrefixSet.getCandidateSurt(curi.getPolicyBasisUURI());
+            getSurtOverlays(effectiveSurt).addNamesTo(effectiveSurt, curi.getOverlayNames());
         }
         // apply deciderule-based overlays
         for(DecideRuledSheetAssociation assoc : ruleAssociations) {
@@ -337,4 +380,118 @@ BeanFactoryAware, OverlayMapsSource, ApplicationListener<ApplicationEvent> {
         // step has occurred -- helps ensure overlays added once-only
         curi.getOverlayNames();
     }
-}
\ No newline at end of file
+
+    /**
+     * Get the SURT-based associations relevant to the given SURT, from
+     * cache if a resolution for its authority is current.
+     * 
+     * @param surt candidate SURT of a URI
+     * @return resolved associations for the SURT's authority
+     */
+    protected SurtOverlays getSurtOverlays(String surt) {
+        String authority = authorityOf(surt);
+        long version = surtAssociationsVersion.get();
+        Cache<String,SurtOverlays> cache = getSurtOverlaysCache();
+        if (cache != null) {
+            SurtOverlays cached = cache.getIfPresent(authority);
+            if (cached != null && cached.version == version) {
+                return cached;
+            }
+        }
+        SurtOverlays resolved = resolveSurtOverlays(authority, version);
+        if (cache != null) {
+            cache.put(authority, resolved);
+        }
+        return resolved;
+    }
+
+    protected Cache<String,SurtOverlays> getSurtOverlaysCache() {
+        Cache<String,SurtOverlays> cache = surtOverlaysCache;
+        if (cache == null && surtOverlaysCacheSize > 0) {
+            synchronized (this) {
+                cache = surtOverlaysCache;
+                if (cache == null) {
+                    cache = CacheBuilder.newBuilder()
+                            .concurrencyLevel(64)
+                            .maximumSize(surtOverlaysCacheSize)
+                            .<String,SurtOverlays>build();
+                    surtOverlaysCache = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * The leading part of a SURT up to and including the closing
+     * parenthesis of its authority, or the whole SURT if it has no 
+     * parenthesized authority.
+     */
+    protected static String authorityOf(String surt) {
+        int i = surt.indexOf(')');
+        return (i < 0) ? surt : surt.substring(0, i + 1);
+    }
+
+    /**
+     * Resolve the SURT associations for every SURT beginning with the 
+     * given authority: those whose prefix is a prefix of the authority 
+     * apply unconditionally; longer (path-scoped) ones beginning with the
+     * authority are kept to be tested against each full SURT.
+     */
+    protected SurtOverlays resolveSurtOverlays(String authority, long version) {
+        List<String> names = new ArrayList<String>();
+        for (String prefix : PrefixFinder.findKeys(sheetNamesBySurt, authority)) {
+            List<String> prefixNames = sheetNamesBySurt.get(prefix);
+            if (prefixNames != null) {
+                names.addAll(prefixNames);
+            }
+        }
+        List<String> pathPrefixes = new ArrayList<String>();
+        List<List<String>> pathNames = new ArrayList<List<String>>();
+        for (Map.Entry<String,List<String>> entry
+                : sheetNamesBySurt.tailMap(authority, false).entrySet()) {
+            if (!entry.getKey().startsWith(authority)) {
+                break;
+            }
+            pathPrefixes.add(entry.getKey());
+            pathNames.add(new ArrayList<String>(entry.getValue()));
+        }
+        return new SurtOverlays(version, names, pathPrefixes, pathNames);
+    }
+
+    /**
+     * SURT-based sheet names resolved for one SURT authority, as of one
+     * version of the associations. 
+     */
+    protected static class SurtOverlays {
+        final long version;
+        /** names applying to every SURT with this authority, in order */
+        final String[] names;
+        /** longer prefixes, in sorted (hence nesting) order */
+        final String[] pathPrefixes;
+        final List<List<String>> pathNames;
+
+        SurtOverlays(long version, List<String> names,
+                List<String> pathPrefixes, List<List<String>> pathNames) {
+            this.version = version;
+            this.names = names.toArray(new String[names.size()]);
+            this.pathPrefixes = pathPrefixes.toArray(new String[pathPrefixes.size()]);
+            this.pathNames = pathNames;
+        }
+
+        /**
+         * Add names in the same shortest-prefix-first order as a direct
+         * {@link PrefixFinder} lookup of the full SURT would give.
+         */
+        void addNamesTo(String surt, List<String> overlayNames) {
+            for (String name : names) {
+                overlayNames.add(name);
+            }
+            for (int i = 0; i < pathPrefixes.length; i++) {
+                if (surt.startsWith(pathPrefixes[i])) {
+                    overlayNames.addAll(pathNames.get(i));
+                }
+            }
+        }
+    }
+}
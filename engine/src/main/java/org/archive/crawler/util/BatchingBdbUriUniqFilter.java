@@ -0,0 +1,400 @@
+/*
+ *  This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ *  Licensed to the Internet Archive (IA) by one or more individual 
+ *  contributors. 
+ *
+ *  The IA licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.archive.crawler.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.archive.checkpointing.Checkpoint;
+import org.archive.modules.CrawlURI;
+
+import com.sleepycat.bind.tuple.LongBinding;
+import com.sleepycat.je.Cursor;
+import com.sleepycat.je.DatabaseEntry;
+import com.sleepycat.je.DatabaseException;
+import com.sleepycat.je.OperationStatus;
+
+/**
+ * {@link BdbUriUniqFilter} which, rather than doing one BDB insert per
+ * offered URI, gathers candidates into batches, then inserts each batch
+ * in key order through a single cursor. Consecutive keys then mostly land
+ * in the same or neighbouring BDB tree nodes, each fetched into the JE
+ * cache once per batch, which keeps the cache-miss rate down once the
+ * already-seen database outgrows the cache. Duplicates within a batch
+ * never reach BDB at all.
+ *
+ * <p>URIs found novel are passed to the frontier when their batch is
+ * swept, by a background flusher thread, once the batch reaches
+ * {@link #getBatchSize()} or its oldest entry has waited
+ * {@link #getMaxDelayMs()}; the frontier may also force a sweep via
+ * {@link #requestFlush()} when it has nothing else to do. Until then they
+ * are counted in {@link #pending()}, so the frontier does not consider
+ * itself empty.
+ *
+ * <p>Pending batches are swept in {@link #startCheckpoint(Checkpoint)}, so
+ * that a checkpoint holds all URIs offered before it.
+ *
+ * <p>Unlike the {@link FPMergeUriUniqFilter} family, the set remains the
+ * same BDB database (and keys) as {@link BdbUriUniqFilter}, so either
+ * class may resume from a checkpoint made by the other.
+ */
+public class BatchingBdbUriUniqFilter extends BdbUriUniqFilter {
+    private static final long serialVersionUID = 1L;
+
+    private static Logger logger =
+        Logger.getLogger(BatchingBdbUriUniqFilter.class.getName());
+
+    /**
+     * Pending batches (as multiples of batchSize) beyond which adding
+     * threads sweep a batch themselves rather than leave it to the
+     * flusher.
+     */
+    protected static final int MAX_PENDING_BATCHES = 4;
+
+    /** number of distinct candidates that triggers a sweep */
+    protected int batchSize = 4096;
+    public int getBatchSize() {
+        return batchSize;
+    }
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Longest time, in milliseconds, a candidate may wait in a
+     * not-yet-full batch before it is swept.
+     */
+    protected long maxDelayMs = 500;
+    public long getMaxDelayMs() {
+        return maxDelayMs;
+    }
+    public void setMaxDelayMs(long maxDelayMs) {
+        this.maxDelayMs = maxDelayMs;
+    }
+
+    /** current batch: key to URI to schedule if novel (or null) */
+    protected transient HashMap<Long,CrawlURI> batch = new HashMap<Long,CrawlURI>();
+    /** time first entry of current batch was added */
+    protected long batchStarted;
+    /** size of batch currently being swept */
+    protected volatile int sweeping = 0;
+    /** held while sweeping, so batches reach BDB in order */
+    protected transient Object sweepLock = new Object();
+    /** background sweeping thread, if started; guarded by this */
+    protected transient Thread flusher;
+
+    public BatchingBdbUriUniqFilter() {
+        super();
+    }
+
+    /**
+     * Constructor for tests. Without a flusher thread, batches are
+     * swept by the adding thread as they fill, or on {@link #flush()}.
+     *
+     * @see BdbUriUniqFilter#BdbUriUniqFilter(File, int)
+     */
+    public BatchingBdbUriUniqFilter(File bdbEnv, final int cacheSizePercentage)
+    throws IOException {
+        super(bdbEnv, cacheSizePercentage);
+    }
+
+    @Override
+    public void start() {
+        if (isRunning()) {
+            return;
+        }
+        super.start();
+        startFlusher();
+    }
+
+    @Override
+    public void stop() {
+        stopFlusher();
+        super.stop();
+    }
+
+    protected synchronized void startFlusher() {
+        if (flusher != null) {
+            return;
+        }
+        flusher = new Thread("BatchingBdbUriUniqFilter flusher") {
+            public void run() {
+                flushLoop();
+            }
+        };
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    protected void stopFlusher() {
+        Thread t;
+        synchronized (this) {
+            t = flusher;
+            flusher = null;
+            notifyAll();
+        }
+        if (t != null) {
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        // the frontier may already be gone, so don't sweep into it
+        long unswept = pending();
+        if (unswept > 0) {
+            logger.warning("discarding " + unswept + " unswept candidates");
+        }
+        super.close();
+    }
+
+    protected void flushLoop() {
+        while (isFlusher(Thread.currentThread())) {
+            try {
+                if (awaitDueBatch()) {
+                    flush();
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                logger.log(Level.SEVERE, "sweeping batch", e);
+            }
+        }
+    }
+
+    protected synchronized boolean isFlusher(Thread t) {
+        return flusher == t;
+    }
+
+    /**
+     * Wait, at most until the current batch is due, for it to fill.
+     *
+     * @return true if the current batch should be swept now
+     * @throws InterruptedException
+     */
+    protected synchronized boolean awaitDueBatch() throws InterruptedException {
+        if (batch.isEmpty()) {
+            wait(maxDelayMs);
+            return false;
+        }
+        long remaining = batchStarted + maxDelayMs - System.currentTimeMillis();
+        if (batch.size() < batchSize && remaining > 0) {
+            wait(remaining);
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void add(String key, CrawlURI value) {
+        addedCount.incrementAndGet();
+        profileLog(key);
+        if (!pend(createKey(key), value)) {
+            duplicateCount++;
+        }
+    }
+
+    @Override
+    public void addNow(String key, CrawlURI value) {
+        add(key, value);
+        flush();
+    }
+
+    @Override
+    public void addForce(String key, CrawlURI value) {
+        profileLog(key);
+        long k = createKey(key);
+        boolean pended;
+        synchronized (this) {
+            // an earlier add() of the same key must not schedule it again
+            pended = batch.containsKey(k);
+            if (pended) {
+                batch.put(k, null);
+            }
+        }
+        if (!pended) {
+            pend(k, null);
+        }
+        this.receiver.receive(value);
+    }
+
+    @Override
+    public void note(String key) {
+        profileLog(key);
+        pend(createKey(key), null);
+    }
+
+    @Override
+    public void forget(String key, CrawlURI value) {
+        synchronized (this) {
+            batch.remove(createKey(key));
+        }
+        super.forget(key, value);
+    }
+
+    @Override
+    public void forgetAllSchemeAuthorityMatching(String url) {
+        flush();
+        super.forgetAllSchemeAuthorityMatching(url);
+    }
+
+    /**
+     * Add key to the current batch, unless already there.
+     *
+     * @param key already-seen key
+     * @param value URI to schedule if key proves novel, or null
+     * @return false if key was already in the current batch
+     */
+    protected boolean pend(long key, CrawlURI value) {
+        boolean sweepNow;
+        synchronized (this) {
+            if (batch.containsKey(key)) {
+                return false;
+            }
+            if (batch.isEmpty()) {
+                batchStarted = System.currentTimeMillis();
+            }
+            batch.put(key, value);
+            int size = batch.size();
+            if (size == batchSize) {
+                notifyAll();
+            }
+            sweepNow = (flusher == null) ? size >= batchSize
+                    : size >= batchSize * MAX_PENDING_BATCHES;
+        }
+        if (sweepNow) {
+            flush();
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized long pending() {
+        return batch.size() + sweeping;
+    }
+
+    @Override
+    public long requestFlush() {
+        return flush();
+    }
+
+    /**
+     * Sweep the current batch into BDB, passing novel URIs to the
+     * frontier.
+     *
+     * @return number of URIs passed to the frontier
+     */
+    @Override
+    public long flush() {
+        synchronized (sweepLock) {
+            Map<Long,CrawlURI> swept;
+            synchronized (this) {
+                if (batch.isEmpty()) {
+                    return 0;
+                }
+                swept = batch;
+                batch = new HashMap<Long,CrawlURI>();
+                sweeping = swept.size();
+            }
+            try {
+                return sweep(swept);
+            } finally {
+                sweeping = 0;
+            }
+        }
+    }
+
+    protected long sweep(Map<Long,CrawlURI> swept) {
+        long started = System.currentTimeMillis();
+        // BDB orders keys as unsigned bytes; flipping the sign bit makes
+        // a signed sort agree
+        long[] keys = new long[swept.size()];
+        int i = 0;
+        for (long key : swept.keySet()) {
+            keys[i++] = key ^ Long.MIN_VALUE;
+        }
+        Arrays.sort(keys);
+
+        List<CrawlURI> novel = new ArrayList<CrawlURI>();
+        long added = 0;
+        DatabaseEntry entry = new DatabaseEntry();
+        Cursor cursor = alreadySeen.openCursor(null, null);
+        try {
+            for (long k : keys) {
+                long key = k ^ Long.MIN_VALUE;
+                LongBinding.longToEntry(key, entry);
+                OperationStatus status = null;
+                try {
+                    status = cursor.putNoOverwrite(entry, ZERO_LENGTH_ENTRY);
+                } catch (DatabaseException e) {
+                    logger.severe(e.getMessage());
+                }
+                if (status == OperationStatus.SUCCESS) {
+                    added++;
+                }
+                if (status == OperationStatus.KEYEXIST) {
+                    duplicateCount++;
+                } else {
+                    // as in BdbUriUniqFilter, failures count as novel
+                    CrawlURI value = swept.get(key);
+                    if (value != null) {
+                        novel.add(value);
+                    }
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        count.addAndGet(added);
+        for (CrawlURI curi : novel) {
+            this.receiver.receive(curi);
+        }
+        if (logger.isLoggable(Level.FINE)) {
+            logger.fine("swept " + keys.length + " candidates in "
+                    + (System.currentTimeMillis() - started) + "ms: "
+                    + novel.size() + " scheduled, " + added + " added");
+        }
+        return novel.size();
+    }
+
+    // Checkpointable
+    @Override
+    public void startCheckpoint(Checkpoint checkpointInProgress) {
+        flush();
+        super.startCheckpoint(checkpointInProgress);
+    }
+
+    @Override
+    public void doCheckpoint(Checkpoint checkpointInProgress) throws IOException {
+        // anything offered since startCheckpoint belongs in this one too
+        flush();
+        super.doCheckpoint(checkpointInProgress);
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ *  This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ *  Licensed to the Internet Archive (IA) by one or more individual
+ *  contributors.
+ *
+ *  The IA licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.archive.crawler.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.archive.checkpointing.Checkpoint;
+import org.archive.checkpointing.Checkpointable;
+import org.archive.spring.ConfigPath;
+import org.archive.util.fingerprint.MappedLongFPSet;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.springframework.beans.factory.BeanNameAware;
+import org.springframework.context.Lifecycle;
+
+/**
+ * {@link FPUriUniqFilter} over a {@link MappedLongFPSet}: 64-bit URI
+ * fingerprints in a memory-mapped, incrementally-grown table outside the
+ * Java heap. One lookup touches a single (usually adjacent) run of table
+ * slots, with no BDB btree or cache between, and billions of fingerprints
+ * can be held without any garbage collection cost; the operating system
+ * pages the table as memory allows.
+ *
+ * <p>The table lives in {@link #getDir()}. A checkpoint forces it to disk
+ * and records its state there; resuming from that checkpoint reopens the
+ * same table. Note that the table is not copied, so if the crawl went on
+ * after the checkpoint, the reopened table also holds the fingerprints
+ * added since then (a warning is logged).
+ *
+ * <p>As with any 64-bit fingerprint set, distinct URIs colliding on a
+ * fingerprint is possible but very rare.
+ */
+public class OffHeapFPUriUniqFilter extends FPUriUniqFilter
+implements Lifecycle, Checkpointable, BeanNameAware {
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger logger =
+        Logger.getLogger(OffHeapFPUriUniqFilter.class.getName());
+
+    /** directory of the fingerprint table files */
+    protected ConfigPath dir = new ConfigPath("fingerprint table subdirectory","uniqfpset");
+    public ConfigPath getDir() {
+        return dir;
+    }
+    public void setDir(ConfigPath dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Initial table capacity, as a power of 2. The table doubles as needed
+     * without pausing, but starting near the expected size avoids the
+     * copying. The default 2^24 slots make a 128MB (sparse) file.
+     */
+    protected int initialCapacityPowerOfTwo = 24;
+    public int getInitialCapacityPowerOfTwo() {
+        return initialCapacityPowerOfTwo;
+    }
+    public void setInitialCapacityPowerOfTwo(int initialCapacityPowerOfTwo) {
+        this.initialCapacityPowerOfTwo = initialCapacityPowerOfTwo;
+    }
+
+    /** fraction of table slots filled before the table is doubled */
+    protected float loadFactor = 0.75f;
+    public float getLoadFactor() {
+        return loadFactor;
+    }
+    public void setLoadFactor(float loadFactor) {
+        this.loadFactor = loadFactor;
+    }
+
+    protected String beanName;
+    public void setBeanName(String name) {
+        this.beanName = name;
+    }
+
+    public OffHeapFPUriUniqFilter() {
+        super();
+    }
+
+    /**
+     * Create and open a filter outside of a crawl (tests, benchmarks).
+     *
+     * @param tableDir directory for table files, or null to hold the table
+     *     in direct memory instead
+     * @param initialCapacityPowerOfTwo initial capacity, as a power of 2
+     * @throws IOException
+     */
+    public OffHeapFPUriUniqFilter(File tableDir, int initialCapacityPowerOfTwo)
+    throws IOException {
+        super(new MappedLongFPSet(tableDir, initialCapacityPowerOfTwo, 0.75f, false));
+        isRunning = true;
+    }
+
+    protected boolean isRunning = false;
+    public void start() {
+        if (isRunning()) {
+            return;
+        }
+        boolean isRecovery = (recoveryCheckpoint != null);
+        try {
+            fpset = new MappedLongFPSet(dir.getFile(),
+                    getInitialCapacityPowerOfTwo(), getLoadFactor(), isRecovery);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        if (isRecovery) {
+            JSONObject json = recoveryCheckpoint.loadJson(beanName);
+            try {
+                long checkpointCount = json.getLong("count");
+                if (checkpointCount != fpset.count()) {
+                    logger.warning("fingerprint table holds " + fpset.count()
+                            + " fingerprints, checkpoint " + checkpointCount
+                            + "; URIs first seen after the checkpoint will "
+                            + "be considered already seen");
+                }
+            } catch (JSONException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        isRunning = true;
+    }
+
+    public boolean isRunning() {
+        return isRunning;
+    }
+
+    public void stop() {
+        isRunning = false;
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        if (fpset != null) {
+            try {
+                ((MappedLongFPSet) fpset).close();
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "closing fingerprint table", e);
+            }
+        }
+    }
+
+    // Checkpointable
+    public void startCheckpoint(Checkpoint checkpointInProgress) {}
+    public void doCheckpoint(Checkpoint checkpointInProgress) throws IOException {
+        ((MappedLongFPSet) fpset).flush();
+        JSONObject json = new JSONObject();
+        try {
+            json.put("count", setCount());
+            checkpointInProgress.saveJson(beanName, json);
+        } catch (JSONException e) {
+            // impossible
+            throw new RuntimeException(e);
+        }
+    }
+    public void finishCheckpoint(Checkpoint checkpointInProgress) {}
+    protected Checkpoint recoveryCheckpoint;
+    public void setRecoveryCheckpoint(Checkpoint recoveryCheckpoint) {
+        this.recoveryCheckpoint = recoveryCheckpoint;
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ *  This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ *  Licensed to the Internet Archive (IA) by one or more individual
+ *  contributors.
+ *
+ *  The IA licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.archive.crawler.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.archive.checkpointing.Checkpoint;
+import org.archive.checkpointing.Checkpointable;
+import org.archive.spring.ConfigPath;
+import org.archive.util.ArchiveUtils;
+import org.archive.util.Reporter;
+import org.archive.util.ScalableBloomFilter;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.springframework.beans.factory.BeanNameAware;
+import org.springframework.context.Lifecycle;
+
+/**
+ * {@link BloomUriUniqFilter} over a {@link ScalableBloomFilter}, which
+ * adds layers as it fills rather than letting its false-positive rate
+ * climb past the expected count, and which lives in memory-mapped files
+ * in {@link #getDir()}: a checkpoint only forces those to disk.
+ *
+ * <p>Resuming from a checkpoint reopens the same files, so as with
+ * {@link OffHeapFPUriUniqFilter} any URIs added after that checkpoint are
+ * also remembered.
+ *
+ * <p>The current fill ratio and estimated false-positive rate appear in
+ * the frontier report.
+ */
+public class ScalableBloomUriUniqFilter extends BloomUriUniqFilter
+implements Lifecycle, Checkpointable, BeanNameAware, Reporter {
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger logger =
+        Logger.getLogger(ScalableBloomUriUniqFilter.class.getName());
+
+    /** directory of the bloom layer files */
+    protected ConfigPath dir = new ConfigPath("bloom filter subdirectory","uniqbloom");
+    public ConfigPath getDir() {
+        return dir;
+    }
+    public void setDir(ConfigPath dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Capacity of the first layer; each later layer doubles it. The
+     * default makes a first layer of about 90MB.
+     */
+    protected long initialExpectedInserts = 20000000;
+    public long getInitialExpectedInserts() {
+        return initialExpectedInserts;
+    }
+    public void setInitialExpectedInserts(long initialExpectedInserts) {
+        this.initialExpectedInserts = initialExpectedInserts;
+    }
+
+    /**
+     * Overall false-positive rate to stay under; the default is about the
+     * 1 in 4 million of the plain BloomUriUniqFilter defaults.
+     */
+    protected double falsePositiveRate = 1.0 / (1 << 22);
+    public double getFalsePositiveRate() {
+        return falsePositiveRate;
+    }
+    public void setFalsePositiveRate(double falsePositiveRate) {
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    protected String beanName;
+    public void setBeanName(String name) {
+        this.beanName = name;
+    }
+
+    public ScalableBloomUriUniqFilter() {
+        super();
+    }
+
+    /**
+     * Create and open a filter outside of a crawl (tests, benchmarks).
+     *
+     * @param bloomDir directory for layer files, or null for direct memory
+     * @param initialExpectedInserts capacity of the first layer
+     * @throws IOException
+     */
+    public ScalableBloomUriUniqFilter(File bloomDir, long initialExpectedInserts)
+    throws IOException {
+        super();
+        this.initialExpectedInserts = initialExpectedInserts;
+        bloom = new ScalableBloomFilter(bloomDir, initialExpectedInserts,
+                falsePositiveRate, false);
+        isRunning = true;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        // filter is opened in start(), once any recovery checkpoint is known
+    }
+
+    protected ScalableBloomFilter getScalableBloom() {
+        return (ScalableBloomFilter) bloom;
+    }
+
+    protected boolean isRunning = false;
+    public void start() {
+        if (isRunning()) {
+            return;
+        }
+        boolean isRecovery = (recoveryCheckpoint != null);
+        try {
+            bloom = new ScalableBloomFilter(dir.getFile(),
+                    getInitialExpectedInserts(), getFalsePositiveRate(), isRecovery);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        if (isRecovery) {
+            JSONObject json = recoveryCheckpoint.loadJson(beanName);
+            try {
+                long checkpointCount = json.getLong("count");
+                if (checkpointCount != setCount()) {
+                    logger.warning("bloom filter holds " + setCount()
+                            + " entries, checkpoint " + checkpointCount
+                            + "; URIs first seen after the checkpoint will "
+                            + "be considered already seen");
+                }
+            } catch (JSONException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        isRunning = true;
+    }
+
+    public boolean isRunning() {
+        return isRunning;
+    }
+
+    public void stop() {
+        isRunning = false;
+    }
+
+    @Override
+    protected boolean setAdd(CharSequence uri) {
+        // grows as needed, so no expected-limit warning
+        return bloom.add(uri);
+    }
+
+    @Override
+    protected long setCount() {
+        return getScalableBloom().count();
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        if (bloom != null) {
+            try {
+                getScalableBloom().close();
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "closing bloom filter", e);
+            }
+        }
+    }
+
+    // Checkpointable
+    public void startCheckpoint(Checkpoint checkpointInProgress) {}
+    public void doCheckpoint(Checkpoint checkpointInProgress) throws IOException {
+        getScalableBloom().flush();
+        JSONObject json = new JSONObject();
+        try {
+            json.put("count", setCount());
+            checkpointInProgress.saveJson(beanName, json);
+        } catch (JSONException e) {
+            // impossible
+            throw new RuntimeException(e);
+        }
+    }
+    public void finishCheckpoint(Checkpoint checkpointInProgress) {}
+    protected Checkpoint recoveryCheckpoint;
+    public void setRecoveryCheckpoint(Checkpoint recoveryCheckpoint) {
+        this.recoveryCheckpoint = recoveryCheckpoint;
+    }
+
+    //
+    // Reporter implementation
+    //
+
+    @Override
+    public Map<String, Object> shortReportMap() {
+        ScalableBloomFilter sbf = getScalableBloom();
+        Map<String,Object> map = new LinkedHashMap<String, Object>();
+        map.put("count", sbf.count());
+        map.put("layers", sbf.getLayerCount());
+        map.put("sizeBytes", sbf.getSizeBytes());
+        map.put("fillRatio", sbf.getFillRatio());
+        map.put("estimatedFalsePositiveRate", sbf.getEstimatedFalsePositiveRate());
+        return map;
+    }
+
+    @Override
+    public String shortReportLegend() {
+        return "count layers size fillRatio estFalsePositiveRate";
+    }
+
+    @Override
+    public void shortReportLineTo(PrintWriter w) {
+        Map<String, Object> map = shortReportMap();
+        w.print(map.get("count"));
+        w.print(" ");
+        w.print(map.get("layers"));
+        w.print(" ");
+        w.print(ArchiveUtils.formatBytesForDisplay((Long) map.get("sizeBytes")));
+        w.print(" ");
+        w.print(String.format("%.4f", map.get("fillRatio")));
+        w.print(" ");
+        w.print(String.format("%.3g", map.get("estimatedFalsePositiveRate")));
+    }
+
+    @Override
+    public void reportTo(PrintWriter writer) {
+        writer.println(shortReportLegend());
+        shortReportLineTo(writer);
+        writer.println();
+    }
+}
@@ -246,6 +246,17 @@
 							</#if>
 						</td>
 					</tr>
+					<#if job.importReport??>
+					<tr>
+						<th>Imports</th>
+						<td>
+							<#list job.importReport?keys as kind>
+							<#assign imp = job.importReport[kind]>
+							${kind} ${imp.name}: <#if imp.finished>finished<#else>in progress</#if>; ${imp.linesRead} lines read; ${imp.itemsImported} imported; ${imp.errors} errors; ${imp.linesPerSecond} lines/sec<#if kind_has_next><br/></#if>
+							</#list>
+						</td>
+					</tr>
+					</#if>
 					<tr>
 						<th>Memory</th>
 						<td>${(heapReport.usedBytes/1024)?string("0")} KiB used; ${(heapReport.totalBytes/1024)?string("0")} KiB current heap; ${(heapReport.maxBytes/1024)?string("0")} KiB max heap</td>
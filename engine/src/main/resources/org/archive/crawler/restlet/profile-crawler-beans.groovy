@@ -99,6 +99,7 @@ http://example.example/example
         ''')
         // sourceTagSeeds = false
         // blockAwaitingSeedLines = -1
+        // importThreads = 4
     }
 
     /**
@@ -111,6 +112,7 @@ http://example.example/example
         textSource = new ConfigFile(path: 'seeds.txt')
         // sourceTagSeeds = false
         // blockAwaitingSeedLines = -1
+        // importThreads = 4
     }
     */
 
@@ -251,6 +253,9 @@ http://example.example/example
         // sendIfModifiedSince = true
         // sendIfNoneMatch = true
         // sendConnectionClose = true
+        // maxPooledConnections = 1000
+        // maxPooledConnectionsPerServer = 4
+        // connectionKeepAliveMs = 15000
         // sendReferer = true
         // sendRange = false
         // ignoreCookies = false
@@ -383,6 +388,12 @@ http://example.example/example
         // runWhileEmpty = false
         // recorderInBufferBytes = 524288
         // recorderOutBufferBytes = 16384
+        // pooledRecorders = false
+        // toeThreadStackBytes = 0
+        // stagedProcessing = false
+        // extractorThreads = 0
+        // writerThreads = 4
+        // stageQueueSize = 100
         // scratchDir = 'scratch'
     }
 
@@ -393,9 +404,15 @@ http://example.example/example
         // queueTotalBudget = -1
         // balanceReplenishAmount = 3000
         // errorPenaltyAmount = 100
+        // http2BatchSize = 1
+        // http2BatchBytesPerSec = 100000
         // precedenceFloor = 255
         // queuePrecedencePolicy = new org.archive.crawler.frontier.precedence.BaseQueuePrecedencePolicy()
         // snoozeLongMs = 300000
+        // maxSnoozedInMemory = 10000
+        // snoozeTickMs = 10
+        // futureUriReleaseBatch = 1000
+        // importThreads = 4
         // retryDelaySeconds = 900
         // maxRetries = 30
         // recoveryLogEnabled = true
@@ -404,6 +421,12 @@ http://example.example/example
         // outbound = new ArrayBlockingQueue(200, true)
         // inbound = new ArrayBlockingQueue(40000, true)
         // dumpPendingAtClose = false
+        // more than 1 (or 0, for one per processor) spreads ready queues over
+        // stripes for less contention, giving up strict FIFO order among them
+        // readyQueueStripes = 1
+        // compactPendingUris = false
+        // queuePrefetchSize = 16
+        // deleteBatchSize = 1000
     }
 
     /**
@@ -638,6 +661,12 @@ http://example.example/example
         // runtimeErrorsLogPath = 'runtime-errors.log'
         // nonfatalErrorsLogPath = 'nonfatal-errors.log'
         // logExtraInfo = false
+        // asyncLogging = false
+        // asyncLogBufferSize = 16384
+        // asyncLogOverflowPolicy = 'BLOCK'
+        // asyncLogFlushIntervalMs = 1000
+        // asyncLogSync = false
+        // compressLogs = false
     }
 
     /**
@@ -662,6 +691,9 @@ http://example.example/example
         // cacheSize = 0
         // useSharedCache = true
         // expectedConcurrency = 25
+        // objectCacheMaxWeight = -1
+        // objectCacheFlushIntervalMs = 30000
+        // objectCacheMaxDirtyItems = 10000
     }
 
     /**
@@ -680,6 +712,25 @@ http://example.example/example
         // bdb = ref('bdb')
     }
 
+    /**
+     * SSLCONTEXTPROVIDER: TLS setup and session cache shared by fetchers
+     */
+    sslContextProvider(SslContextProvider) {
+        // sessionCacheSize = 20000
+        // sessionTimeoutSeconds = 3600
+    }
+
+    /**
+     * ASYNCDNSRESOLVER: background resolution of hosts of newly-filled
+     * queues, with positive and negative caching, used by fetchDns
+     */
+    asyncDnsResolver(AsyncDnsResolver) {
+        // maxOutstandingLookups = 100
+        // maxNegativeTtlSeconds = 300
+        // maxCacheEntries = 100000
+        // timeoutSeconds = 15
+    }
+
     /**
      * CONFIG PATH CONFIGURER: required helper making crawl paths relative
      * to crawler-beans.cxml file, and tracking crawl files for web U
@@ -0,0 +1,95 @@
+/*
+ *  This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ *  Licensed to the Internet Archive (IA) by one or more individual
+ *  contributors.
+ *
+ *  The IA licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.archive.crawler.framework;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.archive.util.Recorder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RecorderPoolTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testReuse() throws Exception {
+        RecorderPool pool = new RecorderPool(tempDir.toFile(), 1024, 4096);
+        Recorder first = pool.acquire();
+        Recorder second = pool.acquire();
+        assertNotSame(first, second);
+        assertEquals(2, pool.getInUseCount());
+
+        InputStream in = first.inputWrap(new ByteArrayInputStream("hello".getBytes()));
+        in.readAllBytes();
+        first.close();
+        assertEquals(5, first.getRecordedInput().getSize());
+        first.endReplays();
+        pool.release(first);
+        // most recently returned lent first
+        assertSame(first, pool.acquire());
+        pool.release(second);
+        assertEquals(2, pool.getCreatedCount());
+        assertEquals(1, pool.getIdleCount());
+        assertEquals(1, pool.getInUseCount());
+        pool.close();
+        assertEquals(0, pool.getIdleCount());
+    }
+
+    @Test
+    public void testCreatesOnlyAsManyAsUsedAtOnce() throws Exception {
+        final RecorderPool pool = new RecorderPool(tempDir.toFile(), 1024, 4096);
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 50; i++) {
+            Thread t = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int j = 0; j < 100; j++) {
+                    Recorder recorder = pool.acquire();
+                    pool.release(recorder);
+                }
+            });
+            t.start();
+            threads.add(t);
+        }
+        start.countDown();
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertEquals(0, pool.getInUseCount());
+        assertEquals(pool.getCreatedCount(), pool.getIdleCount());
+        // never more than the threads
+        assertTrue(pool.getCreatedCount() <= 50);
+        pool.close();
+    }
+}
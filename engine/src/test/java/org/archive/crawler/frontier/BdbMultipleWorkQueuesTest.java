@@ -18,19 +18,29 @@
  */
 package org.archive.crawler.frontier;
 
+import com.sleepycat.bind.tuple.LongBinding;
+import com.sleepycat.bind.tuple.StringBinding;
+import com.sleepycat.collections.StoredSortedMap;
 import com.sleepycat.je.Database;
+import com.sleepycat.je.DatabaseEntry;
 import com.sleepycat.je.DatabaseException;
 import com.sleepycat.je.EnvironmentConfig;
 import com.sleepycat.je.tree.Key;
+import org.apache.commons.collections.Closure;
 import org.apache.commons.io.FileUtils;
 import org.archive.bdb.BdbModule;
+import org.archive.bdb.KryoBinding;
 import org.archive.bdb.StoredQueue;
 import org.archive.modules.CrawlURI;
 import org.archive.modules.SchedulingConstants;
+import org.archive.modules.extractor.HTMLLinkContext;
+import org.archive.modules.extractor.LinkContext;
 import org.archive.net.UURI;
 import org.archive.net.UURIFactory;
 import org.archive.url.URIException;
+import org.archive.util.ObjectIdentityMemCache;
 import org.archive.util.Recorder;
+import org.archive.util.Supplier;
 import org.archive.util.bdbje.EnhancedEnvironment;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -40,8 +50,16 @@ import org.junit.jupiter.api.io.TempDir;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
+import java.util.regex.Pattern;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -62,6 +80,7 @@ public class BdbMultipleWorkQueuesTest {
     private EnhancedEnvironment env;
     private Database db;
     private File envDir;
+    private List<Database> openedDbs = new ArrayList<Database>();
 
     protected Recorder getRecorder() throws IOException {
         if (Recorder.getHttpRecorder() == null) {
@@ -105,6 +124,11 @@ public class BdbMultipleWorkQueuesTest {
     protected void tearDown() throws Exception {
         if(this.pendingUris!=null)
             this.pendingUris.close();
+        for (Database d : openedDbs) {
+            d.close();
+        }
+        db.close();
+        env.close();
         if (this.envDir.exists()) {
             FileUtils.deleteDirectory(this.envDir);
         }
@@ -208,4 +232,328 @@ public class BdbMultipleWorkQueuesTest {
         }
     }
 
+    protected BdbMultipleWorkQueues openCompact(String name) {
+        return new BdbMultipleWorkQueues(openDb(name), openQueueNames(name));
+    }
+
+    protected Database openDb(String name) {
+        BdbModule.BdbConfig dbConfig = StoredQueue.databaseConfig();
+        Database opened = env.openDatabase(null, name, dbConfig.toDatabaseConfig());
+        openedDbs.add(opened);
+        return opened;
+    }
+
+    protected StoredSortedMap<Long,String> openQueueNames(String name) {
+        return new StoredSortedMap<Long,String>(openDb(name + "Names"),
+                new LongBinding(), new StringBinding(), true);
+    }
+
+    protected CrawlURI makeDiscoveredURI(String uri, long ordinal) throws URIException {
+        return makeDiscoveredURI(uri, ordinal, HTMLLinkContext.IMG_SRC);
+    }
+
+    protected CrawlURI makeDiscoveredURI(String uri, long ordinal, LinkContext context)
+    throws URIException {
+        CrawlURI curi = new CrawlURI(UURIFactory.getInstance(uri), "LLE",
+                UURIFactory.getInstance("http://www.archive.org/index.html"),
+                context);
+        curi.setClassKey("org,archive,www,");
+        curi.setOrdinal(ordinal);
+        curi.setPrecedence(3);
+        curi.setHolderCost(1);
+        curi.setPolitenessDelay(3000);
+        curi.setCanonicalString(uri.substring("http://".length()));
+        curi.setSourceTag("seeds.txt");
+        return curi;
+    }
+
+    @Test
+    public void testCompactFormat() throws Exception {
+        BdbMultipleWorkQueues compact = openCompact("compact");
+        assertTrue(compact.isCompact());
+        byte[] origin = compact.createOriginKey("org,archive,www,");
+        assertEquals(1, origin.length);
+        compact.addCap(origin);
+        byte[] otherOrigin = compact.createOriginKey("org,example,");
+        compact.addCap(otherOrigin);
+        // a queue created again for a classKey, as by a thread losing the
+        // race to install it, gets the same id rather than an orphan one
+        assertArrayEquals(origin, compact.createOriginKey("org,archive,www,"));
+
+        CrawlURI first = makeDiscoveredURI("http://www.archive.org/img/1.png", 1);
+        CrawlURI second = makeDiscoveredURI("http://www.archive.org/2.html", 2,
+                LinkContext.NAVLINK_MISC);
+        second.setSeed(true);
+        second.setUserAgent("not compactable");
+        assertTrue(first.isCompactable());
+        assertFalse(second.isCompactable());
+        compact.put(second, origin, false);
+        compact.put(first, origin, false);
+        CrawlURI other = makeDiscoveredURI("http://example.org/", 0);
+        compact.put(other, otherOrigin, false);
+
+        CrawlURI got = compact.get(new DatabaseEntry(origin));
+        assertEquals(first.getURI(), got.getURI());
+        assertNull(got.getClassKey());
+        assertEquals("LLE", got.getPathFromSeed());
+        assertEquals(first.getVia(), got.getVia());
+        assertEquals(HTMLLinkContext.IMG_SRC, got.getViaContext());
+        assertEquals(first.getCanonicalString(), got.getCanonicalString());
+        assertEquals(1, got.getOrdinal());
+        assertEquals(3, got.getPrecedence());
+        assertEquals(1, got.getHolderCost());
+        assertEquals(3000, got.getPolitenessDelay());
+        assertEquals("seeds.txt", got.getSourceTag());
+        assertEquals(first.getData(), got.getData());
+
+        compact.delete(got);
+        got = compact.get(new DatabaseEntry(origin));
+        assertEquals(second.getURI(), got.getURI());
+        assertTrue(got.isSeed());
+        assertEquals(LinkContext.NAVLINK_MISC, got.getViaContext());
+        assertEquals("not compactable", got.getUserAgent());
+
+        // classKeys restored when scanning across queues
+        final StringBuilder seen = new StringBuilder();
+        compact.forAllPendingDo(new Closure() {
+            public void execute(Object o) {
+                seen.append(((CrawlURI) o).getClassKey()).append(' ');
+            }
+        });
+        assertEquals("org,archive,www, org,example, ", seen.toString());
+
+        // reopening continues the queue id sequence
+        BdbMultipleWorkQueues reopened = openCompact("compact");
+        assertArrayEquals(otherOrigin, reopened.createOriginKey("org,example,"));
+        byte[] third = reopened.createOriginKey("org,example,www,");
+        assertEquals(2, BdbMultipleWorkQueues.decodeQueueId(third));
+        assertEquals(300, BdbMultipleWorkQueues.decodeQueueId(
+                BdbMultipleWorkQueues.encodeQueueId(300)));
+    }
+
+    @Test
+    public void testCompactEntrySize() throws Exception {
+        CrawlURI curi = makeDiscoveredURI("http://www.archive.org/img/1.png", 12345);
+        DatabaseEntry legacyValue = new DatabaseEntry();
+        new KryoBinding<CrawlURI>(CrawlURI.class).objectToEntry(curi, legacyValue);
+        int legacySize = BdbMultipleWorkQueues.calculateInsertKey(curi).getSize()
+                + legacyValue.getSize();
+        DatabaseEntry compactValue = new DatabaseEntry();
+        new PendingCrawlURIBinding().objectToEntry(curi, compactValue);
+        int compactSize = BdbMultipleWorkQueues.calculateInsertKey(
+                BdbMultipleWorkQueues.encodeQueueId(1000), curi).getSize()
+                + compactValue.getSize();
+        logger.info("pending entry bytes: original " + legacySize + ", compact " + compactSize);
+        assertTrue(compactSize * 2 < legacySize,
+                "original " + legacySize + ", compact " + compactSize);
+    }
+
+    @Test
+    public void testMigrateToCompact() throws Exception {
+        final BdbFrontier frontier = new BdbFrontier();
+        frontier.pendingUris = this.pendingUris;
+        ObjectIdentityMemCache<WorkQueue> allQueues = new ObjectIdentityMemCache<WorkQueue>();
+        for (final String classKey : new String[] {"org,archive,www,", "org,example,"}) {
+            allQueues.getOrUse(classKey, new Supplier<WorkQueue>() {
+                public WorkQueue get() {
+                    return new BdbWorkQueue(classKey, frontier);
+                }
+            });
+        }
+        for (int i = 0; i < 10; i++) {
+            CrawlURI curi = makeDiscoveredURI("http://www.archive.org/" + i + ".html", 10 - i);
+            curi.setClassKey((i % 2 == 0) ? "org,archive,www," : "org,example,");
+            pendingUris.put(curi, false);
+        }
+
+        BdbMultipleWorkQueues compact = openCompact("migrated");
+        assertEquals(10, compact.migrateFrom(pendingUris, allQueues));
+        frontier.pendingUris = compact;
+        BdbWorkQueue wq = (BdbWorkQueue) allQueues.get("org,example,");
+        CrawlURI head = wq.peekItem(frontier);
+        // lowest ordinal first
+        assertEquals("http://www.archive.org/9.html", head.getURI());
+        assertEquals("org,example,", head.getClassKey());
+        assertEquals("seeds.txt", head.getSourceTag());
+    }
+
+    @Test
+    public void testQueuePrefetch() throws Exception {
+        final AtomicInteger scans = new AtomicInteger();
+        BdbMultipleWorkQueues queues = new BdbMultipleWorkQueues(
+                openDb("prefetch"), openQueueNames("prefetch")) {
+            @Override
+            public int getRange(byte[] origin, int max, Collection<CrawlURI> into) {
+                scans.incrementAndGet();
+                return super.getRange(origin, max, into);
+            }
+        };
+        BdbFrontier frontier = new BdbFrontier();
+        frontier.pendingUris = queues;
+        frontier.setQueuePrefetchSize(4);
+        BdbWorkQueue wq = new BdbWorkQueue("org,archive,www,", frontier);
+        wq.setIdentityCache(new ObjectIdentityMemCache<WorkQueue>());
+        // a neighbouring queue, which the scans must not run into
+        BdbWorkQueue other = new BdbWorkQueue("org,example,", frontier);
+        other.setIdentityCache(new ObjectIdentityMemCache<WorkQueue>());
+        CrawlURI stranger = makeDiscoveredURI("http://example.org/", 0);
+        stranger.setClassKey("org,example,");
+        other.enqueue(frontier, stranger);
+        for (int i = 0; i < 10; i++) {
+            wq.enqueue(frontier, makeDiscoveredURI("http://www.archive.org/" + i, i + 1));
+        }
+
+        List<String> emitted = new ArrayList<String>();
+        for (int i = 0; i < 5; i++) {
+            emitted.add(peekAndDequeue(frontier, wq));
+        }
+        assertEquals(2, scans.get());
+        assertEquals(3, wq.getPrefetchedCount());
+
+        // later in the queue than everything prefetched: buffer kept
+        wq.enqueue(frontier, makeDiscoveredURI("http://www.archive.org/late", 100));
+        assertEquals(3, wq.getPrefetchedCount());
+        // ahead of what is prefetched: buffer dropped, new item next
+        CrawlURI urgent = makeDiscoveredURI("http://www.archive.org/urgent", 101);
+        urgent.setSchedulingDirective(SchedulingConstants.HIGH);
+        wq.enqueue(frontier, urgent);
+        assertEquals(0, wq.getPrefetchedCount());
+
+        while (wq.getCount() > 0) {
+            emitted.add(peekAndDequeue(frontier, wq));
+        }
+        assertNull(wq.peek(frontier));
+        assertEquals(List.of("http://www.archive.org/0", "http://www.archive.org/1",
+                "http://www.archive.org/2", "http://www.archive.org/3",
+                "http://www.archive.org/4", "http://www.archive.org/urgent",
+                "http://www.archive.org/5", "http://www.archive.org/6",
+                "http://www.archive.org/7", "http://www.archive.org/8",
+                "http://www.archive.org/9", "http://www.archive.org/late"), emitted);
+        // versus one read per item without prefetch
+        assertTrue(scans.get() <= 5, "scans " + scans.get());
+
+        assertEquals("http://example.org/", other.peek(frontier).toString());
+        assertEquals(1, other.getPrefetchedCount());
+        other.noteDeactivated();
+        assertEquals(0, other.getPrefetchedCount());
+    }
+
+    @Test
+    public void testPagedScanAndBatchedDelete() throws Exception {
+        BdbFrontier frontier = new BdbFrontier();
+        frontier.pendingUris = new BdbMultipleWorkQueues(
+                openDb("scan"), openQueueNames("scan"));
+        frontier.setQueuePrefetchSize(4);
+        BdbWorkQueue wq = new BdbWorkQueue("org,archive,www,", frontier);
+        wq.setIdentityCache(new ObjectIdentityMemCache<WorkQueue>());
+        BdbWorkQueue other = new BdbWorkQueue("org,example,", frontier);
+        other.setIdentityCache(new ObjectIdentityMemCache<WorkQueue>());
+        CrawlURI stranger = makeDiscoveredURI("http://example.org/", 0);
+        stranger.setClassKey("org,example,");
+        other.enqueue(frontier, stranger);
+        for (int i = 0; i < 25; i++) {
+            wq.enqueue(frontier, makeDiscoveredURI("http://www.archive.org/" + i, i + 1));
+        }
+
+        // one queue, in pages of 10, resumed by token
+        List<String> seen = new ArrayList<String>();
+        String token = null;
+        int pages = 0;
+        do {
+            byte[] next = frontier.getWorkQueues().scanMatching(wq.getOrigin(),
+                    BdbMultipleWorkQueues.fromToken(token), 10, null,
+                    curi -> seen.add(curi.toString()));
+            token = BdbMultipleWorkQueues.toToken(next);
+            pages++;
+        } while (token != null);
+        assertEquals(3, pages);
+        assertEquals(25, seen.size());
+        assertEquals("http://www.archive.org/0", seen.get(0));
+        assertEquals("http://www.archive.org/24", seen.get(24));
+
+        // all queues, filtered
+        List<String> matched = new ArrayList<String>();
+        assertNull(frontier.getWorkQueues().scanMatching(null, null, -1,
+                Pattern.compile(".*/1[0-9]|.*example.*"), curi -> matched.add(curi.toString())));
+        assertEquals(11, matched.size());
+
+        // evens, in batches of 4, leaving alone the peeked head
+        CrawlURI head = wq.peek(frontier);
+        Pattern evens = Pattern.compile(".*[02468]");
+        long[] deleted = {0};
+        byte[] from = null;
+        int batches = 0;
+        do {
+            from = wq.deleteMatching(frontier, evens, from, 4, deleted);
+            batches++;
+        } while (from != null);
+        assertEquals(7, batches);
+        assertEquals(12, deleted[0]);
+        assertEquals(13, wq.getCount());
+        assertEquals(1, other.getCount());
+        wq.dequeue(frontier, head);
+        assertEquals("http://www.archive.org/0", head.toString());
+        List<String> rest = new ArrayList<String>();
+        while (wq.getCount() > 0) {
+            rest.add(peekAndDequeue(frontier, wq));
+        }
+        assertEquals(12, rest.size());
+        for (String uri : rest) {
+            assertFalse(evens.matcher(uri).matches(), uri);
+        }
+        assertEquals("http://example.org/", other.peek(frontier).toString());
+    }
+
+    @Test
+    public void testLeasedBatch() throws Exception {
+        BdbFrontier frontier = new BdbFrontier();
+        frontier.pendingUris = new BdbMultipleWorkQueues(
+                openDb("batch"), openQueueNames("batch"));
+        frontier.setQueuePrefetchSize(4);
+        BdbWorkQueue wq = new BdbWorkQueue("org,archive,www,", frontier);
+        wq.setIdentityCache(new ObjectIdentityMemCache<WorkQueue>());
+        for (int i = 0; i < 8; i++) {
+            wq.enqueue(frontier, makeDiscoveredURI("http://www.archive.org/" + i, i + 1));
+        }
+
+        CrawlURI head = wq.peek(frontier);
+        List<CrawlURI> companions = wq.peekFollowing(frontier, 3);
+        assertEquals("http://www.archive.org/0", head.toString());
+        assertEquals("[http://www.archive.org/1, http://www.archive.org/2, "
+                + "http://www.archive.org/3]", companions.toString());
+        long now = System.currentTimeMillis();
+        LeasedBatch batch = new LeasedBatch(companions, 1000, now);
+        wq.setLeasedBatch(batch);
+        assertTrue(batch.isCompanion(companions.get(0)));
+        assertFalse(batch.isCompanion(head));
+
+        // URIs out with the batch are left alone
+        long[] deleted = {0};
+        assertNull(wq.deleteMatching(frontier, Pattern.compile(".*"), null, 100, deleted));
+        assertEquals(4, deleted[0]);
+        assertEquals(4, wq.getCount());
+
+        // finished in any order; one to be retried stays queued
+        wq.dequeueCompanion(frontier, companions.get(1));
+        assertFalse(batch.finished(companions.get(1), false, 0));
+        wq.dequeue(frontier, head);
+        assertFalse(batch.finished(head, false, 0));
+        wq.update(frontier, companions.get(0));
+        assertFalse(batch.finished(companions.get(0), false, 500));
+        wq.dequeueCompanion(frontier, companions.get(2));
+        assertTrue(batch.finished(companions.get(2), false, 0));
+        assertEquals(500, batch.getSnoozeMs(now));
+        assertFalse(batch.isRetire());
+        wq.endLeasedBatch();
+
+        assertNull(wq.getLeasedBatch());
+        assertEquals(1, wq.getCount());
+        assertEquals("http://www.archive.org/1", peekAndDequeue(frontier, wq));
+    }
+
+    protected String peekAndDequeue(BdbFrontier frontier, WorkQueue wq) {
+        CrawlURI curi = wq.peek(frontier);
+        wq.dequeue(frontier, curi);
+        return curi.toString();
+    }
 }
@@ -0,0 +1,164 @@
+/*
+ *  This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ *  Licensed to the Internet Archive (IA) by one or more individual
+ *  contributors.
+ *
+ *  The IA licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.archive.crawler.frontier;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.archive.bdb.BdbModule;
+import org.archive.bdb.StoredQueue;
+import org.archive.modules.CrawlURI;
+import org.archive.net.UURIFactory;
+import org.archive.util.bdbje.EnhancedEnvironment;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.sleepycat.je.Database;
+import com.sleepycat.je.EnvironmentConfig;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FutureUriStoreTest {
+    @TempDir
+    Path tempDir;
+
+    private EnhancedEnvironment env;
+    private Database db;
+
+    @BeforeEach
+    protected void setUp() throws Exception {
+        File envDir = new File(tempDir.toFile(), "FutureUriStoreTest");
+        org.archive.util.FileUtils.ensureWriteableDirectory(envDir);
+        EnvironmentConfig envConfig = new EnvironmentConfig();
+        envConfig.setTransactional(false);
+        envConfig.setAllowCreate(true);
+        env = new EnhancedEnvironment(envDir, envConfig);
+        db = openDb();
+    }
+
+    protected Database openDb() throws Exception {
+        BdbModule.BdbConfig dbConfig = StoredQueue.databaseConfig();
+        return env.openDatabase(null, "futureUriStore", dbConfig.toDatabaseConfig());
+    }
+
+    @AfterEach
+    protected void tearDown() throws Exception {
+        db.close();
+        env.close();
+    }
+
+    protected CrawlURI makeCrawlURI(String uri, long rescheduleTime) throws Exception {
+        CrawlURI curi = new CrawlURI(UURIFactory.getInstance(uri));
+        curi.setClassKey("example.com");
+        curi.setRescheduleTime(rescheduleTime);
+        return curi;
+    }
+
+    @Test
+    public void testReleaseInDueOrderAndBatches() throws Exception {
+        FutureUriStore store = new FutureUriStore(db, 1000);
+        long base = 100000;
+        // added out of order, two sharing a due time
+        long[] times = {base + 5000, base + 100, base + 2500, base + 100, base + 99000};
+        for (int i = 0; i < times.length; i++) {
+            store.add(makeCrawlURI("http://example.com/" + i, times[i]));
+        }
+        assertEquals(5, store.size());
+        assertEquals(base / 1000 * 1000, store.getEarliestBucketTime());
+
+        assertTrue(store.releaseDue(base, 10).isEmpty());
+        assertEquals(2, store.getDueCount(base + 999));
+
+        List<CrawlURI> released = store.releaseDue(base + 6000, 2);
+        assertEquals(2, released.size());
+        // same due time: in order added
+        assertEquals("http://example.com/1", released.get(0).getURI());
+        assertEquals("http://example.com/3", released.get(1).getURI());
+        assertEquals("example.com", released.get(0).getClassKey());
+
+        released = store.releaseDue(base + 6000, 10);
+        assertEquals(2, released.size());
+        assertEquals("http://example.com/2", released.get(0).getURI());
+        assertEquals("http://example.com/0", released.get(1).getURI());
+        assertEquals(1, store.size());
+        assertEquals(0, store.getDueCount(base + 6000));
+
+        // 5900ms late at most
+        assertEquals(4, store.getLateness().getCount());
+        assertEquals(5900, store.getLateness().getMax());
+    }
+
+    @Test
+    public void testReopen() throws Exception {
+        FutureUriStore store = new FutureUriStore(db, 1000);
+        for (int i = 0; i < 20; i++) {
+            store.add(makeCrawlURI("http://example.com/" + i, 50000 + i * 1000));
+        }
+        store.releaseDue(54000, 100);
+        db.close();
+
+        db = openDb();
+        FutureUriStore reopened = new FutureUriStore(db, 1000);
+        assertEquals(15, reopened.size());
+        assertEquals(55000, reopened.getEarliestBucketTime());
+        // sequence resumes past existing keys, so nothing is overwritten
+        reopened.add(makeCrawlURI("http://example.com/again", 55000));
+        assertEquals(16, reopened.size());
+        List<CrawlURI> released = reopened.releaseDue(55000, 100);
+        assertEquals(2, released.size());
+        assertEquals("http://example.com/5", released.get(0).getURI());
+        assertEquals("http://example.com/again", released.get(1).getURI());
+    }
+
+    @Test
+    public void testAddDuringRelease() throws Exception {
+        FutureUriStore store = new FutureUriStore(db, 1000);
+        store.add(makeCrawlURI("http://example.com/late", 2000));
+        // another thread releasing
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        Thread releaser = new Thread(() -> {
+            store.releaseLock.lock();
+            locked.countDown();
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                // finish
+            } finally {
+                store.releaseLock.unlock();
+            }
+        });
+        releaser.start();
+        locked.await();
+        // nothing released, without waiting; adding not blocked
+        assertTrue(store.releaseDue(10000, 10).isEmpty());
+        store.add(makeCrawlURI("http://example.com/early", 1000));
+        done.countDown();
+        releaser.join();
+
+        List<CrawlURI> released = store.releaseDue(10000, 10);
+        assertEquals(2, released.size());
+        assertEquals("http://example.com/early", released.get(0).getURI());
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ *  This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ *  Licensed to the Internet Archive (IA) by one or more individual
+ *  contributors.
+ *
+ *  The IA licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.archive.crawler.frontier;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SnoozeTimingWheelTest {
+
+    protected DelayedWorkQueue snoozed(String classKey, long wakeTime) {
+        WorkQueue wq = new WorkQueue(classKey) {
+            private static final long serialVersionUID = 1L;
+            protected void insertItem(WorkQueueFrontier frontier,
+                    org.archive.modules.CrawlURI curi, boolean overwriteIfPresent) {
+            }
+            protected long deleteMatchingFromQueue(WorkQueueFrontier frontier, String match) {
+                return 0;
+            }
+            protected void deleteItem(WorkQueueFrontier frontier,
+                    org.archive.modules.CrawlURI item) {
+            }
+            protected org.archive.modules.CrawlURI peekItem(WorkQueueFrontier frontier) {
+                return null;
+            }
+        };
+        wq.setWakeTime(wakeTime);
+        return new DelayedWorkQueue(wq);
+    }
+
+    @Test
+    public void testWakesOnTimeAcrossLevelsAndDisk() {
+        long start = 1700000000000L;
+        long tickMs = 10;
+        TreeMap<String,DelayedWorkQueue> disk = new TreeMap<String,DelayedWorkQueue>();
+        SnoozeTimingWheel wheel = new SnoozeTimingWheel(tickMs, 500, disk, start);
+        Random random = new Random(1);
+        Map<String,Long> wakeTimes = new HashMap<String,Long>();
+        int n = 3000;
+        int soon = 0;
+        for (int i = 0; i < n; i++) {
+            // from now to ~2 hours, log-distributed to exercise every level
+            long delay = (long) Math.pow(7200000, random.nextDouble());
+            String key = "q" + i;
+            wakeTimes.put(key, start + delay);
+            wheel.add(snoozed(key, start + delay), delay >= 300000);
+            if (delay < 256 * tickMs) {
+                soon++;
+            }
+        }
+        assertEquals(n, wheel.size());
+        // beyond the cap, only those due within the first level stay in memory
+        assertTrue(wheel.getMemoryCount() <= 500 + soon, "in memory " + wheel.getMemoryCount());
+        assertFalse(disk.isEmpty());
+
+        int woken = 0;
+        long now = start;
+        while (woken < n) {
+            long delay = wheel.getDelayToNext(now);
+            assertTrue(delay >= 0);
+            // jump ahead, irregularly, but never past the next possible wake
+            now += Math.max(1, Math.min(delay, random.nextInt(2000)));
+            for (DelayedWorkQueue dq : wheel.pollDue(now)) {
+                long wake = wakeTimes.remove(dq.getClassKey());
+                assertTrue(wake <= now, dq.getClassKey() + " woken early");
+                assertTrue(now - wake < tickMs + 2000, dq.getClassKey() + " woken late");
+                woken++;
+            }
+        }
+        assertTrue(wakeTimes.isEmpty());
+        assertEquals(0, wheel.size());
+        assertTrue(disk.isEmpty());
+        assertEquals(-1, wheel.getDelayToNext(now));
+        assertEquals(n, wheel.getWakeLag().getCount());
+    }
+
+    @Test
+    public void testPreciseWhenPolledEachTick() {
+        long start = 0;
+        SnoozeTimingWheel wheel = new SnoozeTimingWheel(10, 100, null, start);
+        wheel.add(snoozed("a", 25), false);
+        wheel.add(snoozed("b", 3000), false);
+        wheel.add(snoozed("c", 700000), true);
+        assertEquals(30, wheel.getDelayToNext(start));
+        int woken = 0;
+        for (long now = start; now <= 700010; now++) {
+            for (DelayedWorkQueue dq : wheel.pollDue(now)) {
+                // rounded up to the next tick only
+                assertEquals((dq.getWakeTime() + 9) / 10 * 10, now, dq.getClassKey());
+                woken++;
+            }
+        }
+        assertEquals(3, woken);
+        assertEquals(0, wheel.getWakeLag().getPercentile(0.5));
+        assertEquals(5, wheel.getWakeLag().getMax());
+    }
+
+    @Test
+    public void testDrainAll() {
+        TreeMap<String,DelayedWorkQueue> disk = new TreeMap<String,DelayedWorkQueue>();
+        SnoozeTimingWheel wheel = new SnoozeTimingWheel(10, 1, disk, 0);
+        wheel.add(snoozed("a", 100), false);
+        wheel.add(snoozed("b", 100000), false);
+        wheel.add(snoozed("c", 100000000), true);
+        assertEquals(2, disk.size());
+        assertEquals(3, wheel.snapshot().size());
+        assertEquals(3, wheel.drainAll().size());
+        assertEquals(0, wheel.size());
+        assertTrue(disk.isEmpty());
+        assertTrue(wheel.pollDue(200000000).isEmpty());
+    }
+}
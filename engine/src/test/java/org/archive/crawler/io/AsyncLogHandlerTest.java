@@ -0,0 +1,150 @@
+/*
+ *  This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ *  Licensed to the Internet Archive (IA) by one or more individual
+ *  contributors.
+ *
+ *  The IA licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.archive.crawler.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Formatter;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.archive.io.GenerationFileHandler;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class AsyncLogHandlerTest {
+    @TempDir
+    File tempDir;
+
+    protected AsyncLogHandler makeHandler(File file, boolean compress)
+            throws IOException {
+        GenerationFileHandler gfh = GenerationFileHandler.makeNew(
+                file.getAbsolutePath(), false, true);
+        gfh.setFormatter(new Formatter() {
+            @Override
+            public String format(LogRecord record) {
+                return record.getMessage() + "\n";
+            }
+        });
+        return new AsyncLogHandler(gfh, 64,
+                AsyncLogHandler.OverflowPolicy.BLOCK, 1000, true, compress);
+    }
+
+    protected void publish(AsyncLogHandler handler, int threads,
+            final int perThread, final String prefix) throws Exception {
+        List<Thread> loggers = new ArrayList<Thread>();
+        for (int t = 0; t < threads; t++) {
+            final int n = t;
+            Thread thread = new Thread() {
+                public void run() {
+                    for (int i = 0; i < perThread; i++) {
+                        handler.publish(new LogRecord(Level.INFO,
+                                prefix + n + "-" + i));
+                    }
+                }
+            };
+            loggers.add(thread);
+            thread.start();
+        }
+        for (Thread thread : loggers) {
+            thread.join();
+        }
+    }
+
+    protected List<String> readLines(File file, boolean compressed)
+            throws IOException {
+        try (InputStream in = compressed
+                ? new GZIPInputStream(new FileInputStream(file))
+                : new FileInputStream(file)) {
+            return IOUtils.readLines(in, StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    public void testManyWriters() throws Exception {
+        File log = new File(tempDir, "crawl.log");
+        AsyncLogHandler handler = makeHandler(log, false);
+        // many more lines than the buffer holds
+        publish(handler, 8, 2000, "a");
+        handler.flush();
+        List<String> lines = Files.readAllLines(log.toPath());
+        assertEquals(16000, lines.size());
+        assertEquals(16000, new HashSet<String>(lines).size());
+        assertEquals(0, handler.getDropped());
+        handler.close();
+    }
+
+    @Test
+    public void testRotation() throws Exception {
+        for (boolean compress : new boolean[] {false, true}) {
+            File log = new File(tempDir, "crawl.log" + (compress ? ".gz" : ""));
+            AsyncLogHandler handler = makeHandler(log, compress);
+            publish(handler, 4, 500, "before");
+            handler.rotate(".cp00001", "", false);
+            assertEquals(log.getAbsolutePath() + ".cp00001",
+                    handler.getGenerations().getFilenameSeries().get(1));
+            publish(handler, 4, 500, "after");
+            handler.close();
+
+            List<String> rotated = readLines(
+                    new File(log.getAbsolutePath() + ".cp00001"), compress);
+            assertEquals(2000, rotated.size());
+            List<String> active = readLines(log, compress);
+            assertEquals(2000, active.size());
+            Set<String> prefixes = new HashSet<String>();
+            for (String line : rotated) {
+                prefixes.add(line.substring(0, 6));
+            }
+            assertEquals(Set.of("before"), prefixes);
+            assertTrue(active.get(0).startsWith("after"));
+        }
+    }
+
+    @Test
+    public void testDrop() throws Exception {
+        File log = new File(tempDir, "dropped.log");
+        GenerationFileHandler gfh = GenerationFileHandler.makeNew(
+                log.getAbsolutePath(), false, true);
+        gfh.setFormatter(new Formatter() {
+            @Override
+            public String format(LogRecord record) {
+                return record.getMessage() + "\n";
+            }
+        });
+        AsyncLogHandler handler = new AsyncLogHandler(gfh, 4,
+                AsyncLogHandler.OverflowPolicy.DROP, 1000, false, false);
+        publish(handler, 4, 5000, "x");
+        handler.close();
+        List<String> lines = Files.readAllLines(log.toPath());
+        assertEquals(20000, lines.size() + handler.getDropped());
+    }
+}
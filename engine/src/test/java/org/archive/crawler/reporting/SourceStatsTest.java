@@ -0,0 +1,144 @@
+/*
+ *  This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ *  Licensed to the Internet Archive (IA) by one or more individual
+ *  contributors.
+ *
+ *  The IA licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.archive.crawler.reporting;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import org.archive.bdb.KryoBinding;
+import org.archive.crawler.util.CrawledBytesHistotable;
+import org.archive.modules.CrawlURI;
+import org.archive.net.UURIFactory;
+import org.archive.util.ObjectIdentityMemCache;
+import org.junit.jupiter.api.Test;
+
+import com.sleepycat.je.DatabaseEntry;
+
+public class SourceStatsTest {
+
+    protected CrawlURI makeCrawlURI(String uri, long size) throws Exception {
+        CrawlURI curi = new CrawlURI(UURIFactory.getInstance(uri));
+        curi.setFetchStatus(200);
+        curi.setContentSize(size);
+        return curi;
+    }
+
+    @Test
+    public void testBindingRoundTrip() throws Exception {
+        SourceStats ss = new SourceStats("http://example.com/");
+        ss.setIdentityCache(new ObjectIdentityMemCache<SourceStats>());
+        ss.tally(makeCrawlURI("http://example.com/a", 100), "example.com");
+        ss.tally(makeCrawlURI("http://example.com/b", 50), "example.com");
+        ss.tally(makeCrawlURI("http://example.org/", 10), "example.org");
+
+        KryoBinding<SourceStats> binding = new KryoBinding<SourceStats>(SourceStats.class);
+        DatabaseEntry entry = new DatabaseEntry();
+        binding.objectToEntry(ss, entry);
+        SourceStats copy = binding.entryToObject(entry);
+
+        assertEquals("http://example.com/", copy.getKey());
+        assertEquals(160L, (long) copy.getStats().get(CrawledBytesHistotable.NOVEL));
+        assertEquals(3L, (long) copy.getStats().get(CrawledBytesHistotable.NOVELCOUNT));
+        assertEquals(2L, (long) copy.getHostCounts().get("example.com"));
+        assertEquals(1L, (long) copy.getHostCounts().get("example.org"));
+    }
+
+    @Test
+    public void testBindingWhileTallying() throws Exception {
+        KryoBinding<SourceStats> binding = new KryoBinding<SourceStats>(SourceStats.class);
+        Set<String> statKeys = Set.of(CrawledBytesHistotable.NOVEL,
+                CrawledBytesHistotable.NOVELCOUNT);
+        for (int round = 0; round < 50; round++) {
+            // a fresh record each round, so keys first appear mid-write
+            SourceStats ss = new SourceStats("http://seed.example/");
+            ss.setIdentityCache(new ObjectIdentityMemCache<SourceStats>());
+            CountDownLatch start = new CountDownLatch(1);
+            List<Thread> threads = new ArrayList<Thread>();
+            for (int t = 0; t < 4; t++) {
+                final int host = t;
+                Thread thread = new Thread(() -> {
+                    try {
+                        start.await();
+                        for (int i = 0; i < 200; i++) {
+                            ss.tally(makeCrawlURI("http://h" + host + ".example/" + i, 1),
+                                    "h" + host + ".example");
+                        }
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                });
+                thread.start();
+                threads.add(thread);
+            }
+            start.countDown();
+            boolean running = true;
+            while (running) {
+                running = false;
+                for (Thread thread : threads) {
+                    running |= thread.isAlive();
+                }
+                DatabaseEntry entry = new DatabaseEntry();
+                binding.objectToEntry(ss, entry);
+                SourceStats copy = binding.entryToObject(entry);
+                assertEquals("http://seed.example/", copy.getKey());
+                assertTrue(statKeys.containsAll(copy.getStats().keySet()));
+                for (String host : copy.getHostCounts().keySet()) {
+                    assertTrue(host.matches("h[0-3]\\.example"), host);
+                }
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            DatabaseEntry entry = new DatabaseEntry();
+            binding.objectToEntry(ss, entry);
+            SourceStats copy = binding.entryToObject(entry);
+            assertEquals(800L, (long) copy.getStats().get(CrawledBytesHistotable.NOVELCOUNT));
+            assertEquals(200L, (long) copy.getHostCounts().get("h3.example"));
+        }
+    }
+
+    @Test
+    public void testTopHostsPerSource() throws Exception {
+        StatisticsTracker stats = new StatisticsTracker();
+        SourceStats ss = stats.getOrCreateSourceStats("http://seed.example/");
+        for (int host = 1; host <= 5; host++) {
+            for (int i = 0; i < host; i++) {
+                ss.tally(makeCrawlURI("http://h" + host + ".example/" + i, 1),
+                        "h" + host + ".example");
+            }
+        }
+        assertEquals(15L, (long) stats.getSourceStats("http://seed.example/")
+                .get(CrawledBytesHistotable.NOVELCOUNT));
+
+        SourceTagsReport report = new SourceTagsReport();
+        report.setMaxHostsPerSource(2);
+        StringWriter out = new StringWriter();
+        report.write(new PrintWriter(out), stats);
+        assertEquals("[source] [host] [#urls]\n"
+                + "http://seed.example/ h5.example 5\n"
+                + "http://seed.example/ h4.example 4\n", out.toString());
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ *  This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ *  Licensed to the Internet Archive (IA) by one or more individual
+ *  contributors.
+ *
+ *  The IA licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.archive.crawler.spring;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.archive.modules.CrawlURI;
+import org.archive.net.UURIFactory;
+import org.archive.util.PrefixFinder;
+import org.archive.util.SurtPrefixSet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SheetOverlaysManagerTest {
+
+    protected SheetOverlaysManager manager;
+
+    @BeforeEach
+    public void setUp() {
+        manager = new SheetOverlaysManager();
+        manager.addSurtAssociation("http://(com,", "allCom");
+        manager.addSurtAssociation("http://(com,example,", "example");
+        manager.addSurtAssociation("http://(com,example,www,)/", "wwwRoot");
+        manager.addSurtAssociation("http://(com,example,www,)/private/", "private");
+        manager.addSurtAssociation("http://(com,example,www,)/private/", "private2");
+        manager.addSurtAssociation("http://(org,", "allOrg");
+    }
+
+    protected List<String> overlayNames(String uri) throws Exception {
+        CrawlURI curi = new CrawlURI(UURIFactory.getInstance(uri));
+        manager.applyOverlaysTo(curi);
+        return curi.getOverlayNames();
+    }
+
+    /** names in the order of an uncached prefix lookup of the full SURT */
+    protected List<String> expectedNames(String uri) throws Exception {
+        String surt = SurtPrefixSet.getCandidateSurt(UURIFactory.getInstance(uri));
+        List<String> names = new ArrayList<String>();
+        for (String prefix : PrefixFinder.findKeys(manager.getSheetsNamesBySurt(), surt)) {
+            names.addAll(manager.getSheetsNamesBySurt().get(prefix));
+        }
+        return names;
+    }
+
+    @Test
+    public void testCachedMatchesUncached() throws Exception {
+        String[] uris = {
+                "http://www.example.com/",
+                "http://www.example.com/private/x.html",
+                "http://www.example.com/public/x.html",
+                "http://cdn.example.com/private/x.html",
+                "http://other.com/",
+                "https://www.example.org/",
+                "http://example.net/",
+        };
+        // twice, so the second round is served from cache
+        for (int round = 0; round < 2; round++) {
+            for (String uri : uris) {
+                assertEquals(expectedNames(uri), overlayNames(uri), uri);
+            }
+        }
+        assertEquals(Arrays.asList("allCom", "example", "wwwRoot", "private", "private2"),
+                overlayNames("http://www.example.com/private/x.html"));
+    }
+
+    @Test
+    public void testAssociationChangesInvalidate() throws Exception {
+        assertEquals(Arrays.asList("allCom", "example", "wwwRoot"),
+                overlayNames("http://www.example.com/a"));
+        manager.addSurtAssociation("http://(com,example,www,)/a", "a");
+        assertEquals(Arrays.asList("allCom", "example", "wwwRoot", "a"),
+                overlayNames("http://www.example.com/a"));
+        manager.removeSurtAssociation("http://(com,example,", "example");
+        assertEquals(Arrays.asList("allCom", "wwwRoot", "a"),
+                overlayNames("http://www.example.com/a"));
+        manager.deleteSheet("allCom");
+        assertEquals(Arrays.asList("wwwRoot", "a"),
+                overlayNames("http://www.example.com/a"));
+
+        // direct map changes need explicit notice
+        manager.getSheetsNamesBySurt().remove("http://(com,example,www,)/");
+        manager.noteSurtAssociationsChanged();
+        assertEquals(Arrays.asList("a"), overlayNames("http://www.example.com/a"));
+    }
+
+    @Test
+    public void testCacheDisabled() throws Exception {
+        manager.setSurtOverlaysCacheSize(0);
+        assertEquals(expectedNames("http://www.example.com/private/"),
+                overlayNames("http://www.example.com/private/"));
+        assertNull(manager.surtOverlaysCache);
+    }
+}
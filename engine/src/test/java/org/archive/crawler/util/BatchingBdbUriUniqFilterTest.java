@@ -0,0 +1,130 @@
+/*
+ *  This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ *  Licensed to the Internet Archive (IA) by one or more individual
+ *  contributors.
+ *
+ *  The IA licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.archive.crawler.util;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.archive.crawler.datamodel.UriUniqFilter;
+import org.archive.modules.CrawlURI;
+import org.archive.net.UURIFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchingBdbUriUniqFilterTest implements UriUniqFilter.CrawlUriReceiver {
+
+    @TempDir
+    File tempDir;
+
+    protected BatchingBdbUriUniqFilter filter;
+    protected List<CrawlURI> received = new ArrayList<CrawlURI>();
+
+    public synchronized void receive(CrawlURI item) {
+        received.add(item);
+    }
+
+    @BeforeEach
+    protected void setUp() throws Exception {
+        filter = new BatchingBdbUriUniqFilter(new File(tempDir, "bdb"), 50);
+        filter.setBatchSize(100);
+        filter.setDestination(this);
+    }
+
+    @AfterEach
+    protected void tearDown() throws Exception {
+        filter.close();
+    }
+
+    protected void add(int n) throws Exception {
+        String uri = "http://www" + (n % 7) + ".archive.org/" + n + ".html";
+        filter.add(uri, new CrawlURI(UURIFactory.getInstance(uri)));
+    }
+
+    @Test
+    public void testBatching() throws Exception {
+        for (int i = 0; i < 99; i++) {
+            add(i);
+            add(i);
+        }
+        // nothing swept yet; duplicates already dropped within the batch
+        assertEquals(0, received.size());
+        assertEquals(99, filter.pending());
+        assertEquals(0, filter.count());
+
+        add(99);
+        assertEquals(100, received.size());
+        assertEquals(0, filter.pending());
+        assertEquals(100, filter.count());
+
+        // 50 already seen, 40 new
+        for (int i = 50; i < 140; i++) {
+            add(i);
+        }
+        assertEquals(100, received.size());
+        assertEquals(40, filter.flush());
+        assertEquals(140, received.size());
+        assertEquals(140, filter.count());
+
+        filter.note("http://www0.archive.org/noted.html");
+        filter.addNow("http://www0.archive.org/noted.html",
+                new CrawlURI(UURIFactory.getInstance("http://www0.archive.org/noted.html")));
+        assertEquals(140, received.size());
+        assertEquals(141, filter.count());
+    }
+
+    @Test
+    public void testAddForceAfterPendingAdd() throws Exception {
+        String uri = "http://www0.archive.org/forced.html";
+        filter.add(uri, new CrawlURI(UURIFactory.getInstance(uri)));
+        CrawlURI forced = new CrawlURI(UURIFactory.getInstance(uri));
+        filter.addForce(uri, forced);
+        assertEquals(1, received.size());
+        assertSame(forced, received.get(0));
+
+        // sweeping the batch must not schedule the earlier add again
+        assertEquals(0, filter.flush());
+        assertEquals(1, received.size());
+        assertEquals(1, filter.count());
+    }
+
+    @Test
+    public void testFlusherBoundsLatency() throws Exception {
+        filter.setMaxDelayMs(50);
+        filter.startFlusher();
+        try {
+            add(1);
+            assertEquals(1, filter.pending());
+            long deadline = System.currentTimeMillis() + 10000;
+            while (filter.pending() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, filter.pending());
+            synchronized (this) {
+                assertEquals(1, received.size());
+            }
+        } finally {
+            filter.stopFlusher();
+        }
+    }
+}
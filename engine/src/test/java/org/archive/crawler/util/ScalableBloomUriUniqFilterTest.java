@@ -0,0 +1,111 @@
+/*
+ *  This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ *  Licensed to the Internet Archive (IA) by one or more individual
+ *  contributors.
+ *
+ *  The IA licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.archive.crawler.util;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.archive.checkpointing.Checkpoint;
+import org.archive.crawler.datamodel.UriUniqFilter;
+import org.archive.modules.CrawlURI;
+import org.archive.net.UURIFactory;
+import org.archive.spring.ConfigPath;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScalableBloomUriUniqFilterTest implements UriUniqFilter.CrawlUriReceiver {
+
+    @TempDir
+    File tempDir;
+
+    protected List<CrawlURI> received = new ArrayList<CrawlURI>();
+
+    public void receive(CrawlURI item) {
+        received.add(item);
+    }
+
+    protected ScalableBloomUriUniqFilter newFilter() {
+        ScalableBloomUriUniqFilter filter = new ScalableBloomUriUniqFilter();
+        filter.setBeanName("uriUniqFilter");
+        ConfigPath dir = new ConfigPath("test", "uniqbloom");
+        dir.setBase(new ConfigPath("base", tempDir.getAbsolutePath()));
+        filter.setDir(dir);
+        filter.setInitialExpectedInserts(200);
+        filter.setDestination(this);
+        return filter;
+    }
+
+    protected void add(UriUniqFilter filter, int n) throws Exception {
+        String uri = "http://www" + (n % 7) + ".archive.org/" + n + ".html";
+        filter.add(uri, new CrawlURI(UURIFactory.getInstance(uri)));
+    }
+
+    @Test
+    public void testGrowthAndCheckpointRecovery() throws Exception {
+        ScalableBloomUriUniqFilter filter = newFilter();
+        filter.afterPropertiesSet();
+        filter.start();
+        for (int i = 0; i < 1000; i++) {
+            add(filter, i);
+            add(filter, i);
+        }
+        // at 1 in 4 million, a false positive here would be remarkable
+        assertEquals(1000, filter.count());
+        assertEquals(1000, received.size());
+        assertTrue(filter.getScalableBloom().getLayerCount() > 1);
+
+        StringWriter report = new StringWriter();
+        filter.reportTo(new PrintWriter(report));
+        assertTrue(report.toString().startsWith(filter.shortReportLegend()));
+        assertTrue(report.toString().contains("1000 "), report.toString());
+
+        Checkpoint checkpoint = new Checkpoint();
+        checkpoint.generateFrom(new ConfigPath("checkpoints",
+                new File(tempDir, "checkpoints").getAbsolutePath()), 1);
+        filter.doCheckpoint(checkpoint);
+        filter.stop();
+        filter.close();
+
+        received.clear();
+        ScalableBloomUriUniqFilter recovered = newFilter();
+        recovered.setRecoveryCheckpoint(checkpoint);
+        recovered.start();
+        assertEquals(1000, recovered.count());
+        for (int i = 0; i < 1100; i++) {
+            add(recovered, i);
+        }
+        assertEquals(100, received.size());
+        assertEquals(1100, recovered.count());
+        recovered.close();
+
+        // a fresh (non-recovery) start forgets everything
+        received.clear();
+        ScalableBloomUriUniqFilter fresh = newFilter();
+        fresh.start();
+        assertEquals(0, fresh.count());
+        add(fresh, 0);
+        assertEquals(1, received.size());
+        fresh.close();
+    }
+}
@@ -19,8 +19,12 @@
 
 package org.archive.crawler.util;
 
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.archive.io.warc.WARCWriter;
 import org.archive.modules.CoreAttributeConstants;
@@ -30,6 +34,15 @@ import org.archive.modules.revisit.ServerNotModifiedRevisit;
 import org.archive.util.ArchiveUtils;
 import org.archive.util.Histotable;
 
+/**
+ * Tallies of bytes and URIs crawled, by kind of content (novel, or
+ * duplicate in one way or another).
+ * 
+ * <p>{@link #accumulate(CrawlURI)}, called by every thread finishing a
+ * URI, counts into striped LongAdder cells rather than the map itself, so
+ * as not to take a lock. The cells are folded into the map whenever it is
+ * read.
+ */
 public class CrawledBytesHistotable extends Histotable<String> 
 implements CoreAttributeConstants {
     private static final long serialVersionUID = 7923431123239026213L;
@@ -48,6 +61,9 @@ implements CoreAttributeConstants {
     public static final String WARC_NOVEL_CONTENT_BYTES = "warcNovelContentBytes";
     public static final String WARC_NOVEL_URLS = "warcNovelUrls";
 
+    /** counts added without locking, not yet folded into the map */
+    protected transient volatile ConcurrentHashMap<String,LongAdder> unfolded;
+
     public CrawledBytesHistotable() {
         super();
     }
@@ -56,27 +72,119 @@ implements CoreAttributeConstants {
         super(comparator);
     }
 
+    /**
+     * Add to the tally for the given key, without locking. The count shows
+     * in the map once folded in, on the next read.
+     */
+    protected void add(String key, long count) {
+        if (count == 0) {
+            return;
+        }
+        ConcurrentHashMap<String,LongAdder> cells = unfolded;
+        if (cells == null) {
+            synchronized (this) {
+                cells = unfolded;
+                if (cells == null) {
+                    unfolded = cells = new ConcurrentHashMap<String,LongAdder>();
+                }
+            }
+        }
+        LongAdder cell = cells.get(key);
+        if (cell == null) {
+            cell = cells.computeIfAbsent(key, k -> new LongAdder());
+        }
+        cell.add(count);
+    }
+
+    /**
+     * Fold counts added without locking into the map.
+     */
+    protected synchronized void fold() {
+        ConcurrentHashMap<String,LongAdder> cells = unfolded;
+        if (cells == null) {
+            return;
+        }
+        for (Map.Entry<String,LongAdder> cell : cells.entrySet()) {
+            long count = cell.getValue().sumThenReset();
+            if (count != 0) {
+                long tally = super.get(cell.getKey()) + count;
+                if (tally != 0) {
+                    put(cell.getKey(), tally);
+                } else {
+                    remove(cell.getKey());
+                }
+            }
+        }
+    }
+
+    @Override
+    public Long get(Object key) {
+        fold();
+        return super.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        fold();
+        return super.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        fold();
+        return super.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        fold();
+        return super.isEmpty();
+    }
+
+    @Override
+    public Set<Map.Entry<String,Long>> entrySet() {
+        fold();
+        return super.entrySet();
+    }
+
+    @Override
+    public Set<String> keySet() {
+        fold();
+        return super.keySet();
+    }
+
+    @Override
+    public Collection<Long> values() {
+        fold();
+        return super.values();
+    }
+
+    protected Object writeReplace() {
+        fold();
+        return this;
+    }
+
     @SuppressWarnings("unchecked")
     public void accumulate(CrawlURI curi) {
         if (curi.getRevisitProfile() instanceof ServerNotModifiedRevisit) {
-            tally(NOTMODIFIED, curi.getContentSize());
-            tally(NOTMODIFIEDCOUNT,1);
+            add(NOTMODIFIED, curi.getContentSize());
+            add(NOTMODIFIEDCOUNT, 1);
         } else if (curi.getRevisitProfile() instanceof IdenticalPayloadDigestRevisit) {
-            tally(DUPLICATE,curi.getContentSize());
-            tally(DUPLICATECOUNT,1);
+            add(DUPLICATE, curi.getContentSize());
+            add(DUPLICATECOUNT, 1);
         } else if (curi.getRevisitProfile() != null) {
-            tally(OTHERDUPLICATE, curi.getContentSize());
-            tally(OTHERDUPLICATECOUNT, 1);
+            add(OTHERDUPLICATE, curi.getContentSize());
+            add(OTHERDUPLICATECOUNT, 1);
         } else {
-            tally(NOVEL,curi.getContentSize());
-            tally(NOVELCOUNT,1);
+            add(NOVEL, curi.getContentSize());
+            add(NOVELCOUNT, 1);
         }
         Map<String,Map<String,Long>> warcStats = (Map<String,Map<String,Long>>) curi.getData().get(A_WARC_STATS);
         if (warcStats != null) {
-            tally(WARC_NOVEL_CONTENT_BYTES,
+            add(WARC_NOVEL_CONTENT_BYTES,
                     WARCWriter.getStat(warcStats, "response", "contentBytes")
                     + WARCWriter.getStat(warcStats, "resource", "contentBytes"));
-            tally(WARC_NOVEL_URLS,
+            add(WARC_NOVEL_URLS,
                     WARCWriter.getStat(warcStats, "response", "numRecords")
                     + WARCWriter.getStat(warcStats, "resource", "numRecords"));
         }
@@ -22,6 +22,8 @@ package org.archive.modules;
 import org.archive.url.URIException;
 import org.apache.commons.lang3.StringUtils;
 import org.archive.bdb.AutoKryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
 import org.archive.modules.credential.Credential;
 import org.archive.modules.credential.HttpAuthenticationCredential;
 import org.archive.modules.extractor.HTMLLinkContext;
@@ -1712,7 +1714,290 @@ implements Reporter, Serializable, OverlayContext, Comparable<CrawlURI> {
         kryo.autoregister(org.apache.http.NameValuePair[].class);
         kryo.autoregister(FetchType.class);
     }
+
+    //
+    // Compact encoding, for URIs awaiting fetch in a frontier queue
+    //
+
+    protected static final int COMPACT_SEED = 1;
+    protected static final int COMPACT_FORCE_REVISIT = 1 << 1;
+    protected static final int COMPACT_PREREQUISITE = 1 << 2;
+    protected static final int COMPACT_VIA = 1 << 3;
+    protected static final int COMPACT_VIA_CONTEXT = 1 << 4;
+    protected static final int COMPACT_CANONICAL = 1 << 5;
+    protected static final int COMPACT_CANONICAL_IS_URI = 1 << 6;
+    protected static final int COMPACT_DATA = 1 << 7;
+
+    protected static final byte COMPACT_STRING = 1;
+    protected static final byte COMPACT_BOOLEAN = 2;
+    protected static final byte COMPACT_INT = 3;
+    protected static final byte COMPACT_LONG = 4;
+    protected static final byte COMPACT_STRING_SET = 5;
+
+    /**
+     * Data keys common on not-yet-fetched URIs, written as their index
+     * here rather than in full
+     */
+    protected static final String[] COMPACT_DATA_KEYS = {
+        A_SOURCE_TAG, A_HERITABLE_KEYS, A_FORCE_RETIRE
+    };
+
+    /**
+     * Whether {@link #writeCompactTo(Output)} captures all persistent
+     * state of this CrawlURI other than its classKey. That is the case
+     * for URIs not yet fetched, or only deferred or failed without
+     * response, and whose data map holds only strings, booleans,
+     * integers, longs and sets of strings.
+     */
+    public boolean isCompactable() {
+        if (userAgent != null || contentSize != UNCALCULATED
+                || contentLength != UNCALCULATED || contentDigest != null
+                || contentDigestScheme != null || fetchType != FetchType.UNKNOWN
+                || !"unknown".equals(contentType)
+                || (extraInfo != null && extraInfo.length() > 0)) {
+            return false;
+        }
+        if (viaContext != null && !(viaContext instanceof LinkContext.SimpleLinkContext)
+                && viaContext.getClass() != HTMLLinkContext.class) {
+            return false;
+        }
+        if (data != null) {
+            for (Object value : data.values()) {
+                if (compactTypeOf(value) == 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    protected static byte compactTypeOf(Object value) {
+        if (value instanceof String) {
+            return COMPACT_STRING;
+        } else if (value instanceof Boolean) {
+            return COMPACT_BOOLEAN;
+        } else if (value instanceof Integer) {
+            return COMPACT_INT;
+        } else if (value instanceof Long) {
+            return COMPACT_LONG;
+        } else if (value != null && value.getClass() == HashSet.class) {
+            for (Object o : (HashSet<?>) value) {
+                if (!(o instanceof String)) {
+                    return 0;
+                }
+            }
+            return COMPACT_STRING_SET;
+        }
+        return 0;
+    }
+
+    /**
+     * Write this CrawlURI's state, which must be
+     * {@link #isCompactable()}, without its classKey (which a frontier
+     * queue already implies) and without the field-by-field overhead of
+     * general serialization.
+     *
+     * @param out destination
+     * @see #readCompactFrom(Input)
+     */
+    public void writeCompactTo(Output out) {
+        boolean hasData = data != null && !data.isEmpty();
+        int flags = (isSeed ? COMPACT_SEED : 0)
+            | (forceRevisit ? COMPACT_FORCE_REVISIT : 0)
+            | (prerequisite ? COMPACT_PREREQUISITE : 0)
+            | (via != null ? COMPACT_VIA : 0)
+            | (viaContext != null ? COMPACT_VIA_CONTEXT : 0)
+            | (hasData ? COMPACT_DATA : 0);
+        String uri = uuri.toCustomString();
+        if (canonicalString != null) {
+            flags |= canonicalString.equals(uri)
+                    ? COMPACT_CANONICAL_IS_URI : COMPACT_CANONICAL;
+        }
+        out.writeVarInt(flags, true);
+        out.writeString(uri);
+        out.writeString(pathFromSeed);
+        // via and canonical form usually share much of the URI
+        if (via != null) {
+            writeCompactDelta(out, uri, via.toCustomString());
+        }
+        if (viaContext != null) {
+            out.writeString(viaContext.toString());
+        }
+        if ((flags & COMPACT_CANONICAL) != 0) {
+            writeCompactDelta(out, uri, canonicalString);
+        }
+        out.writeVarInt(schedulingDirective, true);
+        out.writeVarInt(precedence, true);
+        out.writeVarLong(ordinal, true);
+        out.writeVarInt(holderCost, false);
+        out.writeVarLong(politenessDelay, false);
+        out.writeVarLong(rescheduleTime, false);
+        out.writeVarInt(fetchStatus, false);
+        out.writeVarInt(fetchAttempts, true);
+        out.writeVarInt(deferrals, true);
+        if (hasData) {
+            out.writeVarInt(data.size(), true);
+            for (Map.Entry<String,Object> entry : data.entrySet()) {
+                writeCompactDataKey(out, entry.getKey());
+                Object value = entry.getValue();
+                byte type = compactTypeOf(value);
+                out.writeByte(type);
+                switch (type) {
+                case COMPACT_STRING:
+                    out.writeString((String) value);
+                    break;
+                case COMPACT_BOOLEAN:
+                    out.writeBoolean((Boolean) value);
+                    break;
+                case COMPACT_INT:
+                    out.writeVarInt((Integer) value, false);
+                    break;
+                case COMPACT_LONG:
+                    out.writeVarLong((Long) value, false);
+                    break;
+                case COMPACT_STRING_SET:
+                    HashSet<?> set = (HashSet<?>) value;
+                    out.writeVarInt(set.size(), true);
+                    for (Object o : set) {
+                        writeCompactDataKey(out, (String) o);
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("not compactable: "
+                            + entry.getKey() + "=" + value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Read a CrawlURI written by {@link #writeCompactTo(Output)}. Its
+     * classKey is left unset.
+     *
+     * @param in source
+     * @return the CrawlURI
+     */
+    public static CrawlURI readCompactFrom(Input in) {
+        CrawlURI curi = new CrawlURI();
+        int flags = in.readVarInt(true);
+        String uri = in.readString();
+        curi.uuri = readCompactUuri(uri);
+        curi.pathFromSeed = in.readString();
+        curi.isSeed = (flags & COMPACT_SEED) != 0;
+        curi.forceRevisit = (flags & COMPACT_FORCE_REVISIT) != 0;
+        curi.prerequisite = (flags & COMPACT_PREREQUISITE) != 0;
+        if ((flags & COMPACT_VIA) != 0) {
+            curi.via = readCompactUuri(readCompactDelta(in, uri));
+        }
+        if ((flags & COMPACT_VIA_CONTEXT) != 0) {
+            String context = in.readString();
+            curi.viaContext = context.startsWith("=")
+                    ? new LinkContext.SimpleLinkContext(context)
+                    : HTMLLinkContext.get(context);
+        }
+        if ((flags & COMPACT_CANONICAL) != 0) {
+            curi.canonicalString = readCompactDelta(in, uri);
+        } else if ((flags & COMPACT_CANONICAL_IS_URI) != 0) {
+            curi.canonicalString = uri;
+        }
+        curi.schedulingDirective = in.readVarInt(true);
+        curi.precedence = in.readVarInt(true);
+        curi.ordinal = in.readVarLong(true);
+        curi.holderCost = in.readVarInt(false);
+        curi.politenessDelay = in.readVarLong(false);
+        curi.rescheduleTime = in.readVarLong(false);
+        curi.fetchStatus = in.readVarInt(false);
+        curi.fetchAttempts = in.readVarInt(true);
+        curi.deferrals = in.readVarInt(true);
+        if ((flags & COMPACT_DATA) != 0) {
+            int size = in.readVarInt(true);
+            curi.data = new HashMap<String,Object>();
+            for (int i = 0; i < size; i++) {
+                String key = readCompactDataKey(in);
+                byte type = in.readByte();
+                switch (type) {
+                case COMPACT_STRING:
+                    curi.data.put(key, in.readString());
+                    break;
+                case COMPACT_BOOLEAN:
+                    curi.data.put(key, in.readBoolean());
+                    break;
+                case COMPACT_INT:
+                    curi.data.put(key, in.readVarInt(false));
+                    break;
+                case COMPACT_LONG:
+                    curi.data.put(key, in.readVarLong(false));
+                    break;
+                case COMPACT_STRING_SET:
+                    int n = in.readVarInt(true);
+                    HashSet<String> set = new HashSet<String>();
+                    for (int j = 0; j < n; j++) {
+                        set.add(readCompactDataKey(in));
+                    }
+                    curi.data.put(key, set);
+                    break;
+                default:
+                    throw new IllegalStateException("bad compact data type " + type);
+                }
+            }
+        }
+        return curi;
+    }
     
+    protected static UURI readCompactUuri(String uri) {
+        try {
+            // already in UURI form; parse without fixup, as in UURI's own
+            // serialization
+            return new UURI(uri, true, "UTF-8");
+        } catch (URIException e) {
+            throw new IllegalStateException("bad stored URI " + uri, e);
+        }
+    }
+
+    /**
+     * Write s as the lengths of its common prefix and suffix with base,
+     * and whatever differs between them.
+     */
+    protected static void writeCompactDelta(Output out, String base, String s) {
+        int max = Math.min(base.length(), s.length());
+        int prefix = 0;
+        while (prefix < max && base.charAt(prefix) == s.charAt(prefix)) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < max - prefix && base.charAt(base.length() - 1 - suffix)
+                == s.charAt(s.length() - 1 - suffix)) {
+            suffix++;
+        }
+        out.writeVarInt(prefix, true);
+        out.writeVarInt(suffix, true);
+        out.writeString(s.substring(prefix, s.length() - suffix));
+    }
+
+    protected static String readCompactDelta(Input in, String base) {
+        int prefix = in.readVarInt(true);
+        int suffix = in.readVarInt(true);
+        String middle = in.readString();
+        return base.substring(0, prefix) + middle
+            + base.substring(base.length() - suffix);
+    }
+
+    protected static void writeCompactDataKey(Output out, String key) {
+        for (int i = 0; i < COMPACT_DATA_KEYS.length; i++) {
+            if (COMPACT_DATA_KEYS[i].equals(key)) {
+                out.writeVarInt(i + 1, true);
+                return;
+            }
+        }
+        out.writeVarInt(0, true);
+        out.writeString(key);
+    }
+
+    protected static String readCompactDataKey(Input in) {
+        int index = in.readVarInt(true);
+        return (index == 0) ? in.readString() : COMPACT_DATA_KEYS[index - 1];
+    }
+
     /**
      * Do all actions associated with setting a <code>CrawlURI</code> as
      * requiring a prerequisite.
@@ -103,6 +103,15 @@ implements HasKeyedProperties,
      */
     protected AtomicLong uriCount = new AtomicLong(0);
 
+    /**
+     * Time, allocation and errors of this processor's invocations, as 
+     * recorded by its chains.
+     */
+    protected ProcessorStats processorStats = new ProcessorStats();
+    public ProcessorStats getProcessorStats() {
+        return processorStats;
+    }
+
     
     /**
      * Processes the given URI.  First checks {@link #getEnabled()} and
@@ -51,6 +51,33 @@ implements Iterable<Processor>,
         kp.put("processors",processors);
     }
 
+    /**
+     * How much this chain records of each processor's invocations, in the
+     * processor's {@link Processor#getProcessorStats()}.
+     */
+    public enum Instrumentation {
+        /** nothing; only the processor's own URI count */
+        NONE,
+        /** time taken and errors thrown */
+        LATENCY,
+        /** as LATENCY, plus bytes allocated by the calling thread */
+        ALLOCATION
+    }
+
+    /**
+     * What to record of each processor invocation: NONE for least
+     * overhead; LATENCY (the default), costing two clock reads per
+     * processor per URI; or ALLOCATION, which also reads the thread's
+     * allocation counter twice, if the JVM supports it.
+     */
+    protected Instrumentation instrumentation = Instrumentation.LATENCY;
+    public Instrumentation getInstrumentation() {
+        return instrumentation;
+    }
+    public void setInstrumentation(Instrumentation instrumentation) {
+        this.instrumentation = instrumentation;
+    }
+
     protected boolean isRunning = false; 
     public boolean isRunning() {
         return isRunning;
@@ -89,6 +116,7 @@ implements Iterable<Processor>,
 
         for (Processor p: this) {
             writer.print(p.report());
+            p.getProcessorStats().reportTo(writer);
             writer.println();
         }
         writer.println();
@@ -105,6 +133,18 @@ implements Iterable<Processor>,
         return data;
     }
 
+    /**
+     * @return each processor's {@link ProcessorStats#shortReportMap()},
+     * by bean name, in chain order
+     */
+    public Map<String, Object> processorStatsMap() {
+        Map<String,Object> data = new LinkedHashMap<String, Object>();
+        for (Processor p : this) {
+            data.put(p.getBeanName(), p.getProcessorStats().shortReportMap());
+        }
+        return data;
+    }
+
     public void shortReportLineTo(PrintWriter pw) {
         pw.print(size());
         pw.print(" processors: ");
@@ -115,30 +155,89 @@ implements Iterable<Processor>,
     }
 
     public void process(CrawlURI curi, ChainStatusReceiver thread) throws InterruptedException {
+        process(curi, thread, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Run the given URI through part of the chain: from the processor at
+     * index start, up to but not including the first at or after index 
+     * stop that the URI would reach. So a URI may be carried through the
+     * chain in stages, each perhaps on a different thread (with the 
+     * URI's overrides loaded), each stage starting where the last
+     * stopped.
+     * 
+     * @param curi URI to process
+     * @param thread to notify of each processor reached, or null
+     * @param start index of first processor to run
+     * @param stop index of processor to stop before
+     * @return index of the processor to resume at; or the chain size, if 
+     * the URI has been through the whole chain (or been told to FINISH)
+     * @throws InterruptedException
+     */
+    public int process(CrawlURI curi, ChainStatusReceiver thread, int start,
+            int stop) throws InterruptedException {
         assert KeyedProperties.overridesActiveFrom(curi);
-        String skipToProc = null; 
-        
-        ploop: for(Processor curProc : this ) {
-            if(skipToProc!=null && !curProc.getBeanName().equals(skipToProc)) {
-                continue;
-            } else {
-                skipToProc = null; 
+        List<Processor> processors = getProcessors();
+        int i = start;
+        while (i < processors.size()) {
+            if (i >= stop) {
+                return i;
             }
+            Processor curProc = processors.get(i);
             if(thread!=null) {
                 thread.atProcessor(curProc);
             }
             ArchiveUtils.continueCheck();
-            ProcessResult pr = curProc.process(curi);
+            Instrumentation mode = instrumentation;
+            ProcessResult pr = (mode == Instrumentation.NONE)
+                    ? curProc.process(curi)
+                    : processInstrumented(curProc, curi, mode);
             switch (pr.getProcessStatus()) {
                 case PROCEED:
+                    i++;
                     continue;
                 case FINISH:
-                    break ploop;
+                    return processors.size();
                 case JUMP:
-                    skipToProc = pr.getJumpTarget();
+                    i = indexOf(processors, pr.getJumpTarget(), i + 1);
                     continue;
             }
         }
+        return processors.size();
+    }
+
+    /**
+     * @return index of the first processor at or after from with the 
+     * given bean name, or the list size if none
+     */
+    protected static int indexOf(List<Processor> processors, String beanName,
+            int from) {
+        for (int i = from; i < processors.size(); i++) {
+            if (processors.get(i).getBeanName().equals(beanName)) {
+                return i;
+            }
+        }
+        return processors.size();
+    }
+
+    protected ProcessResult processInstrumented(Processor proc, CrawlURI curi,
+            Instrumentation mode) throws InterruptedException {
+        boolean allocation = (mode == Instrumentation.ALLOCATION);
+        long allocatedBefore = allocation 
+                ? ProcessorStats.currentThreadAllocatedBytes() : -1;
+        long start = System.nanoTime();
+        boolean error = false;
+        try {
+            return proc.process(curi);
+        } catch (RuntimeException | Error e) {
+            error = true;
+            throw e;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            long allocated = (allocatedBefore < 0) ? -1
+                    : ProcessorStats.currentThreadAllocatedBytes() - allocatedBefore;
+            proc.getProcessorStats().record(elapsed, allocated, error);
+        }
     }
     
     public interface ChainStatusReceiver {
@@ -0,0 +1,143 @@
+/*
+ *  This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ *  Licensed to the Internet Archive (IA) by one or more individual
+ *  contributors.
+ *
+ *  The IA licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.archive.modules;
+
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.archive.util.ArchiveUtils;
+import org.archive.util.LatencyHistogram;
+
+/**
+ * Time taken, bytes allocated and errors thrown by one Processor, over
+ * all its invocations by the ProcessorChains it belongs to. Recorded by
+ * the chain, as set by {@link ProcessorChain#setInstrumentation}.
+ */
+public class ProcessorStats {
+    /**
+     * The JVM's per-thread allocation counter, or null if it has none
+     */
+    protected static final com.sun.management.ThreadMXBean ALLOCATION_BEAN =
+        allocationBean();
+
+    protected static com.sun.management.ThreadMXBean allocationBean() {
+        try {
+            if (ManagementFactory.getThreadMXBean()
+                    instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean bean =
+                    (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+                if (bean.isThreadAllocatedMemorySupported()) {
+                    bean.setThreadAllocatedMemoryEnabled(true);
+                    return bean;
+                }
+            }
+        } catch (RuntimeException e) {
+            // unsupported; leave allocation untracked
+        }
+        return null;
+    }
+
+    /**
+     * @return bytes allocated by the current thread so far, or -1 if not
+     * known
+     */
+    public static long currentThreadAllocatedBytes() {
+        return (ALLOCATION_BEAN == null) ? -1
+                : ALLOCATION_BEAN.getCurrentThreadAllocatedBytes();
+    }
+
+    /** microseconds per invocation */
+    protected final LatencyHistogram latency = new LatencyHistogram();
+    protected final AtomicLong allocatedBytes = new AtomicLong();
+    protected final AtomicLong allocationCount = new AtomicLong();
+    protected final AtomicLong errors = new AtomicLong();
+
+    /**
+     * @param nanos time taken by one invocation
+     * @param allocated bytes allocated by it, or negative if not known
+     * @param error whether it threw
+     */
+    public void record(long nanos, long allocated, boolean error) {
+        latency.record(nanos / 1000);
+        if (allocated >= 0) {
+            allocatedBytes.addAndGet(allocated);
+            allocationCount.incrementAndGet();
+        }
+        if (error) {
+            errors.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return microseconds per invocation
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * @return bytes allocated, over invocations with allocation tracked
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes.get();
+    }
+
+    public long getErrors() {
+        return errors.get();
+    }
+
+    public Map<String,Object> shortReportMap() {
+        Map<String,Object> map = new LinkedHashMap<String,Object>();
+        map.put("invocations", latency.getCount());
+        map.put("meanMicros", Math.round(latency.getMean()));
+        map.put("p50Micros", latency.getPercentile(0.5));
+        map.put("p99Micros", latency.getPercentile(0.99));
+        map.put("maxMicros", latency.getMax());
+        long allocations = allocationCount.get();
+        map.put("allocatedBytes", allocatedBytes.get());
+        map.put("allocatedBytesPerInvocation",
+                (allocations == 0) ? 0 : allocatedBytes.get() / allocations);
+        map.put("errors", errors.get());
+        return map;
+    }
+
+    public void reportTo(PrintWriter writer) {
+        if (latency.getCount() == 0) {
+            return;
+        }
+        writer.print("  Invocations: " + latency.getCount()
+                + "; time (us) mean " + Math.round(latency.getMean())
+                + ", p50 " + latency.getPercentile(0.5)
+                + ", p99 " + latency.getPercentile(0.99)
+                + ", max " + latency.getMax() + "\n");
+        long allocations = allocationCount.get();
+        if (allocations > 0) {
+            writer.print("  Allocated: "
+                    + ArchiveUtils.formatBytesForDisplay(allocatedBytes.get())
+                    + " (" + ArchiveUtils.formatBytesForDisplay(
+                            allocatedBytes.get() / allocations)
+                    + " per invocation)\n");
+        }
+        writer.print("  Errors: " + errors.get() + "\n");
+    }
+}
@@ -0,0 +1,463 @@
+/*
+ *  This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ *  Licensed to the Internet Archive (IA) by one or more individual
+ *  contributors.
+ *
+ *  The IA licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.archive.modules.fetcher;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.archive.util.Reporter;
+import org.xbill.DNS.ARecord;
+import org.xbill.DNS.DClass;
+import org.xbill.DNS.Lookup;
+import org.xbill.DNS.Message;
+import org.xbill.DNS.Name;
+import org.xbill.DNS.Rcode;
+import org.xbill.DNS.Record;
+import org.xbill.DNS.Resolver;
+import org.xbill.DNS.SOARecord;
+import org.xbill.DNS.Section;
+import org.xbill.DNS.TextParseException;
+import org.xbill.DNS.Type;
+
+/**
+ * Resolves host names in the background, so that by the time a host's
+ * 'dns:' URI is processed its answer is usually already at hand and
+ * FetchDNS need not wait on the network.
+ *
+ * <p>The frontier asks for a host to be prefetched when the first URI of
+ * a queue is scheduled. Prefetches wait their turn, at most
+ * maxOutstandingLookups being sent at once; lookups asked for by FetchDNS
+ * itself are sent straight away. Queries go out through dnsjava's
+ * non-blocking resolvers, and no thread waits on them.
+ *
+ * <p>Answers are kept until their TTL runs out: that of the first A
+ * record for a resolved name, or for a name that does not exist (or has
+ * no A record) the negative-caching TTL given by the SOA record of the
+ * reply (RFC 2308), at most maxNegativeTtlSeconds. Failures, such as
+ * timeouts or SERVFAIL, are not kept, and neither are replies only
+ * giving a CNAME, which FetchDNS then looks up itself.
+ */
+public class AsyncDnsResolver implements Reporter {
+    private static final Logger logger =
+        Logger.getLogger(AsyncDnsResolver.class.getName());
+
+    /**
+     * A cached reply for one name.
+     */
+    public static class Answer {
+        protected final List<ARecord> records;
+        protected final long expires;
+
+        protected Answer(List<ARecord> records, long ttlSeconds, long now) {
+            this.records = records;
+            this.expires = now + ttlSeconds * 1000;
+        }
+
+        /**
+         * @return whether the name has no A record (or does not exist)
+         */
+        public boolean isNegative() {
+            return records.isEmpty();
+        }
+
+        public boolean isExpired(long now) {
+            return expires <= now;
+        }
+
+        /**
+         * @param now time now in ms
+         * @return the A records of the answer, with TTLs counting down
+         * the time they have been cached, as a caching resolver would give
+         * them
+         */
+        public Record[] getRecords(long now) {
+            long ttl = Math.max(0, (expires - now) / 1000);
+            Record[] result = new Record[records.size()];
+            for (int i = 0; i < result.length; i++) {
+                ARecord r = records.get(i);
+                result[i] = new ARecord(r.getName(), r.getDClass(),
+                        Math.min(ttl, r.getTTL()), r.getAddress());
+            }
+            return result;
+        }
+    }
+
+    protected Resolver resolver;
+    public Resolver getResolver() {
+        return resolver == null ? Lookup.getDefaultResolver() : resolver;
+    }
+    /**
+     * Resolver to send queries to. By default, dnsjava's default resolver,
+     * which asks the name servers of the system configuration.
+     */
+    public void setResolver(Resolver resolver) {
+        this.resolver = resolver;
+    }
+
+    protected int maxOutstandingLookups = 100;
+    public int getMaxOutstandingLookups() {
+        return maxOutstandingLookups;
+    }
+    /**
+     * Most prefetch lookups awaiting a reply at once; others wait for
+     * their turn.
+     */
+    public void setMaxOutstandingLookups(int maxOutstandingLookups) {
+        this.maxOutstandingLookups = maxOutstandingLookups;
+    }
+
+    protected long maxNegativeTtlSeconds = 300;
+    public long getMaxNegativeTtlSeconds() {
+        return maxNegativeTtlSeconds;
+    }
+    /**
+     * Longest time to remember that a name could not be resolved, and
+     * how long to remember it when the reply gives no negative-caching
+     * TTL.
+     */
+    public void setMaxNegativeTtlSeconds(long maxNegativeTtlSeconds) {
+        this.maxNegativeTtlSeconds = maxNegativeTtlSeconds;
+    }
+
+    protected int maxCacheEntries = 100000;
+    public int getMaxCacheEntries() {
+        return maxCacheEntries;
+    }
+    /**
+     * Most answers to keep, and most prefetches to hold waiting. When
+     * full, expired answers are dropped; failing that, new answers are
+     * not kept.
+     */
+    public void setMaxCacheEntries(int maxCacheEntries) {
+        this.maxCacheEntries = maxCacheEntries;
+    }
+
+    protected int timeoutSeconds = 15;
+    public int getTimeoutSeconds() {
+        return timeoutSeconds;
+    }
+    /**
+     * Longest time FetchDNS waits for a lookup already under way before
+     * doing its own.
+     */
+    public void setTimeoutSeconds(int timeoutSeconds) {
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    protected final Map<String,Answer> cache =
+        new ConcurrentHashMap<String,Answer>();
+    protected final Map<String,CompletableFuture<Answer>> inFlight =
+        new ConcurrentHashMap<String,CompletableFuture<Answer>>();
+    protected final Queue<String> pending = new ConcurrentLinkedQueue<String>();
+    /** size of pending, which the queue itself can only count in O(n) */
+    protected final AtomicInteger pendingCount = new AtomicInteger();
+    protected int outstanding = 0;
+    /**
+     * Whether the current thread is already in {@link #dispatch()}, as
+     * when a lookup fails before send() returns; the outer call goes on
+     * to use the freed slot, rather than recursing once per waiting name
+     */
+    protected final ThreadLocal<Boolean> dispatching =
+        ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    protected final AtomicLong lookups = new AtomicLong();
+    protected final AtomicLong prefetches = new AtomicLong();
+    protected final AtomicLong cacheHits = new AtomicLong();
+    protected final AtomicLong negativeAnswers = new AtomicLong();
+    protected final AtomicLong failures = new AtomicLong();
+
+    /**
+     * @return the name as looked up and cached: lower case, and absolute
+     */
+    public static String toLookupName(String host) {
+        String name = host.toLowerCase();
+        return name.endsWith(".") ? name : name + ".";
+    }
+
+    /**
+     * Look up the given host in the background, unless its answer is
+     * cached or already being looked up.
+     */
+    public void prefetch(String host) {
+        String name = toLookupName(host);
+        if (getCached(name) != null || inFlight.containsKey(name)
+                || pendingCount.get() >= getMaxCacheEntries()) {
+            return;
+        }
+        pendingCount.incrementAndGet();
+        pending.add(name);
+        dispatch();
+    }
+
+    /**
+     * @return the unexpired cached answer for the given host, if any
+     */
+    public Answer getCached(String host) {
+        String name = toLookupName(host);
+        Answer answer = cache.get(name);
+        if (answer != null && answer.isExpired(System.currentTimeMillis())) {
+            cache.remove(name, answer);
+            answer = null;
+        }
+        return answer;
+    }
+
+    /**
+     * @return future answer for the given host: the cached one if any,
+     * otherwise that of a lookup already under way, or else of one begun
+     * now. It completes with null if the lookup failed.
+     */
+    public CompletableFuture<Answer> resolve(String host) {
+        String name = toLookupName(host);
+        Answer answer = getCached(name);
+        if (answer != null) {
+            cacheHits.incrementAndGet();
+            return CompletableFuture.completedFuture(answer);
+        }
+        return send(name, false);
+    }
+
+    /**
+     * Wait up to timeoutSeconds for the answer for the given host.
+     *
+     * @return the answer, or null if it could not be had in time
+     */
+    public Answer await(String host) {
+        try {
+            return resolve(host).get(getTimeoutSeconds(), TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            logger.log(Level.FINE, "no answer in time for " + host, e);
+        }
+        return null;
+    }
+
+    /**
+     * Send waiting prefetches, as far as maxOutstandingLookups allows.
+     */
+    protected void dispatch() {
+        if (dispatching.get()) {
+            return;
+        }
+        dispatching.set(Boolean.TRUE);
+        try {
+            while (true) {
+                String name;
+                synchronized (this) {
+                    if (outstanding >= getMaxOutstandingLookups()
+                            || (name = pending.poll()) == null) {
+                        return;
+                    }
+                    pendingCount.decrementAndGet();
+                    outstanding++;
+                }
+                if (getCached(name) != null || inFlight.containsKey(name)) {
+                    release();
+                    continue;
+                }
+                prefetches.incrementAndGet();
+                send(name, true);
+            }
+        } finally {
+            dispatching.set(Boolean.FALSE);
+        }
+    }
+
+    protected synchronized void release() {
+        outstanding--;
+    }
+
+    /**
+     * Send a query for the given name, unless one is already under way.
+     *
+     * @param counted whether the lookup holds one of the
+     * maxOutstandingLookups slots, to free on reply
+     */
+    protected CompletableFuture<Answer> send(final String name,
+            final boolean counted) {
+        CompletableFuture<Answer> created = new CompletableFuture<Answer>();
+        CompletableFuture<Answer> future = inFlight.putIfAbsent(name, created);
+        if (future != null) {
+            if (counted) {
+                release();
+            }
+            return future;
+        }
+        lookups.incrementAndGet();
+        try {
+            Message query = Message.newQuery(Record.newRecord(
+                    Name.fromString(name), Type.A, DClass.IN));
+            getResolver().sendAsync(query).whenComplete((response, error) -> {
+                Answer answer = null;
+                if (error != null) {
+                    logger.log(Level.FINE, "failed lookup of " + name, error);
+                } else {
+                    answer = toAnswer(response, System.currentTimeMillis());
+                }
+                finish(name, created, answer, counted);
+            });
+        } catch (TextParseException | RuntimeException e) {
+            logger.log(Level.FINE, "failed lookup of " + name, e);
+            finish(name, created, null, counted);
+        }
+        return created;
+    }
+
+    protected void finish(String name, CompletableFuture<Answer> future,
+            Answer answer, boolean counted) {
+        if (answer == null) {
+            failures.incrementAndGet();
+        } else {
+            if (answer.isNegative()) {
+                negativeAnswers.incrementAndGet();
+            }
+            store(name, answer);
+        }
+        inFlight.remove(name, future);
+        future.complete(answer);
+        if (counted) {
+            release();
+            dispatch();
+        }
+    }
+
+    protected void store(String name, Answer answer) {
+        if (cache.size() >= getMaxCacheEntries()) {
+            long now = System.currentTimeMillis();
+            Iterator<Answer> iter = cache.values().iterator();
+            while (iter.hasNext()) {
+                if (iter.next().isExpired(now)) {
+                    iter.remove();
+                }
+            }
+            if (cache.size() >= getMaxCacheEntries()) {
+                return;
+            }
+        }
+        cache.put(name, answer);
+    }
+
+    /**
+     * @return the answer given by the reply, or null if it gives neither
+     * A records nor a definite negative answer
+     */
+    protected Answer toAnswer(Message response, long now) {
+        int rcode = response.getRcode();
+        if (rcode != Rcode.NOERROR && rcode != Rcode.NXDOMAIN) {
+            return null;
+        }
+        List<ARecord> records = new ArrayList<ARecord>();
+        boolean cname = false;
+        if (rcode == Rcode.NOERROR) {
+            for (Record r : response.getSection(Section.ANSWER)) {
+                if (r instanceof ARecord aRecord) {
+                    records.add(aRecord);
+                } else if (r.getType() == Type.CNAME) {
+                    cname = true;
+                }
+            }
+        }
+        if (!records.isEmpty()) {
+            // cache the RRset no longer than its shortest-lived record
+            long ttl = Long.MAX_VALUE;
+            for (ARecord r : records) {
+                ttl = Math.min(ttl, r.getTTL());
+            }
+            return new Answer(records, ttl, now);
+        }
+        if (cname) {
+            // chain not followed by the server; leave it to Lookup
+            return null;
+        }
+        long ttl = getMaxNegativeTtlSeconds();
+        for (Record r : response.getSection(Section.AUTHORITY)) {
+            if (r instanceof SOARecord soa) {
+                ttl = Math.min(ttl, Math.min(soa.getTTL(), soa.getMinimum()));
+            }
+        }
+        return new Answer(records, ttl, now);
+    }
+
+    public long getLookups() {
+        return lookups.get();
+    }
+
+    public long getPrefetches() {
+        return prefetches.get();
+    }
+
+    public long getCacheHits() {
+        return cacheHits.get();
+    }
+
+    public long getNegativeAnswers() {
+        return negativeAnswers.get();
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+
+    @Override
+    public void reportTo(PrintWriter writer) {
+        writer.print("DNS lookups: " + getLookups() + " (" + getPrefetches()
+                + " prefetched); cache hits: " + getCacheHits()
+                + "; negative answers: " + getNegativeAnswers()
+                + "; failures: " + getFailures() + "; cached: " + cache.size()
+                + "; waiting: " + pendingCount.get() + "\n");
+    }
+
+    @Override
+    public void shortReportLineTo(PrintWriter pw) {
+        pw.print(getLookups() + " " + getCacheHits() + " "
+                + getNegativeAnswers() + " " + getFailures());
+    }
+
+    @Override
+    public String shortReportLegend() {
+        return "lookups cacheHits negativeAnswers failures";
+    }
+
+    @Override
+    public Map<String, Object> shortReportMap() {
+        Map<String,Object> map = new LinkedHashMap<String, Object>();
+        map.put("lookups", getLookups());
+        map.put("prefetches", getPrefetches());
+        map.put("cacheHits", getCacheHits());
+        map.put("negativeAnswers", getNegativeAnswers());
+        map.put("failures", getFailures());
+        return map;
+    }
+}
@@ -34,12 +34,12 @@ import org.apache.commons.collections.collection.CompositeCollection;
 import org.apache.http.client.CookieStore;
 import org.apache.http.cookie.Cookie;
 import org.archive.bdb.BdbModule;
+import org.archive.bdb.VersionedKryoBinding;
 import org.archive.checkpointing.Checkpoint;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import com.google.common.net.InternetDomainName;
 import com.sleepycat.bind.ByteArrayBinding;
-import com.sleepycat.bind.serial.SerialBinding;
 import com.sleepycat.bind.serial.StoredClassCatalog;
 import com.sleepycat.collections.StoredSortedMap;
 import com.sleepycat.je.Database;
@@ -120,7 +120,7 @@ public class BdbCookieStore extends AbstractCookieStore implements
                     isCheckpointRecovery);
             cookies = new StoredSortedMap<byte[],Cookie>(cookieDb,
                     new ByteArrayBinding(), 
-                    new SerialBinding<Cookie>(classCatalog, Cookie.class), 
+                    new VersionedKryoBinding<Cookie>(classCatalog, Cookie.class), 
                     true);
         } catch (DatabaseException e) {
             throw new RuntimeException(e);
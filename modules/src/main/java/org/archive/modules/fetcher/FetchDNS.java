@@ -27,6 +27,8 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.security.MessageDigest;
@@ -143,6 +145,19 @@ public class FetchDNS extends Processor {
     public void setServerCache(ServerCache serverCache) {
         this.serverCache = serverCache;
     }
+
+    /**
+     * Background resolver whose answers, prefetched or cached, are used
+     * in place of blocking lookups, if one is configured.
+     */
+    protected AsyncDnsResolver asyncDnsResolver;
+    public AsyncDnsResolver getAsyncDnsResolver() {
+        return this.asyncDnsResolver;
+    }
+    @Autowired(required=false)
+    public void setAsyncDnsResolver(AsyncDnsResolver asyncDnsResolver) {
+        this.asyncDnsResolver = asyncDnsResolver;
+    }
     
     {
         setDigestContent(true);
@@ -209,10 +224,16 @@ public class FetchDNS extends Processor {
         String lookupName = dnsName.endsWith(".") ? dnsName : dnsName + ".";
         // If we have not disabled JavaDNS, use that:
         if (!getDisableJavaDnsResolves()) {
-            try {
-                rrecordSet = createDNSLookup(lookupName).run();
-            } catch (TextParseException e) {
-                rrecordSet = null;
+            AsyncDnsResolver.Answer answer = awaitAsyncAnswer(lookupName);
+            if (answer != null) {
+                rrecordSet = answer.isNegative() ? null
+                        : answer.getRecords(System.currentTimeMillis());
+            } else {
+                try {
+                    rrecordSet = createDNSLookup(lookupName).run();
+                } catch (TextParseException e) {
+                    rrecordSet = null;
+                }
             }
         }
         curi.setContentType("text/dns");
@@ -255,6 +276,20 @@ public class FetchDNS extends Processor {
         curi.setFetchCompletedTime(System.currentTimeMillis());
     }
     
+    /**
+     * @return the answer of the asyncDnsResolver, if there is one and no
+     * DNS-over-HTTP server is set, waiting on a lookup under way if need
+     * be; otherwise null
+     */
+    protected AsyncDnsResolver.Answer awaitAsyncAnswer(String lookupName) {
+        AsyncDnsResolver resolver = getAsyncDnsResolver();
+        if (resolver == null
+                || StringUtils.isNotEmpty(getDnsOverHttpServer())) {
+            return null;
+        }
+        return resolver.await(lookupName);
+    }
+
     protected void storeDNSRecord(final CrawlURI curi, final String dnsName,
     		final CrawlHost targetHost, final Record[] rrecordSet) {
         // Get TTL and IP info from the first A record (there may be
@@ -414,6 +449,18 @@ public class FetchDNS extends Processor {
         return true;
     }
 
+    @Override
+    public String report() {
+        StringBuilder ret = new StringBuilder(super.report());
+        AsyncDnsResolver resolver = getAsyncDnsResolver();
+        if (resolver != null) {
+            StringWriter sw = new StringWriter();
+            resolver.reportTo(new PrintWriter(sw));
+            ret.append("  " + sw);
+        }
+        return ret.toString();
+    }
+
     protected Lookup createDNSLookup(String lookupName)
             throws TextParseException {
         Lookup lookup = new Lookup(lookupName, TypeType, ClassType);
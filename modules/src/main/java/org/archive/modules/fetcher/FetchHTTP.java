@@ -28,6 +28,9 @@ import static org.archive.modules.fetcher.FetchStatusCodes.S_UNFETCHABLE_URI;
 import static org.archive.modules.recrawl.RecrawlAttributeConstants.A_REFERENCE_LENGTH;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.nio.charset.Charset;
 import java.security.MessageDigest;
 import java.util.Arrays;
@@ -38,15 +41,17 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.net.ssl.SSLContext;
-import javax.net.ssl.TrustManager;
 
 import org.archive.url.URIException;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.Header;
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpHeaders;
 import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
@@ -61,13 +66,19 @@ import org.apache.http.client.config.AuthSchemes;
 import org.apache.http.client.methods.AbstractExecutionAwareRequest;
 import org.apache.http.config.Lookup;
 import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.HttpClientConnectionManager;
 import org.apache.http.entity.ContentType;
 import org.apache.http.impl.auth.BasicSchemeFactory;
 import org.apache.http.impl.auth.DigestSchemeFactory;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.IdleConnectionEvictor;
 import org.apache.http.impl.client.ProxyAuthenticationStrategy;
 import org.apache.http.impl.client.TargetAuthenticationStrategy;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.message.BasicHeader;
-import org.archive.httpclient.ConfigurableX509TrustManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
 import org.archive.httpclient.ConfigurableX509TrustManager.TrustLevel;
 import org.archive.io.RecorderLengthExceededException;
 import org.archive.io.RecorderTimeoutException;
@@ -158,7 +169,12 @@ public class FetchHTTP extends Processor implements Lifecycle {
         return (Boolean) kp.get("sendConnectionClose");
     }
     /**
-     * Send 'Connection: close' header with every request.
+     * Send 'Connection: close' header with every request. If false, 
+     * connections (other than through proxies) are kept open after each
+     * fetch, in a pool shared by all threads, so that later fetches from
+     * the same server may reuse them rather than connecting (and, for 
+     * https, handshaking) again; see maxPooledConnections, 
+     * maxPooledConnectionsPerServer and connectionKeepAliveMs.
      */
     public void setSendConnectionClose(boolean sendClose) {
         kp.put("sendConnectionClose",sendClose);
@@ -188,9 +204,9 @@ public class FetchHTTP extends Processor implements Lifecycle {
         return (Boolean) kp.get("useHTTP11");
     }
     /**
-     * Use HTTP/1.1. Note: even when offering an HTTP/1.1 request, 
-     * Heritrix may not properly handle persistent/keep-alive connections, 
-     * so the sendConnectionClose parameter should remain 'true'. 
+     * Use HTTP/1.1. Servers generally keep connections open only for 
+     * HTTP/1.1 requests, so this is needed for connections to be reused
+     * if sendConnectionClose is false.
      */
     public void setUseHTTP11(boolean useHTTP11) {
         kp.put("useHTTP11",useHTTP11);
@@ -484,8 +500,8 @@ public class FetchHTTP extends Processor implements Lifecycle {
         if (sslTrustLevel != this.sslTrustLevel) {
             this.sslTrustLevel = sslTrustLevel;
             
-            // force sslContext to be reinitialized with new trust level
-            sslContext = null;
+            // pooled connections were made with the old trust level
+            closeConnectionPool();
         }
     }
 
@@ -510,21 +526,112 @@ public class FetchHTTP extends Processor implements Lifecycle {
     }
 
 
-    protected transient SSLContext sslContext;
-    protected synchronized SSLContext sslContext() {
-        if (sslContext == null) {
-            try {
-                TrustManager trustManager = new ConfigurableX509TrustManager(
-                        getSslTrustLevel());
-                sslContext = SSLContext.getInstance("SSL");
-                sslContext.init(null, new TrustManager[] {trustManager}, null);
-            } catch (Exception e) {
-                logger.log(Level.WARNING, "Failed configure of ssl context "
-                        + e.getMessage(), e);
+    protected int maxPooledConnections = 1000;
+    public int getMaxPooledConnections() {
+        return maxPooledConnections;
+    }
+    /**
+     * Most connections kept open at once, in use or idle, if 
+     * sendConnectionClose is false. When all are in use, fetches wait
+     * for one (up to soTimeoutMs), so this should be well above the 
+     * number of threads fetching; when the limit is reached, the 
+     * connection idle longest is closed to make room for a new one.
+     */
+    public void setMaxPooledConnections(int maxPooledConnections) {
+        this.maxPooledConnections = maxPooledConnections;
+    }
+
+    protected int maxPooledConnectionsPerServer = 4;
+    public int getMaxPooledConnectionsPerServer() {
+        return maxPooledConnectionsPerServer;
+    }
+    /**
+     * Most connections kept open at once to any one server (scheme, host
+     * and port), if sendConnectionClose is false.
+     */
+    public void setMaxPooledConnectionsPerServer(int maxPooledConnectionsPerServer) {
+        this.maxPooledConnectionsPerServer = maxPooledConnectionsPerServer;
+    }
+
+    protected long connectionKeepAliveMs = 15000;
+    public long getConnectionKeepAliveMs() {
+        return connectionKeepAliveMs;
+    }
+    /**
+     * Longest a connection is kept open, idle, for reuse, if 
+     * sendConnectionClose is false (less if the server says it keeps 
+     * connections open for less). A server's queue snoozing for longer 
+     * than this, for politeness, finds its connections closed, rather 
+     * than holding them open for nothing. 
+     */
+    public void setConnectionKeepAliveMs(long connectionKeepAliveMs) {
+        this.connectionKeepAliveMs = connectionKeepAliveMs;
+    }
+
+    protected transient PoolingHttpClientConnectionManager connectionPool;
+    protected transient IdleConnectionEvictor connectionEvictor;
+    protected final AtomicLong connectionsReused = new AtomicLong();
+
+    /**
+     * @return pool of connections kept open between requests, created
+     * on first use
+     */
+    protected synchronized HttpClientConnectionManager connectionPool() {
+        if (connectionPool == null) {
+            connectionPool = FetchHTTPRequest.buildConnectionPool(this,
+                    connectionsReused);
+            connectionEvictor = new IdleConnectionEvictor(connectionPool,
+                    Math.max(getConnectionKeepAliveMs() / 2, 100),
+                    TimeUnit.MILLISECONDS, getConnectionKeepAliveMs(),
+                    TimeUnit.MILLISECONDS);
+            connectionEvictor.start();
+        }
+        return connectionPool;
+    }
+
+    protected synchronized void closeConnectionPool() {
+        if (connectionPool != null) {
+            connectionEvictor.shutdown();
+            connectionPool.shutdown();
+            connectionEvictor = null;
+            connectionPool = null;
+        }
+    }
+
+    /**
+     * @return how long to keep a connection open for reuse after a 
+     * response: as long as the server says, up to connectionKeepAliveMs
+     */
+    protected ConnectionKeepAliveStrategy keepAliveStrategy() {
+        return new ConnectionKeepAliveStrategy() {
+            @Override
+            public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+                long serverMs = DefaultConnectionKeepAliveStrategy.INSTANCE
+                        .getKeepAliveDuration(response, context);
+                return serverMs > 0 ? Math.min(serverMs, getConnectionKeepAliveMs())
+                        : getConnectionKeepAliveMs();
             }
+        };
+    }
+
+    protected SslContextProvider sslContextProvider;
+    public SslContextProvider getSslContextProvider() {
+        if (sslContextProvider == null) {
+            return SslContextProvider.getDefault();
         }
+        return sslContextProvider;
+    }
+    /**
+     * Source of the SSLContext, and so of the TLS session cache, shared
+     * with other fetchers. If not set, a default shared by the whole JVM.
+     */
+    @Autowired(required=false)
+    public void setSslContextProvider(SslContextProvider sslContextProvider) {
+        this.sslContextProvider = sslContextProvider;
+    }
 
-        return sslContext;
+    protected SSLContext sslContext() {
+        return getSslContextProvider().getSslContext(getSslTrustLevel());
     }
 
 
@@ -713,6 +820,7 @@ public class FetchHTTP extends Processor implements Lifecycle {
                 try {
                     contentLength = Long.parseLong(contentLengthHeader);
                 } catch (NumberFormatException e) {
+                    req.releaseConnection();
                     cleanup(curi, e, "invalid content-length header", S_CONNECT_LOST);
                     return;
                 }
@@ -722,7 +830,9 @@ public class FetchHTTP extends Processor implements Lifecycle {
             if (!req.request.isAborted()) {
                 // Force read-to-end, so that any socket hangs occur here,
                 // not in later modules.
-                rec.getRecordedInput().readToEndOfContent(contentLength); 
+                if (!req.isReusingConnection() || !readToEndOfEntity(response)) {
+                    rec.getRecordedInput().readToEndOfContent(contentLength);
+                }
             }
         } catch (RecorderTimeoutException ex) {
             doAbort(curi, req.request, TIMER_TRUNC);
@@ -738,6 +848,7 @@ public class FetchHTTP extends Processor implements Lifecycle {
             cleanup(curi, e, "readFully", S_CONNECT_LOST);
             return;
         } finally {
+            req.releaseConnection();
             rec.close();
             // ensure recording has stopped
             rec.closeRecorders();
@@ -790,6 +901,33 @@ public class FetchHTTP extends Processor implements Lifecycle {
     }
 
 
+    /**
+     * Read the response body through its entity: to the end of the 
+     * content-length, or the last chunk, not to the end of the stream, 
+     * so that the connection may be kept for another request. 
+     * 
+     * @return false if the body runs to the end of the stream, so was
+     * not read
+     */
+    protected boolean readToEndOfEntity(HttpResponse response)
+            throws IOException, InterruptedException {
+        HttpEntity entity = response.getEntity();
+        if (entity == null) {
+            return true; // no body, as for HEAD or 304
+        }
+        if (!entity.isChunked() && entity.getContentLength() < 0) {
+            return false;
+        }
+        InputStream in = entity.getContent();
+        byte[] buf = new byte[16 * 1024];
+        while (in.read(buf) != -1) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException("Interrupted during IO");
+            }
+        }
+        return true;
+    }
+
     /**
      * Promote successful credential to the server.
      * 
@@ -1100,6 +1238,7 @@ public class FetchHTTP extends Processor implements Lifecycle {
             return;
         }
         super.stop();
+        closeConnectionPool();
         // At the end save cookies to the file specified in the order file.
         if (getCookieStore() != null) {
             AbstractCookieStore r = getCookieStore();
@@ -1111,6 +1250,23 @@ public class FetchHTTP extends Processor implements Lifecycle {
         }
     }
 
+    @Override
+    public String report() {
+        StringBuilder ret = new StringBuilder(super.report());
+        PoolingHttpClientConnectionManager pool = connectionPool;
+        if (pool != null) {
+            PoolStats stats = pool.getTotalStats();
+            ret.append("  Pooled connections: " + stats.getLeased() + " in use, "
+                    + stats.getAvailable() + " idle, " + stats.getPending()
+                    + " awaited; requests on reused connections: "
+                    + connectionsReused.get() + "\n");
+        }
+        StringWriter tls = new StringWriter();
+        getSslContextProvider().reportTo(new PrintWriter(tls));
+        ret.append("  " + tls);
+        return ret.toString();
+    }
+
     protected static String getServerKey(CrawlURI uri) {
         try {
             return CrawlServer.getServerKey(uri.getUURI());
@@ -24,6 +24,7 @@ import org.apache.commons.io.output.NullOutputStream;
 import org.apache.http.client.CookieStore;
 import org.apache.http.cookie.Cookie;
 import org.apache.http.impl.cookie.BasicClientCookie;
+import org.archive.httpclient.ConfigurableX509TrustManager.TrustLevel;
 import org.archive.io.RecorderLengthExceededException;
 import org.archive.io.RecorderTimeoutException;
 import org.archive.modules.CrawlURI;
@@ -46,6 +47,7 @@ import org.eclipse.jetty.io.ClientConnectionFactory;
 import org.eclipse.jetty.io.ClientConnector;
 import org.eclipse.jetty.io.Connection;
 import org.eclipse.jetty.io.EndPoint;
+import org.eclipse.jetty.io.ssl.SslHandshakeListener;
 import org.eclipse.jetty.quic.client.ClientQuicConfiguration;
 import org.eclipse.jetty.quic.quiche.jna.LibQuiche;
 import org.eclipse.jetty.util.Promise;
@@ -55,6 +57,8 @@ import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.Lifecycle;
 
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.*;
@@ -126,6 +130,8 @@ public class FetchHTTP2 extends Processor implements Lifecycle, InitializingBean
 
     protected HttpClient createHttpClient(AbstractCookieStore cookieStore) {
         var sslContextFactory = new SslContextFactory.Client();
+        SSLContext sslContext = getSslContextProvider().getSslContext(getSslTrustLevel());
+        if (sslContext != null) sslContextFactory.setSslContext(sslContext);
         var connector = new ClientConnector();
         connector.setSslContextFactory(sslContextFactory);
         var connectionFactories = new ArrayList<ClientConnectionFactory.Info>();
@@ -157,9 +163,28 @@ public class FetchHTTP2 extends Processor implements Lifecycle, InitializingBean
             httpClient.setSocketAddressResolver(this::resolveSocketAddress);
         }
         if (cookieStore != null) httpClient.setHttpCookieStore(new CookieStoreAdaptor(cookieStore));
+        httpClient.addBean(new HandshakeTally());
         return httpClient;
     }
 
+    /**
+     * Counts TLS handshakes, and those resuming an earlier session, in the
+     * shared totals and the server's substats.
+     */
+    protected class HandshakeTally implements SslHandshakeListener {
+        @Override
+        public void handshakeSucceeded(Event event) {
+            if (event.getEndPoint() == null) return;
+            SSLEngine engine = event.getSSLEngine();
+            boolean resumed = getSslContextProvider().noteHandshake(engine.getSession(),
+                    event.getEndPoint().getCreatedTimeStamp());
+            if (serverCache != null && engine.getPeerHost() != null) {
+                serverCache.getServerFor(engine.getPeerHost() + ":" + engine.getPeerPort())
+                        .getSubstats().tallyTlsHandshake(resumed);
+            }
+        }
+    }
+
     /**
      * Resolves a socket address using the ServerCache (instead of a live DNS query).
      */
@@ -235,6 +260,7 @@ public class FetchHTTP2 extends Processor implements Lifecycle, InitializingBean
             recordRequest(request, recorder);
             Response response = listener.get(getTimeoutSeconds(), TimeUnit.SECONDS);
             handleAltSvcHeader(curi, response);
+            noteHttp2Capable(curi, response);
             curi.getRecorder().inputWrap(null);
             updateCrawlURIWithResponseHeader(curi, response);
             recordResponse(response, recorder, listener);
@@ -260,6 +286,35 @@ public class FetchHTTP2 extends Processor implements Lifecycle, InitializingBean
         }
     }
 
+    protected TrustLevel sslTrustLevel = TrustLevel.NORMAL;
+    public TrustLevel getSslTrustLevel() {
+        return sslTrustLevel;
+    }
+    /**
+     * SSL certificate trust level, as for {@link FetchHTTP#setSslTrustLevel}.
+     * Defaults to 'normal'. Whatever the level, the certificate must match
+     * the server name. Takes effect when the fetcher is next started.
+     */
+    public void setSslTrustLevel(TrustLevel sslTrustLevel) {
+        this.sslTrustLevel = sslTrustLevel;
+    }
+
+    protected SslContextProvider sslContextProvider;
+    public SslContextProvider getSslContextProvider() {
+        if (sslContextProvider == null) {
+            return SslContextProvider.getDefault();
+        }
+        return sslContextProvider;
+    }
+    /**
+     * Source of the SSLContext, and so of the TLS session cache, shared
+     * with other fetchers. If not set, a default shared by the whole JVM.
+     */
+    @Autowired(required = false)
+    public void setSslContextProvider(SslContextProvider sslContextProvider) {
+        this.sslContextProvider = sslContextProvider;
+    }
+
     public String getHttpProxyHost() {
         return (String) kp.get("httpProxyHost");
     }
@@ -301,6 +356,19 @@ public class FetchHTTP2 extends Processor implements Lifecycle, InitializingBean
     private record HttpProxySettings(String host, int port) {
     }
 
+    /**
+     * Notes on the CrawlServer whether it answered over a multiplexing
+     * protocol, which lets the frontier lease several of its URIs at once
+     * (see WorkQueueFrontier's http2BatchSize).
+     */
+    private void noteHttp2Capable(CrawlURI curi, Response response) {
+        if (!curi.getUURI().getScheme().equals("https")) return;
+        CrawlServer crawlServer = serverCache.getServerFor(curi.getUURI());
+        if (crawlServer == null) return;
+        crawlServer.setHttp2Capable(response.getVersion().equals(HttpVersion.HTTP_2)
+                || response.getVersion().equals(HttpVersion.HTTP_3));
+    }
+
     /**
      * Handles the Alt-Svc HTTP header to enable HTTP/3 alternative service.
      * Does nothing if useHTTP3 is disabled.
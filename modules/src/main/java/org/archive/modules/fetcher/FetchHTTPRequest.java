@@ -40,6 +40,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 
@@ -95,7 +96,9 @@ import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.conn.BasicHttpClientConnectionManager;
 import org.apache.http.impl.conn.DefaultHttpResponseParserFactory;
 import org.apache.http.impl.conn.ManagedHttpClientConnectionFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.impl.io.DefaultHttpRequestWriterFactory;
+import org.apache.http.impl.io.SessionInputBufferImpl;
 import org.apache.http.io.HttpMessageParserFactory;
 import org.apache.http.io.HttpMessageWriterFactory;
 import org.apache.http.message.BasicNameValuePair;
@@ -179,6 +182,12 @@ public class FetchHTTPRequest {
     // make this a member variable so it doesn't get gc'd prematurely
     protected HttpClientConnectionManager connMan;
 
+    /**
+     * Whether the connection comes from, and goes back to, the fetcher's
+     * shared pool, rather than being made for this request alone
+     */
+    protected boolean reuseConnection;
+
     public FetchHTTPRequest(FetchHTTP fetcher, CrawlURI curi) throws URIException {
         this.fetcher = fetcher;
         this.curi = curi;
@@ -253,6 +262,10 @@ public class FetchHTTPRequest {
         if (proxyHost != null) {
             request.addHeader("Proxy-Connection", "close");
         }
+
+        // connections through proxies are not kept
+        this.reuseConnection = !fetcher.getSendConnectionClose()
+                && proxyHost == null && !useSocksProxy;
         
         initHttpClientBuilder();
         configureHttpClientBuilder();
@@ -593,8 +606,14 @@ public class FetchHTTPRequest {
         CookieStore cookieStore = fetcher.getCookieStore().cookieStoreFor(curi);
         httpClientBuilder.setDefaultCookieStore(cookieStore);
         
-        connMan = buildConnectionManager();
-        httpClientBuilder.setConnectionManager(connMan);
+        if (reuseConnection) {
+            httpClientBuilder.setConnectionManager(fetcher.connectionPool());
+            httpClientBuilder.setConnectionManagerShared(true);
+            httpClientBuilder.setKeepAliveStrategy(fetcher.keepAliveStrategy());
+        } else {
+            connMan = buildConnectionManager();
+            httpClientBuilder.setConnectionManager(connMan);
+        }
     }
 
     protected HttpClientConnectionManager buildConnectionManager() {
@@ -606,59 +625,15 @@ public class FetchHTTPRequest {
                     .register("https", new SocksSSLSocketFactory(SSLContexts.createSystemDefault()))
                     .build();
         } else {
-            socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory>create()
-                    .register("http", PlainConnectionSocketFactory.INSTANCE)
-                    .register(
-                            "https",
-                            new SSLConnectionSocketFactory(fetcher.sslContext(),
-                                    new AllowAllHostnameVerifier()) {
-
-                                @Override
-                                public Socket createLayeredSocket(
-                                        final Socket socket, final String target,
-                                        final int port, final HttpContext context)
-                                        throws IOException {
-
-                                    return super.createLayeredSocket(socket,
-                                            isDisableSNI() ? "" : target, port,
-                                            context);
-                                }
-                            })
-                    .build();
+            socketFactoryRegistry = directSocketFactoryRegistry(
+                    fetcher, isDisableSNI());
         }
 
 
         DnsResolver dnsResolver = new ServerCacheResolver(fetcher.getServerCache());
 
-        ManagedHttpClientConnectionFactory connFactory = new ManagedHttpClientConnectionFactory(){
-            private static final int DEFAULT_BUFSIZE = 8 * 1024;
-
-            @Override
-            public ManagedHttpClientConnection create(HttpRoute route,
-                    ConnectionConfig config) {
-                final ConnectionConfig cconfig = config != null ? config : ConnectionConfig.DEFAULT;
-                CharsetDecoder chardecoder = null;
-                CharsetEncoder charencoder = null;
-                final Charset charset = cconfig.getCharset();
-                final CodingErrorAction malformedInputAction = cconfig.getMalformedInputAction() != null ?
-                        cconfig.getMalformedInputAction() : CodingErrorAction.REPORT;
-                final CodingErrorAction unmappableInputAction = cconfig.getUnmappableInputAction() != null ?
-                        cconfig.getUnmappableInputAction() : CodingErrorAction.REPORT;
-                if (charset != null) {
-                    chardecoder = charset.newDecoder();
-                    chardecoder.onMalformedInput(malformedInputAction);
-                    chardecoder.onUnmappableCharacter(unmappableInputAction);
-                    charencoder = charset.newEncoder();
-                    charencoder.onMalformedInput(malformedInputAction);
-                    charencoder.onUnmappableCharacter(unmappableInputAction);
-                }
-                return new RecordingHttpClientConnection(DEFAULT_BUFSIZE,
-                        DEFAULT_BUFSIZE, chardecoder, charencoder,
-                        cconfig.getMessageConstraints(), null, null,
-                        DefaultHttpRequestWriterFactory.INSTANCE,
-                        DefaultHttpResponseParserFactory.INSTANCE, proxyHost, curi);
-            }
-        };
+        ManagedHttpClientConnectionFactory connFactory =
+                new RecordingHttpClientConnectionFactory(proxyHost, curi);
         BasicHttpClientConnectionManager connMan = new BasicHttpClientConnectionManager(
                 socketFactoryRegistry, connFactory, null, dnsResolver);
         
@@ -668,6 +643,135 @@ public class FetchHTTPRequest {
         
         return connMan;
     }
+
+    /**
+     * HttpContext attribute noting whether the TLS handshake done for a 
+     * request, if any, resumed an earlier session
+     */
+    protected static final String TLS_RESUMED = "heritrix.tls-resumed";
+
+    /**
+     * @return socket factories for connecting straight to servers, 
+     * without any proxy, with the fetcher's shared SSLContext
+     */
+    protected static Registry<ConnectionSocketFactory> directSocketFactoryRegistry(
+            FetchHTTP fetcher, final boolean disableSNI) {
+        final SslContextProvider tls = fetcher.getSslContextProvider();
+        return RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", PlainConnectionSocketFactory.INSTANCE)
+                .register(
+                        "https",
+                        new SSLConnectionSocketFactory(fetcher.sslContext(),
+                                new AllowAllHostnameVerifier()) {
+
+                            @Override
+                            public Socket createLayeredSocket(
+                                    final Socket socket, final String target,
+                                    final int port, final HttpContext context)
+                                    throws IOException {
+                                long began = System.currentTimeMillis();
+                                Socket layered = super.createLayeredSocket(socket,
+                                        disableSNI ? "" : target, port,
+                                        context);
+                                if (layered instanceof SSLSocket) {
+                                    boolean resumed = tls.noteHandshake(
+                                            ((SSLSocket) layered).getSession(), began);
+                                    if (context != null) {
+                                        context.setAttribute(TLS_RESUMED, resumed);
+                                    }
+                                }
+                                return layered;
+                            }
+                        })
+                .build();
+    }
+
+    /**
+     * Shared pool of connections kept open between requests, for the
+     * given fetcher. Connections are keyed by route, that is by scheme, 
+     * host and port (and any local bind address): per CrawlServer. 
+     * 
+     * @param reused counter of requests sent on already-used connections
+     */
+    protected static PoolingHttpClientConnectionManager buildConnectionPool(
+            FetchHTTP fetcher, AtomicLong reused) {
+        PoolingHttpClientConnectionManager pool = new PoolingHttpClientConnectionManager(
+                directSocketFactoryRegistry(fetcher, false),
+                new RecordingHttpClientConnectionFactory(reused), null,
+                new ServerCacheResolver(fetcher.getServerCache()), -1,
+                TimeUnit.MILLISECONDS);
+        pool.setMaxTotal(fetcher.getMaxPooledConnections());
+        pool.setDefaultMaxPerRoute(fetcher.getMaxPooledConnectionsPerServer());
+        pool.setDefaultSocketConfig(SocketConfig.custom()
+                .setSoTimeout(fetcher.getSoTimeoutMs()).build());
+        // check an idle connection is still open before reusing it
+        pool.setValidateAfterInactivity(1000);
+        return pool;
+    }
+
+    /**
+     * Makes connections that record what is sent and received through
+     * them: for one URI's request, or, if shared, for each request in
+     * turn.
+     */
+    protected static class RecordingHttpClientConnectionFactory extends ManagedHttpClientConnectionFactory {
+        private static final int DEFAULT_BUFSIZE = 8 * 1024;
+
+        protected final HttpHost proxyHost;
+        protected final CrawlURI curi;
+        protected final AtomicLong reused;
+
+        /**
+         * Factory of connections each for the given URI alone
+         */
+        public RecordingHttpClientConnectionFactory(HttpHost proxyHost, CrawlURI curi) {
+            this.proxyHost = proxyHost;
+            this.curi = curi;
+            this.reused = null;
+        }
+
+        /**
+         * Factory of connections to be shared, kept between requests
+         */
+        public RecordingHttpClientConnectionFactory(AtomicLong reused) {
+            this.proxyHost = null;
+            this.curi = null;
+            this.reused = reused;
+        }
+
+        @Override
+        public ManagedHttpClientConnection create(HttpRoute route,
+                ConnectionConfig config) {
+            final ConnectionConfig cconfig = config != null ? config : ConnectionConfig.DEFAULT;
+            CharsetDecoder chardecoder = null;
+            CharsetEncoder charencoder = null;
+            final Charset charset = cconfig.getCharset();
+            final CodingErrorAction malformedInputAction = cconfig.getMalformedInputAction() != null ?
+                    cconfig.getMalformedInputAction() : CodingErrorAction.REPORT;
+            final CodingErrorAction unmappableInputAction = cconfig.getUnmappableInputAction() != null ?
+                    cconfig.getUnmappableInputAction() : CodingErrorAction.REPORT;
+            if (charset != null) {
+                chardecoder = charset.newDecoder();
+                chardecoder.onMalformedInput(malformedInputAction);
+                chardecoder.onUnmappableCharacter(unmappableInputAction);
+                charencoder = charset.newEncoder();
+                charencoder.onMalformedInput(malformedInputAction);
+                charencoder.onUnmappableCharacter(unmappableInputAction);
+            }
+            if (curi == null) {
+                return new ReusableRecordingHttpClientConnection(DEFAULT_BUFSIZE,
+                        DEFAULT_BUFSIZE, chardecoder, charencoder,
+                        cconfig.getMessageConstraints(), null, null,
+                        DefaultHttpRequestWriterFactory.INSTANCE,
+                        DefaultHttpResponseParserFactory.INSTANCE, reused);
+            }
+            return new RecordingHttpClientConnection(DEFAULT_BUFSIZE,
+                    DEFAULT_BUFSIZE, chardecoder, charencoder,
+                    cconfig.getMessageConstraints(), null, null,
+                    DefaultHttpRequestWriterFactory.INSTANCE,
+                    DefaultHttpResponseParserFactory.INSTANCE, proxyHost, curi);
+        }
+    }
     
     protected static class RecordingHttpClientConnection extends DefaultBHttpClientConnection
     implements ManagedHttpClientConnection {
@@ -742,6 +846,10 @@ public class FetchHTTPRequest {
              * on urls that are retried within httpcomponents. Exercised by
              * FetchHTTPTests.testNoResponse()
              */
+            closeRecorder();
+        }
+
+        protected void closeRecorder() {
             Recorder recorder = Recorder.getHttpRecorder();
             if (recorder != null) {
                 recorder.close();
@@ -770,6 +878,199 @@ public class FetchHTTPRequest {
         }
     }
     
+    /**
+     * A connection kept open between requests, perhaps for different
+     * URIs on different threads. Each request sent on it is recorded by
+     * the Recorder of the thread sending it, from the first byte of the 
+     * request to the end of the response; anything read or written 
+     * outside a request, such as by the pool checking the connection is 
+     * still open, is not recorded.
+     */
+    protected static class ReusableRecordingHttpClientConnection extends RecordingHttpClientConnection {
+        /** URI of the request the current thread is sending, if any */
+        protected static final ThreadLocal<CrawlURI> CURRENT_CURI = new ThreadLocal<CrawlURI>();
+
+        protected final AtomicLong reused;
+        protected RecorderSwitchingInputStream in;
+        protected RecorderSwitchingOutputStream out;
+
+        public ReusableRecordingHttpClientConnection(
+                final int buffersize,
+                final int fragmentSizeHint,
+                final CharsetDecoder chardecoder,
+                final CharsetEncoder charencoder,
+                final MessageConstraints constraints,
+                final ContentLengthStrategy incomingContentStrategy,
+                final ContentLengthStrategy outgoingContentStrategy,
+                final HttpMessageWriterFactory<HttpRequest> requestWriterFactory,
+                final HttpMessageParserFactory<HttpResponse> responseParserFactory,
+                AtomicLong reused) {
+            super(buffersize, fragmentSizeHint, chardecoder, charencoder,
+                    constraints, incomingContentStrategy, outgoingContentStrategy,
+                    requestWriterFactory, responseParserFactory, null, null);
+            this.reused = reused;
+        }
+
+        @Override
+        public void sendRequestHeader(HttpRequest request) throws HttpException, IOException {
+            startRecording();
+            super.sendRequestHeader(request);
+        }
+
+        /**
+         * Start recording a new request, into the current thread's Recorder.
+         */
+        protected void startRecording() throws IOException {
+            Socket socket = getSocket();
+            if (socket == null) {
+                return; // not open; sending will fail
+            }
+            if (in == null) {
+                in = new RecorderSwitchingInputStream(socket.getInputStream());
+                out = new RecorderSwitchingOutputStream(socket.getOutputStream());
+            } else if (reused != null) {
+                reused.incrementAndGet();
+            }
+            // discard anything left unread of any earlier response; the
+            // request that read it is over
+            ((SessionInputBufferImpl) getSessionInputBuffer()).clear();
+
+            CrawlURI curi = CURRENT_CURI.get();
+            if (curi != null) {
+                curi.setServerIP(socket.getInetAddress().getHostAddress());
+            }
+            Recorder recorder = Recorder.getHttpRecorder();
+            if (recorder != null && (recorder.getRecordedInput().isOpen()
+                    || recorder.getRecordedOutput().isOpen())) {
+                // retried within httpcomponents: record afresh
+                recorder.close();
+                recorder.closeRecorders();
+            }
+            in.record(recorder);
+            out.record(recorder);
+        }
+
+        @Override
+        protected InputStream getSocketInputStream(final Socket socket) throws IOException {
+            return in != null ? in : super.getSocketInputStream(socket);
+        }
+
+        @Override
+        protected OutputStream getSocketOutputStream(final Socket socket) throws IOException {
+            return out != null ? out : super.getSocketOutputStream(socket);
+        }
+
+        @Override
+        protected void closeRecorder() {
+            // closed by the pool, perhaps on another request's thread;
+            // recordings end with their requests
+        }
+    }
+
+    /**
+     * Socket input stream read through the Recorder of the request being
+     * recorded, while that request's thread reads it and its recording is 
+     * open; otherwise read directly.
+     */
+    protected static class RecorderSwitchingInputStream extends InputStream {
+        protected final InputStream raw;
+        protected volatile Thread thread;
+        protected volatile Recorder recorder;
+        protected volatile InputStream recording;
+
+        public RecorderSwitchingInputStream(InputStream raw) {
+            this.raw = raw;
+        }
+
+        protected void record(Recorder recorder) throws IOException {
+            this.thread = Thread.currentThread();
+            this.recorder = recorder;
+            this.recording = recorder == null ? null : recorder.inputWrap(raw);
+        }
+
+        protected InputStream current() {
+            Recorder r = recorder;
+            if (r != null && thread == Thread.currentThread()
+                    && Recorder.getHttpRecorder() == r
+                    && r.getRecordedInput().isOpen()) {
+                return recording;
+            }
+            return raw;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return current().read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return current().read(b, off, len);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return raw.available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            raw.close();
+        }
+    }
+
+    /**
+     * Socket output stream written through the Recorder of the request
+     * being recorded, while that request's thread writes it and its 
+     * recording is open; otherwise written directly.
+     */
+    protected static class RecorderSwitchingOutputStream extends OutputStream {
+        protected final OutputStream raw;
+        protected volatile Thread thread;
+        protected volatile Recorder recorder;
+        protected volatile OutputStream recording;
+
+        public RecorderSwitchingOutputStream(OutputStream raw) {
+            this.raw = raw;
+        }
+
+        protected void record(Recorder recorder) throws IOException {
+            this.thread = Thread.currentThread();
+            this.recorder = recorder;
+            this.recording = recorder == null ? null : recorder.outputWrap(raw);
+        }
+
+        protected OutputStream current() {
+            Recorder r = recorder;
+            if (r != null && thread == Thread.currentThread()
+                    && Recorder.getHttpRecorder() == r
+                    && r.getRecordedOutput().isOpen()) {
+                return recording;
+            }
+            return raw;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            current().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            current().write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            current().flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            raw.close();
+        }
+    }
+
     protected static final HttpRoutePlanner ROUTE_PLANNER = new HttpRoutePlanner() {
         @Override
         public HttpRoute determineRoute(HttpHost host, HttpRequest request,
@@ -815,11 +1116,59 @@ public class FetchHTTPRequest {
     }
     
     public HttpResponse execute() throws ClientProtocolException, IOException {
+        if (reuseConnection && isDisableSNI()) {
+            // pooled connections all use SNI, so use a connection of its own
+            reuseConnection = false;
+            connMan = buildConnectionManager();
+            httpClientBuilder.setConnectionManager(connMan);
+            httpClientBuilder.setConnectionManagerShared(false);
+        }
+
         HttpClient httpClient = httpClientBuilder.build();
         
         RequestConfig requestConfig = requestConfigBuilder.build();
         httpClientContext.setRequestConfig(requestConfig);
         
-        return httpClient.execute(targetHost, request, httpClientContext);
+        if (reuseConnection) {
+            ReusableRecordingHttpClientConnection.CURRENT_CURI.set(curi);
+        }
+        try {
+            return httpClient.execute(targetHost, request, httpClientContext);
+        } finally {
+            ReusableRecordingHttpClientConnection.CURRENT_CURI.remove();
+            tallyTlsHandshake();
+        }
+    }
+
+    /**
+     * Count any TLS handshake done for this request in the server's 
+     * substats.
+     */
+    protected void tallyTlsHandshake() {
+        Boolean resumed = (Boolean) httpClientContext.removeAttribute(TLS_RESUMED);
+        if (resumed != null) {
+            fetcher.getServerCache().getServerFor(curi.getUURI())
+                .getSubstats().tallyTlsHandshake(resumed);
+        }
+    }
+
+    /**
+     * @return whether the connection is to be given back to the shared
+     * pool after this request, if the response is read to its end 
+     */
+    public boolean isReusingConnection() {
+        return reuseConnection;
+    }
+
+    /**
+     * Done with the connection: if it came from the shared pool and is
+     * still in use (its response not read to the end), close it. A 
+     * connection whose response was read to the end has already gone 
+     * back to the pool.
+     */
+    public void releaseConnection() {
+        if (reuseConnection) {
+            request.abort();
+        }
     }
 }
@@ -24,12 +24,18 @@ import java.util.Comparator;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
+import org.archive.bdb.AutoKryo;
+import org.archive.bdb.HistotableSerializer;
 import org.archive.crawler.util.CrawledBytesHistotable;
 import org.archive.modules.CrawlURI;
 import org.archive.util.ArchiveUtils;
 import org.archive.util.ReportUtils;
 import org.archive.util.Reporter;
 
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
 /**
  * Collector of statistics for a 'subset' of a crawl,
  * such as a server (host:port), host, or frontier group
@@ -54,6 +60,8 @@ public class FetchStats extends CrawledBytesHistotable implements Serializable,
     public static final String TOTAL_BYTES = "totalBytes";          // total size of all responses
     public static final String FETCH_NONRESPONSES = "fetchNonResponses"; // processing attempts resulting in no response
                                                                     // (both failures and temp deferrals)
+    public static final String TLS_HANDSHAKES = "tlsHandshakes";    // TLS handshakes done for fetches
+    public static final String TLS_RESUMPTIONS = "tlsResumptions";  // of those, resuming an earlier session
 
     public interface HasFetchStats {
         public FetchStats getSubstats();
@@ -62,7 +70,7 @@ public class FetchStats extends CrawledBytesHistotable implements Serializable,
         public void tally(CrawlURI curi, Stage stage);
     }
 
-    protected long lastSuccessTime;
+    protected volatile long lastSuccessTime;
 
     public FetchStats() {
         super();
@@ -73,38 +81,42 @@ public class FetchStats extends CrawledBytesHistotable implements Serializable,
         super(comparator);
     }
 
-    public synchronized void tally(CrawlURI curi, Stage stage) {
+    /**
+     * Tally the given URI at the given stage of its processing. Lock-free;
+     * see {@link #add(String, long)}.
+     */
+    public void tally(CrawlURI curi, Stage stage) {
         switch(stage) {
             case SCHEDULED:
-                tally(TOTAL_SCHEDULED, 1);
+                add(TOTAL_SCHEDULED, 1);
                 break;
             case RETRIED:
                 if(curi.getFetchStatus()<=0) {
-                    tally(FETCH_NONRESPONSES, 1);
+                    add(FETCH_NONRESPONSES, 1);
                 }
                 break;
             case SUCCEEDED:
-                tally(FETCH_SUCCESSES, 1);
-                tally(FETCH_RESPONSES, 1);
-                tally(TOTAL_BYTES, curi.getContentSize());
-                tally(SUCCESS_BYTES, curi.getContentSize());
+                add(FETCH_SUCCESSES, 1);
+                add(FETCH_RESPONSES, 1);
+                add(TOTAL_BYTES, curi.getContentSize());
+                add(SUCCESS_BYTES, curi.getContentSize());
 
                 lastSuccessTime = curi.getFetchCompletedTime();
                 break;
             case DISREGARDED:
-                tally(FETCH_DISREGARDS, 1);
+                add(FETCH_DISREGARDS, 1);
                 if(curi.getFetchStatus()==S_ROBOTS_PRECLUDED) {
-                    tally(ROBOTS_DENIALS, 1);
+                    add(ROBOTS_DENIALS, 1);
                 }
                 break;
             case FAILED:
                 if(curi.getFetchStatus()<=0) {
-                    tally(FETCH_NONRESPONSES, 1);
+                    add(FETCH_NONRESPONSES, 1);
                 } else {
-                    tally(FETCH_RESPONSES, 1);
-                    tally(TOTAL_BYTES, curi.getContentSize());
+                    add(FETCH_RESPONSES, 1);
+                    add(TOTAL_BYTES, curi.getContentSize());
                 }
-                tally(FETCH_FAILURES, 1);
+                add(FETCH_FAILURES, 1);
                 break;
             default:
                 break;
@@ -115,6 +127,18 @@ public class FetchStats extends CrawledBytesHistotable implements Serializable,
         }
     }
 
+    /**
+     * Note a TLS handshake done to fetch from this subset's server(s).
+     * 
+     * @param resumed whether it resumed an earlier session
+     */
+    public void tallyTlsHandshake(boolean resumed) {
+        add(TLS_HANDSHAKES, 1);
+        if (resumed) {
+            add(TLS_RESUMPTIONS, 1);
+        }
+    }
+
     public long getFetchSuccesses() {
         return get(FETCH_SUCCESSES);
     }
@@ -140,6 +164,20 @@ public class FetchStats extends CrawledBytesHistotable implements Serializable,
         return get(ROBOTS_DENIALS);
     }
 
+    public long getTlsHandshakes() {
+        return get(TLS_HANDSHAKES);
+    }
+    public long getTlsResumptions() {
+        return get(TLS_RESUMPTIONS);
+    }
+    /**
+     * @return share of TLS handshakes that resumed a session, from 0 to 1
+     */
+    public double getTlsResumptionRatio() {
+        long handshakes = get(TLS_HANDSHAKES);
+        return handshakes == 0 ? 0 : (double) get(TLS_RESUMPTIONS) / handshakes;
+    }
+
     public long getRemaining() {
         return get(TOTAL_SCHEDULED) - (get(FETCH_SUCCESSES) + get(FETCH_FAILURES)+ get(FETCH_DISREGARDS));
     }
@@ -226,10 +264,31 @@ public class FetchStats extends CrawledBytesHistotable implements Serializable,
     public Map<String, Object> shortReportMap() {
         Map<String,Object> map = new LinkedHashMap<String, Object>(this);
         map.put("lastSuccessTime",lastSuccessTime);
+        if (get(TLS_HANDSHAKES) > 0) {
+            map.put("tlsResumptionRatio", getTlsResumptionRatio());
+        }
         return map;
     }
 
     public long getLastSuccessTime() {
         return lastSuccessTime;
     }
+
+    /**
+     * Write field by field, as for other Histotables, plus the
+     * lastSuccessTime.
+     */
+    public static void autoregisterTo(AutoKryo kryo) {
+        kryo.register(FetchStats.class, new HistotableSerializer<FetchStats>() {
+            @Override
+            protected void writeFields(Kryo kryo, Output output, FetchStats stats) {
+                output.writeVarLong(stats.lastSuccessTime, true);
+            }
+
+            @Override
+            protected void readFields(Kryo kryo, Input input, FetchStats stats) {
+                stats.lastSuccessTime = input.readVarLong(true);
+            }
+        });
+    }
 }
@@ -0,0 +1,186 @@
+/*
+ *  This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ *  Licensed to the Internet Archive (IA) by one or more individual
+ *  contributors.
+ *
+ *  The IA licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.archive.modules.fetcher;
+
+import java.io.PrintWriter;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.TrustManager;
+
+import org.archive.httpclient.ConfigurableX509TrustManager;
+import org.archive.httpclient.ConfigurableX509TrustManager.TrustLevel;
+import org.archive.util.ArchiveUtils;
+import org.archive.util.Reporter;
+
+/**
+ * Crawler-wide TLS setup shared by the HTTP fetchers: one SSLContext per
+ * certificate trust level, whose client session cache lets later
+ * connections to a server resume an earlier TLS session rather than do a
+ * full handshake. Also counts handshakes, and how many resumed a session.
+ *
+ * <p>Fetchers use the instance declared in the crawl configuration, or
+ * else a default one shared by the whole JVM.
+ */
+public class SslContextProvider implements Reporter {
+    private static final Logger logger =
+        Logger.getLogger(SslContextProvider.class.getName());
+
+    protected static SslContextProvider defaultInstance;
+
+    /**
+     * @return the instance used by fetchers when none is configured
+     */
+    public static synchronized SslContextProvider getDefault() {
+        if (defaultInstance == null) {
+            defaultInstance = new SslContextProvider();
+        }
+        return defaultInstance;
+    }
+
+    protected int sessionCacheSize = 20000;
+    public int getSessionCacheSize() {
+        return sessionCacheSize;
+    }
+    /**
+     * Most TLS sessions to keep for resumption, per trust level. Usually
+     * one session is kept per server, so this should be around the number
+     * of https servers the crawl visits within sessionTimeoutSeconds. 0
+     * means no limit.
+     */
+    public synchronized void setSessionCacheSize(int sessionCacheSize) {
+        this.sessionCacheSize = sessionCacheSize;
+        for (SSLContext sslContext : sslContexts.values()) {
+            sslContext.getClientSessionContext().setSessionCacheSize(sessionCacheSize);
+        }
+    }
+
+    protected int sessionTimeoutSeconds = 3600;
+    public int getSessionTimeoutSeconds() {
+        return sessionTimeoutSeconds;
+    }
+    /**
+     * How long a TLS session may be resumed after it was first
+     * established; older sessions are evicted from the cache. Servers
+     * often stop accepting sessions sooner. 0 means no limit.
+     */
+    public synchronized void setSessionTimeoutSeconds(int sessionTimeoutSeconds) {
+        this.sessionTimeoutSeconds = sessionTimeoutSeconds;
+        for (SSLContext sslContext : sslContexts.values()) {
+            sslContext.getClientSessionContext().setSessionTimeout(sessionTimeoutSeconds);
+        }
+    }
+
+    protected final Map<TrustLevel,SSLContext> sslContexts =
+        new EnumMap<TrustLevel,SSLContext>(TrustLevel.class);
+    protected final AtomicLong handshakes = new AtomicLong();
+    protected final AtomicLong resumptions = new AtomicLong();
+
+    /**
+     * @return the SSLContext for connections trusting certificates as
+     * given, or null if it could not be initialized
+     */
+    public synchronized SSLContext getSslContext(TrustLevel trustLevel) {
+        SSLContext sslContext = sslContexts.get(trustLevel);
+        if (sslContext == null) {
+            try {
+                TrustManager trustManager = new ConfigurableX509TrustManager(
+                        trustLevel);
+                sslContext = SSLContext.getInstance("SSL");
+                sslContext.init(null, new TrustManager[] {trustManager}, null);
+                SSLSessionContext sessions = sslContext.getClientSessionContext();
+                sessions.setSessionCacheSize(getSessionCacheSize());
+                sessions.setSessionTimeout(getSessionTimeoutSeconds());
+                sslContexts.put(trustLevel, sslContext);
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "Failed configure of ssl context "
+                        + e.getMessage(), e);
+            }
+        }
+        return sslContext;
+    }
+
+    /**
+     * Note a completed handshake.
+     *
+     * @param session the session the handshake established
+     * @param beganTime when the connection was opened, or the handshake
+     * begun, in milliseconds since the epoch
+     * @return whether the handshake resumed an earlier session, that is,
+     * one established before beganTime
+     */
+    public boolean noteHandshake(SSLSession session, long beganTime) {
+        boolean resumed = session.getCreationTime() < beganTime;
+        handshakes.incrementAndGet();
+        if (resumed) {
+            resumptions.incrementAndGet();
+        }
+        return resumed;
+    }
+
+    public long getHandshakes() {
+        return handshakes.get();
+    }
+
+    public long getResumptions() {
+        return resumptions.get();
+    }
+
+    /**
+     * @return share of handshakes that resumed a session, from 0 to 1
+     */
+    public double getResumptionRatio() {
+        long all = handshakes.get();
+        return all == 0 ? 0 : (double) resumptions.get() / all;
+    }
+
+    @Override
+    public void reportTo(PrintWriter writer) {
+        writer.print("TLS handshakes: " + getHandshakes()
+                + "; resumed sessions: " + getResumptions() + " ("
+                + ArchiveUtils.doubleToString(100 * getResumptionRatio(), 1)
+                + "%)\n");
+    }
+
+    @Override
+    public void shortReportLineTo(PrintWriter pw) {
+        pw.print(getHandshakes() + " " + getResumptions());
+    }
+
+    @Override
+    public String shortReportLegend() {
+        return "handshakes resumptions";
+    }
+
+    @Override
+    public Map<String, Object> shortReportMap() {
+        Map<String,Object> map = new LinkedHashMap<String, Object>();
+        map.put("handshakes", getHandshakes());
+        map.put("resumptions", getResumptions());
+        map.put("resumptionRatio", getResumptionRatio());
+        return map;
+    }
+}
@@ -80,6 +80,8 @@ public class CrawlServer implements Serializable, FetchStats.HasFetchStats, Iden
 
     protected int http3Port;
     protected long http3Expiry;
+    /** relearned on the next fetch; transient to keep the persisted form */
+    protected transient boolean http2Capable;
 
     /**
      * Creates a new CrawlServer object.
@@ -284,6 +286,22 @@ public class CrawlServer implements Serializable, FetchStats.HasFetchStats, Iden
         return http3Port;
     }
 
+    /**
+     * Note whether the server's last response came over a protocol
+     * multiplexing requests on one connection (HTTP/2 or later).
+     */
+    public synchronized void setHttp2Capable(boolean http2Capable) {
+        this.http2Capable = http2Capable;
+    }
+
+    /**
+     * @return whether the server's last response came over HTTP/2 or
+     * later, so that concurrent requests to it can share a connection
+     */
+    public synchronized boolean isHttp2Capable() {
+        return http2Capable;
+    }
+
     /**
      * Get key to use doing lookup on server instances.
      * 
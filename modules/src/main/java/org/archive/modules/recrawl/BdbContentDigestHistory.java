@@ -24,11 +24,11 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.archive.bdb.BdbModule;
+import org.archive.bdb.VersionedKryoBinding;
 import org.archive.modules.CrawlURI;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.Lifecycle;
 
-import com.sleepycat.bind.serial.SerialBinding;
 import com.sleepycat.bind.serial.StoredClassCatalog;
 import com.sleepycat.bind.tuple.StringBinding;
 import com.sleepycat.collections.StoredSortedMap;
@@ -78,7 +78,7 @@ public class BdbContentDigestHistory extends AbstractContentDigestHistory implem
             historyMap = new StoredSortedMap<String, Map>(
                         historyDb,
                         new StringBinding(),
-                        new SerialBinding<Map>(classCatalog, Map.class),
+                        new VersionedKryoBinding<Map>(classCatalog, Map.class),
                         true);
         } catch (DatabaseException e) {
             throw new RuntimeException(e);
@@ -22,10 +22,10 @@ package org.archive.modules.recrawl;
 import java.util.Map;
 
 import org.archive.bdb.BdbModule;
+import org.archive.bdb.VersionedKryoBinding;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.Lifecycle;
 
-import com.sleepycat.bind.serial.SerialBinding;
 import com.sleepycat.bind.serial.StoredClassCatalog;
 import com.sleepycat.bind.tuple.StringBinding;
 import com.sleepycat.collections.StoredSortedMap;
@@ -82,7 +82,7 @@ implements Lifecycle {
                 new StoredSortedMap<String,Map>(
                         historyDb,
                         new StringBinding(), 
-                        new SerialBinding<Map>(classCatalog,Map.class), 
+                        new VersionedKryoBinding<Map>(classCatalog,Map.class), 
                         true);
         } catch (DatabaseException e) {
         	throw new RuntimeException(e);
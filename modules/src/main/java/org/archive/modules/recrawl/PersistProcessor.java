@@ -37,6 +37,7 @@ import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.SerializationUtils;
 import org.archive.bdb.BdbModule;
+import org.archive.bdb.VersionedKryoBinding;
 import org.archive.modules.CrawlURI;
 import org.archive.util.ArchiveUtils;
 import org.archive.util.FileUtils;
@@ -46,7 +47,6 @@ import org.archive.util.bdbje.EnhancedEnvironment;
 import org.archive.util.iterator.LineReadingIterator;
 import org.json.JSONObject;
 
-import com.sleepycat.bind.serial.SerialBinding;
 import com.sleepycat.bind.serial.StoredClassCatalog;
 import com.sleepycat.bind.tuple.StringBinding;
 import com.sleepycat.collections.StoredIterator;
@@ -124,7 +124,7 @@ public abstract class PersistProcessor extends AbstractPersistProcessor {
         Database sourceHistoryDB = sourceEnv.openDatabase(
                 null, URI_HISTORY_DBNAME, historyDbConfig);
         StoredSortedMap<String,Map> sourceHistoryMap = new StoredSortedMap<String,Map>(sourceHistoryDB,
-                new StringBinding(), new SerialBinding<Map>(sourceClassCatalog,
+                new StringBinding(), new VersionedKryoBinding<Map>(sourceClassCatalog,
                         Map.class), true);
 
         Iterator<Entry<String,Map>> iter = sourceHistoryMap.entrySet().iterator();
@@ -234,7 +234,7 @@ public abstract class PersistProcessor extends AbstractPersistProcessor {
             historyDB = targetEnv.openDatabase(null, URI_HISTORY_DBNAME, 
                     HISTORY_DB_CONFIG.toDatabaseConfig());
             historyMap = new StoredSortedMap<String,Map>(historyDB, 
-                    new StringBinding(), new SerialBinding<Map>(classCatalog,
+                    new StringBinding(), new VersionedKryoBinding<Map>(classCatalog,
                         Map.class), true);
         }
 
@@ -24,10 +24,12 @@ import java.io.File;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.Writer;
-import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.archive.url.URIException;
 import org.apache.commons.io.IOUtils;
@@ -40,7 +42,7 @@ import org.archive.spring.Required;
 import org.archive.spring.WriteTarget;
 import org.archive.util.ArchiveUtils;
 import org.archive.util.DevUtils;
-import org.archive.util.iterator.LineReadingIterator;
+import org.archive.util.LinePipeline;
 import org.archive.util.iterator.RegexLineIterator;
 
 /**
@@ -85,6 +87,31 @@ implements ReadSource {
         this.blockAwaitingSeedLines = blockAwaitingSeedLines;
     }
 
+    /**
+     * Number of threads parsing seed lines into URIs, in parallel with
+     * reading the source and announcing the seeds (in source order).
+     */
+    protected int importThreads = 4;
+    public int getImportThreads() {
+        return importThreads;
+    }
+    public void setImportThreads(int importThreads) {
+        this.importThreads = importThreads;
+    }
+
+    protected static final int IMPORT_BATCH_SIZE = 1000;
+
+    protected static final Pattern COMMENT_LINE =
+        Pattern.compile(RegexLineIterator.COMMENT_LINE);
+    protected static final Pattern ENTRY_LINE =
+        Pattern.compile(RegexLineIterator.NONWHITESPACE_ENTRY_TRAILING_COMMENT);
+
+    /** the current or most recent seeds import, for progress reporting */
+    protected transient volatile LinePipeline<Object> lastImport;
+    public LinePipeline<Object> getLastImport() {
+        return lastImport;
+    }
+
     public TextSeedModule() {
     }
 
@@ -126,53 +153,82 @@ implements ReadSource {
             
     /**
      * Announce all seeds (and nonseed possible-directive lines) from
-     * the given Reader
+     * the given Reader. Lines are parsed by {@link #getImportThreads()}
+     * threads, but announced in order from a single thread.
      * @param reader source of seed/directive lines
      * @param latchOrNull if non-null, sent countDown after each line, allowing 
      * another thread to proceed after a configurable number of lines processed
      */
     protected void announceSeedsFromReader(BufferedReader reader, CountDownLatch latchOrNull) {
-        String s;
-        Iterator<String> iter = 
-            new RegexLineIterator(
-                    new LineReadingIterator(reader),
-                    RegexLineIterator.COMMENT_LINE,
-                    RegexLineIterator.NONWHITESPACE_ENTRY_TRAILING_COMMENT,
-                    RegexLineIterator.ENTRY);
-
-        int count = 0; 
-        while (iter.hasNext()) {
-            s = (String) iter.next();
-            if(Character.isLetterOrDigit(s.charAt(0))) {
-                // consider a likely URI
-                seedLine(s);
-                count++;
-                if(count%20000==0) {
-                    System.runFinalization();
+        LinePipeline<Object> pipeline = new LinePipeline<Object>(
+                "seeds", getImportThreads(), IMPORT_BATCH_SIZE);
+        lastImport = pipeline;
+        final int[] count = {0};
+        try {
+            pipeline.run(reader, this::parseLine, (List<Object> items) -> {
+                for (Object item : items) {
+                    if (item instanceof CrawlURI) {
+                        publishAddedSeed((CrawlURI) item);
+                        count[0]++;
+                        if (count[0] % 20000 == 0) {
+                            System.runFinalization();
+                        }
+                    } else {
+                        // report just in case it's a useful directive
+                        nonseedLine((String) item);
+                    }
+                    if (latchOrNull != null) {
+                        latchOrNull.countDown();
+                    }
                 }
-            } else {
-                // report just in case it's a useful directive
-                nonseedLine(s);
-            }
-            if(latchOrNull!=null) {
-                latchOrNull.countDown(); 
-            }
+            });
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "problem reading seeds", e);
         }
         publishConcludedSeedBatch(); 
     }
-    
+
     /**
-     * Handle a read line that is probably a seed.
+     * Parse a line of the seeds source. Safe to call from several threads
+     * at once. This, with {@link #entryToUri(String)} and
+     * {@link #seedFrom(String, String)}, replaces the former seedLine()
+     * as the place to customize how seed lines are read.
      * 
-     * @param uri String seed-containing line
+     * @param line raw source line
+     * @return the seed CrawlURI; or the line's entry, if not a seed but
+     * perhaps a directive; or null for a blank or comment line
      */
-    protected void seedLine(String uri) {
-        String originalUri = uri;
+    protected Object parseLine(String line) {
+        if (COMMENT_LINE.matcher(line).matches()) {
+            return null;
+        }
+        Matcher m = ENTRY_LINE.matcher(line);
+        if (!m.matches()) {
+            return null;
+        }
+        String entry = m.group(1);
+        if (!Character.isLetterOrDigit(entry.charAt(0))) {
+            return entry;
+        }
+        // consider a likely URI
+        String uri = entryToUri(entry);
+        CrawlURI curi = seedFrom(entry, uri);
+        return (curi != null) ? curi : uri;
+    }
+
+    protected String entryToUri(String uri) {
         if (!uri.matches("[a-zA-Z][\\w+\\-]+:.*")) { // Rfc2396 s3.1 scheme,
                                                      // minus '.'
             // Does not begin with scheme, so try http://
             uri = "http://" + uri;
         }
+        return uri;
+    }
+
+    /**
+     * @return seed CrawlURI for the given URI, or null if it will not parse
+     */
+    protected CrawlURI seedFrom(String originalUri, String uri) {
         try {
             UURI uuri = UURIFactory.getInstance(uri);
             CrawlURI curi = new CrawlURI(uuri);
@@ -181,10 +237,9 @@ implements ReadSource {
             if (getSourceTagSeeds()) {
                 curi.setSourceTag(originalUri);
             }
-            publishAddedSeed(curi);
+            return curi;
         } catch (URIException e) {
-            // try as nonseed line as fallback
-            nonseedLine(uri);
+            return null;
         }
     }
     
@@ -0,0 +1,184 @@
+/*
+ *  This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ *  Licensed to the Internet Archive (IA) by one or more individual
+ *  contributors.
+ *
+ *  The IA licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.archive.modules;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.archive.net.UURIFactory;
+import org.archive.spring.KeyedProperties;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ProcessorChainTest {
+
+    /** sleeps and allocates a little */
+    static class SlowProcessor extends Processor {
+        byte[] garbage;
+        @Override
+        protected boolean shouldProcess(CrawlURI uri) {
+            return true;
+        }
+        @Override
+        protected void innerProcess(CrawlURI uri) throws InterruptedException {
+            garbage = new byte[100000];
+            Thread.sleep(2);
+        }
+    }
+
+    /** throws on URIs containing "bad" */
+    static class FussyProcessor extends Processor {
+        @Override
+        protected boolean shouldProcess(CrawlURI uri) {
+            return true;
+        }
+        @Override
+        protected void innerProcess(CrawlURI uri) {
+            if (uri.getURI().contains("bad")) {
+                throw new IllegalStateException("fussy");
+            }
+        }
+    }
+
+    /** notes its name on each URI, and acts as the URI asks */
+    static class NotingProcessor extends Processor {
+        @Override
+        protected boolean shouldProcess(CrawlURI uri) {
+            return true;
+        }
+        @Override
+        protected void innerProcess(CrawlURI uri) {
+        }
+        @Override
+        protected ProcessResult innerProcessResult(CrawlURI uri) {
+            uri.getAnnotations().add(getBeanName());
+            if (uri.getURI().contains("finish-at-" + getBeanName())) {
+                return ProcessResult.FINISH;
+            }
+            if (uri.getURI().contains("jump-at-" + getBeanName())) {
+                return ProcessResult.jump("d");
+            }
+            return ProcessResult.PROCEED;
+        }
+    }
+
+    protected void process(ProcessorChain chain, String uri) throws Exception {
+        CrawlURI curi = new CrawlURI(UURIFactory.getInstance(uri));
+        KeyedProperties.pushOverrideContext(curi);
+        try {
+            chain.process(curi, null);
+        } finally {
+            KeyedProperties.clearOverridesFrom(curi);
+        }
+    }
+
+    @Test
+    public void testProcessInStages() throws Exception {
+        ProcessorChain chain = new ProcessorChain();
+        List<Processor> processors = new ArrayList<Processor>();
+        for (String name : Arrays.asList("a", "b", "c", "d", "e")) {
+            NotingProcessor p = new NotingProcessor();
+            p.setBeanName(name);
+            processors.add(p);
+        }
+        chain.setProcessors(processors);
+
+        assertEquals(Arrays.asList("a", "b", "c", "d", "e"),
+                processInStages(chain, "http://example.com/", 2));
+        assertEquals(Arrays.asList("a", "d", "e"),
+                processInStages(chain, "http://example.com/jump-at-a", 2));
+        // jump past the stage boundary
+        assertEquals(Arrays.asList("a", "b", "d", "e"),
+                processInStages(chain, "http://example.com/jump-at-b", 3));
+        assertEquals(Arrays.asList("a"),
+                processInStages(chain, "http://example.com/finish-at-a", 2));
+        assertEquals(Arrays.asList("a", "b", "c"),
+                processInStages(chain, "http://example.com/finish-at-c", 2));
+    }
+
+    /**
+     * Process a URI up to the processor at boundary, then, as another
+     * stage would, from wherever it stopped.
+     */
+    protected List<String> processInStages(ProcessorChain chain,
+            String uri, int boundary) throws Exception {
+        CrawlURI curi = new CrawlURI(UURIFactory.getInstance(uri));
+        KeyedProperties.pushOverrideContext(curi);
+        try {
+            int resumeAt = chain.process(curi, null, 0, boundary);
+            assertTrue(resumeAt >= boundary);
+            if (resumeAt < chain.size()) {
+                assertEquals(chain.size(),
+                        chain.process(curi, null, resumeAt, Integer.MAX_VALUE));
+            }
+        } finally {
+            KeyedProperties.clearOverridesFrom(curi);
+        }
+        return new ArrayList<String>(curi.getAnnotations());
+    }
+
+    @Test
+    public void testInstrumentation() throws Exception {
+        SlowProcessor slow = new SlowProcessor();
+        slow.setBeanName("slow");
+        FussyProcessor fussy = new FussyProcessor();
+        fussy.setBeanName("fussy");
+        ProcessorChain chain = new ProcessorChain();
+        chain.setProcessors(Arrays.asList(slow, fussy));
+        chain.setInstrumentation(ProcessorChain.Instrumentation.ALLOCATION);
+
+        process(chain, "http://example.com/1");
+        process(chain, "http://example.com/2");
+        assertThrows(IllegalStateException.class,
+                () -> process(chain, "http://example.com/bad"));
+
+        assertEquals(3, slow.getProcessorStats().getLatency().getCount());
+        assertTrue(slow.getProcessorStats().getLatency().getPercentile(0.5) >= 2000);
+        assertEquals(0, slow.getProcessorStats().getErrors());
+        if (ProcessorStats.currentThreadAllocatedBytes() >= 0) {
+            assertTrue(slow.getProcessorStats().getAllocatedBytes() >= 300000);
+        }
+        assertEquals(3, fussy.getProcessorStats().getLatency().getCount());
+        assertEquals(1, fussy.getProcessorStats().getErrors());
+
+        Map<String,Object> map = chain.processorStatsMap();
+        assertEquals(Arrays.asList("slow", "fussy"), Arrays.asList(map.keySet().toArray()));
+        @SuppressWarnings("unchecked")
+        Map<String,Object> fussyMap = (Map<String,Object>) map.get("fussy");
+        assertEquals(1L, fussyMap.get("errors"));
+
+        StringWriter sw = new StringWriter();
+        chain.reportTo(new PrintWriter(sw));
+        assertTrue(sw.toString().contains("Invocations: 3"), sw.toString());
+
+        // near-zero cost mode: counts only
+        chain.setInstrumentation(ProcessorChain.Instrumentation.NONE);
+        process(chain, "http://example.com/3");
+        assertEquals(3, slow.getProcessorStats().getLatency().getCount());
+        assertEquals(4, slow.getURICount());
+    }
+}
@@ -18,12 +18,37 @@
  */
 package org.archive.modules.fetcher;
 
+import static org.archive.modules.fetcher.FetchStatusCodes.S_DNS_SUCCESS;
+import static org.archive.modules.fetcher.FetchStatusCodes.S_DOMAIN_UNRESOLVABLE;
+
+import java.io.File;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.archive.modules.CrawlURI;
 import org.archive.modules.ProcessorTestBase;
+import org.archive.modules.net.CrawlHost;
+import org.archive.net.UURIFactory;
+import org.archive.util.Recorder;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.xbill.DNS.ARecord;
+import org.xbill.DNS.DClass;
+import org.xbill.DNS.Flags;
+import org.xbill.DNS.Message;
 import org.xbill.DNS.Name;
+import org.xbill.DNS.Rcode;
 import org.xbill.DNS.Record;
+import org.xbill.DNS.SOARecord;
+import org.xbill.DNS.Section;
+import org.xbill.DNS.SimpleResolver;
 import org.xbill.DNS.TextParseException;
 
 /**
@@ -43,5 +68,153 @@ public class FetchDNSTest extends ProcessorTestBase {
                 new ARecord(Name.fromString("example.org."), 0, 1000L, new byte[]{1, 2, 3, 4}),
         }).getAddress().getHostAddress());
     }
-    
+
+    /**
+     * Answers A queries over UDP: a.example. is 10.0.0.1, anything else
+     * does not exist. Counts the queries.
+     */
+    static class StubDnsServer extends Thread {
+        final DatagramSocket socket;
+        final AtomicInteger queries = new AtomicInteger();
+
+        StubDnsServer() throws SocketException {
+            socket = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+            setDaemon(true);
+        }
+
+        InetSocketAddress getAddress() {
+            return (InetSocketAddress) socket.getLocalSocketAddress();
+        }
+
+        @Override
+        public void run() {
+            byte[] buf = new byte[512];
+            while (!socket.isClosed()) {
+                try {
+                    DatagramPacket packet = new DatagramPacket(buf, buf.length);
+                    socket.receive(packet);
+                    queries.incrementAndGet();
+                    Message query = new Message(
+                            Arrays.copyOf(buf, packet.getLength()));
+                    Message response = new Message(query.getHeader().getID());
+                    response.getHeader().setFlag(Flags.QR);
+                    Record question = query.getQuestion();
+                    response.addRecord(question, Section.QUESTION);
+                    Name name = question.getName();
+                    if (name.equals(Name.fromString("a.example."))) {
+                        response.addRecord(new ARecord(name, DClass.IN, 600,
+                                InetAddress.getByAddress(new byte[] {10, 0, 0, 1})),
+                                Section.ANSWER);
+                        response.addRecord(new ARecord(name, DClass.IN, 300,
+                                InetAddress.getByAddress(new byte[] {10, 0, 0, 2})),
+                                Section.ANSWER);
+                    } else {
+                        response.getHeader().setRcode(Rcode.NXDOMAIN);
+                        response.addRecord(new SOARecord(Name.fromString("example."),
+                                DClass.IN, 3600, Name.fromString("ns.example."),
+                                Name.fromString("admin.example."), 1, 3600, 600,
+                                86400, 60), Section.AUTHORITY);
+                    }
+                    byte[] wire = response.toWire();
+                    socket.send(new DatagramPacket(wire, wire.length,
+                            packet.getSocketAddress()));
+                } catch (Exception e) {
+                    // closed, or unparseable query
+                }
+            }
+        }
+    }
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    public void testAsyncResolver() throws Exception {
+        StubDnsServer server = new StubDnsServer();
+        server.start();
+        try {
+            AsyncDnsResolver resolver = new AsyncDnsResolver();
+            resolver.setResolver(new SimpleResolver(server.getAddress()));
+
+            resolver.prefetch("a.example");
+            resolver.prefetch("A.example.");
+            resolver.prefetch("gone.example");
+            AsyncDnsResolver.Answer answer = resolver.await("a.example");
+            Assertions.assertFalse(answer.isNegative());
+            Record[] records = answer.getRecords(System.currentTimeMillis());
+            Assertions.assertEquals("10.0.0.1",
+                    ((ARecord) records[0]).getAddress().getHostAddress());
+            Assertions.assertTrue(records[0].getTTL() <= 300);
+            // the RRset is cached for its shortest TTL
+            Assertions.assertTrue(answer.isExpired(System.currentTimeMillis() + 301000));
+            Assertions.assertFalse(answer.isExpired(System.currentTimeMillis() + 290000));
+            AsyncDnsResolver.Answer negative = resolver.await("gone.example");
+            Assertions.assertTrue(negative.isNegative());
+            // negative TTL is the SOA minimum
+            Assertions.assertTrue(negative.isExpired(System.currentTimeMillis() + 61000));
+            Assertions.assertFalse(negative.isExpired(System.currentTimeMillis() + 50000));
+
+            Assertions.assertEquals(2, server.queries.get());
+            Assertions.assertEquals(2, resolver.getPrefetches());
+            Assertions.assertEquals(1, resolver.getNegativeAnswers());
+
+            // FetchDNS uses the cached answers, with no further queries
+            FetchDNS fetchDns = new FetchDNS();
+            fetchDns.setServerCache(new DefaultServerCache());
+            fetchDns.setAsyncDnsResolver(resolver);
+            long cacheHits = resolver.getCacheHits();
+            Recorder recorder = new Recorder(tempDir, getClass().getName(),
+                    16 * 1024, 512 * 1024);
+
+            CrawlURI curi = new CrawlURI(UURIFactory.getInstance("dns:a.example"));
+            curi.setRecorder(recorder);
+            fetchDns.process(curi);
+            Assertions.assertEquals(S_DNS_SUCCESS, curi.getFetchStatus());
+            CrawlHost host = fetchDns.getServerCache().getHostFor("a.example");
+            Assertions.assertEquals("10.0.0.1", host.getIP().getHostAddress());
+            Assertions.assertTrue(host.getIpTTL() > 0 && host.getIpTTL() <= 600);
+            Assertions.assertTrue(recorder.getContentReplayPrefixString(100)
+                    .contains("10.0.0.1"));
+
+            curi = new CrawlURI(UURIFactory.getInstance("dns:gone.example"));
+            curi.setRecorder(recorder);
+            fetchDns.process(curi);
+            Assertions.assertEquals(S_DOMAIN_UNRESOLVABLE, curi.getFetchStatus());
+
+            Assertions.assertEquals(2, server.queries.get());
+            Assertions.assertEquals(cacheHits + 2, resolver.getCacheHits());
+        } finally {
+            server.socket.close();
+        }
+    }
+
+    @Test
+    public void testFailingPrefetchesDoNotRecurse() throws Exception {
+        // a server that never replies holds the only lookup slot
+        DatagramSocket silent = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+        try {
+            SimpleResolver simple = new SimpleResolver(new InetSocketAddress(
+                    InetAddress.getLoopbackAddress(), silent.getLocalPort()));
+            simple.setTimeout(Duration.ofSeconds(1));
+            AsyncDnsResolver resolver = new AsyncDnsResolver();
+            resolver.setResolver(simple);
+            resolver.setMaxOutstandingLookups(1);
+            resolver.prefetch("slow.example");
+
+            // names failing as soon as sent, all waiting for the one slot
+            int names = 50000;
+            for (int i = 0; i < names; i++) {
+                resolver.prefetch("bad" + i + "..example");
+            }
+            long deadline = System.currentTimeMillis() + 30000;
+            while (resolver.getFailures() < names + 1
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            Assertions.assertEquals(names + 1, resolver.getFailures());
+            Assertions.assertEquals(names + 1, resolver.getPrefetches());
+        } finally {
+            silent.close();
+        }
+    }
 }
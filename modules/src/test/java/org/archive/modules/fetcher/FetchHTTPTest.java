@@ -749,10 +749,10 @@ public class FetchHTTPTest {
         fetcher().setUseHTTP11(true);
         fetcher().setSendConnectionClose(false);
         
-        /* XXX Server expects us to close the connection apparently. But we
-         * don't detect end of chunked transfer. With these small timeouts we
-         * can finish quickly. A couple of SocketTimeoutExceptions will happen
-         * within RecordingInputStream.readFullyOrUntil().
+        /* The connection is kept open, and the end of the chunked transfer
+         * found by reading through the response entity. The small timeouts
+         * keep the test quick should that ever fail, with a couple of
+         * SocketTimeoutExceptions within RecordingInputStream.
          */
         fetcher().setSoTimeoutMs(500);
         fetcher().setTimeoutSeconds(1);
@@ -771,6 +771,55 @@ public class FetchHTTPTest {
         assertEquals(DEFAULT_PAYLOAD_STRING, contentString(curi));
     }
 
+    @Test
+    public void testConnectionReuse() throws Exception {
+        fetcher().setUseHTTP11(true);
+        fetcher().setSendConnectionClose(false);
+
+        for (String uri : Arrays.asList("http://localhost:7777/",
+                "http://localhost:7777/chunked.txt", "http://localhost:7777/",
+                "https://localhost:7443/", "https://localhost:7443/")) {
+            CrawlURI curi = makeCrawlURI(uri);
+            String path = curi.getUURI().getEscapedPathQuery();
+            fetcher().process(curi);
+            String requestString = httpRequestString(curi);
+            assertTrue(requestString.startsWith("GET " + path + " HTTP/1.1\r\n"), requestString);
+            assertFalse(requestString.matches("(?s).*Connection: [Cc]lose\r\n.*"));
+            // each recording holds just its own request and response
+            assertTrue(requestString.endsWith("\r\n\r\n"));
+            assertTrue(rawResponseString(curi).startsWith("HTTP/1.1 200 "));
+            assertEquals(DEFAULT_PAYLOAD_STRING, contentString(curi));
+            assertNotNull(curi.getServerIP());
+            assertTrue(curi.getNonFatalFailures().isEmpty());
+        }
+        // one connection per server, each reused
+        assertEquals(3, fetcher().connectionsReused.get());
+        assertTrue(fetcher().report().contains("requests on reused connections: 3"),
+                fetcher().report());
+    }
+
+    @Test
+    public void testTlsSessionResumption() throws Exception {
+        SslContextProvider tls = new SslContextProvider();
+        fetcher().setSslContextProvider(tls);
+
+        // a new connection each time, sendConnectionClose being true
+        CrawlURI curi = null;
+        for (int i = 0; i < 3; i++) {
+            curi = makeCrawlURI("https://localhost:7443/");
+            fetcher().process(curi);
+            assertEquals(200, curi.getFetchStatus());
+        }
+        FetchStats substats = fetcher().getServerCache().getServerFor(
+                curi.getUURI()).getSubstats();
+        assertEquals(3, substats.getTlsHandshakes());
+        assertEquals(2, substats.getTlsResumptions());
+        assertEquals(3, tls.getHandshakes());
+        assertEquals(2, tls.getResumptions());
+        assertTrue(fetcher().report().contains("TLS handshakes: 3; resumed sessions: 2"),
+                fetcher().report());
+    }
+
     protected static class NoResponseServer extends Thread {
         protected String listenAddress;
         protected int listenPort;
@@ -0,0 +1,102 @@
+/*
+ *  This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ *  Licensed to the Internet Archive (IA) by one or more individual
+ *  contributors.
+ *
+ *  The IA licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.archive.modules.fetcher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ObjectInputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.archive.crawler.util.CrawledBytesHistotable;
+import org.archive.modules.CrawlURI;
+import org.archive.modules.net.CrawlHost;
+import org.archive.modules.net.CrawlHostTest;
+import org.archive.net.UURIFactory;
+import org.archive.bdb.AutoKryo;
+import org.junit.jupiter.api.Test;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+public class FetchStatsTest {
+
+    @Test
+    public void testConcurrentTally() throws Exception {
+        final FetchStats stats = new FetchStats();
+        final CrawlURI curi = new CrawlURI(UURIFactory.getInstance("http://example.com/"));
+        curi.setFetchStatus(200);
+        curi.setContentSize(100);
+        final CrawlURI unfetched = new CrawlURI(UURIFactory.getInstance("http://example.com/"));
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread() {
+                public void run() {
+                    for (int i = 0; i < 1000; i++) {
+                        stats.tally(unfetched, FetchStats.Stage.SCHEDULED);
+                        stats.tally(curi, FetchStats.Stage.SUCCEEDED);
+                        if (i % 100 == 0) {
+                            // reads, folding the counts, meanwhile
+                            stats.getFetchSuccesses();
+                        }
+                    }
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(8000, stats.getTotalScheduled());
+        assertEquals(8000, stats.getFetchSuccesses());
+        assertEquals(800000, stats.getSuccessBytes());
+        assertEquals(800000, stats.getNovelBytes());
+        assertEquals(8000, stats.getNovelUrls());
+        assertEquals(800000, (long) stats.get(CrawledBytesHistotable.NOVEL));
+    }
+
+    @Test
+    public void testSerializationFoldsCounts() throws Exception {
+        CrawlHost host = new CrawlHost("example.com");
+        CrawlURI curi = new CrawlURI(UURIFactory.getInstance("http://example.com/"));
+        curi.setFetchStatus(200);
+        curi.setContentSize(10);
+        host.getSubstats().tally(curi, FetchStats.Stage.SUCCEEDED);
+
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(
+                CrawlHostTest.serialize(host)));
+        CrawlHost copy = (CrawlHost) in.readObject();
+        in.close();
+        assertEquals(1, copy.getSubstats().getFetchSuccesses());
+        assertEquals(10, copy.getSubstats().getNovelBytes());
+
+        curi.setFetchCompletedTime(1234567890123L);
+        host.getSubstats().tally(curi, FetchStats.Stage.SUCCEEDED);
+        AutoKryo kryo = new AutoKryo();
+        kryo.autoregister(CrawlHost.class);
+        Output buffer = new Output(1024, -1);
+        kryo.writeObject(buffer, host);
+        copy = kryo.readObject(new Input(buffer.toBytes()), CrawlHost.class);
+        assertEquals(2, copy.getSubstats().getFetchSuccesses());
+        assertEquals(20, copy.getSubstats().getNovelBytes());
+        assertEquals(1234567890123L, copy.getSubstats().getLastSuccessTime());
+    }
+}